@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.benchmark;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.basinmc.ejector.communication.CommunicationAdapter;
+import org.basinmc.ejector.communication.CommunicationManager;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.statistics.EventStatistics;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the overhead of the fan-out of a payload to a set of (no-op) adapters.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommunicationManagerBenchmark {
+
+  @Param({"1", "4", "16"})
+  public int adapterCount;
+
+  @Param({"false", "true"})
+  public boolean statistics;
+
+  private CommunicationManager manager;
+  private Payload<?> payload;
+  private Projection projection;
+
+  @Setup
+  public void setup(@NonNull Blackhole blackhole) {
+    List<CommunicationAdapter> adapters = new ArrayList<>();
+
+    for (int i = 0; i < this.adapterCount; ++i) {
+      adapters.add(new CommunicationAdapter() {
+        @Override
+        public void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection) {
+          blackhole.consume(payload);
+        }
+
+        @Override
+        public void sendMessage(@NonNull Message message) {
+          blackhole.consume(message);
+        }
+      });
+    }
+
+    this.manager = new CommunicationManager(adapters,
+        this.statistics ? new EventStatistics(60, 168, 256, 1024, 4096) : null,
+        new SimpleMeterRegistry(), false, null);
+    this.payload = Fixtures.payload(PayloadType.PUSH);
+    this.projection = Fixtures.projection(PayloadType.PUSH);
+  }
+
+  @Benchmark
+  public void handlePayload() {
+    this.manager.handlePayload(this.payload, this.projection);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.benchmark;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.basinmc.ejector.controller.EncodedPayload;
+import org.basinmc.ejector.controller.EncodedPayloadConverter;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.utility.InternPool;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+
+/**
+ * <p>Provides access to the representative payload fixtures which are shipped with the
+ * benchmarks.</p>
+ *
+ * <p>Fixtures are stored as {@code /fixtures/<event name>.json} (where the event name is equal
+ * to the value of the {@code X-GitHub-Event} header) and have been extracted from the request
+ * collection within {@code contrib/insomnia.json}.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class Fixtures {
+
+  private static final EncodedPayloadConverter converter =
+      new EncodedPayloadConverter(new InternPool(8192), 26214400, 65536);
+
+  private Fixtures() {
+  }
+
+  /**
+   * Loads the encoded fixture for the specified payload type.
+   *
+   * @param type a payload type.
+   * @return an encoded payload.
+   */
+  @NonNull
+  public static String load(@NonNull PayloadType type) {
+    String path = "/fixtures/" + type.name().toLowerCase() + ".json";
+
+    try (InputStream inputStream = Fixtures.class.getResourceAsStream(path)) {
+      if (inputStream == null) {
+        throw new IllegalArgumentException("No fixture for payload type " + type);
+      }
+
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to read fixture " + path, ex);
+    }
+  }
+
+  /**
+   * Loads and reduces the fixture for the specified payload type in the same way as a request
+   * body.
+   *
+   * @param type a payload type.
+   * @return a reduced payload.
+   */
+  @NonNull
+  public static EncodedPayload encode(@NonNull PayloadType type) {
+    byte[] body = load(type).getBytes(StandardCharsets.UTF_8);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-GitHub-Event", type.name().toLowerCase());
+
+    try {
+      return converter.read(EncodedPayload.class, new HttpInputMessage() {
+        @Override
+        public InputStream getBody() {
+          return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+          return headers;
+        }
+      });
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to reduce fixture for payload type " + type, ex);
+    }
+  }
+
+  /**
+   * Loads and decodes the fixture for the specified payload type.
+   *
+   * @param type a payload type.
+   * @return a decoded payload.
+   */
+  @NonNull
+  public static Payload<?> payload(@NonNull PayloadType type) {
+    try {
+      return new Payload<>(UUID.randomUUID(), type, type.read(encode(type).getContent()));
+    } catch (IOException ex) {
+      throw new UncheckedIOException("Failed to decode fixture for payload type " + type, ex);
+    }
+  }
+
+  /**
+   * Loads the fixture for the specified payload type and extracts its projection.
+   *
+   * @param type a payload type.
+   * @return a projection.
+   */
+  @NonNull
+  public static Projection projection(@NonNull PayloadType type) {
+    return encode(type).getProjection();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.basinmc.ejector.controller.EncodedPayload;
+import org.basinmc.ejector.controller.EncodedPayloadConverter;
+import org.basinmc.ejector.utility.InternPool;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+
+/**
+ * Measures the time required to decode an encoded payload into its event representation.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadParseBenchmark {
+
+  @Param({"COMMIT_COMMENT", "CREATE", "DELETE", "DEPLOYMENT", "DEPLOYMENT_STATUS", "FORK", "GOLLUM",
+      "ISSUE_COMMENT", "ISSUES", "LABEL", "MEMBER", "MEMBERSHIP", "MILESTONE", "ORGANIZATION",
+      "ORG_BLOCK", "PAGE_BUILD", "PUBLIC", "PULL_REQUEST", "PULL_REQUEST_REVIEW",
+      "PULL_REQUEST_REVIEW_COMMENT", "PUSH", "RELEASE", "REPOSITORY", "TEAM", "TEAM_ADD"})
+  public String type;
+
+  private final EncodedPayloadConverter converter =
+      new EncodedPayloadConverter(new InternPool(8192), 26214400, 65536);
+
+  private PayloadType payloadType;
+  private String encodedPayload;
+  private byte[] body;
+  private HttpHeaders headers;
+
+  @Setup
+  public void setup() {
+    this.payloadType = PayloadType.valueOf(this.type);
+    this.encodedPayload = Fixtures.load(this.payloadType);
+    this.body = this.encodedPayload.getBytes(StandardCharsets.UTF_8);
+
+    this.headers = new HttpHeaders();
+    this.headers.setContentType(MediaType.APPLICATION_JSON);
+    this.headers.set("X-GitHub-Event", this.type.toLowerCase());
+  }
+
+  @Benchmark
+  public Event read() throws IOException {
+    return this.payloadType.read(this.encodedPayload);
+  }
+
+  /**
+   * Decodes the payload from a request body (including the reduction of its contents and the
+   * extraction of its projection).
+   */
+  @Benchmark
+  public Event readStreaming() throws IOException {
+    EncodedPayload payload = this.converter.read(EncodedPayload.class, new HttpInputMessage() {
+      @Override
+      public InputStream getBody() {
+        return new ByteArrayInputStream(PayloadParseBenchmark.this.body);
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return PayloadParseBenchmark.this.headers;
+      }
+    });
+
+    return this.payloadType.read(payload.getContent());
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Hex;
+import org.basinmc.ejector.controller.EncodedPayload;
+import org.basinmc.ejector.controller.GitHubAuthenticationAdvice;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.utility.InternPool;
+import org.basinmc.stormdrain.PayloadType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+
+/**
+ * Measures the time required to verify the HMAC signature of a delivery.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureVerificationBenchmark {
+
+  private static final String SECRET = "benchmark";
+
+  @Param({"sha1", "sha256"})
+  public String algorithm;
+
+  /**
+   * Selects a small (label) and a large (pull request) payload.
+   */
+  @Param({"LABEL", "PULL_REQUEST"})
+  public String type;
+
+  private GitHubAuthenticationAdvice advice;
+  private byte[] body;
+  private HttpHeaders headers;
+  private EncodedPayload payload;
+
+  @Setup
+  public void setup() throws Exception {
+    this.advice = new GitHubAuthenticationAdvice(SECRET, new SimpleMeterRegistry(),
+        new InternPool(8192), Long.MAX_VALUE);
+    this.body = Fixtures.load(PayloadType.valueOf(this.type)).getBytes(StandardCharsets.UTF_8);
+    this.payload = new EncodedPayload("", Projection.builder(null).build(), this.body.length);
+
+    String macAlgorithm = "sha1".equals(this.algorithm) ? "HmacSHA1" : "HmacSHA256";
+    Mac mac = Mac.getInstance(macAlgorithm);
+    mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), macAlgorithm));
+    String signature = Hex.encodeHexString(mac.doFinal(this.body));
+
+    this.headers = new HttpHeaders();
+    this.headers.set("X-Hub-Signature", this.algorithm + "=" + signature);
+  }
+
+  @Benchmark
+  public Object verify() throws IOException {
+    HttpInputMessage inputMessage = new HttpInputMessage() {
+      @Override
+      public InputStream getBody() {
+        return new ByteArrayInputStream(SignatureVerificationBenchmark.this.body);
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return SignatureVerificationBenchmark.this.headers;
+      }
+    };
+
+    // the body is consumed by the advice itself as no converter is involved
+    HttpInputMessage signedMessage = this.advice
+        .beforeBodyRead(inputMessage, null, EncodedPayload.class, null);
+    signedMessage.getBody();
+    return this.advice
+        .afterBodyRead(this.payload, signedMessage, null, EncodedPayload.class, null);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.discord;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.core.JDA;
+import org.basinmc.ejector.benchmark.Fixtures;
+import org.basinmc.ejector.communication.Message.Color;
+import org.basinmc.ejector.communication.Message.Style;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.configuration.DiscordConfiguration;
+import org.basinmc.ejector.delivery.CircuitBreakerRegistry;
+import org.basinmc.ejector.delivery.DeadLetterQueue;
+import org.basinmc.ejector.delivery.DeliveryPriorities;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time required to render events and messages into their Discord representation.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiscordRenderBenchmark {
+
+  @Param({"COMMIT_COMMENT", "CREATE", "DELETE", "DEPLOYMENT", "DEPLOYMENT_STATUS", "FORK", "GOLLUM",
+      "ISSUE_COMMENT", "ISSUES", "LABEL", "MEMBER", "MEMBERSHIP", "MILESTONE", "ORGANIZATION",
+      "ORG_BLOCK", "PAGE_BUILD", "PUBLIC", "PULL_REQUEST", "PULL_REQUEST_REVIEW",
+      "PULL_REQUEST_REVIEW_COMMENT", "PUSH", "RELEASE", "REPOSITORY", "TEAM", "TEAM_ADD"})
+  public String type;
+
+  private DiscordCommunicationAdapter adapter;
+  private Payload<?> payload;
+  private Projection projection;
+  private Message message;
+
+  @Setup
+  public void setup() {
+    // rendering does not require a connection and thus we'll simply pass a disconnected client
+    JDA client = (JDA) Proxy.newProxyInstance(JDA.class.getClassLoader(),
+        new Class<?>[]{JDA.class}, (proxy, method, arguments) -> {
+          switch (method.getName()) {
+            case "getStatus":
+              return JDA.Status.SHUTDOWN;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == arguments[0];
+            case "toString":
+              return "DisconnectedJDA";
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    this.adapter = new DiscordCommunicationAdapter(client, new DiscordConfiguration(), registry,
+        new CircuitBreakerRegistry(5, 1000, 300000, registry),
+        new DeadLetterQueue(1000, "", 5000, registry),
+        new DeliveryPriorities(new String[0], new String[0], 8, 4, 1, 256), null);
+    this.payload = Fixtures.payload(PayloadType.valueOf(this.type));
+    this.projection = Fixtures.projection(PayloadType.valueOf(this.type));
+    this.message = Message.builder()
+        .withText("@user")
+        .withColor(Color.GREEN)
+        .withText("[BasinMC/Ejector]")
+        .withColor(Color.NONE)
+        .withStyle(Style.BOLD)
+        .withText("last 7 day(s):")
+        .withStyle(Style.NORMAL)
+        .withText(" 42 push, 7 pull_request (3 merged)")
+        .build();
+  }
+
+  @Benchmark
+  public net.dv8tion.jda.core.entities.Message render() {
+    return this.adapter.render(this.payload, this.projection);
+  }
+
+  @Benchmark
+  public String format() {
+    return DiscordCommunicationAdapter.format(this.message);
+  }
+}
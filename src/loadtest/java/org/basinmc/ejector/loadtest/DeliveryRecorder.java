@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.loadtest;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Correlates generated deliveries with the messages which are received by the fake chat
+ * servers.</p>
+ *
+ * <p>Each generated delivery carries a unique marker (within the repository name) which is
+ * rendered into every outbound message. Upon receipt, the marker is extracted in order to compute
+ * the end-to-end latency of the delivery for the respective sink.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class DeliveryRecorder {
+
+  /**
+   * Defines the repository name prefix which identifies generated deliveries.
+   */
+  static final String MARKER_PREFIX = "loadtest/m";
+  private static final Pattern MARKER = Pattern.compile(Pattern.quote(MARKER_PREFIX) + "(\\d+)");
+
+  private final AtomicLongArray sentAt;
+  private final AtomicLongArray[] receivedAt;
+  private final AtomicInteger sent = new AtomicInteger();
+  private final AtomicInteger[] received;
+  private final AtomicInteger unmatched = new AtomicInteger();
+
+  DeliveryRecorder(int capacity) {
+    this.sentAt = new AtomicLongArray(capacity);
+    this.receivedAt = new AtomicLongArray[Sink.values().length];
+    this.received = new AtomicInteger[Sink.values().length];
+
+    for (Sink sink : Sink.values()) {
+      this.receivedAt[sink.ordinal()] = new AtomicLongArray(capacity);
+      this.received[sink.ordinal()] = new AtomicInteger();
+    }
+  }
+
+  /**
+   * Retrieves the maximum amount of deliveries which may be recorded.
+   *
+   * @return a capacity.
+   */
+  int getCapacity() {
+    return this.sentAt.length();
+  }
+
+  /**
+   * Records the transmission of a delivery.
+   *
+   * @param sequence a sequence number.
+   * @param time a timestamp (as returned by {@link System#nanoTime()}).
+   */
+  void sent(int sequence, long time) {
+    this.sentAt.set(sequence, time);
+    this.sent.incrementAndGet();
+  }
+
+  /**
+   * Records the receipt of a message by one of the fake servers.
+   *
+   * @param sink the receiving sink.
+   * @param text the message text (or its encoded representation).
+   */
+  void received(@NonNull Sink sink, @NonNull CharSequence text) {
+    long time = System.nanoTime();
+    Matcher matcher = MARKER.matcher(text);
+
+    if (!matcher.find()) {
+      this.unmatched.incrementAndGet();
+      return;
+    }
+
+    int sequence;
+    try {
+      sequence = Integer.parseInt(matcher.group(1));
+    } catch (NumberFormatException ex) {
+      this.unmatched.incrementAndGet();
+      return;
+    }
+
+    if (sequence < 0 || sequence >= this.sentAt.length()) {
+      this.unmatched.incrementAndGet();
+      return;
+    }
+
+    // duplicates (e.g. caused by retries) are only counted once
+    if (this.receivedAt[sink.ordinal()].compareAndSet(sequence, 0, time)) {
+      this.received[sink.ordinal()].incrementAndGet();
+    }
+  }
+
+  /**
+   * Retrieves the total amount of deliveries which have been sent.
+   *
+   * @return a delivery count.
+   */
+  int getSent() {
+    return this.sent.get();
+  }
+
+  /**
+   * Retrieves the amount of deliveries which have been received by the specified sink.
+   *
+   * @param sink a sink.
+   * @return a delivery count.
+   */
+  int getReceived(@NonNull Sink sink) {
+    return this.received[sink.ordinal()].get();
+  }
+
+  /**
+   * Retrieves the amount of received messages which did not carry a valid marker.
+   *
+   * @return a message count.
+   */
+  int getUnmatched() {
+    return this.unmatched.get();
+  }
+
+  /**
+   * Computes the end-to-end latencies (in nanoseconds) of all deliveries which have been
+   * received by the specified sink (in ascending order).
+   *
+   * @param sink a sink.
+   * @return an array of latencies.
+   */
+  @NonNull
+  long[] getLatencies(@NonNull Sink sink) {
+    AtomicLongArray receivedAt = this.receivedAt[sink.ordinal()];
+    long[] latencies = new long[this.received[sink.ordinal()].get()];
+    int count = 0;
+
+    for (int i = 0; i < receivedAt.length() && count < latencies.length; ++i) {
+      long received = receivedAt.get(i);
+      long sent = this.sentAt.get(i);
+
+      if (received != 0 && sent != 0) {
+        latencies[count++] = received - sent;
+      }
+    }
+
+    latencies = Arrays.copyOf(latencies, count);
+    Arrays.sort(latencies);
+    return latencies;
+  }
+
+  /**
+   * Provides a list of sinks which receive messages.
+   */
+  enum Sink {
+    DISCORD,
+    IRC,
+    WEBHOOK
+  }
+}
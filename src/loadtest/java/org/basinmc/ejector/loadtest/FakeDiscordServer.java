@@ -0,0 +1,511 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.loadtest.DeliveryRecorder.Sink;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketListener;
+import org.eclipse.jetty.websocket.servlet.WebSocketServlet;
+import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
+
+/**
+ * <p>Provides a minimal implementation of the Discord REST API and gateway.</p>
+ *
+ * <p>The gateway announces a single guild with a single text channel while the REST API accepts
+ * messages for said channel. Messages are subject to a per-channel rate limit which is
+ * communicated through the same headers as the actual API (requests which exceed the limit are
+ * rejected with status 429).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class FakeDiscordServer implements Closeable {
+
+  private static final Logger logger = LogManager.getFormatterLogger(FakeDiscordServer.class);
+
+  static final long USER_ID = 100000000000000001L;
+  static final long GUILD_ID = 200000000000000001L;
+  static final long CHANNEL_ID = 300000000000000001L;
+
+  private static final Pattern VERSION_PREFIX = Pattern.compile("^/v\\d+");
+  private static final Pattern MESSAGE_ROUTE = Pattern.compile("^/channels/(\\d+)/messages$");
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final DeliveryRecorder recorder;
+  private final int rateLimit;
+  private final long rateLimitWindow;
+
+  private final Server server;
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final AtomicLong messageId = new AtomicLong(400000000000000001L);
+  private final AtomicInteger rateLimited = new AtomicInteger();
+  private final CountDownLatch readyLatch = new CountDownLatch(1);
+
+  /**
+   * @param recorder a delivery recorder.
+   * @param rateLimit the maximum amount of messages per channel and window.
+   * @param rateLimitWindow the length of a rate limit window (in milliseconds).
+   * @throws Exception when starting the embedded server fails.
+   */
+  FakeDiscordServer(@NonNull DeliveryRecorder recorder, int rateLimit, long rateLimitWindow)
+      throws Exception {
+    this.recorder = recorder;
+    this.rateLimit = rateLimit;
+    this.rateLimitWindow = rateLimitWindow;
+
+    ServletContextHandler context = new ServletContextHandler();
+    context.addServlet(new ServletHolder(new RestServlet()), "/api/*");
+    context.addServlet(new ServletHolder(new GatewayServlet()), "/gateway");
+
+    this.server = new Server(new InetSocketAddress("127.0.0.1", 0));
+    this.server.setHandler(context);
+    this.server.start();
+  }
+
+  /**
+   * Retrieves the port on which this server is listening.
+   *
+   * @return a port number.
+   */
+  int getPort() {
+    return ((ServerConnector) this.server.getConnectors()[0]).getLocalPort();
+  }
+
+  /**
+   * Retrieves the amount of requests which have been rejected due to rate limiting.
+   *
+   * @return a request count.
+   */
+  int getRateLimited() {
+    return this.rateLimited.get();
+  }
+
+  /**
+   * Waits for the first client to complete its gateway handshake.
+   *
+   * @param timeout a timeout (in milliseconds).
+   * @return true if a client is ready, false if the timeout elapsed.
+   * @throws InterruptedException when the thread is interrupted while waiting.
+   */
+  boolean awaitReady(long timeout) throws InterruptedException {
+    return this.readyLatch.await(timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.server.stop();
+    } catch (Exception ex) {
+      throw new IOException("Failed to stop fake Discord server", ex);
+    }
+  }
+
+  /**
+   * Constructs the representation of the bot user.
+   *
+   * @return a user object.
+   */
+  @NonNull
+  private ObjectNode createUser() {
+    ObjectNode user = this.mapper.createObjectNode();
+    user.put("id", Long.toString(USER_ID));
+    user.put("username", "Ejector");
+    user.put("discriminator", "0001");
+    user.putNull("avatar");
+    user.put("bot", true);
+    user.put("verified", true);
+    user.put("mfa_enabled", false);
+    return user;
+  }
+
+  /**
+   * Constructs the representation of the fake guild (including its channel, roles and members).
+   *
+   * @return a guild object.
+   */
+  @NonNull
+  private ObjectNode createGuild() {
+    ObjectNode guild = this.mapper.createObjectNode();
+    guild.put("id", Long.toString(GUILD_ID));
+    guild.put("name", "Load Test");
+    guild.putNull("icon");
+    guild.putNull("splash");
+    guild.put("region", "local");
+    guild.put("owner_id", Long.toString(USER_ID));
+    guild.put("afk_timeout", 300);
+    guild.putNull("afk_channel_id");
+    guild.putNull("system_channel_id");
+    guild.put("mfa_level", 0);
+    guild.put("verification_level", 0);
+    guild.put("explicit_content_filter", 0);
+    guild.put("default_message_notifications", 0);
+    guild.put("large", false);
+    guild.put("unavailable", false);
+    guild.put("member_count", 1);
+    guild.putArray("features");
+    guild.putArray("emojis");
+    guild.putArray("voice_states");
+    guild.putArray("presences");
+
+    ObjectNode role = guild.putArray("roles").addObject();
+    role.put("id", Long.toString(GUILD_ID));
+    role.put("name", "@everyone");
+    role.put("color", 0);
+    role.put("position", 0);
+    role.put("permissions", 0x7FFFFFFFL);
+    role.put("managed", false);
+    role.put("hoist", false);
+    role.put("mentionable", false);
+
+    ObjectNode member = guild.putArray("members").addObject();
+    member.set("user", this.createUser());
+    member.putArray("roles");
+    member.put("joined_at", OffsetDateTime.now(ZoneOffset.UTC).toString());
+    member.putNull("nick");
+    member.put("deaf", false);
+    member.put("mute", false);
+
+    ObjectNode channel = guild.putArray("channels").addObject();
+    channel.put("id", Long.toString(CHANNEL_ID));
+    channel.put("type", 0);
+    channel.put("name", "loadtest");
+    channel.put("position", 0);
+    channel.putNull("topic");
+    channel.put("nsfw", false);
+    channel.putNull("parent_id");
+    channel.putNull("last_message_id");
+    channel.putArray("permission_overwrites");
+
+    return guild;
+  }
+
+  /**
+   * Constructs the representation of a message which has been accepted.
+   *
+   * @param channelId a channel identifier.
+   * @param request the submitted message.
+   * @return a message object.
+   */
+  @NonNull
+  private ObjectNode createMessage(@NonNull String channelId, @NonNull JsonNode request) {
+    ObjectNode message = this.mapper.createObjectNode();
+    message.put("id", Long.toString(this.messageId.getAndIncrement()));
+    message.put("channel_id", channelId);
+    message.set("author", this.createUser());
+    message.put("content", request.path("content").asText(""));
+    message.put("timestamp", OffsetDateTime.now(ZoneOffset.UTC).toString());
+    message.putNull("edited_timestamp");
+    message.put("tts", false);
+    message.put("mention_everyone", false);
+    message.put("pinned", false);
+    message.put("type", 0);
+    message.putArray("mentions");
+    message.putArray("mention_roles");
+    message.putArray("attachments");
+
+    ArrayNode embeds = message.putArray("embeds");
+    if (request.has("embed")) {
+      embeds.add(request.get("embed"));
+    }
+
+    return message;
+  }
+
+  /**
+   * Implements the REST routes which are used by the bot.
+   */
+  private final class RestServlet extends HttpServlet {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+      String path = VERSION_PREFIX.matcher(req.getPathInfo() == null ? "" : req.getPathInfo())
+          .replaceFirst("");
+
+      resp.setContentType("application/json");
+      resp.setCharacterEncoding("UTF-8");
+      resp.setHeader("Date", DateTimeFormatter.RFC_1123_DATE_TIME
+          .format(OffsetDateTime.now(ZoneOffset.UTC)));
+
+      if ("GET".equals(req.getMethod())) {
+        switch (path) {
+          case "/users/@me":
+            this.write(resp, FakeDiscordServer.this.createUser());
+            return;
+          case "/gateway":
+          case "/gateway/bot":
+            ObjectNode gateway = FakeDiscordServer.this.mapper.createObjectNode();
+            gateway.put("url", "ws://127.0.0.1:" + FakeDiscordServer.this.getPort() + "/gateway");
+            gateway.put("shards", 1);
+            this.write(resp, gateway);
+            return;
+        }
+      }
+
+      Matcher matcher = MESSAGE_ROUTE.matcher(path);
+      if ("POST".equals(req.getMethod()) && matcher.matches()) {
+        this.postMessage(matcher.group(1), req, resp);
+        return;
+      }
+
+      logger.debug("Rejecting unsupported request %s %s", req.getMethod(), path);
+      resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+      resp.getWriter().write("{\"message\": \"404: Not Found\", \"code\": 0}");
+    }
+
+    /**
+     * Handles the submission of a message to a channel.
+     *
+     * @param channelId a channel identifier.
+     * @param req a request.
+     * @param resp a response.
+     * @throws IOException when reading the request or writing the response fails.
+     */
+    private void postMessage(@NonNull String channelId, @NonNull HttpServletRequest req,
+        @NonNull HttpServletResponse resp) throws IOException {
+      Bucket bucket = FakeDiscordServer.this.buckets
+          .computeIfAbsent(channelId, (k) -> new Bucket());
+      long now = System.currentTimeMillis();
+      int remaining;
+      long reset;
+
+      synchronized (bucket) {
+        if (now >= bucket.reset) {
+          bucket.reset = now + FakeDiscordServer.this.rateLimitWindow;
+          bucket.remaining = FakeDiscordServer.this.rateLimit;
+        }
+
+        remaining = --bucket.remaining;
+        reset = bucket.reset;
+      }
+
+      resp.setHeader("X-RateLimit-Limit", Integer.toString(FakeDiscordServer.this.rateLimit));
+      resp.setHeader("X-RateLimit-Remaining", Integer.toString(Math.max(0, remaining)));
+      resp.setHeader("X-RateLimit-Reset",
+          Long.toString(Instant.ofEpochMilli(reset).getEpochSecond() + 1));
+
+      if (remaining < 0) {
+        FakeDiscordServer.this.rateLimited.incrementAndGet();
+
+        long retryAfter = reset - now;
+        resp.setStatus(429);
+        resp.setHeader("Retry-After", Long.toString(retryAfter));
+
+        ObjectNode error = FakeDiscordServer.this.mapper.createObjectNode();
+        error.put("message", "You are being rate limited.");
+        error.put("retry_after", retryAfter);
+        error.put("global", false);
+        this.write(resp, error);
+        return;
+      }
+
+      String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      FakeDiscordServer.this.recorder.received(Sink.DISCORD, body);
+
+      JsonNode request = FakeDiscordServer.this.mapper.readTree(body);
+      this.write(resp, FakeDiscordServer.this.createMessage(channelId, request));
+    }
+
+    /**
+     * Writes a JSON response.
+     *
+     * @param resp a response.
+     * @param node a response body.
+     * @throws IOException when writing fails.
+     */
+    private void write(@NonNull HttpServletResponse resp, @NonNull JsonNode node)
+        throws IOException {
+      FakeDiscordServer.this.mapper.writeValue(resp.getOutputStream(), node);
+    }
+  }
+
+  /**
+   * Represents the rate limit state of a single channel.
+   */
+  private static final class Bucket {
+
+    private int remaining;
+    private long reset;
+  }
+
+  /**
+   * Exposes the gateway through a WebSocket.
+   */
+  private final class GatewayServlet extends WebSocketServlet {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void configure(WebSocketServletFactory factory) {
+      factory.setCreator((req, resp) -> new GatewaySocket());
+    }
+  }
+
+  /**
+   * Implements the gateway handshake and heartbeat protocol.
+   */
+  private final class GatewaySocket implements WebSocketListener {
+
+    private static final int OP_DISPATCH = 0;
+    private static final int OP_HEARTBEAT = 1;
+    private static final int OP_IDENTIFY = 2;
+    private static final int OP_HELLO = 10;
+    private static final int OP_HEARTBEAT_ACK = 11;
+
+    private Session session;
+    private int sequence;
+
+    /**
+     * Sends a single gateway message.
+     *
+     * @param op an opcode.
+     * @param type a dispatch event type (if any).
+     * @param data a payload.
+     */
+    private synchronized void send(int op, String type, JsonNode data) {
+      ObjectNode message = FakeDiscordServer.this.mapper.createObjectNode();
+      message.put("op", op);
+      message.set("d", data);
+
+      if (op == OP_DISPATCH) {
+        message.put("s", ++this.sequence);
+        message.put("t", type);
+      } else {
+        message.putNull("s");
+        message.putNull("t");
+      }
+
+      try {
+        this.session.getRemote().sendString(message.toString());
+      } catch (IOException ex) {
+        logger.warn("Failed to send gateway message: %s", ex.getMessage());
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWebSocketConnect(Session session) {
+      this.session = session;
+
+      ObjectNode hello = FakeDiscordServer.this.mapper.createObjectNode();
+      hello.put("heartbeat_interval", 41250);
+      hello.putArray("_trace").add("fake-gateway");
+      this.send(OP_HELLO, null, hello);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWebSocketText(String text) {
+      JsonNode message;
+      try {
+        message = FakeDiscordServer.this.mapper.readTree(text);
+      } catch (IOException ex) {
+        logger.warn("Received malformed gateway message: %s", ex.getMessage());
+        return;
+      }
+
+      switch (message.path("op").asInt(-1)) {
+        case OP_HEARTBEAT:
+          this.send(OP_HEARTBEAT_ACK, null, null);
+          break;
+        case OP_IDENTIFY:
+          ObjectNode ready = FakeDiscordServer.this.mapper.createObjectNode();
+          ready.put("v", 6);
+          ready.set("user", FakeDiscordServer.this.createUser());
+          ready.put("session_id", "fake-session");
+          ready.putArray("private_channels");
+          ready.putArray("relationships");
+          ready.putArray("presences");
+          ready.putArray("_trace").add("fake-gateway");
+
+          ObjectNode guild = ready.putArray("guilds").addObject();
+          guild.put("id", Long.toString(GUILD_ID));
+          guild.put("unavailable", true);
+
+          this.send(OP_DISPATCH, "READY", ready);
+          this.send(OP_DISPATCH, "GUILD_CREATE", FakeDiscordServer.this.createGuild());
+          FakeDiscordServer.this.readyLatch.countDown();
+          break;
+        default:
+          // presence updates and the like do not require a response
+          break;
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWebSocketClose(int statusCode, String reason) {
+      logger.debug("Gateway connection closed with status %d: %s", statusCode, reason);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onWebSocketError(Throwable cause) {
+      logger.warn("Gateway connection failed: " + cause.getMessage(), cause);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.loadtest;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.loadtest.DeliveryRecorder.Sink;
+
+/**
+ * <p>Provides a minimal IRC server which accepts registrations, channel joins and messages.</p>
+ *
+ * <p>Like most production networks, the server enforces a flood limit on each client: Every line
+ * consumes a token from a bucket which is refilled at a fixed rate. Clients which exhaust their
+ * bucket are disconnected with an "Excess Flood" error.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class FakeIrcServer implements Closeable {
+
+  private static final Logger logger = LogManager.getFormatterLogger(FakeIrcServer.class);
+  private static final String SERVER_NAME = "fake.irc";
+
+  private final DeliveryRecorder recorder;
+  private final int floodBurst;
+  private final double floodRate;
+
+  private final ServerSocket socket;
+  private final Thread thread;
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+  private final CountDownLatch joinLatch = new CountDownLatch(1);
+  private final AtomicInteger floodDisconnects = new AtomicInteger();
+
+  /**
+   * @param recorder a delivery recorder.
+   * @param floodBurst the maximum amount of lines a client may send at once.
+   * @param floodRate the amount of lines per second a client may send in the long run.
+   * @throws IOException when binding the server socket fails.
+   */
+  FakeIrcServer(@NonNull DeliveryRecorder recorder, int floodBurst, double floodRate)
+      throws IOException {
+    this.recorder = recorder;
+    this.floodBurst = floodBurst;
+    this.floodRate = floodRate;
+
+    this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    this.thread = new Thread(this::accept);
+    this.thread.setName("fake-irc");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Retrieves the port on which this server is listening.
+   *
+   * @return a port number.
+   */
+  int getPort() {
+    return this.socket.getLocalPort();
+  }
+
+  /**
+   * Retrieves the amount of clients which have been disconnected due to flooding.
+   *
+   * @return a disconnect count.
+   */
+  int getFloodDisconnects() {
+    return this.floodDisconnects.get();
+  }
+
+  /**
+   * Waits for the first client to join a channel.
+   *
+   * @param timeout a timeout (in milliseconds).
+   * @return true if a channel has been joined, false if the timeout elapsed.
+   * @throws InterruptedException when the thread is interrupted while waiting.
+   */
+  boolean awaitJoin(long timeout) throws InterruptedException {
+    return this.joinLatch.await(timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    this.socket.close();
+
+    for (Socket client : this.clients) {
+      client.close();
+    }
+  }
+
+  /**
+   * Accepts client connections until the server socket is closed.
+   */
+  private void accept() {
+    int id = 0;
+
+    while (!this.socket.isClosed()) {
+      try {
+        Socket client = this.socket.accept();
+        this.clients.add(client);
+
+        Thread thread = new Thread(() -> this.handle(client));
+        thread.setName("fake-irc-client-" + (id++));
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException ex) {
+        if (!this.socket.isClosed()) {
+          logger.error("Failed to accept IRC client: " + ex.getMessage(), ex);
+        }
+      }
+    }
+  }
+
+  /**
+   * Processes the lines sent by a single client until it disconnects.
+   *
+   * @param client a client socket.
+   */
+  private void handle(@NonNull Socket client) {
+    try (Socket socket = client;
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(socket.getOutputStream(),
+            StandardCharsets.UTF_8)) {
+      String nickname = "*";
+      boolean registered = false;
+      double tokens = this.floodBurst;
+      long lastRefill = System.nanoTime();
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        long now = System.nanoTime();
+        tokens = Math.min(this.floodBurst,
+            tokens + (now - lastRefill) / 1_000_000_000d * this.floodRate);
+        lastRefill = now;
+
+        if (--tokens < 0) {
+          this.floodDisconnects.incrementAndGet();
+          send(writer, "ERROR :Closing Link: 127.0.0.1 (Excess Flood)");
+          logger.warn("Disconnected %s due to excess flood", nickname);
+          return;
+        }
+
+        String[] parameters = line.split(" ", 3);
+        String command = parameters[0].toUpperCase();
+
+        switch (command) {
+          case "CAP":
+            if (parameters.length > 1 && "LS".equalsIgnoreCase(parameters[1])) {
+              send(writer, ":" + SERVER_NAME + " CAP * LS :");
+            }
+            break;
+          case "NICK":
+            nickname = parameters[1];
+            break;
+          case "USER":
+            if (!registered) {
+              registered = true;
+              send(writer, ":" + SERVER_NAME + " 001 " + nickname + " :Welcome to the load test");
+              send(writer, ":" + SERVER_NAME + " 002 " + nickname + " :Your host is "
+                  + SERVER_NAME);
+              send(writer, ":" + SERVER_NAME + " 003 " + nickname + " :Created just now");
+              send(writer, ":" + SERVER_NAME + " 004 " + nickname + " " + SERVER_NAME
+                  + " fake-1.0 o o");
+              send(writer, ":" + SERVER_NAME + " 376 " + nickname + " :End of /MOTD command.");
+            }
+            break;
+          case "PING":
+            send(writer, ":" + SERVER_NAME + " PONG " + SERVER_NAME + " "
+                + (parameters.length > 1 ? parameters[1] : ""));
+            break;
+          case "JOIN":
+            for (String channel : parameters[1].split(",")) {
+              send(writer, ":" + nickname + "!ejector@127.0.0.1 JOIN :" + channel);
+              send(writer, ":" + SERVER_NAME + " 353 " + nickname + " = " + channel + " :"
+                  + nickname);
+              send(writer, ":" + SERVER_NAME + " 366 " + nickname + " " + channel
+                  + " :End of /NAMES list.");
+            }
+            this.joinLatch.countDown();
+            break;
+          case "PRIVMSG":
+          case "NOTICE":
+            if (parameters.length > 2) {
+              this.recorder.received(Sink.IRC, parameters[2]);
+            }
+            break;
+          case "QUIT":
+            return;
+          default:
+            // WHO, MODE and friends are not required by the bot and are silently ignored
+            break;
+        }
+      }
+    } catch (IOException ex) {
+      logger.debug("IRC client disconnected: %s", ex.getMessage());
+    } finally {
+      this.clients.remove(client);
+    }
+  }
+
+  /**
+   * Sends a single line to a client.
+   *
+   * @param writer a client writer.
+   * @param line a line.
+   * @throws IOException when writing fails.
+   */
+  private static void send(@NonNull Writer writer, @NonNull String line) throws IOException {
+    writer.write(line);
+    writer.write("\r\n");
+    writer.flush();
+  }
+}
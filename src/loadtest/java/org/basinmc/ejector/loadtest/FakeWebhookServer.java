@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.basinmc.ejector.loadtest.DeliveryRecorder.Sink;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+
+/**
+ * <p>Provides a minimal HTTP endpoint which receives the batches of the webhook adapter.</p>
+ *
+ * <p>A configurable fraction of requests is rejected with status 503 in order to exercise the
+ * retry behavior of the adapter.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class FakeWebhookServer implements Closeable {
+
+  static final String PATH = "/events";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final DeliveryRecorder recorder;
+  private final double failureRate;
+
+  private final Server server;
+  private final AtomicInteger failed = new AtomicInteger();
+
+  /**
+   * @param recorder a delivery recorder.
+   * @param failureRate the fraction of requests to reject (between 0 and 1).
+   * @throws Exception when starting the embedded server fails.
+   */
+  FakeWebhookServer(@NonNull DeliveryRecorder recorder, double failureRate) throws Exception {
+    this.recorder = recorder;
+    this.failureRate = failureRate;
+
+    ServletContextHandler context = new ServletContextHandler();
+    context.addServlet(new ServletHolder(new EventServlet()), PATH);
+
+    this.server = new Server(new InetSocketAddress("127.0.0.1", 0));
+    this.server.setHandler(context);
+    this.server.start();
+  }
+
+  /**
+   * Retrieves the port on which this server is listening.
+   *
+   * @return a port number.
+   */
+  int getPort() {
+    return ((ServerConnector) this.server.getConnectors()[0]).getLocalPort();
+  }
+
+  /**
+   * Retrieves the amount of requests which have been rejected deliberately.
+   *
+   * @return a request count.
+   */
+  int getFailed() {
+    return this.failed.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.server.stop();
+    } catch (Exception ex) {
+      throw new IOException("Failed to stop fake webhook server", ex);
+    }
+  }
+
+  /**
+   * Accepts event batches.
+   */
+  private final class EventServlet extends HttpServlet {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+      if (ThreadLocalRandom.current().nextDouble() < FakeWebhookServer.this.failureRate) {
+        FakeWebhookServer.this.failed.incrementAndGet();
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        return;
+      }
+
+      JsonNode document;
+      try (InputStream inputStream = "gzip".equalsIgnoreCase(req.getHeader("Content-Encoding"))
+          ? new GZIPInputStream(req.getInputStream()) : req.getInputStream()) {
+        document = FakeWebhookServer.this.mapper.readTree(inputStream);
+      }
+
+      for (JsonNode event : document.path("events")) {
+        FakeWebhookServer.this.recorder
+            .received(Sink.WEBHOOK, event.path("repository").asText(""));
+      }
+
+      resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+  }
+}
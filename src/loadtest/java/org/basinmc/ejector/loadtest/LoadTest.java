@@ -0,0 +1,281 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.loadtest;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.basinmc.ejector.EjectorApplication;
+import org.basinmc.ejector.communication.discord.DiscordClientCustomizer;
+import org.basinmc.ejector.loadtest.DeliveryRecorder.Sink;
+import org.basinmc.ejector.loadtest.WebhookGenerator.Shape;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * <p>Drives the application end-to-end against a fake Discord API, a fake IRC server, a fake
+ * webhook endpoint and a webhook generator and reports the achieved throughput, latency
+ * percentiles and drops for each sink.</p>
+ *
+ * <p>Options are passed as {@code --name=value} arguments (see {@link #main(String[])} for the
+ * list of supported options and their defaults).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class LoadTest {
+
+  private static final String SECRET = "loadtest";
+  private static final String IRC_CHANNEL = "#loadtest";
+  private static final long STARTUP_TIMEOUT = 60000;
+
+  private LoadTest() {
+  }
+
+  /**
+   * <p>Executes a single load test run.</p>
+   *
+   * <p>The following options are supported:</p>
+   *
+   * <ul>
+   * <li>{@code rate} - target delivery rate per second (default: 10)</li>
+   * <li>{@code duration} - duration of the run in seconds (default: 60)</li>
+   * <li>{@code shape} - load shape: constant, burst or ramp (default: constant)</li>
+   * <li>{@code burst} - deliveries per burst (default: 25)</li>
+   * <li>{@code drain} - maximum time to wait for outstanding messages in seconds (default:
+   * 30)</li>
+   * <li>{@code types} - comma separated list of event types (default:
+   * push,issues,pull_request,issue_comment)</li>
+   * <li>{@code discord-limit} - messages per channel and window (default: 5)</li>
+   * <li>{@code discord-window} - rate limit window in milliseconds (default: 5000)</li>
+   * <li>{@code irc-flood-burst} - lines a client may send at once (default: 10)</li>
+   * <li>{@code irc-flood-rate} - lines per second a client may send (default: 2)</li>
+   * <li>{@code irc-message-delay} - delay between outbound IRC messages in milliseconds
+   * (default: 500)</li>
+   * <li>{@code webhook-batch-size} - events per outbound webhook request (default: 10)</li>
+   * <li>{@code webhook-failure-rate} - fraction of outbound webhook requests to reject
+   * (default: 0)</li>
+   * </ul>
+   *
+   * @param arguments a set of command line arguments.
+   * @throws Exception when the run fails.
+   */
+  public static void main(@NonNull String[] arguments) throws Exception {
+    Map<String, String> options = parseOptions(arguments);
+
+    double rate = Double.parseDouble(options.getOrDefault("rate", "10"));
+    Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+    Shape shape = Shape.valueOf(options.getOrDefault("shape", "constant").toUpperCase());
+    int burstSize = Integer.parseInt(options.getOrDefault("burst", "25"));
+    Duration drain = Duration.ofSeconds(Long.parseLong(options.getOrDefault("drain", "30")));
+
+    List<PayloadType> types = new ArrayList<>();
+    for (String type : options.getOrDefault("types", "push,issues,pull_request,issue_comment")
+        .split(",")) {
+      types.add(PayloadType.valueOf(type.trim().toUpperCase()));
+    }
+
+    int capacity = (int) Math.ceil(rate * duration.getSeconds()) + burstSize;
+    DeliveryRecorder recorder = new DeliveryRecorder(capacity);
+
+    try (FakeIrcServer ircServer = new FakeIrcServer(recorder,
+        Integer.parseInt(options.getOrDefault("irc-flood-burst", "10")),
+        Double.parseDouble(options.getOrDefault("irc-flood-rate", "2")));
+        FakeDiscordServer discordServer = new FakeDiscordServer(recorder,
+            Integer.parseInt(options.getOrDefault("discord-limit", "5")),
+            Long.parseLong(options.getOrDefault("discord-window", "5000")));
+        FakeWebhookServer webhookServer = new FakeWebhookServer(recorder,
+            Double.parseDouble(options.getOrDefault("webhook-failure-rate", "0")))) {
+      ConfigurableApplicationContext ctx = new SpringApplicationBuilder(EjectorApplication.class)
+          .properties(
+              "server.port=0",
+              "ejector.github.secret=" + SECRET,
+              "ejector.discord.enabled=true",
+              "ejector.discord.token=loadtest",
+              "ejector.discord.channels[0].guild-id=" + FakeDiscordServer.GUILD_ID,
+              "ejector.discord.channels[0].channel-id=" + FakeDiscordServer.CHANNEL_ID,
+              "ejector.irc.enabled=true",
+              "ejector.irc.name=Ejector",
+              "ejector.irc.message-delay=" + options.getOrDefault("irc-message-delay", "500"),
+              "ejector.irc.servers[0].hostname=127.0.0.1",
+              "ejector.irc.servers[0].port=" + ircServer.getPort(),
+              "ejector.irc.servers[0].channels[0].name=" + IRC_CHANNEL,
+              "ejector.webhook.enabled=true",
+              "ejector.webhook.endpoints[0].url=http://127.0.0.1:" + webhookServer.getPort()
+                  + FakeWebhookServer.PATH,
+              "ejector.webhook.endpoints[0].batch-size="
+                  + options.getOrDefault("webhook-batch-size", "10")
+          )
+          .initializers((GenericApplicationContext c) -> c.registerBean(
+              DiscordClientCustomizer.class, () -> redirect(discordServer.getPort())))
+          .run();
+
+      try {
+        if (!discordServer.awaitReady(STARTUP_TIMEOUT) || !ircServer.awaitJoin(STARTUP_TIMEOUT)) {
+          throw new IllegalStateException("Application failed to connect to the fake services");
+        }
+
+        int port = Integer.parseInt(ctx.getEnvironment().getProperty("local.server.port"));
+        WebhookGenerator generator = new WebhookGenerator(
+            URI.create("http://127.0.0.1:" + port + "/hook/github"), SECRET, recorder, types);
+
+        long start = System.nanoTime();
+        generator.run(shape, rate, burstSize, duration);
+        long generated = System.nanoTime() - start;
+
+        long drainEnd = System.nanoTime() + drain.toNanos();
+        while (System.nanoTime() < drainEnd && !isDrained(recorder, generator)) {
+          Thread.sleep(100);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        report(recorder, generator, ircServer, discordServer, webhookServer, generated,
+            elapsed);
+      } finally {
+        ctx.close();
+      }
+    }
+  }
+
+  /**
+   * Parses a set of {@code --name=value} arguments.
+   *
+   * @param arguments a set of command line arguments.
+   * @return a map of options.
+   */
+  @NonNull
+  private static Map<String, String> parseOptions(@NonNull String[] arguments) {
+    Map<String, String> options = new HashMap<>();
+
+    for (String argument : arguments) {
+      if (!argument.startsWith("--") || argument.indexOf('=') == -1) {
+        throw new IllegalArgumentException("Illegal argument: " + argument);
+      }
+
+      int separator = argument.indexOf('=');
+      options.put(argument.substring(2, separator), argument.substring(separator + 1));
+    }
+
+    return options;
+  }
+
+  /**
+   * Constructs a customizer which redirects all Discord API requests to the fake server.
+   *
+   * @param port the fake server port.
+   * @return a customizer.
+   */
+  @NonNull
+  private static DiscordClientCustomizer redirect(int port) {
+    return (builder) -> builder.setHttpClientBuilder(new OkHttpClient.Builder()
+        .addInterceptor((chain) -> {
+          HttpUrl url = chain.request().url().newBuilder()
+              .scheme("http")
+              .host("127.0.0.1")
+              .port(port)
+              .build();
+
+          return chain.proceed(chain.request().newBuilder().url(url).build());
+        }));
+  }
+
+  /**
+   * Evaluates whether all accepted deliveries have reached every sink.
+   *
+   * @param recorder a delivery recorder.
+   * @param generator a webhook generator.
+   * @return true if drained, false otherwise.
+   */
+  private static boolean isDrained(@NonNull DeliveryRecorder recorder,
+      @NonNull WebhookGenerator generator) {
+    for (Sink sink : Sink.values()) {
+      if (recorder.getReceived(sink) < generator.getAccepted()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Prints the results of a run.
+   *
+   * @param recorder a delivery recorder.
+   * @param generator a webhook generator.
+   * @param ircServer the fake IRC server.
+   * @param discordServer the fake Discord server.
+   * @param webhookServer the fake webhook endpoint.
+   * @param generated the time spent generating load (in nanoseconds).
+   * @param elapsed the total time including the drain period (in nanoseconds).
+   */
+  private static void report(@NonNull DeliveryRecorder recorder,
+      @NonNull WebhookGenerator generator, @NonNull FakeIrcServer ircServer,
+      @NonNull FakeDiscordServer discordServer, @NonNull FakeWebhookServer webhookServer,
+      long generated, long elapsed) {
+    double generatedSeconds = generated / 1_000_000_000d;
+    double elapsedSeconds = elapsed / 1_000_000_000d;
+
+    System.out.printf("%nWebhooks: %d sent, %d accepted, %d rejected (%.1f/s)%n",
+        recorder.getSent(), generator.getAccepted(), generator.getRejected(),
+        recorder.getSent() / generatedSeconds);
+
+    for (Sink sink : Sink.values()) {
+      long[] latencies = recorder.getLatencies(sink);
+
+      System.out.printf("%-8s %d delivered, %d dropped (%.1f/s), latency p50=%.1fms "
+              + "p99=%.1fms p999=%.1fms max=%.1fms%n",
+          sink.name().toLowerCase() + ":",
+          latencies.length,
+          generator.getAccepted() - latencies.length,
+          latencies.length / elapsedSeconds,
+          percentile(latencies, 0.5),
+          percentile(latencies, 0.99),
+          percentile(latencies, 0.999),
+          percentile(latencies, 1));
+    }
+
+    System.out.printf("Discord rate limited requests: %d%n", discordServer.getRateLimited());
+    System.out.printf("IRC flood disconnects: %d%n", ircServer.getFloodDisconnects());
+    System.out.printf("Webhook requests rejected: %d%n", webhookServer.getFailed());
+    System.out.printf("Unmatched messages: %d%n", recorder.getUnmatched());
+  }
+
+  /**
+   * Retrieves a percentile from a sorted set of latencies.
+   *
+   * @param latencies a sorted array of latencies (in nanoseconds).
+   * @param percentile a percentile (between 0 and 1).
+   * @return a latency (in milliseconds) or NaN if no latencies have been recorded.
+   */
+  private static double percentile(@NonNull long[] latencies, double percentile) {
+    if (latencies.length == 0) {
+      return Double.NaN;
+    }
+
+    int index = (int) Math.ceil(percentile * latencies.length) - 1;
+    return latencies[Math.max(0, Math.min(latencies.length - 1, index))]
+        / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.basinmc.stormdrain.PayloadType;
+
+/**
+ * <p>Generates signed webhook deliveries at a configurable rate.</p>
+ *
+ * <p>Deliveries are derived from the recorded fixtures of a selection of event types. Each
+ * delivery replaces the repository name of its fixture with a unique marker which permits the
+ * correlation of outbound chat messages.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class WebhookGenerator {
+
+  private static final String SEQUENCE_PLACEHOLDER = "__SEQUENCE__";
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+  private final URI endpoint;
+  private final SecretKeySpec key;
+  private final DeliveryRecorder recorder;
+  private final List<Template> templates = new ArrayList<>();
+
+  private final AtomicInteger accepted = new AtomicInteger();
+  private final AtomicInteger rejected = new AtomicInteger();
+
+  WebhookGenerator(@NonNull URI endpoint, @NonNull String secret,
+      @NonNull DeliveryRecorder recorder, @NonNull List<PayloadType> types) throws IOException {
+    this.endpoint = endpoint;
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA1");
+    this.recorder = recorder;
+
+    ObjectMapper mapper = new ObjectMapper();
+    for (PayloadType type : types) {
+      String resource = "/fixtures/" + type.name().toLowerCase() + ".json";
+
+      try (InputStream inputStream = WebhookGenerator.class.getResourceAsStream(resource)) {
+        if (inputStream == null) {
+          throw new IOException("No such fixture: " + resource);
+        }
+
+        ObjectNode node = (ObjectNode) mapper.readTree(inputStream);
+        ((ObjectNode) node.with("repository"))
+            .put("full_name", DeliveryRecorder.MARKER_PREFIX + SEQUENCE_PLACEHOLDER);
+
+        this.templates.add(new Template(type, mapper.writeValueAsString(node)));
+      }
+    }
+  }
+
+  /**
+   * Retrieves the amount of deliveries which have been accepted by the application.
+   *
+   * @return a delivery count.
+   */
+  int getAccepted() {
+    return this.accepted.get();
+  }
+
+  /**
+   * Retrieves the amount of deliveries which have been rejected by the application or failed
+   * to reach it.
+   *
+   * @return a delivery count.
+   */
+  int getRejected() {
+    return this.rejected.get();
+  }
+
+  /**
+   * Sends deliveries according to the specified load shape until the duration has elapsed or the
+   * recorder capacity has been exhausted.
+   *
+   * @param shape a load shape.
+   * @param rate a target rate (in deliveries per second).
+   * @param burstSize the amount of deliveries per burst (applies to {@link Shape#BURST} only).
+   * @param duration a duration.
+   * @throws InterruptedException when the thread is interrupted while generating load.
+   */
+  void run(@NonNull Shape shape, double rate, int burstSize, @NonNull Duration duration)
+      throws InterruptedException {
+    List<CompletableFuture<?>> pending = new ArrayList<>();
+    long start = System.nanoTime();
+    long end = start + duration.toNanos();
+    int sequence = 0;
+
+    long now;
+    while ((now = System.nanoTime()) < end && sequence < this.recorder.getCapacity()) {
+      long target = Math.min(this.recorder.getCapacity(),
+          shape.getExpected((now - start) / 1_000_000_000d, rate, burstSize,
+              duration.toNanos() / 1_000_000_000d));
+
+      while (sequence < target) {
+        pending.add(this.send(sequence++));
+      }
+
+      Thread.sleep(1);
+    }
+
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+  }
+
+  /**
+   * Sends a single delivery.
+   *
+   * @param sequence a sequence number.
+   * @return a future which completes once the application has responded.
+   */
+  @NonNull
+  private CompletableFuture<?> send(int sequence) {
+    Template template = this.templates.get(sequence % this.templates.size());
+    String body = template.body.replace(SEQUENCE_PLACEHOLDER, Integer.toString(sequence));
+
+    HttpRequest request = HttpRequest.newBuilder(this.endpoint)
+        .header("Content-Type", "application/json")
+        .header("X-Github-Delivery", UUID.randomUUID().toString())
+        .header("X-GitHub-Event", template.type.name().toLowerCase())
+        .header("X-Hub-Signature", "sha1=" + this.sign(body))
+        .POST(BodyPublishers.ofString(body))
+        .build();
+
+    this.recorder.sent(sequence, System.nanoTime());
+    return this.client.sendAsync(request, BodyHandlers.discarding())
+        .handle((response, ex) -> {
+          if (ex == null && response.statusCode() / 100 == 2) {
+            this.accepted.incrementAndGet();
+          } else {
+            this.rejected.incrementAndGet();
+          }
+
+          return null;
+        });
+  }
+
+  /**
+   * Computes the hex encoded signature of a delivery body.
+   *
+   * @param body a delivery body.
+   * @return a signature.
+   */
+  @NonNull
+  private String sign(@NonNull String body) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA1");
+      mac.init(this.key);
+
+      StringBuilder builder = new StringBuilder();
+      for (byte b : mac.doFinal(body.getBytes(StandardCharsets.UTF_8))) {
+        builder.append(String.format("%02x", b));
+      }
+      return builder.toString();
+    } catch (InvalidKeyException | NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("Failed to sign delivery: " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Provides a list of supported load shapes.
+   */
+  enum Shape {
+
+    /**
+     * Sends deliveries at a fixed interval.
+     */
+    CONSTANT {
+      @Override
+      long getExpected(double elapsed, double rate, int burstSize, double duration) {
+        return (long) (elapsed * rate) + 1;
+      }
+    },
+
+    /**
+     * Sends deliveries in bursts of a fixed size while maintaining the target rate on average.
+     */
+    BURST {
+      @Override
+      long getExpected(double elapsed, double rate, int burstSize, double duration) {
+        return ((long) (elapsed * rate / burstSize) + 1) * burstSize;
+      }
+    },
+
+    /**
+     * Linearly increases the rate from zero to the target rate over the course of the run.
+     */
+    RAMP {
+      @Override
+      long getExpected(double elapsed, double rate, int burstSize, double duration) {
+        return (long) (rate * elapsed * elapsed / (2 * duration)) + 1;
+      }
+    };
+
+    /**
+     * Computes the total amount of deliveries which should have been sent at a given point in
+     * time.
+     *
+     * @param elapsed the elapsed time (in seconds).
+     * @param rate the target rate (in deliveries per second).
+     * @param burstSize the burst size.
+     * @param duration the total duration (in seconds).
+     * @return a delivery count.
+     */
+    abstract long getExpected(double elapsed, double rate, int burstSize, double duration);
+  }
+
+  /**
+   * Represents a delivery template.
+   */
+  private static final class Template {
+
+    private final PayloadType type;
+    private final String body;
+
+    private Template(@NonNull PayloadType type, @NonNull String body) {
+      this.type = type;
+      this.body = body;
+    }
+  }
+}
@@ -14,7 +14,9 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.basinmc.ejector;import edu.umd.cs.findbugs.annotations.NonNull;
+package org.basinmc.ejector;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -37,6 +39,6 @@ public class EjectorApplication {
    * @param arguments an array of command line arguments.
    */
   public static void main(@NonNull String[] arguments) {
-    SpringApplication.run(EjectorApplication.class);
+    SpringApplication.run(EjectorApplication.class, arguments);
   }
 }
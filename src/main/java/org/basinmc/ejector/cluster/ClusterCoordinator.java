@@ -0,0 +1,426 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Coordinates the ownership of connections and channels between the instances of a
+ * cluster.</p>
+ *
+ * <p>Every instance announces itself through a lease which is renewed periodically. The live
+ * members are placed on a consistent hash ring which assigns each shard (e.g. an IRC server or
+ * Discord channel) to exactly one member. When a member joins or leaves (or its lease expires),
+ * a {@link ClusterTopologyEvent} is published so that adapters may connect to or disconnect from
+ * the shards they have gained or lost.</p>
+ *
+ * <p>As members may briefly disagree on the topology, every message is additionally claimed
+ * through a lease which is keyed by its delivery and target before it is sent. Only the first
+ * claim succeeds and thus no message is sent twice.</p>
+ *
+ * <p>When operating in {@link ClusterMode#FAILOVER failover mode}, all shards are instead owned by
+ * a single primary which is elected through a short-lived lease. Standby instances attempt to
+ * acquire the lease continuously and thus take over once the primary fails to renew it within the
+ * configured takeover timeout.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.cluster", name = "enabled")
+public class ClusterCoordinator implements InitializingBean, DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(ClusterCoordinator.class);
+
+  private static final String MEMBER_PREFIX = "member/";
+  private static final String CLAIM_PREFIX = "delivery/";
+  private static final String PRIMARY_LEASE = "primary";
+
+  private final ClusterStore store;
+  private final ApplicationEventPublisher publisher;
+  private final String memberId;
+  private final ClusterMode mode;
+  private final long heartbeatInterval;
+  private final long leaseDuration;
+  private final long claimDuration;
+  private final int virtualNodes;
+  private final long takeoverTimeout;
+
+  private final ThreadLocal<UUID> currentDelivery = new ThreadLocal<>();
+  private final AtomicLong claimCounter = new AtomicLong();
+  private final Counter acquiredClaims;
+  private final Counter duplicateClaims;
+  private final Counter failedClaims;
+
+  private volatile HashRing ring;
+  private volatile long primaryUntil;
+  private boolean primary;
+  private ScheduledExecutorService scheduler;
+
+  @Autowired
+  public ClusterCoordinator(@NonNull ClusterStore store,
+      @NonNull ApplicationEventPublisher publisher,
+      @NonNull MeterRegistry registry,
+      @NonNull @Value("${ejector.cluster.member-id:}") String memberId,
+      @NonNull @Value("${ejector.cluster.mode:sharded}") String mode,
+      @Value("${ejector.cluster.heartbeat-interval:1000}") long heartbeatInterval,
+      @Value("${ejector.cluster.lease-duration:5000}") long leaseDuration,
+      @Value("${ejector.cluster.log-retention:60000}") long logRetention,
+      @Value("${ejector.cluster.virtual-nodes:64}") int virtualNodes,
+      @Value("${ejector.cluster.takeover-timeout:750}") long takeoverTimeout) {
+    this.store = store;
+    this.publisher = publisher;
+    this.memberId =
+        memberId.isEmpty() ? ManagementFactory.getRuntimeMXBean().getName() : memberId;
+    this.mode = ClusterMode.valueOf(mode.toUpperCase());
+    this.heartbeatInterval = heartbeatInterval;
+    this.leaseDuration = leaseDuration;
+    // claims need to outlive the log as records are replayed when the topology changes
+    this.claimDuration = logRetention * 2;
+    this.virtualNodes = virtualNodes;
+    this.takeoverTimeout = takeoverTimeout;
+    this.ring = HashRing.of(Collections.singleton(this.memberId), virtualNodes);
+
+    Gauge.builder("ejector.cluster.members", this, (c) -> c.ring.getMembers().size())
+        .description("Amount of live cluster members")
+        .register(registry);
+    this.acquiredClaims = registry.counter("ejector.cluster.claims", "outcome", "acquired");
+    this.duplicateClaims = registry.counter("ejector.cluster.claims", "outcome", "duplicate");
+    this.failedClaims = registry.counter("ejector.cluster.claims", "outcome", "error");
+
+    // the initial topology (and role) is resolved synchronously so that adapters which are
+    // constructed afterwards only connect to the shards they own
+    this.heartbeat(false);
+
+    if (this.mode == ClusterMode.FAILOVER) {
+      Gauge.builder("ejector.cluster.primary", this, (c) -> c.isPrimary() ? 1 : 0)
+          .description("Indicates whether this instance is currently the primary")
+          .register(registry);
+
+      this.elect(false);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void afterPropertiesSet() {
+    this.scheduler = Executors.newScheduledThreadPool(2, (r) -> {
+      Thread thread = new Thread(r);
+      thread.setName("cluster-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.scheduler.scheduleWithFixedDelay(() -> this.heartbeat(true), this.heartbeatInterval,
+        this.heartbeatInterval, TimeUnit.MILLISECONDS);
+
+    if (this.mode == ClusterMode.FAILOVER) {
+      // the lease is renewed multiple times within its duration so that a single delayed renewal
+      // does not cause a takeover
+      long interval = Math.max(1, this.takeoverTimeout / 3);
+      this.scheduler.scheduleWithFixedDelay(() -> this.elect(true), interval, interval,
+          TimeUnit.MILLISECONDS);
+    }
+
+    logger.info("Joined cluster as %s (%d members, %s mode)", this.memberId,
+        this.ring.getMembers().size(), this.mode.name().toLowerCase());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.scheduler.shutdownNow();
+
+    // leaving explicitly permits the remaining members to take over immediately rather than
+    // once the lease has expired
+    try {
+      if (this.mode == ClusterMode.FAILOVER) {
+        this.store.release(PRIMARY_LEASE, this.memberId);
+      }
+
+      this.store.release(MEMBER_PREFIX + this.memberId, this.memberId);
+    } catch (IOException ex) {
+      logger.warn("Failed to leave cluster: %s", ex.getMessage());
+    }
+  }
+
+  /**
+   * Renews the membership lease of this instance and updates the topology.
+   *
+   * @param notify true if a change of topology shall be published.
+   */
+  private void heartbeat(boolean notify) {
+    Set<String> members;
+
+    try {
+      this.store.acquire(MEMBER_PREFIX + this.memberId, this.memberId, this.leaseDuration);
+      members = new HashSet<>(this.store.getLeases(MEMBER_PREFIX).values());
+    } catch (IOException | RuntimeException ex) {
+      logger.warn("Failed to renew cluster membership: %s", ex.getMessage());
+      return;
+    }
+
+    members.add(this.memberId);
+    if (members.equals(this.ring.getMembers())) {
+      return;
+    }
+
+    this.ring = HashRing.of(members, this.virtualNodes);
+    logger.info("Cluster topology changed: %s", this.ring.getMembers());
+
+    if (notify) {
+      this.publisher.publishEvent(new ClusterTopologyEvent(this, this.ring.getMembers()));
+    }
+  }
+
+  /**
+   * Acquires or renews the primary lease and publishes a change of role.
+   *
+   * @param notify true if a change of role shall be published.
+   */
+  private void elect(boolean notify) {
+    long start = System.currentTimeMillis();
+    boolean primary;
+
+    try {
+      primary = this.store.acquire(PRIMARY_LEASE, this.memberId, this.takeoverTimeout);
+    } catch (IOException | RuntimeException ex) {
+      // the remaining instances will take over once the lease expires and thus this instance
+      // must no longer consider itself primary
+      logger.warn("Failed to renew primary lease: %s", ex.getMessage());
+      primary = false;
+    }
+
+    // the lease is considered expired from the time at which its renewal has been requested
+    // rather than the time at which it has been written in order to stop delivering before any
+    // other instance may take over
+    this.primaryUntil = primary ? start + this.takeoverTimeout : 0;
+
+    if (primary == this.primary) {
+      return;
+    }
+
+    this.primary = primary;
+    logger.info(primary ? "Promoted to primary" : "Demoted to standby");
+
+    if (notify) {
+      this.publisher.publishEvent(new ClusterRoleEvent(this, primary));
+    }
+  }
+
+  /**
+   * Retrieves the identifier of this instance.
+   *
+   * @return a member identifier.
+   */
+  @NonNull
+  public String getMemberId() {
+    return this.memberId;
+  }
+
+  /**
+   * Retrieves the identifiers of all live members.
+   *
+   * @return a set of member identifiers.
+   */
+  @NonNull
+  public Set<String> getMembers() {
+    return this.ring.getMembers();
+  }
+
+  /**
+   * Retrieves the strategy according to which this cluster shares its work.
+   *
+   * @return a mode.
+   */
+  @NonNull
+  public ClusterMode getMode() {
+    return this.mode;
+  }
+
+  /**
+   * Evaluates whether this instance is currently the primary (when operating in failover mode).
+   *
+   * @return true if primary, false otherwise.
+   */
+  public boolean isPrimary() {
+    return System.currentTimeMillis() < this.primaryUntil;
+  }
+
+  /**
+   * Evaluates whether this instance shall maintain the connections for the specified shard. In
+   * failover mode, standby instances maintain all connections in order to take over without
+   * delay.
+   *
+   * @param shard a shard key (such as {@code irc/<host>:<port>}).
+   * @return true if assigned, false otherwise.
+   */
+  public boolean isAssigned(@NonNull String shard) {
+    return this.mode == ClusterMode.FAILOVER || this.isOwner(shard);
+  }
+
+  /**
+   * Evaluates whether this instance currently owns (e.g. delivers messages to) the specified
+   * shard.
+   *
+   * @param shard a shard key (such as {@code irc/<host>:<port>}).
+   * @return true if owned, false otherwise.
+   */
+  public boolean isOwner(@NonNull String shard) {
+    if (this.mode == ClusterMode.FAILOVER) {
+      return this.isPrimary();
+    }
+
+    return this.memberId.equals(this.ring.getOwner(shard));
+  }
+
+  /**
+   * <p>Evaluates whether messages for the specified shard which are still queued locally have
+   * been handed off to another instance and are thus lost unless they are passed to the dead
+   * letter queue.</p>
+   *
+   * <p>In failover mode, the watermark is advanced before messages are queued and thus the
+   * successor of a demoted primary does not deliver its backlog. In sharded mode, the new owner of
+   * a shard replays recent records instead and delivers all messages which have not been claimed
+   * yet.</p>
+   *
+   * @param shard a shard key (such as {@code irc/<host>:<port>}).
+   * @return true if handed off, false otherwise.
+   */
+  public boolean isHandedOff(@NonNull String shard) {
+    return this.mode == ClusterMode.FAILOVER && !this.isOwner(shard);
+  }
+
+  /**
+   * Executes a task (typically the hand-off of a payload to the adapters) within the scope of a
+   * delivery so that all messages which are sent by the task are claimed.
+   *
+   * @param deliveryId a delivery identifier.
+   * @param task a task.
+   */
+  public void deliver(@NonNull UUID deliveryId, @NonNull Runnable task) {
+    UUID previous = this.currentDelivery.get();
+    this.currentDelivery.set(deliveryId);
+
+    try {
+      task.run();
+    } finally {
+      if (previous == null) {
+        this.currentDelivery.remove();
+      } else {
+        this.currentDelivery.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Retrieves the identifier of the delivery within whose scope the current thread operates.
+   *
+   * @return a delivery identifier or null if the thread does not operate within the scope of a
+   *     delivery.
+   * @see #deliver(UUID, Runnable)
+   */
+  @Nullable
+  public UUID getCurrentDelivery() {
+    return this.currentDelivery.get();
+  }
+
+  /**
+   * <p>Claims the delivery of the current payload to the specified target.</p>
+   *
+   * <p>Messages which are sent outside of the scope of a delivery (such as command responses)
+   * are not claimed and are thus only subject to shard ownership.</p>
+   *
+   * @param shard the key of the shard which the target belongs to.
+   * @param target a target key (such as {@code <host>:<port>/<channel>}).
+   * @return true if this instance shall send the message, false otherwise.
+   */
+  public boolean claim(@NonNull String shard, @NonNull String target) {
+    return this.claim(shard, target, this.currentDelivery.get());
+  }
+
+  /**
+   * <p>Claims the delivery of a payload to the specified target.</p>
+   *
+   * <p>Adapters which queue their messages are expected to capture the current delivery (via
+   * {@link #getCurrentDelivery()}) and claim their messages right before they are sent so that
+   * messages which are still queued when an instance fails are not lost along with it.</p>
+   *
+   * @param shard the key of the shard which the target belongs to.
+   * @param target a target key (such as {@code <host>:<port>/<channel>}).
+   * @param deliveryId a delivery identifier or null if the message has been sent outside of the
+   *     scope of a delivery.
+   * @return true if this instance shall send the message, false otherwise.
+   */
+  public boolean claim(@NonNull String shard, @NonNull String target,
+      @Nullable UUID deliveryId) {
+    if (!this.isOwner(shard)) {
+      return false;
+    }
+
+    // in failover mode, payloads are delivered in order of their position within the log and
+    // are thus deduplicated through its watermark instead
+    if (deliveryId == null || this.mode == ClusterMode.FAILOVER) {
+      return true;
+    }
+
+    // every attempt uses a distinct owner as the same member may encounter a delivery more than
+    // once (e.g. when the log is replayed) and must not renew its own claim in that case
+    String owner = this.memberId + "#" + this.claimCounter.incrementAndGet();
+
+    try {
+      if (this.store.acquire(CLAIM_PREFIX + deliveryId + "/" + target, owner,
+          this.claimDuration)) {
+        this.acquiredClaims.increment();
+        return true;
+      }
+
+      this.duplicateClaims.increment();
+      return false;
+    } catch (IOException ex) {
+      // messages are dropped rather than potentially sent twice
+      logger.error("Failed to claim delivery %s to %s: %s", deliveryId, target, ex.getMessage());
+      this.failedClaims.increment();
+      return false;
+    }
+  }
+}
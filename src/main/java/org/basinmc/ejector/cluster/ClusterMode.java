@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+/**
+ * Provides a list of strategies according to which the instances of a cluster share their work.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public enum ClusterMode {
+
+  /**
+   * Assigns every shard (such as an IRC server or Discord channel) to exactly one instance and
+   * thus distributes the connections and messages between all instances.
+   */
+  SHARDED,
+
+  /**
+   * Elects a single primary instance which delivers all messages while the remaining instances
+   * keep their connections open in order to take over as soon as the primary fails.
+   */
+  FAILOVER
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterStore.Record;
+import org.basinmc.ejector.communication.CommunicationManager;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Shares received payloads with all instances of a cluster.</p>
+ *
+ * <p>Webhooks are only received by a single instance (as chosen by the load balancer) which
+ * appends the reduced payload to the shared log and delivers it to the shards it owns right
+ * away. All other instances read the log periodically and deliver each payload to the shards they
+ * own.</p>
+ *
+ * <p>When the topology changes, recently appended records are replayed as the previous owner of
+ * a shard may have failed before delivering them. Messages which have already been sent are
+ * skipped as their claims remain in place.</p>
+ *
+ * <p>In failover mode, payloads are merely appended to the log when they are received and are
+ * delivered by the primary in order of their position within the log instead. The position of
+ * the most recently delivered record is kept as a shared watermark which is advanced before the
+ * record is handed to the adapters. When a standby instance takes over, it resumes delivery right
+ * after the watermark and thus neither skips nor repeats payloads which have been received in the
+ * meantime. Messages which the adapters of a demoted primary have yet to send are passed to its
+ * dead letter queue rather than being delivered by its successor.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.cluster", name = "enabled")
+public class ClusterReplicator implements InitializingBean, DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(ClusterReplicator.class);
+
+  /**
+   * Defines the maximum amount of records which are read at once.
+   */
+  private static final int BATCH_SIZE = 64;
+
+  /**
+   * Defines the name of the watermark which tracks the delivery progress in failover mode.
+   */
+  private static final String WATERMARK = "delivery";
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ClusterStore store;
+  private final ClusterCoordinator coordinator;
+  private final CommunicationManager communicationManager;
+  private final long pollInterval;
+  private final long replayWindow;
+  private final AtomicBoolean replay = new AtomicBoolean(true);
+  private final Counter published;
+  private final Counter failed;
+
+  private long position = -1;
+  private Thread thread;
+
+  @Autowired
+  public ClusterReplicator(@NonNull ClusterStore store, @NonNull ClusterCoordinator coordinator,
+      @NonNull CommunicationManager communicationManager,
+      @NonNull MeterRegistry registry,
+      @Value("${ejector.cluster.poll-interval:250}") long pollInterval,
+      @Value("${ejector.cluster.lease-duration:5000}") long leaseDuration) {
+    this.store = store;
+    this.coordinator = coordinator;
+    this.communicationManager = communicationManager;
+    this.pollInterval = pollInterval;
+    // shards of a failed member remain assigned to it until its lease expires
+    this.replayWindow = leaseDuration * 2;
+
+    this.published = registry.counter("ejector.cluster.records", "outcome", "published");
+    this.failed = registry.counter("ejector.cluster.records", "outcome", "failed");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void afterPropertiesSet() {
+    this.thread = new Thread(this.isSequential() ? this::pollSequentially : this::poll);
+    this.thread.setName("cluster-replicator");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.thread.interrupt();
+  }
+
+  /**
+   * Schedules a replay of recent records as the ownership of shards has changed.
+   *
+   * @param event a topology event.
+   */
+  @EventListener
+  public void onTopologyChange(@NonNull ClusterTopologyEvent event) {
+    this.replay.set(true);
+  }
+
+  /**
+   * Resumes delivery without delay when this instance has been promoted to primary.
+   *
+   * @param event a role event.
+   */
+  @EventListener
+  public void onRoleChange(@NonNull ClusterRoleEvent event) {
+    if (event.isPrimary()) {
+      LockSupport.unpark(this.thread);
+    }
+  }
+
+  /**
+   * Evaluates whether payloads are delivered exclusively in order of their position within the
+   * shared log (e.g. when operating in failover mode). When true, payloads which have been
+   * published successfully must not be delivered locally.
+   *
+   * @return true if sequential, false otherwise.
+   */
+  public boolean isSequential() {
+    return this.coordinator.getMode() == ClusterMode.FAILOVER;
+  }
+
+  /**
+   * Shares a payload with the remaining cluster members and delivers it to all local shards.
+   *
+   * @param payload a payload.
+   * @param deliveryId a delivery identifier.
+   * @param content the reduced payload content.
+   * @param projection a projection of the payload.
+   */
+  public void dispatch(@NonNull UUID deliveryId, @NonNull Payload<?> payload,
+      @NonNull String content, @NonNull Projection projection) {
+    if (this.publish(deliveryId, payload.getType(), content, projection)
+        && this.isSequential()) {
+      return;
+    }
+
+    this.coordinator.deliver(deliveryId,
+        () -> this.communicationManager.handlePayload(payload, projection));
+  }
+
+  /**
+   * Shares a payload with the remaining cluster members.
+   *
+   * @param deliveryId a delivery identifier.
+   * @param type a payload type.
+   * @param content the reduced payload content.
+   * @param projection a projection of the payload.
+   * @return true if published, false otherwise.
+   */
+  public boolean publish(@NonNull UUID deliveryId, @NonNull PayloadType type,
+      @NonNull String content, @NonNull Projection projection) {
+    ObjectNode record = this.mapper.createObjectNode()
+        .put("origin", this.coordinator.getMemberId())
+        .put("delivery", deliveryId.toString())
+        .put("type", type.name())
+        .put("content", content);
+
+    ObjectNode values = record.putObject("values");
+    ObjectNode counts = record.putObject("counts");
+    for (Field field : Field.values()) {
+      String value = projection.get(field);
+      if (value != null) {
+        values.put(field.name(), value);
+      }
+
+      int count = projection.getCount(field);
+      if (count != 0) {
+        counts.put(field.name(), count);
+      }
+    }
+
+    try {
+      this.store.append(this.mapper.writeValueAsBytes(record));
+      this.published.increment();
+    } catch (IOException ex) {
+      // the payload is still delivered to local shards
+      logger.error("Failed to share delivery " + deliveryId + " with cluster: " + ex
+          .getMessage(), ex);
+      this.failed.increment();
+      return false;
+    }
+
+    if (this.isSequential()) {
+      LockSupport.unpark(this.thread);
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads the shared log until the replicator is stopped.
+   */
+  private void poll() {
+    boolean replaying = false;
+    long replaySince = 0;
+    long counted = -1;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        if (this.replay.getAndSet(false)) {
+          replaying = true;
+          replaySince = System.currentTimeMillis() - this.replayWindow;
+          this.position = -1;
+        }
+
+        List<Record> records = this.store.read(this.position, BATCH_SIZE);
+
+        for (Record record : records) {
+          // the position is advanced beforehand so that failing records are not retried
+          this.position = record.getSequence();
+
+          // records which have been read before are already reflected within the statistics and
+          // are merely delivered again when they are replayed
+          boolean fresh = record.getSequence() > counted;
+          counted = Math.max(counted, record.getSequence());
+
+          if (!replaying || record.getTimestamp() >= replaySince) {
+            // records of this instance have already been delivered locally when they were
+            // received
+            this.handle(record, replaying, fresh);
+          }
+        }
+
+        if (records.size() < BATCH_SIZE) {
+          // the replay ends once the replicator has caught up with the log
+          replaying = false;
+          Thread.sleep(this.pollInterval);
+        }
+      } catch (InterruptedException ex) {
+        return;
+      } catch (IOException | RuntimeException ex) {
+        logger.warn("Failed to read cluster log: %s", ex.getMessage());
+
+        try {
+          Thread.sleep(this.pollInterval);
+        } catch (InterruptedException ignore) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Delivers all records past the watermark while this instance is the primary (in failover
+   * mode) until the replicator is stopped.
+   */
+  private void pollSequentially() {
+    boolean resume = true;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        if (!this.coordinator.isPrimary()) {
+          resume = true;
+          this.await();
+          continue;
+        }
+
+        if (resume) {
+          // picks up where the previous primary (or this instance) has left off
+          this.position = this.store.getWatermark(WATERMARK);
+          resume = false;
+        }
+
+        List<Record> records = this.store.read(this.position, BATCH_SIZE);
+
+        for (Record record : records) {
+          // the watermark is advanced before delivering the record and thus a record is lost
+          // rather than delivered twice when the primary fails in the meantime (messages which
+          // are still queued when the primary is demoted are dead lettered by the adapters)
+          if (!this.coordinator.isPrimary()
+              || !this.store.updateWatermark(WATERMARK, this.position, record.getSequence())) {
+            logger.warn("Delivery has been taken over by another member");
+            resume = true;
+            break;
+          }
+
+          this.position = record.getSequence();
+          this.handle(record, true, true);
+        }
+
+        if (records.size() < BATCH_SIZE) {
+          this.await();
+        }
+      } catch (IOException | RuntimeException ex) {
+        logger.warn("Failed to deliver from cluster log: %s", ex.getMessage());
+        resume = true;
+        this.await();
+      }
+    }
+  }
+
+  /**
+   * Waits for the poll interval to elapse or a payload to be published (whichever comes first).
+   */
+  private void await() {
+    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(this.pollInterval));
+  }
+
+  /**
+   * Delivers a record to all local shards.
+   *
+   * @param record a record.
+   * @param own true if records which have been published by this instance shall be delivered.
+   * @param fresh true if the record has yet to be reflected within the event statistics (records
+   * which have been published by this instance are recorded when they are delivered locally
+   * unless payloads are delivered sequentially).
+   */
+  private void handle(@NonNull Record record, boolean own, boolean fresh) {
+    JsonNode node;
+
+    try {
+      node = this.mapper.readTree(record.getContent());
+    } catch (IOException ex) {
+      logger.warn("Skipping malformed cluster record %d: %s", record.getSequence(),
+          ex.getMessage());
+      return;
+    }
+
+    boolean local = this.coordinator.getMemberId().equals(node.path("origin").asText());
+    if (!own && local) {
+      return;
+    }
+
+    PayloadType type = parseType(node.path("type").asText());
+    if (type == null) {
+      logger.warn("Skipping cluster record %d of unknown type", record.getSequence());
+      return;
+    }
+
+    UUID deliveryId = UUID.fromString(node.path("delivery").asText());
+    Projection.Builder projection = Projection.builder(type);
+    node.path("values").fields().forEachRemaining((e) -> {
+      Field field = parseField(e.getKey());
+      if (field != null) {
+        projection.withValue(field, e.getValue().asText());
+      }
+    });
+    node.path("counts").fields().forEachRemaining((e) -> {
+      Field field = parseField(e.getKey());
+      if (field != null) {
+        projection.withCount(field, e.getValue().asInt());
+      }
+    });
+
+    Event event;
+    try {
+      event = type.read(node.path("content").asText());
+    } catch (IOException ex) {
+      logger.warn("Skipping malformed payload %s: %s", deliveryId, ex.getMessage());
+      return;
+    }
+
+    Payload<?> payload = new Payload<>(deliveryId, type, event);
+    Projection built = projection.build();
+    boolean statistics = fresh && (!local || this.isSequential());
+    this.coordinator.deliver(deliveryId,
+        () -> this.communicationManager.handlePayload(payload, built, statistics));
+  }
+
+  @Nullable
+  private static PayloadType parseType(@NonNull String name) {
+    try {
+      return PayloadType.valueOf(name);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static Field parseField(@NonNull String name) {
+    try {
+      return Field.valueOf(name);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Notifies components about the promotion of this instance to primary or its demotion to standby
+ * (when clustering in failover mode).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class ClusterRoleEvent extends ApplicationEvent {
+
+  private final boolean primary;
+
+  public ClusterRoleEvent(@NonNull Object source, boolean primary) {
+    super(source);
+    this.primary = primary;
+  }
+
+  /**
+   * Evaluates whether this instance has been promoted to primary.
+   *
+   * @return true if primary, false if standby.
+   */
+  public boolean isPrimary() {
+    return this.primary;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Provides the shared state through which the instances of a cluster coordinate.</p>
+ *
+ * <p>Stores provide two primitives: Leases (keys which are held by a single owner until they
+ * expire or are released) and a log of records which is shared between all instances. Members
+ * announce themselves through leases which they renew periodically while deliveries are claimed
+ * through leases in order to guarantee that every message is sent only once. Received payloads
+ * are appended to the log so that every instance may deliver them to the channels it owns while
+ * watermarks track the progress of their delivery.</p>
+ *
+ * <p>Implementations must be safe for use by multiple threads as well as multiple instances of
+ * the application (when shared between them).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public interface ClusterStore {
+
+  /**
+   * Acquires or renews a lease.
+   *
+   * @param key a lease key.
+   * @param owner the identifier of the acquiring member.
+   * @param duration the amount of milliseconds after which the lease expires.
+   * @return true if the lease is now held by the specified owner, false if it is held by
+   *     another owner.
+   * @throws IOException when the store is unavailable.
+   */
+  boolean acquire(@NonNull String key, @NonNull String owner, long duration) throws IOException;
+
+  /**
+   * Releases a lease (if it is held by the specified owner).
+   *
+   * @param key a lease key.
+   * @param owner the identifier of the releasing member.
+   * @throws IOException when the store is unavailable.
+   */
+  void release(@NonNull String key, @NonNull String owner) throws IOException;
+
+  /**
+   * Retrieves all unexpired leases whose key starts with the specified prefix.
+   *
+   * @param prefix a key prefix.
+   * @return a map of lease keys and their respective owners.
+   * @throws IOException when the store is unavailable.
+   */
+  @NonNull
+  Map<String, String> getLeases(@NonNull String prefix) throws IOException;
+
+  /**
+   * Appends a record to the shared log.
+   *
+   * @param content an encoded record.
+   * @return the sequence number of the record.
+   * @throws IOException when the store is unavailable.
+   */
+  long append(@NonNull byte[] content) throws IOException;
+
+  /**
+   * Reads records from the shared log (in order of their sequence numbers). Records are retained
+   * for a limited amount of time and may thus no longer be available.
+   *
+   * @param after the sequence number after which records are returned (or -1 to read all
+   *     retained records).
+   * @param limit the maximum amount of records to return.
+   * @return a list of records.
+   * @throws IOException when the store is unavailable.
+   */
+  @NonNull
+  List<Record> read(long after, int limit) throws IOException;
+
+  /**
+   * Retrieves the current value of a watermark.
+   *
+   * @param name a watermark name.
+   * @return a value or -1 if the watermark has never been updated.
+   * @throws IOException when the store is unavailable.
+   */
+  long getWatermark(@NonNull String name) throws IOException;
+
+  /**
+   * Updates a watermark if it has not been modified since it has last been retrieved (e.g. if
+   * its value still matches the expected value).
+   *
+   * @param name a watermark name.
+   * @param expected the expected current value.
+   * @param value the new value.
+   * @return true if updated, false if the watermark has been modified by another member.
+   * @throws IOException when the store is unavailable.
+   */
+  boolean updateWatermark(@NonNull String name, long expected, long value) throws IOException;
+
+  /**
+   * Represents a single record within the shared log.
+   */
+  final class Record {
+
+    private final long sequence;
+    private final long timestamp;
+    private final byte[] content;
+
+    public Record(long sequence, long timestamp, @NonNull byte[] content) {
+      this.sequence = sequence;
+      this.timestamp = timestamp;
+      this.content = content;
+    }
+
+    public long getSequence() {
+      return this.sequence;
+    }
+
+    /**
+     * Retrieves the time at which the record has been appended (in milliseconds since the
+     * epoch).
+     *
+     * @return a timestamp.
+     */
+    public long getTimestamp() {
+      return this.timestamp;
+    }
+
+    @NonNull
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+    public byte[] getContent() {
+      return this.content;
+    }
+  }
+}
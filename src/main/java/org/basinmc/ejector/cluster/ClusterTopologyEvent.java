@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Set;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Notifies components of a change to the set of live cluster members (and thus the ownership of
+ * connections and channels).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class ClusterTopologyEvent extends ApplicationEvent {
+
+  private final Set<String> members;
+
+  public ClusterTopologyEvent(@NonNull Object source, @NonNull Set<String> members) {
+    super(source);
+    this.members = members;
+  }
+
+  /**
+   * Retrieves the identifiers of all live members.
+   *
+   * @return a set of member identifiers.
+   */
+  @NonNull
+  public Set<String> getMembers() {
+    return this.members;
+  }
+}
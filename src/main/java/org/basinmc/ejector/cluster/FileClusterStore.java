@@ -0,0 +1,409 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides a cluster store which keeps its state within a (shared) directory.</p>
+ *
+ * <p>Every lease, watermark and log record is stored within a file of its own while
+ * modifications are serialized through an exclusive lock on a dedicated lock file. As a result,
+ * this store is suitable for instances on the same host or on hosts which share a file system with
+ * working file locks.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnExpression("${ejector.cluster.enabled:false}"
+    + " and '${ejector.cluster.store:file}' == 'file'")
+public class FileClusterStore implements ClusterStore {
+
+  private static final Base64.Encoder keyEncoder = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder keyDecoder = Base64.getUrlDecoder();
+
+  private final Path lockFile;
+  private final Path leaseDirectory;
+  private final Path logDirectory;
+  private final Path sequenceFile;
+  private final Path watermarkDirectory;
+  private final long retention;
+
+  @Autowired
+  public FileClusterStore(
+      @NonNull @Value("${ejector.cluster.directory:cluster}") String directory,
+      @Value("${ejector.cluster.log-retention:60000}") long retention) throws IOException {
+    Path root = Paths.get(directory).toAbsolutePath().normalize();
+
+    this.lockFile = root.resolve("lock");
+    this.leaseDirectory = root.resolve("leases");
+    this.logDirectory = root.resolve("log");
+    this.sequenceFile = root.resolve("sequence");
+    this.watermarkDirectory = root.resolve("watermarks");
+    this.retention = retention;
+
+    Files.createDirectories(this.leaseDirectory);
+    Files.createDirectories(this.logDirectory);
+    Files.createDirectories(this.watermarkDirectory);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized boolean acquire(@NonNull String key, @NonNull String owner,
+      long duration) throws IOException {
+    Path file = this.leaseDirectory.resolve(encodeKey(key));
+
+    try (FileChannel channel = this.lock()) {
+      long now = System.currentTimeMillis();
+      Lease lease = readLease(file);
+
+      if (lease != null && lease.expiresAt > now && !lease.owner.equals(owner)) {
+        return false;
+      }
+
+      writeAtomically(file, (owner + "\n" + (now + duration)).getBytes(StandardCharsets.UTF_8));
+      return true;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void release(@NonNull String key, @NonNull String owner)
+      throws IOException {
+    Path file = this.leaseDirectory.resolve(encodeKey(key));
+
+    try (FileChannel channel = this.lock()) {
+      Lease lease = readLease(file);
+
+      if (lease != null && lease.owner.equals(owner)) {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public synchronized Map<String, String> getLeases(@NonNull String prefix) throws IOException {
+    Map<String, String> result = new HashMap<>();
+
+    try (FileChannel channel = this.lock();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(this.leaseDirectory)) {
+      long now = System.currentTimeMillis();
+
+      for (Path file : stream) {
+        Lease lease = readLease(file);
+
+        if (lease == null) {
+          continue;
+        }
+
+        // expired leases are collected here as they would otherwise accumulate indefinitely
+        if (lease.expiresAt <= now) {
+          Files.deleteIfExists(file);
+          continue;
+        }
+
+        String key = decodeKey(file.getFileName().toString());
+        if (key != null && key.startsWith(prefix)) {
+          result.put(key, lease.owner);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long append(@NonNull byte[] content) throws IOException {
+    try (FileChannel channel = this.lock()) {
+      long now = System.currentTimeMillis();
+      long sequence = 0;
+
+      if (Files.exists(this.sequenceFile)) {
+        sequence = Long.parseLong(
+            new String(Files.readAllBytes(this.sequenceFile), StandardCharsets.UTF_8).trim());
+      }
+
+      writeAtomically(this.logDirectory.resolve(String.format("%020d-%d", sequence, now)),
+          content);
+      writeAtomically(this.sequenceFile,
+          Long.toString(sequence + 1).getBytes(StandardCharsets.UTF_8));
+
+      this.trim(now);
+      return sequence;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public List<Record> read(long after, int limit) throws IOException {
+    // records are written atomically and never modified and thus may be read without holding
+    // the lock (records which are trimmed in the meantime are simply skipped)
+    List<Path> files = new ArrayList<>();
+
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.logDirectory)) {
+      for (Path file : stream) {
+        if (getSequence(file) > after) {
+          files.add(file);
+        }
+      }
+    }
+
+    files.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+
+    List<Record> records = new ArrayList<>();
+    for (Path file : files) {
+      if (records.size() == limit) {
+        break;
+      }
+
+      try {
+        records.add(new Record(getSequence(file), getTimestamp(file), Files.readAllBytes(file)));
+      } catch (NoSuchFileException ignore) {
+      }
+    }
+
+    return records;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getWatermark(@NonNull String name) throws IOException {
+    // watermarks are replaced atomically and may thus be read without holding the lock
+    return readWatermark(this.watermarkDirectory.resolve(encodeKey(name)));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized boolean updateWatermark(@NonNull String name, long expected, long value)
+      throws IOException {
+    Path file = this.watermarkDirectory.resolve(encodeKey(name));
+
+    try (FileChannel channel = this.lock()) {
+      if (readWatermark(file) != expected) {
+        return false;
+      }
+
+      writeAtomically(file, Long.toString(value).getBytes(StandardCharsets.UTF_8));
+      return true;
+    }
+  }
+
+  /**
+   * Removes all records which have exceeded the retention period from the log.
+   *
+   * @param now the current time.
+   * @throws IOException when listing or deleting records fails.
+   */
+  private void trim(long now) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.logDirectory)) {
+      for (Path file : stream) {
+        long timestamp = getTimestamp(file);
+
+        if (timestamp != -1 && timestamp < now - this.retention) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Acquires the exclusive store lock. The lock is released when the returned channel is
+   * closed.
+   *
+   * @return a channel.
+   * @throws IOException when acquiring the lock fails.
+   */
+  @NonNull
+  private FileChannel lock() throws IOException {
+    FileChannel channel = FileChannel.open(this.lockFile, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE);
+
+    try {
+      channel.lock();
+    } catch (IOException | RuntimeException ex) {
+      channel.close();
+      throw ex;
+    }
+
+    return channel;
+  }
+
+  /**
+   * Writes a file by replacing it with a fully written temporary file.
+   *
+   * @param file a file.
+   * @param content the new file contents.
+   * @throws IOException when writing fails.
+   */
+  private static void writeAtomically(@NonNull Path file, @NonNull byte[] content)
+      throws IOException {
+    Path temporary = file.resolveSibling("." + file.getFileName() + ".tmp");
+
+    Files.write(temporary, content);
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Reads a lease file.
+   *
+   * @param file a lease file.
+   * @return a lease or null if the file does not exist or is not a lease.
+   * @throws IOException when reading fails.
+   */
+  @Nullable
+  private static Lease readLease(@NonNull Path file) throws IOException {
+    if (file.getFileName().toString().startsWith(".")) {
+      return null;
+    }
+
+    String content;
+
+    try {
+      content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException ex) {
+      return null;
+    }
+
+    int separator = content.indexOf('\n');
+    if (separator == -1) {
+      return null;
+    }
+
+    try {
+      return new Lease(content.substring(0, separator),
+          Long.parseLong(content.substring(separator + 1).trim()));
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Reads a watermark file.
+   *
+   * @param file a watermark file.
+   * @return a value or -1 if the file does not exist.
+   * @throws IOException when reading fails.
+   */
+  private static long readWatermark(@NonNull Path file) throws IOException {
+    try {
+      return Long.parseLong(new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+    } catch (NoSuchFileException ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Retrieves the sequence number of a record file.
+   *
+   * @param file a record file.
+   * @return a sequence number or -1 if the file is not a record.
+   */
+  private static long getSequence(@NonNull Path file) {
+    String name = file.getFileName().toString();
+    int separator = name.indexOf('-');
+
+    if (name.startsWith(".") || separator == -1) {
+      return -1;
+    }
+
+    return Long.parseLong(name.substring(0, separator));
+  }
+
+  /**
+   * Retrieves the time at which a record file has been appended.
+   *
+   * @param file a record file.
+   * @return a timestamp or -1 if the file is not a record.
+   */
+  private static long getTimestamp(@NonNull Path file) {
+    String name = file.getFileName().toString();
+    int separator = name.indexOf('-');
+
+    if (name.startsWith(".") || separator == -1) {
+      return -1;
+    }
+
+    return Long.parseLong(name.substring(separator + 1));
+  }
+
+  @NonNull
+  private static String encodeKey(@NonNull String key) {
+    return keyEncoder.encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Nullable
+  private static String decodeKey(@NonNull String name) {
+    try {
+      return new String(keyDecoder.decode(name), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Represents a lease which is held by a member.
+   */
+  private static final class Lease {
+
+    private final String owner;
+    private final long expiresAt;
+
+    private Lease(@NonNull String owner, long expiresAt) {
+      this.owner = owner;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <p>Assigns keys to the members of a cluster through consistent hashing.</p>
+ *
+ * <p>Every member is placed on the ring multiple times (as so called virtual nodes) in order to
+ * distribute keys evenly. When a member joins or leaves the cluster, only the keys which are
+ * assigned to its virtual nodes change their owner.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class HashRing {
+
+  private final Set<String> members;
+  private final long[] points;
+  private final String[] owners;
+
+  private HashRing(@NonNull Set<String> members, @NonNull long[] points,
+      @NonNull String[] owners) {
+    this.members = members;
+    this.points = points;
+    this.owners = owners;
+  }
+
+  /**
+   * Constructs a new ring for the specified members.
+   *
+   * @param members a collection of member identifiers.
+   * @param replicas the amount of virtual nodes per member.
+   * @return a ring.
+   */
+  @NonNull
+  static HashRing of(@NonNull Collection<String> members, int replicas) {
+    // members are sorted in order to resolve (unlikely) hash collisions identically on every
+    // instance
+    Set<String> sorted = new TreeSet<>(members);
+    long[][] nodes = new long[sorted.size() * replicas][];
+    String[] names = sorted.toArray(new String[0]);
+
+    int i = 0;
+    for (int member = 0; member < names.length; ++member) {
+      for (int replica = 0; replica < replicas; ++replica) {
+        nodes[i++] = new long[]{hash(names[member] + "#" + replica), member};
+      }
+    }
+
+    Arrays.sort(nodes, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+        : Long.compare(a[1], b[1]));
+
+    long[] points = new long[nodes.length];
+    String[] owners = new String[nodes.length];
+    for (i = 0; i < nodes.length; ++i) {
+      points[i] = nodes[i][0];
+      owners[i] = names[(int) nodes[i][1]];
+    }
+
+    return new HashRing(Collections.unmodifiableSet(sorted), points, owners);
+  }
+
+  /**
+   * Retrieves the identifiers of all members on this ring.
+   *
+   * @return a set of member identifiers.
+   */
+  @NonNull
+  Set<String> getMembers() {
+    return this.members;
+  }
+
+  /**
+   * Retrieves the member which owns the specified key.
+   *
+   * @param key a key.
+   * @return a member identifier or null if the ring is empty.
+   */
+  @Nullable
+  String getOwner(@NonNull String key) {
+    if (this.points.length == 0) {
+      return null;
+    }
+
+    int index = Arrays.binarySearch(this.points, hash(key));
+    if (index < 0) {
+      index = -index - 1;
+    }
+
+    return this.owners[index == this.points.length ? 0 : index];
+  }
+
+  /**
+   * Computes the position of a key on the ring (using FNV-1a followed by the finalizer of
+   * MurmurHash3 in order to spread similar keys).
+   *
+   * @param key a key.
+   * @return a hash.
+   */
+  static long hash(@NonNull String key) {
+    long hash = 0xcbf29ce484222325L;
+
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides a cluster store which retains its state within the heap.</p>
+ *
+ * <p>As the state is not shared between processes, this store is only suitable for clusters
+ * which consist of a single instance (e.g. for testing purposes) or multiple coordinators within
+ * the same virtual machine.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnExpression("${ejector.cluster.enabled:false}"
+    + " and '${ejector.cluster.store:file}' == 'memory'")
+public class InMemoryClusterStore implements ClusterStore {
+
+  private final long retention;
+  private final Map<String, Lease> leases = new HashMap<>();
+  private final Deque<Record> log = new ArrayDeque<>();
+  private final Map<String, Long> watermarks = new HashMap<>();
+  private long sequence;
+
+  @Autowired
+  public InMemoryClusterStore(@Value("${ejector.cluster.log-retention:60000}") long retention) {
+    this.retention = retention;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized boolean acquire(@NonNull String key, @NonNull String owner,
+      long duration) {
+    long now = System.currentTimeMillis();
+    Lease lease = this.leases.get(key);
+
+    if (lease != null && lease.expiresAt > now && !lease.owner.equals(owner)) {
+      return false;
+    }
+
+    this.leases.put(key, new Lease(owner, now + duration));
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void release(@NonNull String key, @NonNull String owner) {
+    Lease lease = this.leases.get(key);
+
+    if (lease != null && lease.owner.equals(owner)) {
+      this.leases.remove(key);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public synchronized Map<String, String> getLeases(@NonNull String prefix) {
+    long now = System.currentTimeMillis();
+    Map<String, String> result = new HashMap<>();
+    Iterator<Map.Entry<String, Lease>> it = this.leases.entrySet().iterator();
+
+    while (it.hasNext()) {
+      Map.Entry<String, Lease> entry = it.next();
+
+      if (entry.getValue().expiresAt <= now) {
+        it.remove();
+      } else if (entry.getKey().startsWith(prefix)) {
+        result.put(entry.getKey(), entry.getValue().owner);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long append(@NonNull byte[] content) {
+    long now = System.currentTimeMillis();
+
+    while (!this.log.isEmpty() && this.log.peekFirst().getTimestamp() < now - this.retention) {
+      this.log.removeFirst();
+    }
+
+    long sequence = this.sequence++;
+    this.log.addLast(new Record(sequence, now, content.clone()));
+    return sequence;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public synchronized List<Record> read(long after, int limit) {
+    List<Record> records = new ArrayList<>();
+
+    for (Record record : this.log) {
+      if (records.size() == limit) {
+        break;
+      }
+
+      if (record.getSequence() > after) {
+        records.add(record);
+      }
+    }
+
+    return records;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized long getWatermark(@NonNull String name) {
+    return this.watermarks.getOrDefault(name, -1L);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized boolean updateWatermark(@NonNull String name, long expected, long value) {
+    if (this.watermarks.getOrDefault(name, -1L) != expected) {
+      return false;
+    }
+
+    this.watermarks.put(name, value);
+    return true;
+  }
+
+  /**
+   * Represents a lease which is held by a member.
+   */
+  private static final class Lease {
+
+    private final String owner;
+    private final long expiresAt;
+
+    private Lease(@NonNull String owner, long expiresAt) {
+      this.owner = owner;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
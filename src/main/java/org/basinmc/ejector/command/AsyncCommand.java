@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.command;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import org.basinmc.ejector.command.Command.Context;
+import org.basinmc.ejector.command.error.CommandException;
+import org.basinmc.ejector.command.error.CommandParameterException;
+
+/**
+ * <p>Provides a command implementation which executes its logic asynchronously.</p>
+ *
+ * <p>Unlike {@link Command}, implementations of this interface are expected to return
+ * immediately and perform any blocking operations (such as I/O) outside of the calling
+ * thread.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public interface AsyncCommand {
+
+  /**
+   * <p>Executes the command's internal logic.</p>
+   *
+   * <p>Failures are to be reported through the returned stage. Typically this will be an instance
+   * of {@link CommandParameterException} when the supplied parameters are outside of their
+   * expected bounds or an instance of {@link CommandException} when the command execution itself
+   * fails.</p>
+   *
+   * <p>The returned stage may be cancelled when the command exceeds its timeout or the invoking
+   * connection is lost.</p>
+   *
+   * @param context a command context.
+   * @param commandName a command name.
+   * @param arguments a list of arguments.
+   * @return a completion stage which completes once the execution has finished.
+   */
+  @NonNull
+  CompletionStage<Void> execute(@NonNull Context context, @NonNull String commandName,
+      @NonNull List<String> arguments);
+
+  /**
+   * Retrieves a list of command names which this command is accessible.
+   *
+   * @return one or more names.
+   */
+  @NonNull
+  Set<String> getNames();
+
+  /**
+   * Retrieves the maximum duration this command may take to complete before it is cancelled.
+   *
+   * @return a timeout or, if the dispatcher default shall apply, an empty optional.
+   */
+  @NonNull
+  default Optional<Duration> getTimeout() {
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.command;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.command.Command.Context;
+import org.basinmc.ejector.communication.Message;
+
+/**
+ * Provides a command context which collects all messages sent during an invocation and passes
+ * them on to its parent context as a single message (in which each of them starts on a line of
+ * its own) once the invocation has finished.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class BatchingContext implements Context {
+
+  private static final Logger logger = LogManager.getFormatterLogger(BatchingContext.class);
+
+  private final Context parent;
+  private final List<Message> messages = new ArrayList<>();
+  private boolean flushed;
+
+  BatchingContext(@NonNull Context parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * Passes all collected messages to the parent context and closes this batch.
+   */
+  void flush() {
+    List<Message> messages;
+
+    synchronized (this.messages) {
+      if (this.flushed) {
+        return;
+      }
+
+      this.flushed = true;
+
+      messages = new ArrayList<>(this.messages);
+      this.messages.clear();
+    }
+
+    if (!messages.isEmpty()) {
+      this.parent.sendMessage(Message.join(messages));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getUserName() {
+    return this.parent.getUserName();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getUserReference() {
+    return this.parent.getUserReference();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public CompletionStage<Void> getDisconnection() {
+    return this.parent.getDisconnection();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void sendMessage(@NonNull Message message) {
+    synchronized (this.messages) {
+      if (!this.flushed) {
+        this.messages.add(message);
+        return;
+      }
+    }
+
+    logger.debug("Discarding message sent by %s after its invocation has completed",
+        this.parent.getUserName());
+  }
+}
@@ -19,6 +19,8 @@ package org.basinmc.ejector.command;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import org.basinmc.ejector.command.error.CommandException;
 import org.basinmc.ejector.command.error.CommandParameterException;
 import org.basinmc.ejector.communication.Message;
@@ -73,6 +75,18 @@ public interface Command {
     @NonNull
     String getUserReference();
 
+    /**
+     * Retrieves a stage which completes once the connection through which the command has been
+     * invoked is lost (commands which are still executing at this point will be cancelled).
+     * Contexts which are not bound to a connection return a stage which never completes.
+     *
+     * @return a completion stage.
+     */
+    @NonNull
+    default CompletionStage<Void> getDisconnection() {
+      return new CompletableFuture<>();
+    }
+
     /**
      * Sends a message to the source communication adapter.
      *
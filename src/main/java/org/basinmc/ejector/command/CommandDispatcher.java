@@ -18,49 +18,169 @@ package org.basinmc.ejector.command;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
-import java.util.AbstractMap.SimpleImmutableEntry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.basinmc.ejector.command.Command.Context;
 import org.basinmc.ejector.command.error.CommandException;
 import org.basinmc.ejector.command.error.CommandParameterException;
 import org.basinmc.ejector.command.error.NoSuchCommandException;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.communication.Message.Color;
+import org.basinmc.ejector.execution.VirtualThreads;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
- * Manages the registration and execution of commands.
+ * <p>Manages the registration and execution of commands.</p>
+ *
+ * <p>All commands are executed asynchronously. Synchronous {@link Command} implementations are
+ * adapted to the {@link AsyncCommand} API and executed on a dedicated worker pool in order to
+ * keep them from blocking the calling (typically network) thread.</p>
  *
  * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
  */
 @Component
-public class CommandDispatcher {
+public class CommandDispatcher implements DisposableBean {
 
   private static final Logger logger = LogManager.getFormatterLogger(CommandDispatcher.class);
 
-  private final Map<String, Command> commandMap;
+  private final CommandIndex<AsyncCommand> index;
+  private final ExecutorService executor;
+  private final Duration timeout;
+  private final String prefix;
+
+  /**
+   * Keeps track of the executions which are pending per connection (identified by their
+   * disconnection stage) so that only a single cancellation hook is registered per connection.
+   */
+  private final Map<CompletionStage<Void>, Set<CompletableFuture<?>>> pending =
+      new WeakHashMap<>();
 
   @Autowired
-  public CommandDispatcher(@Nullable @Autowired(required = false) Collection<Command> commands) {
-    if (commands == null) {
-      this.commandMap = Collections.emptyMap();
+  public CommandDispatcher(
+      @Nullable @Autowired(required = false) Collection<Command> commands,
+      @Nullable @Autowired(required = false) Collection<AsyncCommand> asyncCommands,
+      @Value("${ejector.command.timeout:30000}") long timeout,
+      @Value("${ejector.command.threads:4}") int threads,
+      @Value("${ejector.command.prefix:!}") String prefix,
+      @NonNull VirtualThreads virtualThreads,
+      @NonNull MeterRegistry registry) {
+    this.timeout = Duration.ofMillis(timeout);
+    this.prefix = prefix;
+
+    if (virtualThreads.isEnabled()) {
+      this.executor = virtualThreads.newExecutor("command-worker-");
+    } else {
+      AtomicInteger threadCounter = new AtomicInteger();
+      this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), (r) -> {
+        Thread thread = new Thread(r);
+        thread.setName("command-worker-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      ((ThreadPoolExecutor) this.executor).allowCoreThreadTimeOut(true);
+    }
+    new ExecutorServiceMetrics(this.executor, "ejector.command", Collections.emptyList())
+        .bindTo(registry);
+
+    List<AsyncCommand> registered = new ArrayList<>();
+
+    if (commands != null) {
+      commands.forEach((c) -> registered.add(new SynchronousCommandAdapter(c, this.executor)));
+    }
+    if (asyncCommands != null) {
+      registered.addAll(asyncCommands);
+    }
+
+    if (registered.isEmpty()) {
+      this.index = CommandIndex.empty();
       logger.warn("No registered commands");
       return;
     }
 
-    this.commandMap = commands.stream()
-        .flatMap((c) -> c.getNames().stream().map((n) -> new SimpleImmutableEntry<>(n, c)))
-        .collect(Collectors.toMap(Entry::getKey, Entry::getValue));
+    this.index = CommandIndex.of(registered, AsyncCommand::getNames);
+    logger.info("Registered %d command(s) with %d alias(es)", registered.size(),
+        this.index.size());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() throws Exception {
+    this.executor.shutdownNow();
   }
 
   /**
-   * Executes an event (if exists) within the specified context.
+   * <p>Executes the command which is contained within a chat message (if any).</p>
+   *
+   * <p>Messages are considered commands when they start with the configured prefix which is
+   * directly followed by the command name and its (whitespace separated) arguments. Failures are
+   * reported to the invoking user unless their connection has been lost in the meantime.</p>
+   *
+   * @param context a context.
+   * @param message a chat message.
+   * @return true if the message has been dispatched as a command, false otherwise.
+   */
+  public boolean dispatchMessage(@NonNull Context context, @NonNull String message) {
+    if (this.prefix.isEmpty() || !message.startsWith(this.prefix)) {
+      return false;
+    }
+
+    String[] elements = message.substring(this.prefix.length()).trim().split("\\s+");
+    if (elements[0].isEmpty()) {
+      return false;
+    }
+
+    List<String> arguments = Arrays.asList(elements).subList(1, elements.length);
+    this.dispatchAsync(context, elements[0], arguments).whenComplete((r, ex) -> {
+      if (ex == null || context.getDisconnection().toCompletableFuture().isDone()) {
+        return;
+      }
+
+      Throwable cause = ex instanceof CompletionException && ex.getCause() != null
+          ? ex.getCause() : ex;
+      logger.debug("Command \"%s\" invoked by %s failed: %s", elements[0],
+          context.getUserName(), cause.getMessage());
+
+      context.sendMessage(Message.builder()
+          .withText(context.getUserReference())
+          .withColor(Color.RED)
+          .withText(" " + cause.getMessage())
+          .build());
+    });
+
+    return true;
+  }
+
+  /**
+   * <p>Executes a command (if exists) within the specified context and waits for its
+   * completion.</p>
    *
    * @param context a context.
    * @param name a command name.
@@ -68,16 +188,140 @@ public class CommandDispatcher {
    * @throws CommandException when the command execution fails.
    * @throws CommandParameterException when the supplied command arguments are invalid.
    * @throws NoSuchCommandException when no command with the specified name has been defined.
+   * @see #dispatchAsync(Context, String, List) for details on name resolution.
    */
   public void dispatch(@NonNull Context context, @NonNull String name,
       @NonNull List<String> arguments)
       throws CommandException {
-    Command command = this.commandMap.get(name);
+    try {
+      this.dispatchAsync(context, name, arguments).toCompletableFuture().join();
+    } catch (CompletionException ex) {
+      Throwable cause = ex.getCause();
 
-    if (command == null) {
-      throw new NoSuchCommandException("No command with alias \"" + name + "\" registered");
+      if (cause instanceof CommandException) {
+        throw (CommandException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new CommandException("Command execution failed: " + cause.getMessage(), cause);
     }
+  }
 
-    command.execute(context, name, arguments);
+  /**
+   * <p>Executes a command (if exists) within the specified context.</p>
+   *
+   * <p>Command names are matched case insensitively. When no command with the exact specified name
+   * exists, the name is treated as a prefix which is accepted as long as it unambiguously refers
+   * to a single command. The command will always receive its canonical alias.</p>
+   *
+   * <p>Messages which are sent by the command during its execution are collected and passed to
+   * the context (in order) once the command completes. Commands which exceed their
+   * timeout or whose invoking connection is lost are cancelled.</p>
+   *
+   * <p>The returned stage fails with a {@link NoSuchCommandException} when no command with the
+   * specified name has been defined, a {@link CommandParameterException} when the supplied
+   * arguments are invalid or a {@link CommandException} when the execution fails, times out or
+   * is cancelled.</p>
+   *
+   * @param context a context.
+   * @param name a command name.
+   * @param arguments a list of arguments.
+   * @return a completion stage which completes once the execution has finished.
+   */
+  @NonNull
+  public CompletionStage<Void> dispatchAsync(@NonNull Context context, @NonNull String name,
+      @NonNull List<String> arguments) {
+    int index = this.index.indexOf(name);
+
+    if (index < 0) {
+      List<String> suggestions = this.index.suggest(name);
+
+      if (suggestions.isEmpty()) {
+        return CompletableFuture.failedFuture(
+            new NoSuchCommandException("No command with alias \"" + name + "\" registered"));
+      }
+
+      return CompletableFuture.failedFuture(new NoSuchCommandException(
+          "No command with alias \"" + name + "\" registered - Did you mean " + String
+              .join(", ", suggestions) + "?", suggestions));
+    }
+
+    AsyncCommand command = this.index.getCommand(index);
+    String alias = this.index.getAlias(index);
+    Duration timeout = command.getTimeout().orElse(this.timeout);
+    BatchingContext batch = new BatchingContext(context);
+
+    CompletableFuture<Void> future;
+    try {
+      future = command.execute(batch, alias, arguments).toCompletableFuture();
+    } catch (RuntimeException ex) {
+      future = CompletableFuture.failedFuture(ex);
+    }
+
+    CompletableFuture<Void> execution = future;
+    this.cancelOnDisconnection(context, execution);
+
+    return execution
+        .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+        .handle((r, ex) -> {
+          batch.flush();
+
+          if (ex == null) {
+            return null;
+          }
+
+          Throwable cause = ex instanceof CompletionException && ex.getCause() != null
+              ? ex.getCause() : ex;
+
+          if (cause instanceof TimeoutException) {
+            throw new CompletionException(new CommandException(
+                "Command \"" + alias + "\" timed out after " + timeout.toMillis() + " ms"));
+          }
+          if (cause instanceof CancellationException) {
+            throw new CompletionException(
+                new CommandException("Command \"" + alias + "\" has been cancelled"));
+          }
+          if (cause instanceof CommandException) {
+            throw new CompletionException(cause);
+          }
+
+          throw new CompletionException(new CommandException(
+              "Command \"" + alias + "\" failed: " + cause.getMessage(), cause));
+        });
+  }
+
+  /**
+   * Cancels an execution when the connection of its invoking context is lost.
+   *
+   * @param context a context.
+   * @param execution an execution.
+   */
+  private void cancelOnDisconnection(@NonNull Context context,
+      @NonNull CompletableFuture<?> execution) {
+    CompletionStage<Void> disconnection = context.getDisconnection();
+    Set<CompletableFuture<?>> executions;
+    boolean registered;
+
+    synchronized (this.pending) {
+      executions = this.pending.get(disconnection);
+      registered = executions != null;
+
+      if (!registered) {
+        executions = ConcurrentHashMap.newKeySet();
+        this.pending.put(disconnection, executions);
+      }
+    }
+
+    // executions unregister themselves upon completion so that long lived connections do not
+    // retain every execution they have ever invoked
+    Set<CompletableFuture<?>> tracked = executions;
+    tracked.add(execution);
+    execution.whenComplete((r, ex) -> tracked.remove(execution));
+
+    if (!registered) {
+      disconnection.thenRun(() -> tracked.forEach((e) -> e.cancel(true)));
+    }
   }
 }
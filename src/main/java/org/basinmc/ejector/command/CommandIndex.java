@@ -0,0 +1,337 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.command;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>Provides an immutable index over the aliases of a set of commands.</p>
+ *
+ * <p>Aliases are kept within a sorted array of lower case strings which is searched using a case
+ * insensitive binary search. As a result, lookups (including unambiguous prefix matches) do not
+ * allocate any objects.</p>
+ *
+ * @param <C> a command type.
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class CommandIndex<C> {
+
+  private static final Logger logger = LogManager.getFormatterLogger(CommandIndex.class);
+
+  /**
+   * Defines the maximum amount of suggestions which are returned for a single unknown alias.
+   */
+  private static final int MAXIMUM_SUGGESTIONS = 3;
+
+  private final String[] aliases;
+  private final Object[] commands;
+
+  private CommandIndex(@NonNull String[] aliases, @NonNull Object[] commands) {
+    this.aliases = aliases;
+    this.commands = commands;
+  }
+
+  /**
+   * Constructs a new index from the aliases of the specified commands.
+   *
+   * @param commands a collection of commands.
+   * @param nameExtractor a function which extracts the aliases of a given command.
+   * @param <C> a command type.
+   * @return an index.
+   */
+  @NonNull
+  static <C> CommandIndex<C> of(@NonNull Collection<? extends C> commands,
+      @NonNull Function<C, Collection<String>> nameExtractor) {
+    TreeMap<String, C> map = new TreeMap<>();
+
+    for (C command : commands) {
+      for (String name : nameExtractor.apply(command)) {
+        String alias = name.toLowerCase(Locale.ROOT);
+        C previous = map.putIfAbsent(alias, command);
+
+        if (previous != null && previous != command) {
+          logger.warn("Duplicate command alias \"%s\" (claimed by %s and %s) - Ignoring second",
+              alias, previous.getClass().getName(), command.getClass().getName());
+        }
+      }
+    }
+
+    return new CommandIndex<>(
+        map.keySet().toArray(new String[0]),
+        map.values().toArray()
+    );
+  }
+
+  /**
+   * Retrieves an empty index.
+   *
+   * @param <C> a command type.
+   * @return an empty index.
+   */
+  @NonNull
+  static <C> CommandIndex<C> empty() {
+    return new CommandIndex<>(new String[0], new Object[0]);
+  }
+
+  /**
+   * Compares an indexed (lower case) alias with an arbitrary input while ignoring the case of the
+   * input.
+   *
+   * @param alias an indexed alias.
+   * @param input an arbitrary input.
+   * @param prefix true if the input shall match when it is a prefix of the alias.
+   * @return a negative integer, zero or a positive integer as the alias is less than, equal to or
+   * greater than the input.
+   */
+  private static int compare(@NonNull String alias, @NonNull CharSequence input, boolean prefix) {
+    int aliasLength = alias.length();
+    int inputLength = input.length();
+    int length = Math.min(aliasLength, inputLength);
+
+    for (int i = 0; i < length; ++i) {
+      char a = alias.charAt(i);
+      char b = Character.toLowerCase(input.charAt(i));
+
+      if (a != b) {
+        return a - b;
+      }
+    }
+
+    if (prefix && aliasLength >= inputLength) {
+      return 0;
+    }
+
+    return aliasLength - inputLength;
+  }
+
+  /**
+   * Locates the first index at which an alias equal to or (when prefix matching is enabled)
+   * starting with the specified input is stored.
+   *
+   * @param input an arbitrary input.
+   * @param prefix true if prefix matching is desired.
+   * @return an index or a negative value if no matching alias exists.
+   */
+  private int search(@NonNull CharSequence input, boolean prefix) {
+    int low = 0;
+    int high = this.aliases.length - 1;
+    int result = -1;
+
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(this.aliases[mid], input, prefix);
+
+      if (cmp < 0) {
+        low = mid + 1;
+      } else {
+        if (cmp == 0) {
+          result = mid;
+        }
+
+        high = mid - 1;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * <p>Resolves the index of the alias which matches the specified input.</p>
+   *
+   * <p>Exact matches always take precedence. When no exact match exists, the input is treated as
+   * a prefix which is accepted if all aliases which start with it refer to the same command.</p>
+   *
+   * @param input an arbitrary input.
+   * @return an index or a negative value when no unambiguous match exists.
+   */
+  int indexOf(@NonNull CharSequence input) {
+    int index = this.search(input, false);
+
+    if (index >= 0 || input.length() == 0) {
+      return index;
+    }
+
+    index = this.search(input, true);
+
+    if (index < 0) {
+      return -1;
+    }
+
+    Object command = this.commands[index];
+    for (int i = index + 1; i < this.aliases.length; ++i) {
+      if (compare(this.aliases[i], input, true) != 0) {
+        break;
+      }
+
+      if (this.commands[i] != command) {
+        return -1;
+      }
+    }
+
+    return index;
+  }
+
+  /**
+   * Retrieves the canonical (lower case) alias at the specified index.
+   *
+   * @param index an index as returned by {@link #indexOf(CharSequence)}.
+   * @return an alias.
+   */
+  @NonNull
+  String getAlias(int index) {
+    return this.aliases[index];
+  }
+
+  /**
+   * Retrieves the command at the specified index.
+   *
+   * @param index an index as returned by {@link #indexOf(CharSequence)}.
+   * @return a command.
+   */
+  @NonNull
+  @SuppressWarnings("unchecked")
+  C getCommand(int index) {
+    return (C) this.commands[index];
+  }
+
+  /**
+   * Retrieves the command which matches the specified alias or unambiguous alias prefix.
+   *
+   * @param input an alias or alias prefix.
+   * @return a command or null if no unambiguous match exists.
+   */
+  @Nullable
+  C get(@NonNull CharSequence input) {
+    int index = this.indexOf(input);
+
+    if (index < 0) {
+      return null;
+    }
+
+    return this.getCommand(index);
+  }
+
+  /**
+   * <p>Computes a list of aliases which the user may have meant when supplying an unknown or
+   * ambiguous alias.</p>
+   *
+   * <p>All aliases which start with the input are returned first (this includes the candidates of
+   * ambiguous prefixes). When no such aliases exist, the closest aliases (by edit distance) are
+   * returned instead.</p>
+   *
+   * @param input an arbitrary input.
+   * @return a list of suggested aliases.
+   */
+  @NonNull
+  List<String> suggest(@NonNull CharSequence input) {
+    if (this.aliases.length == 0) {
+      return Collections.emptyList();
+    }
+
+    List<String> suggestions = new ArrayList<>();
+    int index = this.search(input, true);
+
+    if (index >= 0) {
+      for (int i = index; i < this.aliases.length && suggestions.size() < MAXIMUM_SUGGESTIONS;
+          ++i) {
+        if (compare(this.aliases[i], input, true) != 0) {
+          break;
+        }
+
+        suggestions.add(this.aliases[i]);
+      }
+
+      return suggestions;
+    }
+
+    String normalized = input.toString().toLowerCase(Locale.ROOT);
+    int threshold = Math.max(1, normalized.length() / 3);
+
+    Integer[] order = new Integer[this.aliases.length];
+    int[] distances = new int[this.aliases.length];
+
+    for (int i = 0; i < this.aliases.length; ++i) {
+      order[i] = i;
+      distances[i] = distance(this.aliases[i], normalized);
+    }
+
+    Arrays.sort(order, Comparator.comparingInt((i) -> distances[i]));
+
+    for (Integer i : order) {
+      if (distances[i] > threshold || suggestions.size() >= MAXIMUM_SUGGESTIONS) {
+        break;
+      }
+
+      suggestions.add(this.aliases[i]);
+    }
+
+    return suggestions;
+  }
+
+  /**
+   * Calculates the Levenshtein distance between two strings.
+   *
+   * @param a a string.
+   * @param b another string.
+   * @return an edit distance.
+   */
+  private static int distance(@NonNull String a, @NonNull String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+
+    for (int j = 0; j <= b.length(); ++j) {
+      previous[j] = j;
+    }
+
+    for (int i = 1; i <= a.length(); ++i) {
+      current[0] = i;
+
+      for (int j = 1; j <= b.length(); ++j) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+            previous[j - 1] + cost);
+      }
+
+      int[] tmp = previous;
+      previous = current;
+      current = tmp;
+    }
+
+    return previous[b.length()];
+  }
+
+  /**
+   * Retrieves the total amount of indexed aliases.
+   *
+   * @return an alias count.
+   */
+  int size() {
+    return this.aliases.length;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.command;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import org.basinmc.ejector.command.Command.Context;
+import org.basinmc.ejector.command.error.CommandException;
+
+/**
+ * Adapts a synchronous command to the asynchronous command API by executing it on a dedicated
+ * worker pool.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class SynchronousCommandAdapter implements AsyncCommand {
+
+  private final Command command;
+  private final ExecutorService executor;
+
+  SynchronousCommandAdapter(@NonNull Command command, @NonNull ExecutorService executor) {
+    this.command = command;
+    this.executor = executor;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public CompletionStage<Void> execute(@NonNull Context context, @NonNull String commandName,
+      @NonNull List<String> arguments) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    Future<?> task;
+
+    try {
+      task = this.executor.submit(() -> {
+        try {
+          this.command.execute(context, commandName, arguments);
+          result.complete(null);
+        } catch (CommandException | RuntimeException ex) {
+          result.completeExceptionally(ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      result.completeExceptionally(
+          new CommandException("Command execution was rejected: " + ex.getMessage(), ex));
+      return result;
+    }
+
+    // when the result is cancelled or times out, we'll interrupt the worker in order to free it up
+    // for other invocations (well behaved commands will exit once interrupted)
+    result.whenComplete((r, ex) -> {
+      if (ex != null) {
+        task.cancel(true);
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public Set<String> getNames() {
+    return this.command.getNames();
+  }
+}
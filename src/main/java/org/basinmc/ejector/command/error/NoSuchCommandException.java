@@ -16,6 +16,10 @@
  */
 package org.basinmc.ejector.command.error;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Provides an exception for cases where the specified command has not been registered.
  *
@@ -23,18 +27,40 @@ package org.basinmc.ejector.command.error;
  */
 public class NoSuchCommandException extends CommandException {
 
+  private final List<String> suggestions;
+
   public NoSuchCommandException() {
+    this.suggestions = Collections.emptyList();
   }
 
   public NoSuchCommandException(String message) {
     super(message);
+    this.suggestions = Collections.emptyList();
+  }
+
+  public NoSuchCommandException(String message, @NonNull List<String> suggestions) {
+    super(message);
+    this.suggestions = Collections.unmodifiableList(suggestions);
   }
 
   public NoSuchCommandException(String message, Throwable cause) {
     super(message, cause);
+    this.suggestions = Collections.emptyList();
   }
 
   public NoSuchCommandException(Throwable cause) {
     super(cause);
+    this.suggestions = Collections.emptyList();
+  }
+
+  /**
+   * Retrieves a list of command aliases which closely resemble the alias which was originally
+   * requested.
+   *
+   * @return a list of suggested aliases (may be empty).
+   */
+  @NonNull
+  public List<String> getSuggestions() {
+    return this.suggestions;
   }
 }
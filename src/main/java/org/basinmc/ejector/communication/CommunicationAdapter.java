@@ -17,6 +17,8 @@
 package org.basinmc.ejector.communication;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.function.Predicate;
+import org.basinmc.ejector.projection.Projection;
 import org.basinmc.stormdrain.Payload;
 
 /**
@@ -26,12 +28,52 @@ import org.basinmc.stormdrain.Payload;
  */
 public interface CommunicationAdapter {
 
+  /**
+   * Retrieves the name which identifies this adapter (e.g. when selecting the targets of a
+   * replay).
+   *
+   * @return an adapter name.
+   */
+  @NonNull
+  default String getName() {
+    return this.getClass().getSimpleName();
+  }
+
+  /**
+   * <p>Performs potentially blocking initialization work (such as establishing connections).</p>
+   *
+   * <p>This method is invoked once all adapters have been constructed. Depending on the startup
+   * configuration, it may be invoked from a background thread in parallel with other adapters
+   * while payloads are already being handled.</p>
+   *
+   * @throws Exception when initialization fails.
+   */
+  default void initialize() throws Exception {
+  }
+
   /**
    * Handles an arbitrary event payload.
    *
    * @param payload a GitHub event payload.
+   * @param projection a projection of the payload.
+   */
+  void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection);
+
+  /**
+   * <p>Handles a payload which has previously been received once more (e.g. in order to
+   * backfill a channel which has been added or has missed messages during an outage).</p>
+   *
+   * <p>Replayed payloads are routed like any other payload but are only delivered to the
+   * targets (identified as they are within delivery metrics and dead letters) which match the
+   * specified filter. Adapters which do not support replays ignore this call.</p>
+   *
+   * @param payload a GitHub event payload.
+   * @param projection a projection of the payload.
+   * @param targets a filter which selects targets by their identifier.
    */
-  void handlePayload(@NonNull Payload<?> payload);
+  default void replayPayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> targets) {
+  }
 
   /**
    * Sends an arbitrary message to this communication adapter.
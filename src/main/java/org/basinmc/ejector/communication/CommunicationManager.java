@@ -17,11 +17,26 @@
 package org.basinmc.ejector.communication;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.startup.StartupTimeline;
+import org.basinmc.ejector.statistics.EventStatistics;
 import org.basinmc.stormdrain.Payload;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -30,22 +45,142 @@ import org.springframework.stereotype.Component;
  * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
  */
 @Component
-public class CommunicationManager {
+public class CommunicationManager implements InitializingBean {
 
-  private final Set<CommunicationAdapter> adapters;
+  private static final Logger logger = LogManager.getFormatterLogger(CommunicationManager.class);
+
+  private final Map<CommunicationAdapter, Timer> adapters = new HashMap<>();
+  private final EventStatistics statistics;
+  private final boolean lazy;
+  private final StartupTimeline timeline;
 
   @Autowired
-  public CommunicationManager(@NonNull Collection<? extends CommunicationAdapter> adapters) {
-    this.adapters = new HashSet<>(adapters);
+  public CommunicationManager(@NonNull Collection<? extends CommunicationAdapter> adapters,
+      @Nullable @Autowired(required = false) EventStatistics statistics,
+      @NonNull MeterRegistry registry,
+      @Value("${ejector.startup.lazy:false}") boolean lazy,
+      @Nullable @Autowired(required = false) StartupTimeline timeline) {
+    this.statistics = statistics;
+    this.lazy = lazy;
+    this.timeline = timeline;
+
+    adapters.forEach((a) -> this.adapters.put(a, Timer.builder("ejector.dispatch")
+        .description("Time spent handing payloads to an adapter (including rendering)")
+        .tag("adapter", a.getClass().getSimpleName())
+        .register(registry)));
+  }
+
+  /**
+   * <p>Initializes all adapters.</p>
+   *
+   * <p>When lazy startup is enabled, adapters are initialized in parallel on a set of background
+   * threads and thus do not delay the startup of the web server. Payloads which are received in
+   * the meantime are handled by adapters as usual (e.g. they are reported as undeliverable while
+   * no connection is available).</p>
+   */
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    if (!this.lazy) {
+      for (CommunicationAdapter adapter : this.adapters.keySet()) {
+        adapter.initialize();
+        this.stamp(adapter);
+      }
+
+      return;
+    }
+
+    if (this.adapters.isEmpty()) {
+      return;
+    }
+
+    AtomicInteger threadCounter = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(this.adapters.size(), (r) -> {
+      Thread thread = new Thread(r);
+      thread.setName("adapter-init-" + threadCounter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    this.adapters.keySet().forEach((a) -> executor.execute(() -> {
+      try {
+        a.initialize();
+        this.stamp(a);
+      } catch (Exception ex) {
+        logger.error("Failed to initialize adapter " + a.getClass().getSimpleName() + ": " + ex
+            .getMessage(), ex);
+      }
+    }));
+
+    // threads are released as soon as all adapters have finished their initialization
+    executor.shutdown();
+  }
+
+  /**
+   * Records the initialization of an adapter within the startup timeline (if available).
+   *
+   * @param adapter an adapter.
+   */
+  private void stamp(@NonNull CommunicationAdapter adapter) {
+    if (this.timeline != null) {
+      this.timeline.stamp("adapter:" + adapter.getClass().getSimpleName());
+    }
   }
 
   /**
    * Sends a GitHub event payload to all communication adapters within the application.
    *
    * @param payload a payload.
+   * @param projection a projection of the payload.
    */
-  public void handlePayload(@NonNull Payload<?> payload) {
-    this.adapters.forEach((a) -> a.handlePayload(payload));
+  public void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection) {
+    this.handlePayload(payload, projection, true);
+  }
+
+  /**
+   * Sends a GitHub event payload to all communication adapters within the application.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @param record false if the payload has already been recorded within the event statistics
+   * (e.g. when it is delivered once more as part of a cluster replay).
+   */
+  public void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      boolean record) {
+    if (record && this.statistics != null) {
+      this.statistics.record(payload);
+    }
+
+    this.adapters.forEach((a, timer) -> {
+      long start = System.nanoTime();
+      a.handlePayload(payload, projection);
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    });
+  }
+
+  /**
+   * <p>Sends a previously received payload to the selected communication adapters once
+   * more.</p>
+   *
+   * <p>Replays are not recorded within the event statistics as the payload has already been
+   * accounted for when it was first received.</p>
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @param adapters a filter which selects adapters by their name.
+   * @param targets a filter which selects targets by their identifier.
+   * @see CommunicationAdapter#replayPayload(Payload, Projection, Predicate)
+   */
+  public void replayPayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> adapters, @NonNull Predicate<String> targets) {
+    this.adapters.forEach((a, timer) -> {
+      if (!adapters.test(a.getName())) {
+        return;
+      }
+
+      long start = System.nanoTime();
+      a.replayPayload(payload, projection, targets);
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    });
   }
 
   /**
@@ -54,6 +189,6 @@ public class CommunicationManager {
    * @param message a message.
    */
   public void sendMessage(@NonNull Message message) {
-    this.adapters.forEach((a) -> a.sendMessage(message));
+    this.adapters.keySet().forEach((a) -> a.sendMessage(message));
   }
 }
@@ -18,6 +18,7 @@ package org.basinmc.ejector.communication;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -33,13 +34,15 @@ public class Message {
   private final Color color;
   private final Style style;
   private final String text;
+  private final boolean lineBreak;
   private final Message next;
 
   private Message(@NonNull Color color, @NonNull Style style, @NonNull String text,
-      @Nullable Message next) {
+      boolean lineBreak, @Nullable Message next) {
     this.color = color;
     this.style = style;
     this.text = text;
+    this.lineBreak = lineBreak;
     this.next = next;
   }
 
@@ -66,6 +69,40 @@ public class Message {
     return new Builder();
   }
 
+  /**
+   * Joins a list of messages into a single message in which every message starts on a line of
+   * its own.
+   *
+   * @param messages a non-empty list of messages.
+   * @return a message.
+   */
+  @NonNull
+  public static Message join(@NonNull List<Message> messages) {
+    if (messages.isEmpty()) {
+      throw new IllegalArgumentException("Expected at least one message");
+    }
+
+    Message result = null;
+    for (int i = messages.size() - 1; i >= 0; --i) {
+      result = messages.get(i).copy(i != 0, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Copies this message and appends another message to its last element.
+   *
+   * @param lineBreak true if the copy shall start on a new line.
+   * @param tail a message to append (if any).
+   * @return a message.
+   */
+  @NonNull
+  private Message copy(boolean lineBreak, @Nullable Message tail) {
+    Message next = this.next == null ? tail : this.next.copy(false, tail);
+    return new Message(this.color, this.style, this.text, lineBreak || this.lineBreak, next);
+  }
+
   /**
    * Retrieves the selected color for this message.
    *
@@ -96,6 +133,15 @@ public class Message {
     return this.text;
   }
 
+  /**
+   * Evaluates whether this element starts on a new line.
+   *
+   * @return true if preceded by a line break, false otherwise.
+   */
+  public boolean isLineBreak() {
+    return this.lineBreak;
+  }
+
   /**
    * Retrieves the upcoming message element.
    *
@@ -107,7 +153,8 @@ public class Message {
   }
 
   /**
-   * Converts the message into a string using a custom conversion method.
+   * Converts the message into a string using a custom conversion method. Elements are separated
+   * by a space or, if they start on a new line, a line feed.
    *
    * @param converter a conversion method.
    * @return a string.
@@ -118,7 +165,7 @@ public class Message {
 
     this.accept((m) -> {
       if (builder.length() != 0) {
-        builder.append(" ");
+        builder.append(m.lineBreak ? '\n' : ' ');
       }
 
       builder.append(converter.apply(m));
@@ -141,6 +188,7 @@ public class Message {
     Message message = (Message) o;
     return this.color == message.color &&
         this.style == message.style &&
+        this.lineBreak == message.lineBreak &&
         Objects.equals(this.text, message.text) &&
         Objects.equals(this.next, message.next);
   }
@@ -150,7 +198,7 @@ public class Message {
    */
   @Override
   public int hashCode() {
-    return Objects.hash(this.color, this.style, this.text, this.next);
+    return Objects.hash(this.color, this.style, this.text, this.lineBreak, this.next);
   }
 
   /**
@@ -162,6 +210,7 @@ public class Message {
 
     private Color color = Color.NONE;
     private Style style = Style.NORMAL;
+    private boolean lineBreak;
     private final StringBuilder text = new StringBuilder();
 
     private Builder() {
@@ -190,7 +239,8 @@ public class Message {
      */
     @NonNull
     private Message build(@Nullable Message child) {
-      Message message = new Message(this.color, this.style, this.text.toString(), child);
+      Message message = new Message(this.color, this.style, this.text.toString(), this.lineBreak,
+          child);
 
       if (this.parent != null) {
         return this.parent.build(message);
@@ -244,6 +294,22 @@ public class Message {
       this.text.append(text);
       return this;
     }
+
+    /**
+     * Starts a new line before the upcoming text.
+     *
+     * @return a builder (or a reference to this builder if no text has been specified yet).
+     */
+    @NonNull
+    public Builder withLineBreak() {
+      if (this.text.length() != 0) {
+        return new Builder(this)
+            .withLineBreak();
+      }
+
+      this.lineBreak = true;
+      return this;
+    }
   }
 
   /**
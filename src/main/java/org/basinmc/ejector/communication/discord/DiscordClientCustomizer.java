@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.discord;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import net.dv8tion.jda.core.JDABuilder;
+
+/**
+ * Provides a callback which may alter the configuration of the Discord client before it
+ * connects (for instance, in order to route requests through a proxy or to a local test
+ * environment).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@FunctionalInterface
+public interface DiscordClientCustomizer {
+
+  /**
+   * Customizes the client configuration.
+   *
+   * @param builder a client builder.
+   */
+  void customize(@NonNull JDABuilder builder);
+}
@@ -17,31 +17,60 @@
 package org.basinmc.ejector.communication.discord;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
-import java.lang.invoke.CallSite;
-import java.lang.invoke.LambdaConversionException;
-import java.lang.invoke.LambdaMetafactory;
-import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.net.URL;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.Collection;
 import java.util.EnumMap;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.security.auth.login.LoginException;
-import net.dv8tion.jda.core.AccountType;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.JDA;
-import net.dv8tion.jda.core.JDABuilder;
 import net.dv8tion.jda.core.MessageBuilder;
-import net.dv8tion.jda.core.OnlineStatus;
-import net.dv8tion.jda.core.entities.Game;
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.events.DisconnectEvent;
+import net.dv8tion.jda.core.events.ShutdownEvent;
+import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
+import net.dv8tion.jda.core.hooks.ListenerAdapter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterCoordinator;
+import org.basinmc.ejector.command.Command;
+import org.basinmc.ejector.command.CommandDispatcher;
 import org.basinmc.ejector.communication.CommunicationAdapter;
 import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.communication.routing.RoutingTable;
+import org.basinmc.ejector.configuration.ConfigurationReloadEvent;
 import org.basinmc.ejector.configuration.DiscordConfiguration;
+import org.basinmc.ejector.delivery.CircuitBreaker;
+import org.basinmc.ejector.delivery.CircuitBreakerRegistry;
+import org.basinmc.ejector.delivery.DeadLetter;
+import org.basinmc.ejector.delivery.DeadLetterHandler;
+import org.basinmc.ejector.delivery.DeadLetterQueue;
+import org.basinmc.ejector.delivery.DeliveryPriorities;
+import org.basinmc.ejector.delivery.DeliveryPriority;
+import org.basinmc.ejector.delivery.WeightedFairQueue;
+import org.basinmc.ejector.dispatch.PayloadHandler;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.ejector.tracing.DeliveryTrace;
+import org.basinmc.ejector.tracing.jfr.OutboundSendEvent;
+import org.basinmc.ejector.tracing.jfr.RenderEvent;
 import org.basinmc.ejector.utility.PreconfiguredMessageSource;
 import org.basinmc.stormdrain.Payload;
 import org.basinmc.stormdrain.PayloadType;
@@ -53,6 +82,7 @@ import org.basinmc.stormdrain.event.DeploymentEvent;
 import org.basinmc.stormdrain.event.DeploymentStatusEvent;
 import org.basinmc.stormdrain.event.Event;
 import org.basinmc.stormdrain.event.ForkEvent;
+import org.basinmc.stormdrain.event.GollumEvent;
 import org.basinmc.stormdrain.event.IssueCommentEvent;
 import org.basinmc.stormdrain.event.IssuesEvent;
 import org.basinmc.stormdrain.event.LabelEvent;
@@ -72,15 +102,16 @@ import org.basinmc.stormdrain.event.ReleaseEvent;
 import org.basinmc.stormdrain.event.RepositoryEvent;
 import org.basinmc.stormdrain.event.TeamAddEvent;
 import org.basinmc.stormdrain.event.TeamEvent;
+import org.basinmc.stormdrain.event.WatchEvent;
 import org.basinmc.stormdrain.resource.CommitComment;
 import org.basinmc.stormdrain.resource.Issue.Label;
 import org.basinmc.stormdrain.resource.Membership;
 import org.basinmc.stormdrain.resource.Repository;
 import org.basinmc.stormdrain.resource.User;
-import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.stereotype.Component;
 
@@ -92,15 +123,30 @@ import org.springframework.stereotype.Component;
 @Component
 @EnableConfigurationProperties(DiscordConfiguration.class)
 @ConditionalOnProperty(prefix = "ejector.discord", name = "enabled")
-public class DiscordCommunicationAdapter implements CommunicationAdapter, InitializingBean {
+public class DiscordCommunicationAdapter implements CommunicationAdapter, DeadLetterHandler {
 
+  private static final Logger logger = LogManager
+      .getFormatterLogger(DiscordCommunicationAdapter.class);
   private static final Map<PayloadType, Integer> colorMap = new EnumMap<>(PayloadType.class);
-  private final Map<Class<? extends Event>, PayloadMessageBuilder> handlerMap = new HashMap<>();
 
-  private final DiscordConfiguration configuration;
+  /**
+   * Defines the maximum length of embed descriptions (in characters) as permitted by Discord.
+   */
+  private static final int MAXIMUM_DESCRIPTION_LENGTH = 2048;
+
+  private volatile DiscordConfiguration configuration;
+  private volatile RoutingTable<DiscordConfiguration.Channel> routingTable;
+  private final MeterRegistry registry;
+  private final ClusterCoordinator cluster;
+  private final CircuitBreakerRegistry breakers;
+  private final DeadLetterQueue deadLetters;
+  private final DeliveryPriorities priorities;
+  private final CommandDispatcher commands;
+  private final Map<Long, ChannelQueue> queues = new ConcurrentHashMap<>();
+  private final Map<PayloadType, Timer> renderTimers = new EnumMap<>(PayloadType.class);
   private final PreconfiguredMessageSource messageSource;
 
-  private final JDA client;
+  private final DiscordShards shards;
 
   static {
     // Payload Type Colors
@@ -133,12 +179,54 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     colorMap.put(PayloadType.RELEASE, COLOR_GREEN);
     colorMap.put(PayloadType.TEAM, COLOR_BLUE);
     colorMap.put(PayloadType.TEAM_ADD, COLOR_GREEN);
+    colorMap.put(PayloadType.WATCH, COLOR_GREEN);
   }
 
   @Autowired
-  public DiscordCommunicationAdapter(@NonNull DiscordConfiguration configuration)
-      throws LoginException, InterruptedException {
+  public DiscordCommunicationAdapter(@NonNull DiscordConfiguration configuration,
+      @NonNull MeterRegistry registry, @NonNull CircuitBreakerRegistry breakers,
+      @NonNull DeadLetterQueue deadLetters, @NonNull DeliveryPriorities priorities,
+      @Nullable @Autowired(required = false) CommandDispatcher commands,
+      @Nullable @Autowired(required = false) Collection<DiscordClientCustomizer> customizers,
+      @Nullable @Autowired(required = false) ClusterCoordinator cluster)
+      throws LoginException {
+    this(DiscordShards.connect(configuration, customizers), configuration, registry, breakers,
+        deadLetters, priorities, commands, cluster);
+  }
+
+  /**
+   * Constructs a new adapter which uses a pre-configured client (such as a client which has
+   * not been connected for the purposes of benchmarking).
+   *
+   * @param client a Discord client.
+   * @param configuration an adapter configuration.
+   * @param registry a meter registry.
+   * @param breakers a circuit breaker registry.
+   * @param deadLetters a dead letter queue.
+   * @param priorities a delivery priority policy.
+   * @param cluster a cluster coordinator (if clustering is enabled).
+   */
+  DiscordCommunicationAdapter(@NonNull JDA client, @NonNull DiscordConfiguration configuration,
+      @NonNull MeterRegistry registry, @NonNull CircuitBreakerRegistry breakers,
+      @NonNull DeadLetterQueue deadLetters, @NonNull DeliveryPriorities priorities,
+      @Nullable ClusterCoordinator cluster) {
+    this(DiscordShards.of(client), configuration, registry, breakers, deadLetters, priorities,
+        null, cluster);
+  }
+
+  private DiscordCommunicationAdapter(@NonNull DiscordShards shards,
+      @NonNull DiscordConfiguration configuration, @NonNull MeterRegistry registry,
+      @NonNull CircuitBreakerRegistry breakers, @NonNull DeadLetterQueue deadLetters,
+      @NonNull DeliveryPriorities priorities, @Nullable CommandDispatcher commands,
+      @Nullable ClusterCoordinator cluster) {
     this.configuration = configuration;
+    this.routingTable = RoutingTable.of(configuration.getChannels());
+    this.registry = registry;
+    this.cluster = cluster;
+    this.breakers = breakers;
+    this.deadLetters = deadLetters;
+    this.priorities = priorities;
+    this.commands = commands;
 
     ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
     messageSource.setDefaultEncoding("UTF-8");
@@ -151,62 +239,71 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     this.messageSource = new PreconfiguredMessageSource();
     this.messageSource.setParentMessageSource(messageSource);
 
-    this.client = new JDABuilder(AccountType.BOT)
-        .setToken(configuration.getToken())
-        .buildBlocking();
+    this.shards = shards;
+
+    if (commands != null) {
+      shards.addEventListener(new CommandListener());
+    }
+
+    // Metrics
+    for (int i = 0; i < shards.getTotal(); ++i) {
+      int shardId = i;
+
+      Gauge.builder("ejector.connection", shards, (s) -> s.isConnected(shardId) ? 1 : 0)
+          .description("Indicates whether the adapter is currently connected")
+          .tag("adapter", "discord")
+          .tag("server", shards.getTotal() == 1 ? "discord" : "discord/" + shardId)
+          .register(registry);
+    }
 
-    // Payload Handlers
     for (PayloadType type : PayloadType.values()) {
-      MethodHandles.Lookup caller = MethodHandles.lookup();
-
-      MethodType factoryType = MethodType
-          .methodType(PayloadMessageBuilder.class, DiscordCommunicationAdapter.class);
-      MethodType implementationType = MethodType.methodType(void.class, MessageBuilder.class,
-          EmbedBuilder.class, type.getType());
-
-      try {
-        MethodHandle handle = caller
-            .findVirtual(DiscordCommunicationAdapter.class, "buildMessage", implementationType);
-        MethodType invocationType = handle.type().dropParameterTypes(0, 1);
-
-        CallSite site = LambdaMetafactory.metafactory(
-            caller,
-            "build",
-            factoryType,
-            invocationType.changeParameterType(2, Event.class),
-            handle,
-            invocationType
-        );
-
-        try {
-          this.handlerMap.put(
-              type.getType(),
-              (PayloadMessageBuilder) site.getTarget().invoke(this)
-          );
-        } catch (Throwable ex) {
-          throw new RuntimeException("Lambda factory invocation failed: " + ex.getMessage(), ex);
-        }
-      } catch (NoSuchMethodException ignore) {
-      } catch (IllegalAccessException ex) {
-        throw new RuntimeException(
-            "Failed to access builder method for payload type " + type + ": " + ex.getMessage(),
-            ex);
-      } catch (LambdaConversionException ex) {
-        throw new RuntimeException(
-            "Failed to create lambda method for payload type " + type + ": " + ex.getMessage(), ex);
-      }
+      this.renderTimers.put(type, Timer.builder("ejector.render")
+          .description("Time spent rendering event messages")
+          .tag("adapter", "discord")
+          .tag("type", type.name().toLowerCase())
+          .register(registry));
     }
   }
 
   /**
-   * {@inheritDoc}
+   * Waits for all shards to finish their login (which may take a while when the bot has been
+   * split into multiple shards as their logins are subject to rate limits).
+   *
+   * @throws InterruptedException when the thread is interrupted while connecting.
    */
   @Override
-  public void afterPropertiesSet() throws Exception {
-    this.client.getPresence().setPresence(OnlineStatus.ONLINE, Game.playing("with a potato"));
+  public void initialize() throws InterruptedException {
+    this.shards.awaitConnected();
+  }
+
+  /**
+   * <p>Applies an updated channel configuration.</p>
+   *
+   * <p>Changes to the bot token and shard configuration cannot be applied at runtime as they
+   * require new gateway connections. They will take effect when the application is
+   * restarted.</p>
+   *
+   * @param event a reload event.
+   */
+  @EventListener
+  public void onConfigurationReload(@NonNull ConfigurationReloadEvent event) {
+    DiscordConfiguration configuration = event.getDiscordConfiguration();
+
+    if (!Objects.equals(this.configuration.getToken(), configuration.getToken())) {
+      logger.warn("Discord token has been altered - Changes will apply on next restart");
+    }
+
+    if (this.configuration.getShards() != configuration.getShards()
+        || this.configuration.getShardConcurrency() != configuration.getShardConcurrency()) {
+      logger.warn("Discord shards have been altered - Changes will apply on next restart");
+    }
+
+    this.configuration = configuration;
+    this.routingTable = RoutingTable.of(configuration.getChannels());
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.COMMIT_COMMENT)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull CommitCommentEvent event) {
 
     message.setContent(this.messageSource.getMessage(
@@ -223,10 +320,12 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
                 .getMessage("github.commit.comment.title", comment.getCommitId())),
         comment.getBrowserUrl().toExternalForm()
     );
-    comment.getBody().ifPresent(embed::setDescription);
+    comment.getBody().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.CREATE)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull CreateEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.create." + event.getReferenceType().name().toLowerCase(),
@@ -235,7 +334,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     embed.setTitle(event.getReference());
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed, @NonNull
+  @PayloadHandler(PayloadType.DELETE)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed, @NonNull
       DeleteEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.delete." + event.getReferenceType().name().toLowerCase(),
@@ -244,7 +344,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     embed.setTitle(event.getReference());
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.DEPLOYMENT)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull DeploymentEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.deployment",
@@ -254,10 +355,12 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         "github.deployment.title",
         event.getDeployment().getEnvironment()
     ));
-    event.getDeployment().getDescription().ifPresent(embed::setDescription);
+    event.getDeployment().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.DEPLOYMENT_STATUS)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull DeploymentStatusEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.deployment.status",
@@ -269,7 +372,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     ), event.getDeploymentStatus().getTargetUrl()
         .map(URL::toExternalForm)
         .orElse(null));
-    event.getDeployment().getDescription().ifPresent(embed::setDescription);
+    event.getDeployment().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
     embed.addField(
         this.messageSource.getMessage("github.deployment.status.state"),
         event.getDeploymentStatus().getState().name().toLowerCase(),
@@ -277,7 +381,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     );
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.FORK)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull ForkEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.fork",
@@ -286,10 +391,28 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
 
     embed.setTitle(event.getForkee().getFullName(),
         event.getForkee().getBrowserUrl().toExternalForm());
-    event.getForkee().getDescription().ifPresent(embed::setDescription);
+    event.getForkee().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
+  }
+
+  @PayloadHandler(PayloadType.GOLLUM)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+      @NonNull GollumEvent event) {
+    message.setContent(this.messageSource.getMessage(
+        "github.gollum",
+        event.getRepository().getFullName()
+    ));
+
+    embed.setTitle(event.getRepository().getFullName(),
+        event.getRepository().getBrowserUrl().toExternalForm());
+    embed.setDescription(this.messageSource.getMessage(
+        "github.gollum.pages",
+        event.getPages().size()
+    ));
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.ISSUE_COMMENT)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull IssueCommentEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.issue.comment." + event.getAction().name().toLowerCase(),
@@ -301,10 +424,12 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         event.getIssue().getNumber(),
         event.getIssue().getTitle()
     ), event.getIssue().getBrowserUrl().toExternalForm());
-    event.getComment().getBody().ifPresent(embed::setDescription);
+    event.getComment().getBody().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.ISSUES)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull IssuesEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.issues." + event.getAction().name().toLowerCase(),
@@ -316,7 +441,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         event.getIssue().getNumber(),
         event.getIssue().getTitle()
     ), event.getIssue().getBrowserUrl().toExternalForm());
-    event.getIssue().getBody().ifPresent(embed::setDescription);
+    event.getIssue().getBody().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
 
     event.getIssue().getMilestone().ifPresent((m) -> {
       embed.addField(
@@ -352,7 +478,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     }
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.LABEL)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull LabelEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.label." + event.getAction().name().toLowerCase(),
@@ -363,7 +490,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     embed.setColor(event.getLabel().getColor());
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.MEMBER)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull MemberEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.member." + event.getAction().name().toLowerCase(),
@@ -375,7 +503,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     embed.setImage(event.getMember().getAvatarUrl().toExternalForm());
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.MEMBERSHIP)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull MembershipEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.membership." + event.getAction().name().toLowerCase(),
@@ -392,7 +521,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     );
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.MILESTONE)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull MilestoneEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.milestone." + event.getAction().name().toLowerCase(),
@@ -401,7 +531,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
 
     embed.setTitle(event.getMilestone().getTitle(),
         event.getMilestone().getBrowserUrl().toExternalForm());
-    event.getMilestone().getDescription().ifPresent(embed::setDescription);
+    event.getMilestone().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
 
     if (event.getAction() == MilestoneEvent.Action.CLOSED
         || event.getAction() == MilestoneEvent.Action.EDITED) {
@@ -418,7 +549,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     }
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.ORGANIZATION)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull OrganizationEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.organization." + event.getAction().name().toLowerCase(),
@@ -467,7 +599,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
 
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.ORG_BLOCK)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull OrganizationBlockEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.organization.block." + event.getAction().name().toLowerCase(),
@@ -479,7 +612,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     embed.setImage(event.getBlockedUser().getAvatarUrl().toExternalForm());
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.PAGE_BUILD)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull PageBuildEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.page.build." + event.getBuild().getStatus().name().toLowerCase(),
@@ -488,7 +622,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
 
     embed.setTitle(event.getRepository().getFullName(),
         event.getRepository().getBrowserUrl().toExternalForm());
-    event.getBuild().getErrorMessage().ifPresent(embed::setDescription);
+    event.getBuild().getErrorMessage().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
 
     embed.addField(
         this.messageSource.getMessage("github.page.build.commitId"),
@@ -505,7 +640,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     });
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.PUBLIC)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull PublicEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.public",
@@ -514,10 +650,12 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
 
     embed.setTitle(event.getRepository().getFullName(),
         event.getRepository().getBrowserUrl().toExternalForm());
-    event.getRepository().getDescription().ifPresent(embed::setDescription);
+    event.getRepository().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
   }
 
-  private void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.PULL_REQUEST)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull PullRequestEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.pull." + event.getAction().name().toLowerCase(),
@@ -529,7 +667,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         event.getPullRequest().getNumber(),
         event.getPullRequest().getTitle()
     ), event.getPullRequest().getBrowserUrl().toExternalForm());
-    event.getPullRequest().getBody().ifPresent(embed::setDescription);
+    event.getPullRequest().getBody().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
 
     event.getPullRequest().getMergedAt().ifPresent((d) -> {
       embed.addField(
@@ -564,7 +703,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     });
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.PULL_REQUEST_REVIEW)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull PullRequestReviewEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.pull.review." + event.getAction().name().toLowerCase(),
@@ -576,7 +716,7 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         event.getPullRequest().getNumber(),
         event.getPullRequest().getTitle()
     ), event.getReview().getBrowserUrl().toExternalForm());
-    embed.setDescription(event.getReview().getBody());
+    embed.setDescription(abbreviate(event.getReview().getBody()));
 
     embed.addField(
         this.messageSource.getMessage("github.pull.review.state"),
@@ -585,7 +725,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     );
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.PULL_REQUEST_REVIEW_COMMENT)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull PullRequestReviewCommentEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.pull.review.comment." + event.getAction().name().toLowerCase(),
@@ -597,7 +738,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         event.getPullRequest().getNumber(),
         event.getPullRequest().getTitle()
     ), event.getComment().getBrowserUrl().toExternalForm());
-    event.getComment().getBody().ifPresent(embed::setDescription);
+    event.getComment().getBody().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
 
     event.getPullRequest().getMergedAt().ifPresent((d) -> {
       embed.addField(
@@ -632,8 +774,9 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     });
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
-      @NonNull PushEvent event) {
+  @PayloadHandler(PayloadType.PUSH)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+      @NonNull PushEvent event, @NonNull Projection projection) {
     message.setContent(this.messageSource.getMessage(
         "github.push",
         event.getRepository().getFullName()
@@ -643,43 +786,32 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
       StringBuilder builder = new StringBuilder();
       event.getCommits()
           .forEach((c) -> builder.append(" - ").append(c.getMessage()).append("\r\n"));
-      embed.setDescription(builder.toString());
+      embed.setDescription(abbreviate(builder.toString()));
     } else {
-      embed.setDescription(event.getCommits().iterator().next().getMessage());
+      embed.setDescription(abbreviate(event.getCommits().iterator().next().getMessage()));
     }
 
     embed.addField(
         this.messageSource.getMessage("github.push.added"),
-        Long.toString(
-            event.getCommits().stream()
-                .mapToInt((c) -> c.getAddedFiles().size())
-                .sum()
-        ),
+        Integer.toString(projection.getCount(Field.ADDED_FILES)),
         true
     );
 
     embed.addField(
         this.messageSource.getMessage("github.push.modified"),
-        Long.toString(
-            event.getCommits().stream()
-                .mapToInt((c) -> c.getModifiedFiles().size())
-                .sum()
-        ),
+        Integer.toString(projection.getCount(Field.MODIFIED_FILES)),
         true
     );
 
     embed.addField(
         this.messageSource.getMessage("github.push.deleted"),
-        Long.toString(
-            event.getCommits().stream()
-                .mapToInt((c) -> c.getRemovedFiles().size())
-                .sum()
-        ),
+        Integer.toString(projection.getCount(Field.REMOVED_FILES)),
         true
     );
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.RELEASE)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull ReleaseEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.release",
@@ -718,7 +850,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     );
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.REPOSITORY)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull RepositoryEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.repository." + event.getAction().name().toLowerCase(),
@@ -729,7 +862,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
         event.getRepository().getFullName(),
         event.getRepository().getBrowserUrl().toExternalForm()
     );
-    event.getRepository().getDescription().ifPresent(embed::setDescription);
+    event.getRepository().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
 
     embed.addField(
         this.messageSource.getMessage("github.repository.gitUrl"),
@@ -743,7 +877,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     );
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.TEAM)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull TeamEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.team." + event.getAction().name().toLowerCase(),
@@ -768,7 +903,8 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     });
   }
 
-  public void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+  @PayloadHandler(PayloadType.TEAM_ADD)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
       @NonNull TeamAddEvent event) {
     message.setContent(this.messageSource.getMessage(
         "github.team.added_to_repository",
@@ -790,14 +926,115 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     );
   }
 
+  @PayloadHandler(PayloadType.WATCH)
+  void buildMessage(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed,
+      @NonNull WatchEvent event) {
+    message.setContent(this.messageSource.getMessage(
+        "github.watch",
+        event.getRepository().getFullName()
+    ));
+
+    embed.setTitle(event.getRepository().getFullName(),
+        event.getRepository().getBrowserUrl().toExternalForm());
+    event.getRepository().getDescription().map(DiscordCommunicationAdapter::abbreviate)
+        .ifPresent(embed::setDescription);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection) {
+    this.handlePayload(payload, projection, (t) -> true,
+        this.priorities.getPriority(payload.getType()));
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
-  public void handlePayload(@NonNull Payload<?> payload) {
+  public void replayPayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> targets) {
+    this.handlePayload(payload, projection, targets, DeliveryPriority.LOW);
+  }
+
+  /**
+   * Renders a payload and queues it for delivery to all matching channels.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @param targets a filter which selects channels by their identifier.
+   * @param priority a delivery priority.
+   */
+  private void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> targets, @NonNull DeliveryPriority priority) {
+    if (!DiscordCommunicationAdapterDispatcher.supports(payload.getType())) {
+      return;
+    }
+
+    List<DiscordConfiguration.Channel> channels = this.routingTable
+        .route(payload.getType(), payload.getEvent()).stream()
+        .filter((c) -> targets.test(Long.toString(c.getChannelId())))
+        .collect(Collectors.toList());
+
+    // messages are claimed right before they are sent so that messages which are still queued
+    // when this instance fails may be delivered by its successor
+    UUID deliveryId = null;
+    if (this.cluster != null) {
+      channels = channels.stream()
+          .filter((c) -> this.cluster.isOwner(getShardKey(c)))
+          .collect(Collectors.toList());
+      deliveryId = this.cluster.getCurrentDelivery();
+    }
+
+    if (channels.isEmpty()) {
+      return;
+    }
+
+    RenderEvent renderEvent = new RenderEvent();
+    renderEvent.begin();
+
+    long routedAt = System.nanoTime();
+    net.dv8tion.jda.core.entities.Message built = this.render(payload, projection);
+    long renderedAt = System.nanoTime();
+    this.renderTimers.get(payload.getType())
+        .record(renderedAt - routedAt, TimeUnit.NANOSECONDS);
+
+    renderEvent.end();
+    if (renderEvent.shouldCommit()) {
+      renderEvent.setAdapter("discord");
+      renderEvent.setPayloadType(payload.getType().name());
+      renderEvent.setRepository(projection.getRepository());
+      renderEvent.setChannelCount(channels.size());
+      renderEvent.commit();
+    }
+
+    DeliveryTrace trace = DeliveryTrace.current();
+    UUID delivery = deliveryId;
+    channels.forEach((c) -> {
+      int target = trace == null ? -1 : trace.addTarget("discord",
+          Long.toString(c.getChannelId()), routedAt, renderedAt);
+      this.deliver(c, built, delivery, trace, target, priority);
+    });
+  }
+
+  /**
+   * Renders the message for the specified payload.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @return a message or null if the payload type is not supported.
+   */
+  @Nullable
+  net.dv8tion.jda.core.entities.Message render(@NonNull Payload<?> payload,
+      @NonNull Projection projection) {
+    if (!DiscordCommunicationAdapterDispatcher.supports(payload.getType())) {
+      return null;
+    }
+
+    Event event = payload.getEvent();
     MessageBuilder message = new MessageBuilder();
     EmbedBuilder embed = new EmbedBuilder();
-    Event event = payload.getEvent();
 
     // if a color has been specified for this particular payload type, we'll add it as well (all
     // supported events currently have their own color value)
@@ -809,28 +1046,253 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
     // if the event is user based, we'll add an author to the embed ion order to link them to their
     // respective action
     if (event instanceof AbstractUserTriggeredEvent) {
+      // the projection carries pooled instances of these values which are shared between events
       User sender = ((AbstractUserTriggeredEvent) event).getSender();
-      embed.setAuthor(sender.getLogin(), sender.getBrowserUrl().toExternalForm(),
-          sender.getAvatarUrl().toExternalForm());
+      embed.setAuthor(
+          Objects.requireNonNullElseGet(projection.getSender(), sender::getLogin),
+          Objects.requireNonNullElseGet(projection.get(Field.SENDER_URL),
+              () -> sender.getBrowserUrl().toExternalForm()),
+          Objects.requireNonNullElseGet(projection.get(Field.SENDER_AVATAR),
+              () -> sender.getAvatarUrl().toExternalForm()));
     }
 
-    PayloadMessageBuilder builder = this.handlerMap.get(event.getClass());
+    DiscordCommunicationAdapterDispatcher
+        .dispatch(this, payload.getType(), message, embed, event, projection);
+    message.setEmbed(embed.build());
+    return message.build();
+  }
 
-    if (builder == null) {
-      return;
+  /**
+   * <p>Queues a message for delivery to the specified channel.</p>
+   *
+   * <p>Every channel is limited to a single request at a time while the remaining messages are
+   * retained within a queue of their own which serves higher priorities first. As a result,
+   * urgent messages overtake messages which are waiting for the channel's rate limit. When the
+   * queue is full, messages of lower priority are shed and passed to the dead letter queue.</p>
+   *
+   * @param channel a channel.
+   * @param message a message.
+   * @param deliveryId the identifier of the delivery which is claimed before the message is sent
+   *     (or null if the message is not subject to claims).
+   * @param trace a delivery trace (if any).
+   * @param target a target index within the trace.
+   * @param priority a delivery priority.
+   */
+  private void deliver(@NonNull DiscordConfiguration.Channel channel,
+      @NonNull net.dv8tion.jda.core.entities.Message message, @Nullable UUID deliveryId,
+      @Nullable DeliveryTrace trace, int target, @NonNull DeliveryPriority priority) {
+    ChannelQueue queue = this.queues
+        .computeIfAbsent(channel.getChannelId(), (k) -> new ChannelQueue());
+    Outbound shed = queue.messages
+        .offer(new Outbound(channel, message, deliveryId, trace, target), priority);
+
+    if (shed != null) {
+      this.fail(Long.toString(shed.channel.getChannelId()), shed.message, "shed", "queue full",
+          shed.trace, shed.target);
     }
 
-    builder.build(message, embed, event);
-    message.setEmbed(embed.build());
+    this.drain(queue);
+  }
 
-    this.configuration.getChannels().stream()
-        .filter((c) -> c.isReceivingEvent(payload.getType()))
-        .forEach((c) -> {
-          this.client.getGuildById(c.getGuildId())
-              .getTextChannelById(c.getChannelId())
-              .sendMessage(message.build())
-              .queue();
-        });
+  /**
+   * Sends queued messages until a request is in flight or the queue has been emptied.
+   *
+   * @param queue a channel queue.
+   */
+  private void drain(@NonNull ChannelQueue queue) {
+    Outbound outbound;
+
+    while ((outbound = queue.acquire()) != null) {
+      if (this.send(queue, outbound)) {
+        return;
+      }
+
+      queue.release();
+    }
+  }
+
+  /**
+   * <p>Sends a message and records the outcome.</p>
+   *
+   * <p>Messages which cannot be delivered (as well as messages to channels whose circuit is
+   * currently open) are passed to the dead letter queue.</p>
+   *
+   * <p>When clustering is enabled, messages are claimed before they are sent and skipped when
+   * another instance has already claimed them. Messages which are still queued when this instance
+   * is demoted are passed to the dead letter queue instead.</p>
+   *
+   * @param queue the queue of the target channel.
+   * @param outbound a message.
+   * @return true if a request is in flight, false if the message has been handled immediately.
+   */
+  private boolean send(@NonNull ChannelQueue queue, @NonNull Outbound outbound) {
+    DiscordConfiguration.Channel channel = outbound.channel;
+    net.dv8tion.jda.core.entities.Message message = outbound.message;
+    DeliveryTrace trace = outbound.trace;
+    int target = outbound.target;
+
+    String channelName = Long.toString(channel.getChannelId());
+
+    if (this.cluster != null && !this.cluster
+        .claim(getShardKey(channel), getShardKey(channel), outbound.deliveryId)) {
+      if (this.cluster.isHandedOff(getShardKey(channel))) {
+        this.fail(channelName, message, "unavailable", "demoted", trace, target);
+        return false;
+      }
+
+      this.recordDelivery(channelName, "duplicate");
+
+      if (trace != null) {
+        trace.acknowledged(target, true);
+      }
+      return false;
+    }
+
+    CircuitBreaker breaker = this.breakers.get("discord", channelName);
+
+    if (!breaker.tryAcquire()) {
+      this.fail(channelName, message, "rejected", "circuit open", trace, target);
+      return false;
+    }
+
+    // guilds are only visible to the shard which they have been assigned to
+    JDA client = this.shards.getShard(channel.getGuildId());
+    Guild guild = client == null ? null : client.getGuildById(channel.getGuildId());
+    TextChannel textChannel =
+        guild == null ? null : guild.getTextChannelById(channel.getChannelId());
+
+    if (textChannel == null) {
+      logger.warn("Cannot deliver message to unknown channel %d in guild %d",
+          channel.getChannelId(), channel.getGuildId());
+      breaker.onFailure();
+      this.fail(channelName, message, "unavailable", "unknown channel", trace, target);
+      return false;
+    }
+
+    if (trace != null) {
+      trace.enqueued(target);
+    }
+
+    OutboundSendEvent sendEvent = new OutboundSendEvent();
+    sendEvent.begin();
+
+    boolean queued = true;
+
+    try {
+      textChannel.sendMessage(message).queue(
+          (m) -> {
+            breaker.onSuccess();
+            this.recordDelivery(channelName, "success");
+
+            if (trace != null) {
+              trace.acknowledged(target, true);
+            }
+
+            queue.release();
+            this.drain(queue);
+          },
+          (ex) -> {
+            breaker.onFailure();
+            this.fail(channelName, message, "failure", String.valueOf(ex.getMessage()), trace,
+                target);
+
+            queue.release();
+            this.drain(queue);
+          }
+      );
+    } catch (RuntimeException ex) {
+      // missing permissions are reported before the request is queued
+      logger.warn("Failed to deliver message to channel %d: %s", channel.getChannelId(),
+          ex.getMessage());
+      breaker.onFailure();
+      this.fail(channelName, message, "failure", String.valueOf(ex.getMessage()), trace, target);
+      queued = false;
+    }
+
+    sendEvent.end();
+    if (sendEvent.shouldCommit()) {
+      sendEvent.setAdapter("discord");
+      sendEvent.setChannel(channelName);
+      sendEvent.setMessageSize(message.getContentRaw().length());
+      sendEvent.setSuccess(queued);
+      sendEvent.commit();
+    }
+
+    return queued;
+  }
+
+  /**
+   * Records a failed delivery and passes its message to the dead letter queue.
+   *
+   * @param channel a channel identifier.
+   * @param message a message.
+   * @param outcome an outcome.
+   * @param reason a human readable failure reason.
+   * @param trace a delivery trace (if any).
+   * @param target a target index within the trace.
+   */
+  private void fail(@NonNull String channel,
+      @NonNull net.dv8tion.jda.core.entities.Message message, @NonNull String outcome,
+      @NonNull String reason, @Nullable DeliveryTrace trace, int target) {
+    this.recordDelivery(channel, outcome);
+    this.deadLetters.add("discord", channel, DiscordMessages.encode(message), reason);
+
+    if (trace != null) {
+      trace.acknowledged(target, false);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getDeadLetterAdapter() {
+    return this.getName();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getName() {
+    return "discord";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean redeliver(@NonNull DeadLetter letter) {
+    long channelId = Long.parseLong(letter.getTarget());
+    DiscordConfiguration.Channel channel = this.configuration.getChannels().stream()
+        .filter((c) -> c.getChannelId() == channelId)
+        .findAny()
+        .orElse(null);
+
+    if (channel == null) {
+      return false;
+    }
+
+    // replays are queued behind live messages
+    this.deliver(channel, DiscordMessages.decode(letter.getContent()), null, null, -1,
+        DeliveryPriority.LOW);
+    return true;
+  }
+
+  /**
+   * Records the outcome of a single message delivery.
+   *
+   * @param channel a channel identifier.
+   * @param outcome an outcome.
+   */
+  private void recordDelivery(@NonNull String channel, @NonNull String outcome) {
+    this.registry.counter("ejector.delivery",
+        "adapter", "discord",
+        "channel", channel,
+        "outcome", outcome)
+        .increment();
   }
 
   /**
@@ -839,10 +1301,46 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
    * @param message a message.
    */
   public void sendMessage(@NonNull String message) {
-    this.configuration.getChannels()
-        .forEach(
-            (c) -> this.client.getGuildById(c.getGuildId()).getTextChannelById(c.getChannelId())
-                .sendMessage(message).queue());
+    net.dv8tion.jda.core.entities.Message built = new MessageBuilder().append(message).build();
+    this.configuration.getChannels().stream()
+        .filter((c) -> this.cluster == null || this.cluster.isOwner(getShardKey(c)))
+        .forEach((c) -> this.deliver(c, built, null, null, -1,
+            DeliveryPriority.NORMAL));
+  }
+
+  /**
+   * Generates the key of the cluster shard which a channel belongs to.
+   *
+   * @param channel a channel.
+   * @return a shard key.
+   */
+  @NonNull
+  private static String getShardKey(@NonNull DiscordConfiguration.Channel channel) {
+    return "discord/" + channel.getGuildId() + "/" + channel.getChannelId();
+  }
+
+  /**
+   * <p>Shortens a text to the maximum length of an embed description.</p>
+   *
+   * <p>Payloads retain their strings in full (e.g. for the purpose of replays) and thus long
+   * texts (such as issue bodies or commit messages) are only shortened for display.</p>
+   *
+   * @param text a text (if any).
+   * @return a text of permitted length (or null if no text has been given).
+   */
+  @Nullable
+  static String abbreviate(@Nullable String text) {
+    if (text == null || text.length() <= MAXIMUM_DESCRIPTION_LENGTH) {
+      return text;
+    }
+
+    // never split a surrogate pair as the result would no longer be valid UTF-16
+    int length = MAXIMUM_DESCRIPTION_LENGTH - 1;
+    if (Character.isHighSurrogate(text.charAt(length - 1))) {
+      --length;
+    }
+
+    return text.substring(0, length) + "\u2026";
   }
 
   /**
@@ -850,7 +1348,18 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
    */
   @Override
   public void sendMessage(@NonNull Message message) {
-    this.sendMessage(message.toString((m) -> {
+    this.sendMessage(format(message));
+  }
+
+  /**
+   * Converts a message into its Discord (markdown) representation.
+   *
+   * @param message a message.
+   * @return a formatted message.
+   */
+  @NonNull
+  static String format(@NonNull Message message) {
+    return message.toString((m) -> {
       String formatCharacter = "";
 
       switch (m.getStyle()) {
@@ -866,15 +1375,183 @@ public class DiscordCommunicationAdapter implements CommunicationAdapter, Initia
       }
 
       return formatCharacter + m.getText() + formatCharacter;
-    }));
+    });
+  }
+
+  /**
+   * Represents a message which is awaiting delivery.
+   */
+  private static final class Outbound {
+
+    private final DiscordConfiguration.Channel channel;
+    private final net.dv8tion.jda.core.entities.Message message;
+    private final UUID deliveryId;
+    private final DeliveryTrace trace;
+    private final int target;
+
+    private Outbound(@NonNull DiscordConfiguration.Channel channel,
+        @NonNull net.dv8tion.jda.core.entities.Message message, @Nullable UUID deliveryId,
+        @Nullable DeliveryTrace trace, int target) {
+      this.channel = channel;
+      this.message = message;
+      this.deliveryId = deliveryId;
+      this.trace = trace;
+      this.target = target;
+    }
+  }
+
+  /**
+   * Holds the messages which are awaiting delivery to a single channel.
+   */
+  private final class ChannelQueue {
+
+    private final WeightedFairQueue<Outbound> messages =
+        DiscordCommunicationAdapter.this.priorities.newQueue();
+    private boolean inFlight;
+
+    /**
+     * Retrieves the next message unless a request is already in flight.
+     *
+     * @return a message or null.
+     */
+    @Nullable
+    synchronized Outbound acquire() {
+      if (this.inFlight) {
+        return null;
+      }
+
+      Outbound outbound = this.messages.poll();
+      this.inFlight = outbound != null;
+      return outbound;
+    }
+
+    synchronized void release() {
+      this.inFlight = false;
+    }
   }
 
   /**
-   * Handles the construction of messages based on GitHub events.
+   * <p>Executes the commands which are sent to the configured channels.</p>
+   *
+   * <p>When clustering is enabled, commands are only executed by the instance which owns the
+   * channel. Commands which are still running when the shard of their channel loses its
+   * connection are cancelled.</p>
    */
-  @FunctionalInterface
-  interface PayloadMessageBuilder {
+  private final class CommandListener extends ListenerAdapter {
 
-    void build(@NonNull MessageBuilder message, @NonNull EmbedBuilder embed, @NonNull Event event);
+    private final Map<JDA, CompletableFuture<Void>> disconnections = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onGuildMessageReceived(@NonNull GuildMessageReceivedEvent event) {
+      if (event.getAuthor().isBot()) {
+        return;
+      }
+
+      long channelId = event.getChannel().getIdLong();
+      DiscordConfiguration.Channel channel = DiscordCommunicationAdapter.this.configuration
+          .getChannels().stream()
+          .filter((c) -> c.getChannelId() == channelId)
+          .findAny()
+          .orElse(null);
+
+      ClusterCoordinator cluster = DiscordCommunicationAdapter.this.cluster;
+      if (channel == null || (cluster != null && !cluster.isOwner(getShardKey(channel)))) {
+        return;
+      }
+
+      CompletableFuture<Void> disconnection = this.disconnections
+          .computeIfAbsent(event.getJDA(), (k) -> new CompletableFuture<>());
+      DiscordCommunicationAdapter.this.commands.dispatchMessage(
+          new CommandContext(channel, event.getAuthor(), disconnection),
+          event.getMessage().getContentRaw());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDisconnect(@NonNull DisconnectEvent event) {
+      this.disconnected(event.getJDA());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onShutdown(@NonNull ShutdownEvent event) {
+      this.disconnected(event.getJDA());
+    }
+
+    /**
+     * Notifies all commands which have been invoked through the specified shard of its lost
+     * connection.
+     *
+     * @param client a shard.
+     */
+    private void disconnected(@NonNull JDA client) {
+      CompletableFuture<Void> disconnection = this.disconnections.remove(client);
+
+      if (disconnection != null) {
+        disconnection.complete(null);
+      }
+    }
+  }
+
+  /**
+   * Represents the channel member who has invoked a command.
+   */
+  private final class CommandContext implements Command.Context {
+
+    private final DiscordConfiguration.Channel channel;
+    private final net.dv8tion.jda.core.entities.User user;
+    private final CompletionStage<Void> disconnection;
+
+    private CommandContext(@NonNull DiscordConfiguration.Channel channel,
+        @NonNull net.dv8tion.jda.core.entities.User user,
+        @NonNull CompletionStage<Void> disconnection) {
+      this.channel = channel;
+      this.user = user;
+      this.disconnection = disconnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public String getUserName() {
+      return this.user.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public String getUserReference() {
+      return this.user.getAsMention();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CompletionStage<Void> getDisconnection() {
+      return this.disconnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendMessage(@NonNull Message message) {
+      DiscordCommunicationAdapter.this.deliver(this.channel,
+          new MessageBuilder().append(format(message)).build(), null, null, -1,
+          DeliveryPriority.HIGH);
+    }
   }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.discord;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.IOException;
+import net.dv8tion.jda.core.EmbedBuilder;
+import net.dv8tion.jda.core.MessageBuilder;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageEmbed;
+
+/**
+ * <p>Converts rendered messages from and into a textual representation (for instance in order to
+ * retain them within the dead letter queue).</p>
+ *
+ * <p>Only the message properties which are populated by the adapter are retained.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class DiscordMessages {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private DiscordMessages() {
+  }
+
+  /**
+   * Encodes a message.
+   *
+   * @param message a message.
+   * @return an encoded message.
+   */
+  @NonNull
+  static String encode(@NonNull Message message) {
+    ObjectNode node = mapper.createObjectNode()
+        .put("content", message.getContentRaw());
+
+    if (!message.getEmbeds().isEmpty()) {
+      MessageEmbed embed = message.getEmbeds().get(0);
+      ObjectNode embedNode = node.putObject("embed")
+          .put("title", embed.getTitle())
+          .put("url", embed.getUrl())
+          .put("description", embed.getDescription());
+
+      if (embed.getColor() != null) {
+        embedNode.put("color", embed.getColor().getRGB() & 0xFFFFFF);
+      }
+
+      if (embed.getAuthor() != null) {
+        embedNode.putObject("author")
+            .put("name", embed.getAuthor().getName())
+            .put("url", embed.getAuthor().getUrl())
+            .put("icon", embed.getAuthor().getIconUrl());
+      }
+
+      if (embed.getImage() != null) {
+        embedNode.put("image", embed.getImage().getUrl());
+      }
+
+      if (embed.getFooter() != null) {
+        embedNode.putObject("footer")
+            .put("text", embed.getFooter().getText())
+            .put("icon", embed.getFooter().getIconUrl());
+      }
+
+      ArrayNode fields = embedNode.putArray("fields");
+      embed.getFields().forEach((f) -> fields.addObject()
+          .put("name", f.getName())
+          .put("value", f.getValue())
+          .put("inline", f.isInline()));
+    }
+
+    return node.toString();
+  }
+
+  /**
+   * Decodes a message.
+   *
+   * @param encoded an encoded message.
+   * @return a message.
+   * @throws IllegalArgumentException when the message is malformed.
+   */
+  @NonNull
+  static Message decode(@NonNull String encoded) {
+    JsonNode node;
+
+    try {
+      node = mapper.readTree(encoded);
+    } catch (IOException ex) {
+      throw new IllegalArgumentException("Malformed message: " + ex.getMessage(), ex);
+    }
+
+    MessageBuilder message = new MessageBuilder();
+    String content = text(node, "content");
+    if (content != null && !content.isEmpty()) {
+      message.setContent(content);
+    }
+
+    JsonNode embedNode = node.get("embed");
+    if (embedNode != null) {
+      EmbedBuilder embed = new EmbedBuilder()
+          .setTitle(text(embedNode, "title"), text(embedNode, "url"))
+          .setDescription(text(embedNode, "description"))
+          .setImage(text(embedNode, "image"));
+
+      if (embedNode.has("color")) {
+        embed.setColor(embedNode.get("color").asInt());
+      }
+
+      JsonNode author = embedNode.get("author");
+      if (author != null) {
+        embed.setAuthor(text(author, "name"), text(author, "url"), text(author, "icon"));
+      }
+
+      JsonNode footer = embedNode.get("footer");
+      if (footer != null) {
+        embed.setFooter(text(footer, "text"), text(footer, "icon"));
+      }
+
+      embedNode.path("fields").forEach((f) -> embed.addField(text(f, "name"), text(f, "value"),
+          f.path("inline").asBoolean()));
+      message.setEmbed(embed.build());
+    }
+
+    return message.build();
+  }
+
+  @Nullable
+  private static String text(@NonNull JsonNode node, @NonNull String name) {
+    JsonNode value = node.get(name);
+    return value == null || value.isNull() ? null : value.asText();
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.discord;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.security.auth.login.LoginException;
+import net.dv8tion.jda.core.AccountType;
+import net.dv8tion.jda.core.JDA;
+import net.dv8tion.jda.core.JDABuilder;
+import net.dv8tion.jda.core.OnlineStatus;
+import net.dv8tion.jda.core.entities.Game;
+import net.dv8tion.jda.core.requests.SessionReconnectQueue;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.configuration.DiscordConfiguration;
+
+/**
+ * <p>Manages the gateway connections (shards) of the Discord client.</p>
+ *
+ * <p>Discord requires bots to split their guilds between multiple gateway connections once they
+ * have joined a certain amount of guilds. Every guild is assigned to exactly one shard (based on
+ * its identifier) which provides the only view of its channels and thus messages are always sent
+ * through the shard which owns the guild of their target channel.</p>
+ *
+ * <p>As Discord only permits a limited amount of logins within a given interval, shards are
+ * started in rounds which start as many shards in parallel as the configured concurrency permits.
+ * Reconnects are serialized through a queue which is shared between all shards.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class DiscordShards {
+
+  private static final Logger logger = LogManager.getFormatterLogger(DiscordShards.class);
+
+  /**
+   * Defines the amount of milliseconds between two rounds of logins (Discord permits a single
+   * login per bucket every five seconds).
+   */
+  private static final long IDENTIFY_INTERVAL = 5500;
+
+  private final List<CompletableFuture<JDA>> shards;
+
+  private DiscordShards(@NonNull List<CompletableFuture<JDA>> shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * Wraps a pre-configured client (such as a client which has not been connected for the
+   * purposes of benchmarking).
+   *
+   * @param client a Discord client.
+   * @return a set of shards.
+   */
+  @NonNull
+  static DiscordShards of(@NonNull JDA client) {
+    return new DiscordShards(Collections.singletonList(CompletableFuture.completedFuture(client)));
+  }
+
+  /**
+   * Constructs the Discord clients for all configured shards which establish their connections
+   * in the background.
+   *
+   * @param configuration an adapter configuration.
+   * @param customizers a collection of client customizers (if any).
+   * @return a set of shards.
+   * @throws LoginException when the supplied token is invalid.
+   */
+  @NonNull
+  static DiscordShards connect(@NonNull DiscordConfiguration configuration,
+      @Nullable Collection<DiscordClientCustomizer> customizers) throws LoginException {
+    int total = Math.max(1, configuration.getShards());
+    int concurrency = Math.max(1, configuration.getShardConcurrency());
+    SessionReconnectQueue reconnectQueue = total == 1 ? null : new SessionReconnectQueue();
+
+    List<CompletableFuture<JDA>> shards = new ArrayList<>(total);
+    for (int i = 0; i < total; ++i) {
+      shards.add(new CompletableFuture<>());
+    }
+
+    // the first round is started right away so that invalid tokens are reported on startup
+    for (int i = 0; i < Math.min(total, concurrency); ++i) {
+      shards.get(i).complete(build(configuration, customizers, reconnectQueue, i, total));
+    }
+
+    if (total > concurrency) {
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+        Thread thread = new Thread(r);
+        thread.setName("discord-shards");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+      for (int i = concurrency; i < total; ++i) {
+        int shardId = i;
+
+        scheduler.schedule(() -> {
+          try {
+            shards.get(shardId)
+                .complete(build(configuration, customizers, reconnectQueue, shardId, total));
+          } catch (LoginException | RuntimeException ex) {
+            logger.error("Failed to start shard " + shardId + ": " + ex.getMessage(), ex);
+            shards.get(shardId).completeExceptionally(ex);
+          }
+        }, (i / concurrency) * IDENTIFY_INTERVAL, TimeUnit.MILLISECONDS);
+      }
+
+      // previously scheduled rounds are still executed
+      scheduler.shutdown();
+      logger.info("Starting %d shards within %d rounds", total, (total - 1) / concurrency + 1);
+    }
+
+    return new DiscordShards(Collections.unmodifiableList(shards));
+  }
+
+  /**
+   * Constructs the client for a single shard.
+   *
+   * @param configuration an adapter configuration.
+   * @param customizers a collection of client customizers (if any).
+   * @param reconnectQueue a reconnect queue which is shared between all shards (if sharded).
+   * @param shardId a shard identifier.
+   * @param total the total amount of shards.
+   * @return a client.
+   * @throws LoginException when the supplied token is invalid.
+   */
+  @NonNull
+  private static JDA build(@NonNull DiscordConfiguration configuration,
+      @Nullable Collection<DiscordClientCustomizer> customizers,
+      @Nullable SessionReconnectQueue reconnectQueue, int shardId, int total)
+      throws LoginException {
+    JDABuilder builder = new JDABuilder(AccountType.BOT)
+        .setToken(configuration.getToken())
+        .setStatus(OnlineStatus.ONLINE)
+        .setGame(Game.playing("with a potato"));
+
+    if (reconnectQueue != null) {
+      builder.useSharding(shardId, total)
+          .setReconnectQueue(reconnectQueue);
+    }
+
+    if (customizers != null) {
+      customizers.forEach((c) -> c.customize(builder));
+    }
+
+    return builder.buildAsync();
+  }
+
+  /**
+   * Retrieves the total amount of shards.
+   *
+   * @return an amount of shards.
+   */
+  int getTotal() {
+    return this.shards.size();
+  }
+
+  /**
+   * Identifies the shard which owns the specified guild.
+   *
+   * @param guildId a guild identifier.
+   * @return a shard identifier.
+   */
+  int getShardId(long guildId) {
+    return (int) ((guildId >>> 22) % this.shards.size());
+  }
+
+  /**
+   * Retrieves the client of the shard which owns the specified guild.
+   *
+   * @param guildId a guild identifier.
+   * @return a client or null if the shard has not been started yet.
+   */
+  @Nullable
+  JDA getShard(long guildId) {
+    return this.shards.get(this.getShardId(guildId)).getNow(null);
+  }
+
+  /**
+   * Evaluates whether the specified shard is currently connected.
+   *
+   * @param shardId a shard identifier.
+   * @return true if connected, false otherwise.
+   */
+  boolean isConnected(int shardId) {
+    JDA client = this.shards.get(shardId).getNow(null);
+    return client != null && client.getStatus() == JDA.Status.CONNECTED;
+  }
+
+  /**
+   * Registers an event listener with every shard (including shards which have yet to be
+   * started).
+   *
+   * @param listener an event listener.
+   */
+  void addEventListener(@NonNull Object listener) {
+    this.shards.forEach((s) -> s.thenAccept((c) -> c.addEventListener(listener)));
+  }
+
+  /**
+   * Waits for all shards to finish their login. Shards which failed to start are skipped.
+   *
+   * @throws InterruptedException when the thread is interrupted while waiting.
+   */
+  void awaitConnected() throws InterruptedException {
+    for (CompletableFuture<JDA> shard : this.shards) {
+      try {
+        shard.get().awaitStatus(JDA.Status.CONNECTED);
+      } catch (ExecutionException ignore) {
+        // failures have already been reported when starting the shard
+      }
+    }
+  }
+}
@@ -17,30 +17,60 @@
 package org.basinmc.ejector.communication.irc;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
-import java.lang.invoke.CallSite;
-import java.lang.invoke.LambdaConversionException;
-import java.lang.invoke.LambdaMetafactory;
-import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLSocketFactory;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterCoordinator;
+import org.basinmc.ejector.cluster.ClusterMode;
+import org.basinmc.ejector.cluster.ClusterRoleEvent;
+import org.basinmc.ejector.cluster.ClusterTopologyEvent;
+import org.basinmc.ejector.command.Command;
+import org.basinmc.ejector.command.CommandDispatcher;
 import org.basinmc.ejector.communication.CommunicationAdapter;
 import org.basinmc.ejector.communication.Message;
 import org.basinmc.ejector.communication.Message.Color;
+import org.basinmc.ejector.communication.routing.RoutingTable;
+import org.basinmc.ejector.configuration.ConfigurationReloadEvent;
 import org.basinmc.ejector.configuration.irc.IrcChannel;
 import org.basinmc.ejector.configuration.irc.IrcConfiguration;
 import org.basinmc.ejector.configuration.irc.IrcServer;
+import org.basinmc.ejector.delivery.CircuitBreaker;
+import org.basinmc.ejector.delivery.CircuitBreakerRegistry;
+import org.basinmc.ejector.delivery.DeadLetter;
+import org.basinmc.ejector.delivery.DeadLetterHandler;
+import org.basinmc.ejector.delivery.DeadLetterQueue;
+import org.basinmc.ejector.delivery.DeliveryPriorities;
+import org.basinmc.ejector.delivery.DeliveryPriority;
+import org.basinmc.ejector.delivery.WeightedFairQueue;
+import org.basinmc.ejector.dispatch.PayloadHandler;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.ejector.tracing.DeliveryTrace;
+import org.basinmc.ejector.tracing.jfr.OutboundSendEvent;
+import org.basinmc.ejector.tracing.jfr.RenderEvent;
 import org.basinmc.ejector.utility.PreconfiguredMessageSource;
 import org.basinmc.stormdrain.Payload;
 import org.basinmc.stormdrain.PayloadType;
@@ -49,7 +79,6 @@ import org.basinmc.stormdrain.event.CreateEvent;
 import org.basinmc.stormdrain.event.DeleteEvent;
 import org.basinmc.stormdrain.event.DeploymentEvent;
 import org.basinmc.stormdrain.event.DeploymentStatusEvent;
-import org.basinmc.stormdrain.event.Event;
 import org.basinmc.stormdrain.event.ForkEvent;
 import org.basinmc.stormdrain.event.GollumEvent;
 import org.basinmc.stormdrain.event.IssueCommentEvent;
@@ -76,9 +105,18 @@ import org.pircbotx.Colors;
 import org.pircbotx.Configuration;
 import org.pircbotx.PircBotX;
 import org.pircbotx.exception.IrcException;
-import org.springframework.beans.factory.InitializingBean;
+import org.pircbotx.hooks.ListenerAdapter;
+import org.pircbotx.hooks.events.ConnectEvent;
+import org.pircbotx.hooks.events.DisconnectEvent;
+import org.pircbotx.hooks.events.JoinEvent;
+import org.pircbotx.hooks.events.MessageEvent;
+import org.pircbotx.hooks.events.NickAlreadyInUseEvent;
+import org.pircbotx.hooks.events.NickChangeEvent;
+import org.pircbotx.hooks.events.QuitEvent;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
 import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.env.PropertySourcesPropertyResolver;
@@ -90,16 +128,23 @@ import org.springframework.stereotype.Component;
 @Component
 @EnableConfigurationProperties(IrcConfiguration.class)
 @ConditionalOnProperty(prefix = "ejector.irc", name = "enabled")
-public class IrcCommunicationAdapter implements CommunicationAdapter, InitializingBean {
+public class IrcCommunicationAdapter implements CommunicationAdapter, DeadLetterHandler {
 
   private static final String PROJECT_URL = "https://github.com/BasinMC/Ejector";
   private static final Logger logger = LogManager.getFormatterLogger(IrcCommunicationAdapter.class);
 
   private static final Map<Color, String> colorCodes = new HashMap<>();
 
-  private final IrcConfiguration configuration;
-  private final Set<BotInstance> botMap;
-  private final Map<Class<? extends Event>, Function<Event, String>> handlerMap = new HashMap<>();
+  private volatile IrcConfiguration configuration;
+  private volatile Map<String, BotInstance> botMap;
+  private volatile RoutingTable<ChannelTarget> routingTable;
+  private final MeterRegistry registry;
+  private final ClusterCoordinator cluster;
+  private final CircuitBreakerRegistry breakers;
+  private final DeadLetterQueue deadLetters;
+  private final DeliveryPriorities priorities;
+  private final CommandDispatcher commands;
+  private final Map<PayloadType, Timer> renderTimers = new EnumMap<>(PayloadType.class);
 
   private final PreconfiguredMessageSource messageSource;
   private final PropertySourcesPropertyResolver propertyResolver;
@@ -124,8 +169,26 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     colorCodes.put(Color.YELLOW, Colors.YELLOW);
   }
 
-  public IrcCommunicationAdapter(@NonNull IrcConfiguration configuration) {
+  public IrcCommunicationAdapter(@NonNull IrcConfiguration configuration,
+      @NonNull MeterRegistry registry, @NonNull CircuitBreakerRegistry breakers,
+      @NonNull DeadLetterQueue deadLetters, @NonNull DeliveryPriorities priorities,
+      @Nullable @Autowired(required = false) CommandDispatcher commands,
+      @Nullable @Autowired(required = false) ClusterCoordinator cluster) {
     this.configuration = configuration;
+    this.registry = registry;
+    this.cluster = cluster;
+    this.breakers = breakers;
+    this.deadLetters = deadLetters;
+    this.priorities = priorities;
+    this.commands = commands;
+
+    for (PayloadType type : PayloadType.values()) {
+      this.renderTimers.put(type, Timer.builder("ejector.render")
+          .description("Time spent rendering event messages")
+          .tag("adapter", "irc")
+          .tag("type", type.name().toLowerCase())
+          .register(registry));
+    }
 
     ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
     messageSource.setDefaultEncoding("UTF-8");
@@ -144,72 +207,334 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     this.propertyResolver.setPlaceholderPrefix("$(");
     this.propertyResolver.setPlaceholderSuffix(")");
 
-    this.botMap = configuration.getServers().stream()
-        .map((s) -> {
-          // FIXME: This sucks but Spring doesn't construct it correctly otherwise :(
-          s.setParent(configuration);
+    Map<String, BotInstance> botMap = new HashMap<>();
+    configuration.getServers().forEach((s) -> {
+      // FIXME: This sucks but Spring doesn't construct it correctly otherwise :(
+      s.setParent(configuration);
 
-          Configuration cnf = toConfiguration(s);
-          return new BotInstance(new PircBotX(cnf), s);
-        })
-        .collect(Collectors.toSet());
+      if (this.isOwned(s)) {
+        botMap.put(getServerKey(s), this.createBot(s));
+      }
+    });
+    this.botMap = Collections.unmodifiableMap(botMap);
+    this.routingTable = buildRoutingTable(this.botMap);
+  }
 
-    // Payload Handlers
-    for (PayloadType type : PayloadType.values()) {
-      MethodHandles.Lookup caller = MethodHandles.lookup();
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void initialize() {
+    this.botMap.values().forEach(IrcCommunicationAdapter::startBot);
+  }
 
-      MethodType factoryType = MethodType
-          .methodType(Function.class, IrcCommunicationAdapter.class);
-      MethodType implementationType = MethodType.methodType(String.class, type.getType());
+  /**
+   * Starts a bot instance on a dedicated thread.
+   *
+   * @param instance a bot instance.
+   */
+  private static void startBot(@NonNull BotInstance instance) {
+    Thread thread = new Thread(instance::start);
+    thread.setName("irc-adapter");
+    thread.start();
+  }
 
-      try {
-        MethodHandle handle = caller
-            .findVirtual(IrcCommunicationAdapter.class, "buildMessage", implementationType);
-        MethodType invocationType = handle.type().dropParameterTypes(0, 1);
-
-        CallSite site = LambdaMetafactory.metafactory(
-            caller,
-            "apply",
-            factoryType,
-            invocationType.changeReturnType(Object.class).changeParameterType(0, Object.class),
-            handle,
-            invocationType
-        );
+  /**
+   * Constructs a new (unstarted) bot instance for the specified server.
+   *
+   * @param server a server configuration.
+   * @return a bot instance.
+   */
+  @NonNull
+  private BotInstance createBot(@NonNull IrcServer server) {
+    String key = getServerKey(server);
 
-        try {
-          this.handlerMap.put(
-              type.getType(),
-              (Function<Event, String>) site.getTarget().invoke(this)
-          );
-        } catch (Throwable ex) {
-          throw new RuntimeException("Lambda factory invocation failed: " + ex.getMessage(), ex);
-        }
-      } catch (NoSuchMethodException ignore) {
-      } catch (IllegalAccessException ex) {
-        throw new RuntimeException(
-            "Failed to access builder method for payload type " + type + ": " + ex.getMessage(),
-            ex);
-      } catch (LambdaConversionException ex) {
-        throw new RuntimeException(
-            "Failed to create lambda method for payload type " + type + ": " + ex.getMessage(), ex);
+    // gauges are only registered once per key and thus keep reporting the state of whichever bot
+    // is currently responsible for the server
+    Gauge.builder("ejector.connection", this, (a) -> a.isConnected(key) ? 1 : 0)
+        .description("Indicates whether the adapter is currently connected")
+        .tag("adapter", "irc")
+        .tag("server", key)
+        .register(this.registry);
+
+    Configuration cnf = toConfiguration(server, this.getNickname(server),
+        new ChannelReconciler(key), new NicknameReclaimer(key), new CommandListener(key));
+
+    return new BotInstance(new PircBotX(cnf), server, new OutputQueue(key));
+  }
+
+  /**
+   * Evaluates whether the bot for the specified server is currently connected.
+   *
+   * @param key a server key.
+   * @return true if connected, false otherwise.
+   */
+  private boolean isConnected(@NonNull String key) {
+    BotInstance instance = this.botMap.get(key);
+    return instance != null && instance.bot.isConnected();
+  }
+
+  /**
+   * Applies an updated configuration to the running bot instances.
+   *
+   * @param event a reload event.
+   */
+  @EventListener
+  public void onConfigurationReload(@NonNull ConfigurationReloadEvent event) {
+    this.reconfigure(event.getIrcConfiguration());
+  }
+
+  /**
+   * Connects to or disconnects from all servers which this instance has gained or lost
+   * respectively.
+   *
+   * @param event a topology event.
+   */
+  @EventListener
+  public void onTopologyChange(@NonNull ClusterTopologyEvent event) {
+    this.reconfigure(this.configuration);
+  }
+
+  /**
+   * Switches all bots to the nickname of their respective role when this instance has been
+   * promoted to primary or demoted to standby.
+   *
+   * @param event a role event.
+   */
+  @EventListener
+  public void onRoleChange(@NonNull ClusterRoleEvent event) {
+    this.botMap.values().forEach(this::reclaimNickname);
+  }
+
+  /**
+   * Evaluates whether this instance is responsible for the connection to the specified server
+   * (e.g. always when clustering is disabled or operating in failover mode).
+   *
+   * @param server a server configuration.
+   * @return true if owned, false otherwise.
+   */
+  private boolean isOwned(@NonNull IrcServer server) {
+    return this.cluster == null || this.cluster.isAssigned(getShardKey(server));
+  }
+
+  /**
+   * Retrieves the nickname which this instance shall currently use on the specified server. When
+   * operating in failover mode, standby instances use an alternate nickname so that their
+   * connections may remain established alongside the connections of the primary.
+   *
+   * @param server a server configuration.
+   * @return a nickname.
+   */
+  @NonNull
+  private String getNickname(@NonNull IrcServer server) {
+    if (this.cluster != null && this.cluster.getMode() == ClusterMode.FAILOVER
+        && !this.cluster.isPrimary()) {
+      return server.getStandbyName();
+    }
+
+    return server.getName();
+  }
+
+  /**
+   * Changes the nickname of a bot to the nickname of its current role (if necessary).
+   *
+   * @param instance a bot instance.
+   */
+  private void reclaimNickname(@NonNull BotInstance instance) {
+    String nickname = this.getNickname(instance.server);
+
+    if (instance.bot.isConnected() && !nickname.equalsIgnoreCase(instance.bot.getNick())) {
+      logger.info("Changing nickname on %s to %s", instance.server.getHostname(), nickname);
+      instance.bot.sendIRC().changeNick(nickname);
+    }
+  }
+
+  /**
+   * <p>Applies an updated configuration to the running bot instances.</p>
+   *
+   * <p>Bots for servers which are no longer configured (or owned by this instance when
+   * clustering is enabled) are disconnected while bots for newly configured servers are
+   * started. When the connection parameters of an existing server have
+   * been altered, its bot will be restarted. All other bots merely join or part the channels which
+   * have been added or removed respectively and remain connected otherwise.</p>
+   *
+   * <p>The routing table is swapped atomically and thus events which are received during the
+   * reconfiguration are either delivered using the old or the new configuration.</p>
+   *
+   * @param configuration an updated configuration.
+   */
+  public synchronized void reconfigure(@NonNull IrcConfiguration configuration) {
+    Map<String, BotInstance> previous = this.botMap;
+    Map<String, BotInstance> updated = new HashMap<>();
+    List<BotInstance> stopped = new ArrayList<>();
+    List<BotInstance> started = new ArrayList<>();
+
+    for (IrcServer server : configuration.getServers()) {
+      server.setParent(configuration);
+
+      if (!this.isOwned(server)) {
+        continue;
+      }
+
+      String key = getServerKey(server);
+      BotInstance instance = previous.get(key);
+
+      if (instance == null) {
+        logger.info("Connecting to newly configured server %s", key);
+
+        instance = this.createBot(server);
+        started.add(instance);
+      } else if (!isConnectionEquivalent(instance.server, server)) {
+        logger.info("Reconnecting to server %s due to altered connection parameters", key);
+
+        stopped.add(instance);
+        instance = this.createBot(server);
+        started.add(instance);
+      } else {
+        reconcileChannels(instance, server);
+        instance = new BotInstance(instance.bot, server, instance.output);
       }
+
+      updated.put(key, instance);
     }
+
+    previous.forEach((key, instance) -> {
+      if (!updated.containsKey(key)) {
+        logger.info("Disconnecting from server %s as it is no longer configured or owned", key);
+        stopped.add(instance);
+      }
+    });
+
+    this.configuration = configuration;
+    this.botMap = Collections.unmodifiableMap(updated);
+    this.routingTable = buildRoutingTable(this.botMap);
+
+    stopped.forEach(BotInstance::stop);
+    started.forEach(IrcCommunicationAdapter::startBot);
   }
 
   /**
-   * {@inheritDoc}
+   * Compiles a routing table for all channels of the specified bot instances.
+   *
+   * @param botMap a map of bot instances.
+   * @return a routing table.
    */
-  @Override
-  public void afterPropertiesSet() throws Exception {
-    this.botMap.forEach((b) -> {
-      Thread thread = new Thread(b::start);
-      thread.setName("irc-adapter");
-      thread.start();
+  @NonNull
+  private static RoutingTable<ChannelTarget> buildRoutingTable(
+      @NonNull Map<String, BotInstance> botMap) {
+    RoutingTable.Builder<ChannelTarget> builder = RoutingTable.builder();
+
+    botMap.values().forEach((i) -> {
+      for (IrcChannel channel : i.server.getChannels()) {
+        builder.withRoute(channel, new ChannelTarget(i, channel.getName()));
+      }
     });
+
+    return builder.build();
+  }
+
+  /**
+   * Joins or parts all channels which have been added to or removed from the configuration of a
+   * running bot.
+   *
+   * @param instance a running bot instance.
+   * @param server an updated server configuration.
+   */
+  private static void reconcileChannels(@NonNull BotInstance instance,
+      @NonNull IrcServer server) {
+    if (!instance.bot.isConnected()) {
+      // channels will be reconciled by the listener once the connection has been established
+      return;
+    }
+
+    Set<String> previous = getChannelNames(instance.server);
+    Set<String> updated = getChannelNames(server);
+
+    updated.stream()
+        .filter((n) -> !previous.contains(n))
+        .forEach((n) -> {
+          logger.info("Joining newly configured channel %s on %s", n, server.getHostname());
+          instance.bot.sendIRC().joinChannel(n);
+        });
+    previous.stream()
+        .filter((n) -> !updated.contains(n))
+        .forEach((n) -> {
+          logger.info("Parting channel %s on %s", n, server.getHostname());
+          instance.bot.sendRaw().rawLine("PART " + n);
+        });
+  }
+
+  /**
+   * Retrieves the (lower case) names of all channels within a server configuration.
+   *
+   * @param server a server configuration.
+   * @return a set of channel names.
+   */
+  @NonNull
+  private static Set<String> getChannelNames(@NonNull IrcServer server) {
+    Set<String> names = new HashSet<>();
+    server.getChannels().forEach((ch) -> names.add(ch.getName().toLowerCase()));
+    return names;
   }
 
+  /**
+   * Generates a key which uniquely identifies a server connection.
+   *
+   * @param server a server configuration.
+   * @return a key.
+   */
   @NonNull
-  private String buildMessage(@NonNull CommitCommentEvent event) {
+  private static String getServerKey(@NonNull IrcServer server) {
+    return server.getHostname() + ":" + server.getPort();
+  }
+
+  /**
+   * Generates the key of the cluster shard which a server connection belongs to.
+   *
+   * @param server a server configuration.
+   * @return a shard key.
+   */
+  @NonNull
+  private static String getShardKey(@NonNull IrcServer server) {
+    return "irc/" + getServerKey(server);
+  }
+
+  /**
+   * Evaluates whether two server configurations result in identical connections (e.g. whether
+   * they differ in their channel configurations at most).
+   *
+   * @param a a server configuration.
+   * @param b another server configuration.
+   * @return true if equivalent, false otherwise.
+   */
+  private static boolean isConnectionEquivalent(@NonNull IrcServer a, @NonNull IrcServer b) {
+    return Objects.equals(a.getHostname(), b.getHostname())
+        && a.getPort() == b.getPort()
+        && a.isSecure() == b.isSecure()
+        && Objects.equals(a.getPassword(), b.getPassword())
+        && Objects.equals(a.getChannelPrefixes(), b.getChannelPrefixes())
+        && Objects.equals(a.getCharset(), b.getCharset())
+        && Objects.equals(a.getCtcpFingerResponseTemplate(), b.getCtcpFingerResponseTemplate())
+        && Objects.equals(a.getCtcpVersionResponseTemplate(), b.getCtcpVersionResponseTemplate())
+        && Objects.equals(a.getIdent(), b.getIdent())
+        && Objects.equals(a.getLocalAddress(), b.getLocalAddress())
+        && a.getMessageDelay() == b.getMessageDelay()
+        && a.getMaximumReconnectAttempts() == b.getMaximumReconnectAttempts()
+        && Objects.equals(a.getNickServNick(), b.getNickServNick())
+        && Objects.equals(a.getNickServPassword(), b.getNickServPassword())
+        && Objects.equals(a.getName(), b.getName())
+        && Objects.equals(a.getStandbyName(), b.getStandbyName())
+        && a.getReconnectDelay() == b.getReconnectDelay()
+        && Objects.equals(a.getRealNameTemplate(), b.getRealNameTemplate())
+        && a.getSocketTimeout() == b.getSocketTimeout()
+        && Objects.equals(a.getUserPrefixes(), b.getUserPrefixes())
+        && a.isAuthenticationDelayEnabled() == b.isAuthenticationDelayEnabled()
+        && a.isAutomaticNicknameChangeEnabled() == b.isAutomaticNicknameChangeEnabled();
+  }
+
+  @PayloadHandler(PayloadType.COMMIT_COMMENT)
+  @NonNull
+  String buildMessage(@NonNull CommitCommentEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.commit_comment." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -219,8 +544,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.CREATE)
   @NonNull
-  private String buildMessage(@NonNull CreateEvent event) {
+  String buildMessage(@NonNull CreateEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.create",
         event.getRepository().getFullName(),
@@ -230,8 +556,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.DELETE)
   @NonNull
-  private String buildMessage(@NonNull DeleteEvent event) {
+  String buildMessage(@NonNull DeleteEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.delete",
         event.getRepository().getFullName(),
@@ -241,8 +568,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.DEPLOYMENT)
   @NonNull
-  private String buildMessage(@NonNull DeploymentEvent event) {
+  String buildMessage(@NonNull DeploymentEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.deployment",
         event.getRepository().getFullName(),
@@ -251,8 +579,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.DEPLOYMENT_STATUS)
   @NonNull
-  private String buildMessage(@NonNull DeploymentStatusEvent event) {
+  String buildMessage(@NonNull DeploymentStatusEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.deployment.status" + (event.getDeploymentStatus().getTargetUrl().isPresent()
             ? ".target" : ""),
@@ -263,8 +592,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.FORK)
   @NonNull
-  private String buildMessage(@NonNull ForkEvent event) {
+  String buildMessage(@NonNull ForkEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.fork",
         event.getRepository().getFullName(),
@@ -274,8 +604,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.GOLLUM)
   @NonNull
-  private String buildMessage(@NonNull GollumEvent event) {
+  String buildMessage(@NonNull GollumEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.gollum",
         event.getRepository().getFullName(),
@@ -284,8 +615,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.ISSUE_COMMENT)
   @NonNull
-  private String buildMessage(@NonNull IssueCommentEvent event) {
+  String buildMessage(@NonNull IssueCommentEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.issues.comment." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -296,8 +628,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.ISSUES)
   @NonNull
-  private String buildMessage(@NonNull IssuesEvent event) {
+  String buildMessage(@NonNull IssuesEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.issues." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -308,8 +641,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.LABEL)
   @NonNull
-  private String buildMessage(@NonNull LabelEvent event) {
+  String buildMessage(@NonNull LabelEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.label." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -318,8 +652,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.MEMBER)
   @NonNull
-  private String buildMessage(@NonNull MemberEvent event) {
+  String buildMessage(@NonNull MemberEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.member." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -328,8 +663,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.MEMBERSHIP)
   @NonNull
-  private String buildMessage(@NonNull MembershipEvent event) {
+  String buildMessage(@NonNull MembershipEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.membership." + event.getAction().name().toLowerCase(),
         event.getOrganization().getLogin(),
@@ -340,8 +676,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.MILESTONE)
   @NonNull
-  private String buildMessage(@NonNull MilestoneEvent event) {
+  String buildMessage(@NonNull MilestoneEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.milestone." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -352,8 +689,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.ORGANIZATION)
   @NonNull
-  private String buildMessage(@NonNull OrganizationEvent event) {
+  String buildMessage(@NonNull OrganizationEvent event) {
     if (event.getAction() != OrganizationEvent.Action.MEMBER_INVITED) {
       Membership membership = event.getMembership()
           .orElseThrow(() -> new IllegalStateException("Expected membership"));
@@ -399,8 +737,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.ORG_BLOCK)
   @NonNull
-  private String buildMessage(@NonNull OrganizationBlockEvent event) {
+  String buildMessage(@NonNull OrganizationBlockEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.organization.block." + event.getAction().name().toLowerCase(),
         event.getOrganization().getLogin(),
@@ -409,8 +748,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.PAGE_BUILD)
   @NonNull
-  private String buildMessage(@NonNull PageBuildEvent event) {
+  String buildMessage(@NonNull PageBuildEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.page.build." + event.getBuild().getStatus().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -419,8 +759,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.PUBLIC)
   @NonNull
-  private String buildMessage(@NonNull PublicEvent event) {
+  String buildMessage(@NonNull PublicEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.public",
         event.getRepository().getFullName(),
@@ -428,8 +769,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.PULL_REQUEST)
   @NonNull
-  private String buildMessage(@NonNull PullRequestEvent event) {
+  String buildMessage(@NonNull PullRequestEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.pull." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -440,8 +782,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.PULL_REQUEST_REVIEW)
   @NonNull
-  private String buildMessage(@NonNull PullRequestReviewEvent event) {
+  String buildMessage(@NonNull PullRequestReviewEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.review." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -452,8 +795,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.PULL_REQUEST_REVIEW_COMMENT)
   @NonNull
-  private String buildMessage(@NonNull PullRequestReviewCommentEvent event) {
+  String buildMessage(@NonNull PullRequestReviewCommentEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.review.comment." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -464,29 +808,26 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.PUSH)
   @NonNull
-  private String buildMessage(@NonNull PushEvent event) {
+  String buildMessage(@NonNull PushEvent event, @NonNull Projection projection) {
+    // file lists are not retained within the event and have been counted while parsing instead
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.push",
         event.getRepository().getFullName(),
         event.getSender().getLogin(),
         event.getReference(),
         event.getCommits().size(),
-        event.getCommits().stream()
-            .mapToInt((c) -> c.getAddedFiles().size())
-            .sum(),
-        event.getCommits().stream()
-            .mapToInt((c) -> c.getModifiedFiles().size())
-            .sum(),
-        event.getCommits().stream()
-            .mapToInt((c) -> c.getRemovedFiles().size())
-            .sum(),
+        projection.getCount(Field.ADDED_FILES),
+        projection.getCount(Field.MODIFIED_FILES),
+        projection.getCount(Field.REMOVED_FILES),
         event.getCompareUrl().toExternalForm()
     ));
   }
 
+  @PayloadHandler(PayloadType.RELEASE)
   @NonNull
-  private String buildMessage(@NonNull ReleaseEvent event) {
+  String buildMessage(@NonNull ReleaseEvent event) {
     String title = event.getRelease().getName()
         .map((n) -> event.getRelease().getTagName() + " - " + n)
         .orElseGet(event.getRelease()::getTagName);
@@ -500,8 +841,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.REPOSITORY)
   @NonNull
-  private String buildMessage(@NonNull RepositoryEvent event) {
+  String buildMessage(@NonNull RepositoryEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.repository." + event.getAction().name().toLowerCase(),
         event.getRepository().getFullName(),
@@ -510,8 +852,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.TEAM)
   @NonNull
-  private String buildMessage(@NonNull TeamEvent event) {
+  String buildMessage(@NonNull TeamEvent event) {
     return event.getRepository()
         .filter((r) -> event.getAction() == TeamEvent.Action.ADDED_TO_REPOSITORY ||
             event.getAction() == TeamEvent.Action.REMOVED_FROM_REPOSITORY) // for debugging mostly
@@ -530,8 +873,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
         )));
   }
 
+  @PayloadHandler(PayloadType.TEAM_ADD)
   @NonNull
-  private String buildMessage(@NonNull TeamAddEvent event) {
+  String buildMessage(@NonNull TeamAddEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.team.added",
         event.getRepository().getFullName(),
@@ -540,8 +884,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
     ));
   }
 
+  @PayloadHandler(PayloadType.WATCH)
   @NonNull
-  private String buildMessage(@NonNull WatchEvent event) {
+  String buildMessage(@NonNull WatchEvent event) {
     return this.propertyResolver.resolvePlaceholders(this.messageSource.getMessage(
         "github.watch",
         event.getRepository().getFullName(),
@@ -553,32 +898,299 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
    * {@inheritDoc}
    */
   @Override
-  public void handlePayload(@NonNull Payload<?> payload) {
-    Function<Event, String> handler = this.handlerMap.get(payload.getType().getType());
+  public void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection) {
+    this.handlePayload(payload, projection, (t) -> true,
+        this.priorities.getPriority(payload.getType()));
+  }
 
-    if (handler == null) {
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void replayPayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> targets) {
+    this.handlePayload(payload, projection, targets, DeliveryPriority.LOW);
+  }
+
+  /**
+   * Renders a payload and queues it for delivery to all matching channels.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @param filter a filter which selects channels by their identifier (e.g. {@code
+   *     <host>:<port>/<channel>}).
+   * @param priority a delivery priority.
+   */
+  private void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> filter, @NonNull DeliveryPriority priority) {
+    if (!IrcCommunicationAdapterDispatcher.supports(payload.getType())) {
       return;
     }
 
-    String message = handler.apply(payload.getEvent());
+    List<ChannelTarget> targets = this.routingTable
+        .route(payload.getType(), payload.getEvent()).stream()
+        .filter((t) -> filter.test(getServerKey(t.instance.server) + "/" + t.channel))
+        .collect(Collectors.toList());
+
+    // messages are claimed by the output thread right before they are sent so that messages
+    // which are still queued when this instance fails may be delivered by its successor
+    UUID deliveryId = null;
+    if (this.cluster != null) {
+      targets = targets.stream()
+          .filter((t) -> this.cluster.isOwner(getShardKey(t.instance.server)))
+          .collect(Collectors.toList());
+      deliveryId = this.cluster.getCurrentDelivery();
+    }
 
-    this.botMap.forEach((i) -> {
-      i.server.getChannels().forEach((ch) -> {
-        if (!ch.isReceivingEvent(payload.getType())) {
-          return;
-        }
+    if (targets.isEmpty()) {
+      return;
+    }
 
-        i.bot.send().message(ch.getName(), message);
-      });
+    RenderEvent renderEvent = new RenderEvent();
+    renderEvent.begin();
+
+    long routedAt = System.nanoTime();
+    String message = IrcCommunicationAdapterDispatcher
+        .dispatch(this, payload.getType(), payload.getEvent(), projection);
+    long renderedAt = System.nanoTime();
+    this.renderTimers.get(payload.getType())
+        .record(renderedAt - routedAt, TimeUnit.NANOSECONDS);
+
+    renderEvent.end();
+    if (renderEvent.shouldCommit()) {
+      renderEvent.setAdapter("irc");
+      renderEvent.setPayloadType(payload.getType().name());
+      renderEvent.setRepository(projection.getRepository());
+      renderEvent.setChannelCount(targets.size());
+      renderEvent.commit();
+    }
+
+    DeliveryTrace trace = DeliveryTrace.current();
+    UUID delivery = deliveryId;
+    targets.forEach((t) -> {
+      int target = trace == null ? -1 : trace.addTarget("irc",
+          getServerKey(t.instance.server) + "/" + t.channel, routedAt, renderedAt);
+      this.deliver(t.instance, t.channel, message, delivery, trace, target, priority);
     });
   }
 
+  /**
+   * Renders the message for the specified payload.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @return a message or null if the payload type is not supported.
+   */
+  @Nullable
+  String render(@NonNull Payload<?> payload, @NonNull Projection projection) {
+    return IrcCommunicationAdapterDispatcher
+        .dispatch(this, payload.getType(), payload.getEvent(), projection);
+  }
+
+  /**
+   * <p>Queues a message for delivery to the specified channel.</p>
+   *
+   * <p>Messages are written by the output thread of their respective bot within the limits of
+   * its message delay while higher priorities are served first. When the queue is full, messages
+   * of lower priority are shed and passed to the dead letter queue.</p>
+   *
+   * @param instance a bot instance.
+   * @param channel a channel name.
+   * @param message a message.
+   * @param deliveryId the identifier of the delivery which is claimed before the message is sent
+   *     (or null if the message is not subject to claims).
+   * @param trace a delivery trace (if any).
+   * @param target a target index within the trace.
+   * @param priority a delivery priority.
+   */
+  private void deliver(@NonNull BotInstance instance, @NonNull String channel,
+      @NonNull String message, @Nullable UUID deliveryId, @Nullable DeliveryTrace trace,
+      int target, @NonNull DeliveryPriority priority) {
+    Outbound shed = instance.output.messages
+        .offer(new Outbound(instance, channel, message, deliveryId, trace, target), priority);
+
+    if (shed != null) {
+      this.record(shed, "shed", "queue full");
+    }
+  }
+
+  /**
+   * <p>Sends a message and records the outcome.</p>
+   *
+   * <p>As the server does not acknowledge messages, messages are considered undeliverable when
+   * the bot is disconnected or has not joined the channel (e.g. as a result of a netsplit or
+   * kick). Such messages (as well as messages to channels whose circuit is currently open) are
+   * passed to the dead letter queue.</p>
+   *
+   * <p>When clustering is enabled, messages are claimed before they are sent and skipped when
+   * another instance has already claimed them. Messages which are still queued when this instance
+   * is demoted are passed to the dead letter queue instead.</p>
+   *
+   * @param outbound a message.
+   */
+  private void send(@NonNull Outbound outbound) {
+    BotInstance instance = outbound.instance;
+    String channel = outbound.channel;
+    String message = outbound.message;
+
+    String channelName = getServerKey(instance.server) + "/" + channel;
+
+    if (this.cluster != null && !this.cluster
+        .claim(getShardKey(instance.server), channelName, outbound.deliveryId)) {
+      if (this.cluster.isHandedOff(getShardKey(instance.server))) {
+        this.record(outbound, "unavailable", "demoted");
+      } else {
+        this.record(outbound, "duplicate", null);
+      }
+      return;
+    }
+
+    CircuitBreaker breaker = this.breakers.get("irc", channelName);
+    String outcome = "success";
+    String reason = null;
+
+    if (!breaker.tryAcquire()) {
+      outcome = "rejected";
+      reason = "circuit open";
+    } else if (!instance.bot.isConnected()) {
+      outcome = "unavailable";
+      reason = "disconnected";
+    } else if (!instance.bot.getUserChannelDao().containsChannel(channel)) {
+      outcome = "unavailable";
+      reason = "not joined";
+    } else {
+      if (outbound.trace != null) {
+        outbound.trace.enqueued(outbound.target);
+      }
+
+      OutboundSendEvent sendEvent = new OutboundSendEvent();
+      sendEvent.begin();
+
+      try {
+        // IRC messages are terminated by a line feed and thus every line is sent individually
+        for (String line : message.split("\n")) {
+          if (!line.isEmpty()) {
+            instance.bot.send().message(channel, line);
+          }
+        }
+      } catch (RuntimeException ex) {
+        logger.warn("Failed to deliver message to %s on %s: %s", channel,
+            instance.server.getHostname(), ex.getMessage());
+        outcome = "failure";
+        reason = String.valueOf(ex.getMessage());
+      }
+
+      sendEvent.end();
+      if (sendEvent.shouldCommit()) {
+        sendEvent.setAdapter("irc");
+        sendEvent.setChannel(channelName);
+        sendEvent.setMessageSize(message.length());
+        sendEvent.setSuccess("success".equals(outcome));
+        sendEvent.commit();
+      }
+    }
+
+    if (reason == null) {
+      breaker.onSuccess();
+    } else if (!"rejected".equals(outcome)) {
+      // skipped deliveries do not count towards the breaker as it is already open
+      breaker.onFailure();
+    }
+
+    this.record(outbound, outcome, reason);
+  }
+
+  /**
+   * Records the outcome of a delivery and passes undelivered messages to the dead letter queue.
+   *
+   * @param outbound a message.
+   * @param outcome an outcome.
+   * @param reason a human readable failure reason (or null if the message has been delivered).
+   */
+  private void record(@NonNull Outbound outbound, @NonNull String outcome,
+      @Nullable String reason) {
+    String channelName = getServerKey(outbound.instance.server) + "/" + outbound.channel;
+
+    if (reason != null) {
+      this.deadLetters.add("irc", channelName, outbound.message, reason);
+    }
+
+    if (outbound.trace != null) {
+      outbound.trace.acknowledged(outbound.target, reason == null);
+    }
+
+    this.registry.counter("ejector.delivery",
+        "adapter", "irc",
+        "channel", channelName,
+        "outcome", outcome)
+        .increment();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getDeadLetterAdapter() {
+    return this.getName();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getName() {
+    return "irc";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean redeliver(@NonNull DeadLetter letter) {
+    int separator = letter.getTarget().indexOf('/');
+    if (separator == -1) {
+      return false;
+    }
+
+    BotInstance instance = this.botMap.get(letter.getTarget().substring(0, separator));
+    String channel = letter.getTarget().substring(separator + 1);
+
+    if (instance == null
+        || !getChannelNames(instance.server).contains(channel.toLowerCase())) {
+      return false;
+    }
+
+    // replays are queued behind live messages
+    this.deliver(instance, channel, letter.getContent(), null, null, -1,
+        DeliveryPriority.LOW);
+    return true;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public void sendMessage(@NonNull Message message) {
-    String msg = message.toString((m) -> {
+    String msg = format(message);
+
+    this.botMap.values().stream()
+        .filter((i) -> this.cluster == null || this.cluster.isOwner(getShardKey(i.server)))
+        .forEach((i) -> i.server.getChannels()
+            .forEach((ch) -> this.deliver(i, ch.getName(), msg, null, null, -1,
+                DeliveryPriority.NORMAL)));
+  }
+
+  /**
+   * Converts a message into its IRC representation.
+   *
+   * @param message a message.
+   * @return a formatted message.
+   */
+  @NonNull
+  static String format(@NonNull Message message) {
+    return message.toString((m) -> {
       StringBuilder builder = new StringBuilder();
       String prefix = "";
 
@@ -601,19 +1213,22 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
 
       return builder.toString();
     });
-
-    this.botMap.forEach(
-        (i) -> i.server.getChannels().forEach((ch) -> i.bot.send().message(ch.getName(), msg)));
   }
 
   /**
    * Converts an IRC server configuration into its respective PircBotX representation.
    *
    * @param server a server.
+   * @param nickname the nickname to connect with.
+   * @param reconciler a listener which reconciles the joined channels upon (re-)connect.
+   * @param reclaimer a listener which reclaims the nickname of the current role.
+   * @param commands a listener which executes the commands of channel members.
    * @return a configuration.
    */
   @NonNull
-  private static Configuration toConfiguration(@NonNull IrcServer server) {
+  private static Configuration toConfiguration(@NonNull IrcServer server,
+      @NonNull String nickname, @NonNull ChannelReconciler reconciler,
+      @NonNull NicknameReclaimer reclaimer, @NonNull CommandListener commands) {
     String version = detectVersion();
 
     return new Configuration.Builder()
@@ -635,7 +1250,7 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
         .setAutoReconnectAttempts(server.getMaximumReconnectAttempts())
         .setNickservNick(server.getNickServNick())
         .setNickservPassword(server.getNickServPassword().orElse(null))
-        .setName(server.getName())
+        .setName(nickname)
         .setAutoReconnectDelay(server.getReconnectDelay())
         .setRealName(String.format(server.getRealNameTemplate(), version, PROJECT_URL))
         .setSocketTimeout(server.getSocketTimeout())
@@ -643,6 +1258,9 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
         .setNickservDelayJoin(
             server.getNickServPassword().isPresent() && server.isAuthenticationDelayEnabled())
         .setAutoNickChange(server.isAutomaticNicknameChangeEnabled())
+        .addListener(reconciler)
+        .addListener(reclaimer)
+        .addListener(commands)
         .buildConfiguration();
   }
 
@@ -665,10 +1283,13 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
 
     private final PircBotX bot;
     private final IrcServer server;
+    private final OutputQueue output;
 
-    private BotInstance(@NonNull PircBotX bot, @NonNull IrcServer server) {
+    private BotInstance(@NonNull PircBotX bot, @NonNull IrcServer server,
+        @NonNull OutputQueue output) {
       this.bot = bot;
       this.server = server;
+      this.output = output;
     }
 
     @NonNull
@@ -689,5 +1310,346 @@ public class IrcCommunicationAdapter implements CommunicationAdapter, Initializi
             .getMessage(), ex);
       }
     }
+
+    public void stop() {
+      this.bot.stopBotReconnect();
+
+      if (this.bot.isConnected()) {
+        this.bot.sendIRC().quitServer();
+      }
+
+      this.output.stop();
+    }
+  }
+
+  /**
+   * Represents a single channel on a given server to which events may be routed.
+   */
+  private static final class ChannelTarget {
+
+    private final BotInstance instance;
+    private final String channel;
+
+    private ChannelTarget(@NonNull BotInstance instance, @NonNull String channel) {
+      this.instance = instance;
+      this.channel = channel;
+    }
+  }
+
+  /**
+   * Represents a message which is awaiting delivery.
+   */
+  private static final class Outbound {
+
+    private final BotInstance instance;
+    private final String channel;
+    private final String message;
+    private final UUID deliveryId;
+    private final DeliveryTrace trace;
+    private final int target;
+
+    private Outbound(@NonNull BotInstance instance, @NonNull String channel,
+        @NonNull String message, @Nullable UUID deliveryId, @Nullable DeliveryTrace trace,
+        int target) {
+      this.instance = instance;
+      this.channel = channel;
+      this.message = message;
+      this.deliveryId = deliveryId;
+      this.trace = trace;
+      this.target = target;
+    }
+  }
+
+  /**
+   * <p>Writes the messages of a single bot.</p>
+   *
+   * <p>PircBotX delays its messages in order to comply with the flood limits of the server and
+   * thus messages are queued and written by a dedicated platform thread per server. In addition,
+   * PircBotX writes to its socket while holding a monitor which would otherwise pin the carrier of
+   * virtual threads for the duration of the write.</p>
+   */
+  private final class OutputQueue implements Runnable {
+
+    private final WeightedFairQueue<Outbound> messages =
+        IrcCommunicationAdapter.this.priorities.newQueue();
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    private OutputQueue(@NonNull String key) {
+      this.thread = new Thread(this);
+      this.thread.setName("irc-output-" + key);
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+      while (!this.stopped) {
+        Outbound outbound;
+
+        try {
+          outbound = this.messages.take();
+        } catch (InterruptedException ex) {
+          break;
+        }
+
+        try {
+          IrcCommunicationAdapter.this.send(outbound);
+        } catch (RuntimeException ex) {
+          logger.error("Failed to deliver message: " + ex.getMessage(), ex);
+        }
+      }
+    }
+
+    /**
+     * Stops the output thread and passes all remaining messages to the dead letter queue.
+     */
+    void stop() {
+      this.stopped = true;
+      this.thread.interrupt();
+
+      this.messages.clear().forEach(
+          (o) -> IrcCommunicationAdapter.this.record(o, "unavailable", "disconnected"));
+    }
+  }
+
+  /**
+   * <p>Reconciles the channels a bot has joined with its current configuration.</p>
+   *
+   * <p>PircBotX will automatically re-join the channels of its initial configuration when it
+   * reconnects. As a result, this listener is responsible for joining all channels which have
+   * been added and parting all channels which have been removed since.</p>
+   */
+  private final class ChannelReconciler extends ListenerAdapter {
+
+    private final String key;
+
+    private ChannelReconciler(@NonNull String key) {
+      this.key = key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onConnect(@NonNull ConnectEvent event) {
+      BotInstance instance = IrcCommunicationAdapter.this.botMap.get(this.key);
+
+      if (instance == null) {
+        return;
+      }
+
+      Set<String> autoJoin = new HashSet<>();
+      instance.bot.getConfiguration().getAutoJoinChannels().keySet()
+          .forEach((n) -> autoJoin.add(n.toLowerCase()));
+
+      getChannelNames(instance.server).stream()
+          .filter((n) -> !autoJoin.contains(n))
+          .forEach((n) -> instance.bot.sendIRC().joinChannel(n));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onJoin(@NonNull JoinEvent event) {
+      BotInstance instance = IrcCommunicationAdapter.this.botMap.get(this.key);
+
+      if (instance == null || event.getUser() == null || !instance.bot.getNick()
+          .equals(event.getUser().getNick())) {
+        return;
+      }
+
+      if (!getChannelNames(instance.server).contains(event.getChannel().getName().toLowerCase())) {
+        event.getChannel().send().part();
+      }
+    }
+  }
+
+  /**
+   * <p>Reclaims the nickname of the current role when it becomes available.</p>
+   *
+   * <p>When a standby instance takes over, the connection of the failed primary may linger until
+   * the server notices its timeout. As a result, the nickname is ghosted through NickServ (if a
+   * password has been configured) and reclaimed as soon as its previous holder quits or changes
+   * its nickname.</p>
+   */
+  private final class NicknameReclaimer extends ListenerAdapter {
+
+    private final String key;
+
+    private NicknameReclaimer(@NonNull String key) {
+      this.key = key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onConnect(@NonNull ConnectEvent event) {
+      // the role may have changed while the bot was disconnected
+      BotInstance instance = IrcCommunicationAdapter.this.botMap.get(this.key);
+
+      if (instance != null) {
+        IrcCommunicationAdapter.this.reclaimNickname(instance);
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNickAlreadyInUse(@NonNull NickAlreadyInUseEvent event) {
+      BotInstance instance = IrcCommunicationAdapter.this.botMap.get(this.key);
+
+      if (instance == null || !event.getUsedNick()
+          .equalsIgnoreCase(IrcCommunicationAdapter.this.getNickname(instance.server))) {
+        return;
+      }
+
+      instance.server.getNickServPassword().ifPresent((p) -> {
+        logger.info("Ghosting %s on %s", event.getUsedNick(), instance.server.getHostname());
+        instance.bot.sendIRC().message(instance.server.getNickServNick(),
+            "GHOST " + event.getUsedNick() + " " + p);
+      });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onNickChange(@NonNull NickChangeEvent event) {
+      this.reclaim(event.getOldNick());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onQuit(@NonNull QuitEvent event) {
+      this.reclaim(event.getUserHostmask().getNick());
+    }
+
+    /**
+     * Reclaims the nickname of the current role if it has been released.
+     *
+     * @param nickname a released nickname.
+     */
+    private void reclaim(@NonNull String nickname) {
+      BotInstance instance = IrcCommunicationAdapter.this.botMap.get(this.key);
+
+      if (instance != null && nickname
+          .equalsIgnoreCase(IrcCommunicationAdapter.this.getNickname(instance.server))) {
+        IrcCommunicationAdapter.this.reclaimNickname(instance);
+      }
+    }
+  }
+
+  /**
+   * <p>Executes the commands which are sent to the channels of a bot.</p>
+   *
+   * <p>When clustering is enabled, commands are only executed by the instance which owns the
+   * server. Commands which are still running when the bot loses its connection are cancelled.</p>
+   */
+  private final class CommandListener extends ListenerAdapter {
+
+    private final String key;
+    private volatile CompletableFuture<Void> disconnection = new CompletableFuture<>();
+
+    private CommandListener(@NonNull String key) {
+      this.key = key;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessage(@NonNull MessageEvent event) {
+      CommandDispatcher commands = IrcCommunicationAdapter.this.commands;
+      BotInstance instance = IrcCommunicationAdapter.this.botMap.get(this.key);
+      PircBotX bot = event.getBot();
+
+      // the key may refer to a replacement bot when the server has been reconfigured
+      if (commands == null || instance == null || instance.bot != bot
+          || event.getUser() == null) {
+        return;
+      }
+
+      ClusterCoordinator cluster = IrcCommunicationAdapter.this.cluster;
+      if (cluster != null && !cluster.isOwner(getShardKey(instance.server))) {
+        return;
+      }
+
+      commands.dispatchMessage(new CommandContext(instance, event.getChannel().getName(),
+          event.getUser().getNick(), this.disconnection), event.getMessage());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDisconnect(@NonNull DisconnectEvent event) {
+      CompletableFuture<Void> disconnection = this.disconnection;
+      this.disconnection = new CompletableFuture<>();
+      disconnection.complete(null);
+    }
+  }
+
+  /**
+   * Represents the channel member who has invoked a command.
+   */
+  private final class CommandContext implements Command.Context {
+
+    private final BotInstance instance;
+    private final String channel;
+    private final String nickname;
+    private final CompletionStage<Void> disconnection;
+
+    private CommandContext(@NonNull BotInstance instance, @NonNull String channel,
+        @NonNull String nickname, @NonNull CompletionStage<Void> disconnection) {
+      this.instance = instance;
+      this.channel = channel;
+      this.nickname = nickname;
+      this.disconnection = disconnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public String getUserName() {
+      return this.nickname;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public String getUserReference() {
+      return this.nickname + ":";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public CompletionStage<Void> getDisconnection() {
+      return this.disconnection;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void sendMessage(@NonNull Message message) {
+      IrcCommunicationAdapter.this.deliver(this.instance, this.channel, format(message), null,
+          null, -1, DeliveryPriority.HIGH);
+    }
   }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.routing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.basinmc.ejector.utility.Events;
+import org.basinmc.stormdrain.event.Event;
+
+/**
+ * Provides lazily extracted attributes of a single event for the purposes of condition
+ * evaluation.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class EventAttributes {
+
+  private final Event event;
+
+  private boolean repositoryResolved;
+  private String repository;
+  private boolean referenceResolved;
+  private String reference;
+  private boolean actionResolved;
+  private String action;
+  private boolean senderResolved;
+  private String sender;
+
+  EventAttributes(@NonNull Event event) {
+    this.event = event;
+  }
+
+  @Nullable
+  String getRepository() {
+    if (!this.repositoryResolved) {
+      this.repository = Events.getRepositoryName(this.event);
+      this.repositoryResolved = true;
+    }
+
+    return this.repository;
+  }
+
+  @Nullable
+  String getReference() {
+    if (!this.referenceResolved) {
+      this.reference = Events.getReference(this.event);
+      this.referenceResolved = true;
+    }
+
+    return this.reference;
+  }
+
+  @Nullable
+  String getAction() {
+    if (!this.actionResolved) {
+      this.action = Events.getAction(this.event);
+      this.actionResolved = true;
+    }
+
+    return this.action;
+  }
+
+  @Nullable
+  String getSender() {
+    if (!this.senderResolved) {
+      this.sender = Events.getSenderLogin(this.event);
+      this.senderResolved = true;
+    }
+
+    return this.sender;
+  }
+}
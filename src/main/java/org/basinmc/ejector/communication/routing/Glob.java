@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.routing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Represents a compiled glob pattern.</p>
+ *
+ * <p>Within patterns, {@code *} matches any sequence of characters except for {@code /}, {@code
+ * **} matches any sequence of characters and {@code ?} matches any single character except for
+ * {@code /}. Patterns which do not contain any wildcards are compared directly.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class Glob {
+
+  private final String literal;
+  private final Pattern pattern;
+  private final boolean caseSensitive;
+
+  private Glob(@Nullable String literal, @Nullable Pattern pattern, boolean caseSensitive) {
+    this.literal = literal;
+    this.pattern = pattern;
+    this.caseSensitive = caseSensitive;
+  }
+
+  /**
+   * Compiles the specified glob pattern.
+   *
+   * @param glob a glob pattern.
+   * @param caseSensitive true if matching shall be case sensitive.
+   * @return a compiled pattern.
+   */
+  @NonNull
+  static Glob compile(@NonNull String glob, boolean caseSensitive) {
+    if (glob.indexOf('*') == -1 && glob.indexOf('?') == -1) {
+      return new Glob(glob, null, caseSensitive);
+    }
+
+    StringBuilder expression = new StringBuilder();
+    int literalStart = 0;
+
+    for (int i = 0; i < glob.length(); ++i) {
+      char c = glob.charAt(i);
+
+      if (c != '*' && c != '?') {
+        continue;
+      }
+
+      if (literalStart != i) {
+        expression.append(Pattern.quote(glob.substring(literalStart, i)));
+      }
+
+      if (c == '?') {
+        expression.append("[^/]");
+      } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+        expression.append(".*");
+        ++i;
+      } else {
+        expression.append("[^/]*");
+      }
+
+      literalStart = i + 1;
+    }
+
+    if (literalStart != glob.length()) {
+      expression.append(Pattern.quote(glob.substring(literalStart)));
+    }
+
+    int flags = caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+    return new Glob(null, Pattern.compile(expression.toString(), flags), caseSensitive);
+  }
+
+  /**
+   * Evaluates whether the specified input matches this pattern.
+   *
+   * @param input an arbitrary input.
+   * @return true if matching, false otherwise.
+   */
+  boolean matches(@NonNull String input) {
+    if (this.literal != null) {
+      return this.caseSensitive ? this.literal.equals(input)
+          : this.literal.equalsIgnoreCase(input);
+    }
+
+    return this.pattern.matcher(input).matches();
+  }
+}
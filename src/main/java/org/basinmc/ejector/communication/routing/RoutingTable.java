@@ -0,0 +1,332 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.routing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.basinmc.ejector.configuration.AbstractChannelEntry;
+import org.basinmc.ejector.configuration.ChannelFilter;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+
+/**
+ * <p>Provides a compiled representation of the event routing of an arbitrary set of channels.</p>
+ *
+ * <p>Channels are first grouped by the payload types they receive. The filter conditions of all
+ * channels are then deduplicated into a shared set of conditions which is evaluated lazily and at
+ * most once per event (e.g. a repository pattern which is referenced by multiple channels will
+ * only be matched once regardless of the amount of channels which reference it).</p>
+ *
+ * <p>Routing tables are immutable and may thus be shared between threads and swapped atomically
+ * when the configuration changes.</p>
+ *
+ * @param <T> a target type.
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class RoutingTable<T> {
+
+  private static final byte UNKNOWN = 0;
+  private static final byte SATISFIED = 1;
+  private static final byte UNSATISFIED = 2;
+
+  private final List<T> targets;
+  private final List<Predicate<EventAttributes>> conditions;
+  private final Route<T>[][] routes;
+
+  private RoutingTable(@NonNull List<T> targets,
+      @NonNull List<Predicate<EventAttributes>> conditions, @NonNull Route<T>[][] routes) {
+    this.targets = targets;
+    this.conditions = conditions;
+    this.routes = routes;
+  }
+
+  /**
+   * Creates a new empty routing table builder.
+   *
+   * @param <T> a target type.
+   * @return a builder.
+   */
+  @NonNull
+  public static <T> Builder<T> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Compiles a routing table which directly targets the specified channels.
+   *
+   * @param channels a collection of channels.
+   * @param <C> a channel type.
+   * @return a routing table.
+   */
+  @NonNull
+  public static <C extends AbstractChannelEntry> RoutingTable<C> of(
+      @NonNull Collection<? extends C> channels) {
+    Builder<C> builder = builder();
+    channels.forEach((c) -> builder.withRoute(c, c));
+    return builder.build();
+  }
+
+  /**
+   * Retrieves all targets within this table (regardless of the events they receive).
+   *
+   * @return a list of targets.
+   */
+  @NonNull
+  public List<T> getTargets() {
+    return this.targets;
+  }
+
+  /**
+   * Resolves the targets which shall receive the specified event.
+   *
+   * @param type a payload type.
+   * @param event an event.
+   * @return a list of targets.
+   */
+  @NonNull
+  public List<T> route(@NonNull PayloadType type, @NonNull Event event) {
+    Route<T>[] candidates = this.routes[type.ordinal()];
+
+    if (candidates.length == 0) {
+      return Collections.emptyList();
+    }
+
+    EventAttributes attributes = new EventAttributes(event);
+    byte[] results = new byte[this.conditions.size()];
+    List<T> targets = new ArrayList<>(candidates.length);
+
+    for (Route<T> route : candidates) {
+      if (this.evaluate(route, attributes, results)) {
+        targets.add(route.target);
+      }
+    }
+
+    return targets;
+  }
+
+  /**
+   * Evaluates whether all clauses of a route are satisfied.
+   *
+   * @param route a route.
+   * @param attributes the attributes of the current event.
+   * @param results the results of all conditions which have been evaluated for this event.
+   * @return true if satisfied, false otherwise.
+   */
+  private boolean evaluate(@NonNull Route<T> route, @NonNull EventAttributes attributes,
+      @NonNull byte[] results) {
+    for (int[] clause : route.clauses) {
+      boolean satisfied = false;
+
+      for (int reference : clause) {
+        boolean negated = reference < 0;
+        int index = negated ? ~reference : reference;
+
+        if (results[index] == UNKNOWN) {
+          results[index] =
+              this.conditions.get(index).test(attributes) ? SATISFIED : UNSATISFIED;
+        }
+
+        if ((results[index] == SATISFIED) != negated) {
+          satisfied = true;
+          break;
+        }
+      }
+
+      if (!satisfied) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Represents a single compiled route.
+   *
+   * @param <T> a target type.
+   */
+  private static final class Route<T> {
+
+    private final T target;
+
+    /**
+     * Stores a conjunction of clauses where each clause is a disjunction of condition indices
+     * (negated conditions are stored as their bitwise complement).
+     */
+    private final int[][] clauses;
+
+    private Route(@NonNull T target, @NonNull int[][] clauses) {
+      this.target = target;
+      this.clauses = clauses;
+    }
+  }
+
+  /**
+   * Provides a factory for routing table instances.
+   *
+   * @param <T> a target type.
+   */
+  public static final class Builder<T> {
+
+    private final List<T> targets = new ArrayList<>();
+    private final List<AbstractChannelEntry> entries = new ArrayList<>();
+
+    private Builder() {
+    }
+
+    /**
+     * Appends a route to the specified target which is subject to the event subscriptions and
+     * filters of the specified channel entry.
+     *
+     * @param entry a channel entry.
+     * @param target an arbitrary target.
+     * @return a reference to this builder.
+     */
+    @NonNull
+    public Builder<T> withRoute(@NonNull AbstractChannelEntry entry, @NonNull T target) {
+      this.entries.add(entry);
+      this.targets.add(target);
+      return this;
+    }
+
+    /**
+     * Compiles a routing table based on the current builder configuration.
+     *
+     * @return a routing table.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public RoutingTable<T> build() {
+      Map<String, Integer> conditionIndices = new HashMap<>();
+      List<Predicate<EventAttributes>> conditions = new ArrayList<>();
+      List<Route<T>> compiled = new ArrayList<>();
+
+      for (int i = 0; i < this.entries.size(); ++i) {
+        ChannelFilter filter = this.entries.get(i).getFilter();
+        List<int[]> clauses = new ArrayList<>();
+
+        addClause(clauses, filter.getRepositories(), "repository:", false, (p) -> {
+          Glob glob = Glob.compile(p, false);
+          return (a) -> a.getRepository() != null && glob.matches(a.getRepository());
+        }, conditionIndices, conditions);
+        addClause(clauses, filter.getReferences(), "reference:", true, (p) -> {
+          Glob glob = Glob.compile(p, true);
+          return (a) -> a.getReference() != null && glob.matches(a.getReference());
+        }, conditionIndices, conditions);
+        addClause(clauses, filter.getActions(), "action:", false,
+            (p) -> (a) -> p.equalsIgnoreCase(a.getAction()), conditionIndices, conditions);
+        addClause(clauses, filter.getSenders(), "sender:", false,
+            (p) -> (a) -> p.equalsIgnoreCase(a.getSender()), conditionIndices, conditions);
+
+        // excluded senders are expressed as a separate negated clause each as none of them may
+        // match for the route to be satisfied
+        for (String sender : filter.getExcludedSenders()) {
+          int index = resolveCondition("sender:" + sender.toLowerCase(Locale.ROOT),
+              () -> (a) -> sender.equalsIgnoreCase(a.getSender()), conditionIndices, conditions);
+          clauses.add(new int[]{~index});
+        }
+
+        compiled.add(new Route<>(this.targets.get(i), clauses.toArray(new int[0][])));
+      }
+
+      PayloadType[] types = PayloadType.values();
+      Route<T>[][] routes = new Route[types.length][];
+
+      for (PayloadType type : types) {
+        List<Route<T>> candidates = new ArrayList<>();
+
+        for (int i = 0; i < this.entries.size(); ++i) {
+          if (this.entries.get(i).isReceivingEvent(type)) {
+            candidates.add(compiled.get(i));
+          }
+        }
+
+        routes[type.ordinal()] = candidates.toArray(new Route[0]);
+      }
+
+      return new RoutingTable<>(Collections.unmodifiableList(new ArrayList<>(this.targets)),
+          Collections.unmodifiableList(conditions), routes);
+    }
+
+    /**
+     * Appends a disjunctive clause for the specified set of values (if any).
+     *
+     * @param clauses a list of clauses.
+     * @param values a collection of configured values.
+     * @param prefix a prefix which identifies the condition kind.
+     * @param caseSensitive true if values are compared case-sensitively (in which case values
+     *     which differ in case only are compiled into separate conditions).
+     * @param factory a factory which compiles a condition for a given value.
+     * @param conditionIndices a map of known condition keys and their respective indices.
+     * @param conditions a list of known conditions.
+     */
+    private static void addClause(@NonNull List<int[]> clauses,
+        @NonNull Collection<String> values, @NonNull String prefix, boolean caseSensitive,
+        @NonNull ConditionFactory factory, @NonNull Map<String, Integer> conditionIndices,
+        @NonNull List<Predicate<EventAttributes>> conditions) {
+      if (values.isEmpty()) {
+        return;
+      }
+
+      int[] clause = values.stream()
+          .mapToInt((v) -> resolveCondition(
+              prefix + (caseSensitive ? v : v.toLowerCase(Locale.ROOT)),
+              () -> factory.create(v), conditionIndices, conditions))
+          .distinct()
+          .toArray();
+      clauses.add(clause);
+    }
+
+    /**
+     * Resolves the index of a condition or registers it when no equivalent condition is known
+     * yet.
+     *
+     * @param key a key which uniquely identifies the condition.
+     * @param factory a factory which compiles the condition when it is not known yet.
+     * @param conditionIndices a map of known condition keys and their respective indices.
+     * @param conditions a list of known conditions.
+     * @return a condition index.
+     */
+    private static int resolveCondition(@NonNull String key,
+        @NonNull Supplier<Predicate<EventAttributes>> factory,
+        @NonNull Map<String, Integer> conditionIndices,
+        @NonNull List<Predicate<EventAttributes>> conditions) {
+      return conditionIndices.computeIfAbsent(key, (k) -> {
+        conditions.add(factory.get());
+        return conditions.size() - 1;
+      });
+    }
+  }
+
+  /**
+   * Compiles a condition for a given configuration value.
+   */
+  @FunctionalInterface
+  private interface ConditionFactory {
+
+    @NonNull
+    Predicate<EventAttributes> create(@NonNull String value);
+  }
+}
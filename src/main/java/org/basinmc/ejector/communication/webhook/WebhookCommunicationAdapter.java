@@ -0,0 +1,691 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.webhook;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterCoordinator;
+import org.basinmc.ejector.communication.CommunicationAdapter;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.communication.routing.RoutingTable;
+import org.basinmc.ejector.configuration.ConfigurationReloadEvent;
+import org.basinmc.ejector.configuration.WebhookConfiguration;
+import org.basinmc.ejector.configuration.WebhookConfiguration.Endpoint;
+import org.basinmc.ejector.execution.VirtualThreads;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.ejector.tracing.DeliveryTrace;
+import org.basinmc.ejector.tracing.jfr.OutboundSendEvent;
+import org.basinmc.ejector.tracing.jfr.RenderEvent;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides a communication adapter which forwards events to arbitrary HTTP endpoints (such as
+ * internal services) as JSON documents.</p>
+ *
+ * <p>Events are rendered from their projection and queued per endpoint. Queued events are
+ * combined into batches of up to the configured size which are posted through a shared
+ * non-blocking client. The client negotiates HTTP/2 (and thus multiplexes all requests to an
+ * endpoint over a single connection) where supported and falls back to pooled HTTP/1.1
+ * connections otherwise.</p>
+ *
+ * <p>The amount of concurrent requests is limited per endpoint while failed requests are retried
+ * with exponential backoff. Events which exceed the capacity of an endpoint's queue are
+ * dropped.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@EnableConfigurationProperties(WebhookConfiguration.class)
+@ConditionalOnProperty(prefix = "ejector.webhook", name = "enabled")
+public class WebhookCommunicationAdapter implements CommunicationAdapter, DisposableBean {
+
+  private static final Logger logger = LogManager
+      .getFormatterLogger(WebhookCommunicationAdapter.class);
+
+  /**
+   * Defines the amount of time (in milliseconds) after which connection attempts are aborted.
+   */
+  private static final long CONNECT_TIMEOUT = 10000;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final MeterRegistry registry;
+  private final ClusterCoordinator cluster;
+  private final Map<PayloadType, Timer> renderTimers = new EnumMap<>(PayloadType.class);
+
+  private final HttpClient client;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService scheduler;
+
+  private volatile Map<String, EndpointQueue> queues = Collections.emptyMap();
+  private volatile RoutingTable<EndpointQueue> routingTable;
+
+  @Autowired
+  public WebhookCommunicationAdapter(@NonNull WebhookConfiguration configuration,
+      @NonNull MeterRegistry registry, @NonNull VirtualThreads virtualThreads,
+      @Nullable @Autowired(required = false) ClusterCoordinator cluster) {
+    this.registry = registry;
+    this.cluster = cluster;
+
+    for (PayloadType type : PayloadType.values()) {
+      this.renderTimers.put(type, Timer.builder("ejector.render")
+          .description("Time spent rendering event messages")
+          .tag("adapter", "webhook")
+          .tag("type", type.name().toLowerCase())
+          .register(registry));
+    }
+
+    HttpClient.Builder builder = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT));
+
+    // responses are merely inspected for their status and thus their handling never blocks for a
+    // notable amount of time but may still be moved to virtual threads if desired
+    this.executor = virtualThreads.isEnabled() ? virtualThreads.newExecutor("webhook-") : null;
+    if (this.executor != null) {
+      builder.executor(this.executor);
+    }
+
+    this.client = builder.build();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor((r) -> {
+      Thread thread = new Thread(r);
+      thread.setName("webhook-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    this.reconfigure(configuration);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.scheduler.shutdownNow();
+
+    if (this.executor != null) {
+      this.executor.shutdown();
+    }
+  }
+
+  /**
+   * Applies an updated endpoint configuration.
+   *
+   * @param event a reload event.
+   */
+  @EventListener
+  public void onConfigurationReload(@NonNull ConfigurationReloadEvent event) {
+    this.reconfigure(event.getWebhookConfiguration());
+  }
+
+  /**
+   * <p>Applies an updated endpoint configuration.</p>
+   *
+   * <p>Queues of endpoints whose delivery parameters remain unchanged are retained. All other
+   * queues are replaced while the events which have already been queued for them are still
+   * delivered using their previous parameters.</p>
+   *
+   * @param configuration an updated configuration.
+   */
+  public synchronized void reconfigure(@NonNull WebhookConfiguration configuration) {
+    Map<String, EndpointQueue> previous = this.queues;
+    Map<String, EndpointQueue> updated = new HashMap<>();
+    RoutingTable.Builder<EndpointQueue> builder = RoutingTable.builder();
+
+    for (Endpoint endpoint : configuration.getEndpoints()) {
+      if (endpoint.getUrl() == null) {
+        logger.warn("Ignoring webhook endpoint without URL");
+        continue;
+      }
+
+      String key = endpoint.getUrl().toString();
+      EndpointQueue queue = updated.get(key);
+
+      if (queue == null) {
+        queue = previous.get(key);
+
+        if (queue == null || !isEquivalent(queue.endpoint, endpoint)) {
+          queue = new EndpointQueue(key, endpoint);
+
+          // gauges are only registered once per key and thus keep reporting the state of
+          // whichever queue is currently responsible for the endpoint
+          Gauge.builder("ejector.webhook.queue", this, (a) -> a.getQueueDepth(key))
+              .description("Amount of events which are waiting to be posted")
+              .tag("endpoint", key)
+              .register(this.registry);
+        }
+
+        updated.put(key, queue);
+      }
+
+      builder.withRoute(endpoint, queue);
+    }
+
+    this.queues = Collections.unmodifiableMap(updated);
+    this.routingTable = builder.build();
+  }
+
+  /**
+   * Retrieves the amount of events which are waiting to be posted to the specified endpoint.
+   *
+   * @param key an endpoint key.
+   * @return an amount of events.
+   */
+  private int getQueueDepth(@NonNull String key) {
+    EndpointQueue queue = this.queues.get(key);
+    return queue == null ? 0 : queue.queue.size();
+  }
+
+  /**
+   * Evaluates whether two endpoint configurations result in identical deliveries (e.g. whether
+   * they differ in their event subscriptions at most).
+   *
+   * @param a an endpoint configuration.
+   * @param b another endpoint configuration.
+   * @return true if equivalent, false otherwise.
+   */
+  private static boolean isEquivalent(@NonNull Endpoint a, @NonNull Endpoint b) {
+    return Objects.equals(a.getUrl(), b.getUrl())
+        && Objects.equals(a.getHeaders(), b.getHeaders())
+        && a.getBatchSize() == b.getBatchSize()
+        && a.getBatchDelay() == b.getBatchDelay()
+        && a.isCompressed() == b.isCompressed()
+        && a.getConcurrency() == b.getConcurrency()
+        && a.getQueueCapacity() == b.getQueueCapacity()
+        && a.getTimeout() == b.getTimeout()
+        && a.getMaximumAttempts() == b.getMaximumAttempts()
+        && a.getRetryDelay() == b.getRetryDelay()
+        && a.getMaximumRetryDelay() == b.getMaximumRetryDelay();
+  }
+
+  /**
+   * Generates the key of the cluster shard which an endpoint belongs to.
+   *
+   * @param queue an endpoint queue.
+   * @return a shard key.
+   */
+  @NonNull
+  private static String getShardKey(@NonNull EndpointQueue queue) {
+    return "webhook/" + queue.key;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getName() {
+    return "webhook";
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection) {
+    this.handlePayload(payload, projection, (t) -> true);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void replayPayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> targets) {
+    this.handlePayload(payload, projection, targets);
+  }
+
+  /**
+   * Renders a payload and queues it for delivery to all matching endpoints.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @param targets a filter which selects endpoints by their key.
+   */
+  private void handlePayload(@NonNull Payload<?> payload, @NonNull Projection projection,
+      @NonNull Predicate<String> targets) {
+    // endpoints which have been configured multiple times (with differing filters) share their
+    // queue and thus receive every event once
+    List<EndpointQueue> queues = this.routingTable.route(payload.getType(), payload.getEvent())
+        .stream()
+        .distinct()
+        .filter((q) -> targets.test(q.key))
+        .filter((q) -> this.cluster == null
+            || this.cluster.claim(getShardKey(q), getShardKey(q)))
+        .collect(Collectors.toList());
+
+    if (queues.isEmpty()) {
+      return;
+    }
+
+    RenderEvent renderEvent = new RenderEvent();
+    renderEvent.begin();
+
+    long routedAt = System.nanoTime();
+    JsonNode event = this.render(payload, projection);
+    long renderedAt = System.nanoTime();
+    this.renderTimers.get(payload.getType())
+        .record(renderedAt - routedAt, TimeUnit.NANOSECONDS);
+
+    renderEvent.end();
+    if (renderEvent.shouldCommit()) {
+      renderEvent.setAdapter("webhook");
+      renderEvent.setPayloadType(payload.getType().name());
+      renderEvent.setRepository(projection.getRepository());
+      renderEvent.setChannelCount(queues.size());
+      renderEvent.commit();
+    }
+
+    DeliveryTrace trace = DeliveryTrace.current();
+    queues.forEach((q) -> {
+      int target = trace == null ? -1 : trace.addTarget("webhook", q.key, routedAt, renderedAt);
+      q.offer(new Entry(event, trace, target));
+    });
+  }
+
+  /**
+   * Renders the document which represents the specified payload.
+   *
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @return a document.
+   */
+  @NonNull
+  JsonNode render(@NonNull Payload<?> payload, @NonNull Projection projection) {
+    ObjectNode node = this.mapper.createObjectNode()
+        .put("type", payload.getType().name().toLowerCase())
+        .put("timestamp", System.currentTimeMillis());
+
+    for (Field field : Field.values()) {
+      String value = projection.get(field);
+      if (value != null) {
+        node.put(field.name().toLowerCase(), value);
+      }
+
+      int count = projection.getCount(field);
+      if (count != 0) {
+        node.put(field.name().toLowerCase(), count);
+      }
+    }
+
+    return node;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void sendMessage(@NonNull Message message) {
+    JsonNode event = this.mapper.createObjectNode()
+        .put("type", "message")
+        .put("timestamp", System.currentTimeMillis())
+        .put("text", message.toString(Message::getText));
+
+    this.queues.values().stream()
+        .filter((q) -> this.cluster == null || this.cluster.isOwner(getShardKey(q)))
+        .forEach((q) -> q.offer(new Entry(event, null, -1)));
+  }
+
+  /**
+   * Records the outcome of a single event delivery.
+   *
+   * @param entry an event.
+   * @param endpoint an endpoint key.
+   * @param outcome an outcome.
+   */
+  private void recordDelivery(@NonNull Entry entry, @NonNull String endpoint,
+      @NonNull String outcome) {
+    if (entry.trace != null) {
+      entry.trace.acknowledged(entry.target, "success".equals(outcome));
+    }
+
+    this.registry.counter("ejector.delivery",
+        "adapter", "webhook",
+        "channel", endpoint,
+        "outcome", outcome)
+        .increment();
+  }
+
+  /**
+   * Represents a single queued event.
+   */
+  private static final class Entry {
+
+    private final JsonNode event;
+    private final DeliveryTrace trace;
+    private final int target;
+
+    private Entry(@NonNull JsonNode event, @Nullable DeliveryTrace trace, int target) {
+      this.event = event;
+      this.trace = trace;
+      this.target = target;
+    }
+  }
+
+  /**
+   * Batches the events for a single endpoint and posts them within the configured limits.
+   */
+  private final class EndpointQueue {
+
+    private final String key;
+    private final URI uri;
+    private final Endpoint endpoint;
+    private final BlockingQueue<Entry> queue;
+    private final Semaphore permits;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private EndpointQueue(@NonNull String key, @NonNull Endpoint endpoint) {
+      this.key = key;
+      this.uri = endpoint.getUrl();
+      this.endpoint = endpoint;
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, endpoint.getQueueCapacity()));
+      this.permits = new Semaphore(Math.max(1, endpoint.getConcurrency()));
+    }
+
+    private int getBatchSize() {
+      return Math.max(1, this.endpoint.getBatchSize());
+    }
+
+    /**
+     * Queues an event for delivery.
+     *
+     * @param entry an event.
+     */
+    void offer(@NonNull Entry entry) {
+      if (!this.queue.offer(entry)) {
+        logger.warn("Dropping event for %s as its queue is full", this.key);
+        WebhookCommunicationAdapter.this.recordDelivery(entry, this.key, "dropped");
+        return;
+      }
+
+      if (this.queue.size() >= this.getBatchSize()) {
+        this.drain(false);
+      } else {
+        this.scheduleFlush();
+      }
+    }
+
+    /**
+     * Posts queued events while requests are available.
+     *
+     * @param partial true if incomplete batches shall be posted as well.
+     */
+    private void drain(boolean partial) {
+      int batchSize = this.getBatchSize();
+
+      while (this.queue.size() >= (partial ? 1 : batchSize) && this.permits.tryAcquire()) {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        this.queue.drainTo(batch, batchSize);
+
+        if (batch.isEmpty()) {
+          this.permits.release();
+          break;
+        }
+
+        byte[] body;
+        try {
+          body = this.encode(batch);
+        } catch (IOException | RuntimeException ex) {
+          logger.error("Failed to encode events for " + this.key + ": " + ex.getMessage(), ex);
+          this.fail(batch);
+          continue;
+        }
+
+        batch.forEach((e) -> {
+          if (e.trace != null) {
+            e.trace.enqueued(e.target);
+          }
+        });
+        this.send(batch, body, 1);
+      }
+
+      // incomplete batches (or batches which could not be sent as all requests are in flight)
+      // are sent once the batch delay elapses
+      if (!this.queue.isEmpty()) {
+        this.scheduleFlush();
+      }
+    }
+
+    /**
+     * Schedules the delivery of all queued events (unless a delivery is already scheduled).
+     */
+    private void scheduleFlush() {
+      if (!this.flushScheduled.compareAndSet(false, true)) {
+        return;
+      }
+
+      WebhookCommunicationAdapter.this.scheduler.schedule(() -> {
+        this.flushScheduled.set(false);
+        this.drain(true);
+      }, this.endpoint.getBatchDelay(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Encodes a batch of events into a request body.
+     *
+     * @param batch a batch of events.
+     * @return a request body.
+     * @throws IOException when encoding fails.
+     */
+    @NonNull
+    private byte[] encode(@NonNull List<Entry> batch) throws IOException {
+      ObjectNode document = WebhookCommunicationAdapter.this.mapper.createObjectNode();
+      ArrayNode events = document.putArray("events");
+      batch.forEach((e) -> events.add(e.event));
+
+      byte[] json = WebhookCommunicationAdapter.this.mapper.writeValueAsBytes(document);
+      if (!this.endpoint.isCompressed()) {
+        return json;
+      }
+
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream(json.length / 4);
+      try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+        gzipStream.write(json);
+      }
+      return outputStream.toByteArray();
+    }
+
+    /**
+     * Posts a batch of events. The request permit is held until the batch has either been
+     * delivered or all attempts have failed.
+     *
+     * @param batch a batch of events.
+     * @param body an encoded request body.
+     * @param attempt the number of this attempt.
+     */
+    private void send(@NonNull List<Entry> batch, @NonNull byte[] body, int attempt) {
+      HttpRequest request;
+
+      try {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(this.uri)
+            .timeout(Duration.ofMillis(this.endpoint.getTimeout()))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+
+        if (this.endpoint.isCompressed()) {
+          builder.header("Content-Encoding", "gzip");
+        }
+
+        this.endpoint.getHeaders().forEach(builder::header);
+        request = builder.build();
+      } catch (RuntimeException ex) {
+        // restricted or malformed headers are rejected by the client
+        logger.error("Failed to construct request for " + this.key + ": " + ex.getMessage(), ex);
+        this.fail(batch);
+        return;
+      }
+
+      // the event spans the entire exchange and is thus committed once the response arrives
+      OutboundSendEvent sendEvent = new OutboundSendEvent();
+      sendEvent.begin();
+
+      long start = System.nanoTime();
+      WebhookCommunicationAdapter.this.client
+          .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, ex) -> this
+              .complete(batch, body, attempt, start, sendEvent, response, ex));
+    }
+
+    /**
+     * Handles the completion of a request.
+     *
+     * @param batch a batch of events.
+     * @param body an encoded request body.
+     * @param attempt the number of the completed attempt.
+     * @param start the time at which the request has been sent.
+     * @param sendEvent the flight recorder event which represents the request.
+     * @param response a response (or null if the request failed).
+     * @param ex a failure (or null if a response has been received).
+     */
+    private void complete(@NonNull List<Entry> batch, @NonNull byte[] body, int attempt,
+        long start, @NonNull OutboundSendEvent sendEvent,
+        @Nullable HttpResponse<Void> response, @Nullable Throwable ex) {
+      int status = response == null ? -1 : response.statusCode();
+      boolean success = ex == null && status >= 200 && status < 300;
+
+      sendEvent.end();
+      if (sendEvent.shouldCommit()) {
+        sendEvent.setAdapter("webhook");
+        sendEvent.setChannel(this.key);
+        sendEvent.setMessageSize(body.length);
+        sendEvent.setSuccess(success);
+        sendEvent.setStatus(status);
+        sendEvent.commit();
+      }
+
+      WebhookCommunicationAdapter.this.registry.timer("ejector.webhook.outbound",
+          "endpoint", this.key,
+          "outcome", success ? "success" : "failure")
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+      if (success) {
+        batch.forEach((e) -> WebhookCommunicationAdapter.this
+            .recordDelivery(e, this.key, "success"));
+        this.permits.release();
+        this.drain(false);
+        return;
+      }
+
+      String reason = ex != null ? ex.getMessage() : "status " + status;
+      boolean retryable = ex != null || status == 408 || status == 429 || status >= 500;
+
+      if (!retryable || attempt >= this.endpoint.getMaximumAttempts()) {
+        logger.warn("Failed to deliver %d events to %s after %d attempts: %s", batch.size(),
+            this.key, attempt, reason);
+        this.fail(batch);
+        this.drain(false);
+        return;
+      }
+
+      long delay = this.getRetryDelay(attempt, response);
+      logger.debug("Retrying delivery to %s in %d ms: %s", this.key, delay, reason);
+
+      try {
+        WebhookCommunicationAdapter.this.scheduler.schedule(
+            () -> this.send(batch, body, attempt + 1), delay, TimeUnit.MILLISECONDS);
+      } catch (RuntimeException rejected) {
+        // the adapter is shutting down
+        this.fail(batch);
+      }
+    }
+
+    /**
+     * Computes the delay before the next attempt using exponential backoff (with jitter in order
+     * to spread the retries of concurrent requests). Delays which are requested by the endpoint
+     * through a {@code Retry-After} header take precedence.
+     *
+     * @param attempt the number of the failed attempt.
+     * @param response a response (or null if the request failed).
+     * @return a delay (in milliseconds).
+     */
+    private long getRetryDelay(int attempt, @Nullable HttpResponse<Void> response) {
+      long maximum = this.endpoint.getMaximumRetryDelay();
+      long delay = Math.min(maximum,
+          this.endpoint.getRetryDelay() << Math.min(attempt - 1, 30));
+      delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+
+      if (response != null) {
+        String retryAfter = response.headers().firstValue("Retry-After").orElse(null);
+
+        if (retryAfter != null) {
+          try {
+            delay = Math.max(delay, Math.min(maximum,
+                TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()))));
+          } catch (NumberFormatException ignore) {
+            // dates are not supported and fall back to the computed delay
+          }
+        }
+      }
+
+      return delay;
+    }
+
+    /**
+     * Records the failed delivery of a batch and releases its request permit.
+     *
+     * @param batch a batch of events.
+     */
+    private void fail(@NonNull List<Entry> batch) {
+      batch.forEach((e) -> WebhookCommunicationAdapter.this
+          .recordDelivery(e, this.key, "failure"));
+      this.permits.release();
+    }
+  }
+}
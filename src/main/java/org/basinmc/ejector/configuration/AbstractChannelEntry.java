@@ -30,6 +30,7 @@ import org.basinmc.stormdrain.PayloadType;
 public abstract class AbstractChannelEntry {
 
   private final Set<PayloadType> events = EnumSet.noneOf(PayloadType.class);
+  private final ChannelFilter filter = new ChannelFilter();
 
   /**
    * Retrieves the events which are to be redirected to this channel.
@@ -42,6 +43,17 @@ public abstract class AbstractChannelEntry {
     return this.events;
   }
 
+  /**
+   * Retrieves the additional conditions which events need to satisfy in order to be redirected to
+   * this channel.
+   *
+   * @return a filter.
+   */
+  @NonNull
+  public ChannelFilter getFilter() {
+    return this.filter;
+  }
+
   /**
    * Evaluates whether a given payload type should be received by this channel.
    *
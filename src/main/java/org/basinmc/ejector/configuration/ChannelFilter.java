@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.configuration;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Provides a set of declarative conditions which restrict the events delivered to a channel
+ * beyond their payload type.</p>
+ *
+ * <p>Each non-empty condition needs to be satisfied in order for an event to be delivered while
+ * the values within a condition are alternatives (e.g. an event is delivered when its repository
+ * matches any of the configured repository patterns).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class ChannelFilter {
+
+  private final List<String> repositories = new ArrayList<>();
+  private final List<String> references = new ArrayList<>();
+  private final Set<String> actions = new HashSet<>();
+  private final Set<String> senders = new HashSet<>();
+  private final Set<String> excludedSenders = new HashSet<>();
+
+  /**
+   * <p>Retrieves the repository patterns (such as {@code BasinMC/*}) which are permitted to
+   * deliver events to this channel.</p>
+   *
+   * <p>Patterns are matched case insensitively against the full repository name where {@code *}
+   * matches any sequence of characters except for {@code /}, {@code **} matches any sequence of
+   * characters and {@code ?} matches a single character.</p>
+   *
+   * @return a list of repository patterns.
+   */
+  @NonNull
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public List<String> getRepositories() {
+    return this.repositories;
+  }
+
+  /**
+   * Retrieves the reference patterns (such as {@code refs/heads/master} or {@code refs/tags/**})
+   * which are permitted to deliver events to this channel. Only events which refer to a git
+   * reference (e.g. pushes and branch or tag creations and deletions) can satisfy this condition.
+   *
+   * @return a list of reference patterns.
+   */
+  @NonNull
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public List<String> getReferences() {
+    return this.references;
+  }
+
+  /**
+   * Retrieves the actions (such as {@code opened} or {@code closed}) which are permitted to
+   * deliver events to this channel. Only events which carry an action can satisfy this
+   * condition.
+   *
+   * @return a set of action names.
+   */
+  @NonNull
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public Set<String> getActions() {
+    return this.actions;
+  }
+
+  /**
+   * Retrieves the logins of the users which are permitted to deliver events to this channel.
+   *
+   * @return a set of user logins.
+   */
+  @NonNull
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public Set<String> getSenders() {
+    return this.senders;
+  }
+
+  /**
+   * Retrieves the logins of the users whose events are never delivered to this channel.
+   *
+   * @return a set of user logins.
+   */
+  @NonNull
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public Set<String> getExcludedSenders() {
+    return this.excludedSenders;
+  }
+
+  /**
+   * Evaluates whether this filter does not impose any conditions.
+   *
+   * @return true if empty, false otherwise.
+   */
+  public boolean isEmpty() {
+    return this.repositories.isEmpty() && this.references.isEmpty() && this.actions.isEmpty()
+        && this.senders.isEmpty() && this.excludedSenders.isEmpty();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.configuration;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.basinmc.ejector.configuration.irc.IrcConfiguration;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Notifies communication adapters of a change to the application configuration.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class ConfigurationReloadEvent extends ApplicationEvent {
+
+  private final DiscordConfiguration discordConfiguration;
+  private final IrcConfiguration ircConfiguration;
+  private final WebhookConfiguration webhookConfiguration;
+
+  public ConfigurationReloadEvent(@NonNull Object source,
+      @NonNull DiscordConfiguration discordConfiguration,
+      @NonNull IrcConfiguration ircConfiguration,
+      @NonNull WebhookConfiguration webhookConfiguration) {
+    super(source);
+    this.discordConfiguration = discordConfiguration;
+    this.ircConfiguration = ircConfiguration;
+    this.webhookConfiguration = webhookConfiguration;
+  }
+
+  /**
+   * Retrieves the updated Discord configuration.
+   *
+   * @return a configuration.
+   */
+  @NonNull
+  public DiscordConfiguration getDiscordConfiguration() {
+    return this.discordConfiguration;
+  }
+
+  /**
+   * Retrieves the updated IRC configuration.
+   *
+   * @return a configuration.
+   */
+  @NonNull
+  public IrcConfiguration getIrcConfiguration() {
+    return this.ircConfiguration;
+  }
+
+  /**
+   * Retrieves the updated webhook configuration.
+   *
+   * @return a configuration.
+   */
+  @NonNull
+  public WebhookConfiguration getWebhookConfiguration() {
+    return this.webhookConfiguration;
+  }
+}
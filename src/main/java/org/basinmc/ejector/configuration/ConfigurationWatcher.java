@@ -0,0 +1,317 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.configuration;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.configuration.irc.IrcConfiguration;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Watches the application configuration file for changes and notifies all communication
+ * adapters of updated channel and subscription configurations.</p>
+ *
+ * <p>Upon change, the file is re-read and bound on top of the remaining property sources of the
+ * application (e.g. system properties and environment variables retain their precedence). Like
+ * at startup, only documents without a profile or with a profile which is currently active are
+ * considered. Invalid configurations are rejected and will not be passed to the adapters.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.configuration", name = "watch")
+public class ConfigurationWatcher implements InitializingBean, DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(ConfigurationWatcher.class);
+
+  /**
+   * Defines the amount of time (in milliseconds) to wait for further changes before a
+   * modification is applied (editors typically emit multiple events for a single save).
+   */
+  private static final long SETTLE_DELAY = 500;
+
+  /**
+   * Identifies the property source which Spring attaches in order to expose all other sources as
+   * configuration property sources.
+   */
+  private static final String ATTACHED_SOURCE_NAME = "configurationProperties";
+
+  private final ConfigurableEnvironment environment;
+  private final ApplicationEventPublisher publisher;
+  private final Path location;
+
+  private WatchService watchService;
+  private Thread thread;
+
+  @Autowired
+  public ConfigurationWatcher(
+      @NonNull ConfigurableEnvironment environment,
+      @NonNull ApplicationEventPublisher publisher,
+      @NonNull @Value("${ejector.configuration.location:application.yml}") String location) {
+    this.environment = environment;
+    this.publisher = publisher;
+    this.location = Paths.get(location).toAbsolutePath().normalize();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    Path directory = this.location.getParent();
+
+    this.watchService = directory.getFileSystem().newWatchService();
+    directory.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+
+    this.thread = new Thread(this::watch);
+    this.thread.setName("configuration-watcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+
+    logger.info("Watching %s for configuration changes", this.location);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() throws IOException {
+    this.watchService.close();
+  }
+
+  /**
+   * Processes file system events until the watch service is closed.
+   */
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = this.watchService.take();
+        boolean modified = this.isModified(key);
+
+        // wait for the file to settle and swallow any events which were emitted in the meantime
+        while (modified) {
+          key = this.watchService.poll(SETTLE_DELAY, TimeUnit.MILLISECONDS);
+
+          if (key == null) {
+            break;
+          }
+
+          this.isModified(key);
+        }
+
+        if (modified) {
+          this.reload();
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException ignore) {
+    }
+  }
+
+  /**
+   * Evaluates whether the specified key indicates a modification of the configuration file and
+   * resets it.
+   *
+   * @param key a watch key.
+   * @return true if modified, false otherwise.
+   */
+  private boolean isModified(@NonNull WatchKey key) {
+    boolean modified = false;
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      Object context = event.context();
+
+      if (context instanceof Path && this.location.getFileName().equals(context)) {
+        modified = true;
+      }
+    }
+
+    key.reset();
+    return modified;
+  }
+
+  /**
+   * Reloads the configuration file and publishes the resulting configurations.
+   */
+  public void reload() {
+    DiscordConfiguration discordConfiguration;
+    IrcConfiguration ircConfiguration;
+    WebhookConfiguration webhookConfiguration;
+
+    try {
+      MutablePropertySources sources = this.loadPropertySources();
+      Binder binder = new Binder(ConfigurationPropertySources.from(sources),
+          new PropertySourcesPlaceholdersResolver(sources));
+
+      discordConfiguration = binder
+          .bind("ejector.discord", Bindable.ofInstance(new DiscordConfiguration()))
+          .orElseGet(DiscordConfiguration::new);
+      ircConfiguration = binder
+          .bind("ejector.irc", Bindable.ofInstance(new IrcConfiguration()))
+          .orElseGet(IrcConfiguration::new);
+      webhookConfiguration = binder
+          .bind("ejector.webhook", Bindable.ofInstance(new WebhookConfiguration()))
+          .orElseGet(WebhookConfiguration::new);
+    } catch (IOException | RuntimeException ex) {
+      logger.error("Rejected configuration change: " + ex.getMessage(), ex);
+      return;
+    }
+
+    logger.info("Applying updated configuration from %s", this.location);
+    this.publisher.publishEvent(new ConfigurationReloadEvent(this, discordConfiguration,
+        ircConfiguration, webhookConfiguration));
+  }
+
+  /**
+   * Constructs a copy of the application's property sources in which the configuration file has
+   * been replaced with its current contents.
+   *
+   * @return a set of property sources.
+   * @throws IOException when reading the configuration file fails.
+   */
+  @NonNull
+  private MutablePropertySources loadPropertySources() throws IOException {
+    List<PropertySource<?>> loaded = this.filterDocuments(new YamlPropertySourceLoader().load(
+        "reloadedConfig: [" + this.location + "]",
+        new FileSystemResource(this.location.toFile())
+    ));
+
+    MutablePropertySources sources = new MutablePropertySources();
+    String fileName = this.location.getFileName().toString();
+    boolean replaced = false;
+
+    for (PropertySource<?> source : this.environment.getPropertySources()) {
+      // the attached configuration property source merely wraps all other sources and would
+      // otherwise cause the old values to be resolved again
+      if (ATTACHED_SOURCE_NAME.equals(source.getName())) {
+        continue;
+      }
+
+      // every document of the file is exposed as a separate source (e.g. "applicationConfig:
+      // [file:./application.yml] (document #1)") all of which are replaced at the location of
+      // the first one
+      if (source.getName().startsWith("applicationConfig") && source.getName()
+          .contains(fileName)) {
+        if (!replaced) {
+          loaded.forEach(sources::addLast);
+          replaced = true;
+        }
+
+        continue;
+      }
+
+      sources.addLast(source);
+    }
+
+    if (!replaced) {
+      loaded.forEach(sources::addLast);
+    }
+
+    return sources;
+  }
+
+  /**
+   * <p>Selects the documents which apply to the active profiles (or the default profiles when no
+   * profile has been activated) and orders them by precedence.</p>
+   *
+   * <p>Like at startup, documents without a profile are always applied while documents of
+   * profiles which are activated later take precedence over documents of earlier profiles and
+   * documents without a profile.</p>
+   *
+   * @param documents all documents within the configuration file (in order of appearance).
+   * @return a list of applicable documents in order of precedence.
+   */
+  @NonNull
+  private List<PropertySource<?>> filterDocuments(@NonNull List<PropertySource<?>> documents) {
+    String[] activeProfiles = this.environment.getActiveProfiles();
+    if (activeProfiles.length == 0) {
+      activeProfiles = this.environment.getDefaultProfiles();
+    }
+
+    List<List<PropertySource<?>>> groups = new ArrayList<>();
+    List<PropertySource<?>> unprofiled = new ArrayList<>();
+    groups.add(unprofiled);
+
+    documents.stream()
+        .filter((d) -> getProfiles(d).length == 0)
+        .forEach(unprofiled::add);
+
+    for (String profile : activeProfiles) {
+      List<PropertySource<?>> group = new ArrayList<>();
+
+      for (PropertySource<?> document : documents) {
+        String[] profiles = getProfiles(document);
+
+        if (Arrays.asList(profiles).contains(profile)
+            && this.environment.acceptsProfiles(profiles)) {
+          group.add(document);
+        }
+      }
+
+      groups.add(group);
+    }
+
+    Collections.reverse(groups);
+
+    List<PropertySource<?>> result = new ArrayList<>();
+    groups.forEach(result::addAll);
+    return result;
+  }
+
+  /**
+   * Retrieves the profiles to which a document applies.
+   *
+   * @param document a document.
+   * @return a list of profile expressions or an empty array if the document applies to all
+   *     profiles.
+   */
+  @NonNull
+  private static String[] getProfiles(@NonNull PropertySource<?> document) {
+    return new Binder(ConfigurationPropertySources.from(document))
+        .bind("spring.profiles", Bindable.of(String[].class))
+        .orElse(new String[0]);
+  }
+}
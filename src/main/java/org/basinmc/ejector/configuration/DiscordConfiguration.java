@@ -30,6 +30,8 @@ public class DiscordConfiguration {
 
   private boolean enabled;
   private String token;
+  private int shards = 1;
+  private int shardConcurrency = 1;
   private final Set<Channel> channels = new HashSet<>();
 
   public boolean isEnabled() {
@@ -49,6 +51,34 @@ public class DiscordConfiguration {
     this.token = token;
   }
 
+  /**
+   * Retrieves the total amount of gateway connections (shards) between which the guilds of the
+   * bot are split.
+   *
+   * @return an amount of shards.
+   */
+  public int getShards() {
+    return this.shards;
+  }
+
+  public void setShards(int shards) {
+    this.shards = shards;
+  }
+
+  /**
+   * Retrieves the amount of shards which may log in simultaneously (as permitted by Discord for
+   * the bot).
+   *
+   * @return an amount of shards.
+   */
+  public int getShardConcurrency() {
+    return this.shardConcurrency;
+  }
+
+  public void setShardConcurrency(int shardConcurrency) {
+    this.shardConcurrency = shardConcurrency;
+  }
+
   @NonNull
   @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType") // required for configuration
   public Set<Channel> getChannels() {
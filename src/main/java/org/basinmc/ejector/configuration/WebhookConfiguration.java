@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.configuration;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Represents the configuration of the outbound HTTP webhook adapter.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@ConfigurationProperties("ejector.webhook")
+public class WebhookConfiguration {
+
+  private boolean enabled;
+  private final Set<Endpoint> endpoints = new HashSet<>();
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @NonNull
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType") // required for configuration
+  public Set<Endpoint> getEndpoints() {
+    return this.endpoints;
+  }
+
+  /**
+   * Represents a single HTTP endpoint to which events are posted.
+   */
+  public static class Endpoint extends AbstractChannelEntry {
+
+    private URI url;
+    private final Map<String, String> headers = new HashMap<>();
+    private int batchSize = 1;
+    private long batchDelay = 100;
+    private boolean compressed;
+    private int concurrency = 4;
+    private int queueCapacity = 1024;
+    private long timeout = 10000;
+    private int maximumAttempts = 5;
+    private long retryDelay = 500;
+    private long maximumRetryDelay = 30000;
+
+    @Nullable
+    public URI getUrl() {
+      return this.url;
+    }
+
+    public void setUrl(@Nullable URI url) {
+      this.url = url;
+    }
+
+    /**
+     * Retrieves the additional headers which are passed with every request (such as an
+     * authorization header).
+     *
+     * @return a map of header names and values.
+     */
+    @NonNull
+    @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType") // required for configuration
+    public Map<String, String> getHeaders() {
+      return this.headers;
+    }
+
+    /**
+     * Retrieves the maximum amount of events which are combined into a single request.
+     *
+     * @return an amount of events.
+     */
+    public int getBatchSize() {
+      return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    /**
+     * Retrieves the maximum amount of time (in milliseconds) for which events are held back in
+     * order to fill a batch.
+     *
+     * @return a delay.
+     */
+    public long getBatchDelay() {
+      return this.batchDelay;
+    }
+
+    public void setBatchDelay(long batchDelay) {
+      this.batchDelay = batchDelay;
+    }
+
+    /**
+     * Evaluates whether request bodies are compressed using gzip.
+     *
+     * @return true if compressed, false otherwise.
+     */
+    public boolean isCompressed() {
+      return this.compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+      this.compressed = compressed;
+    }
+
+    /**
+     * Retrieves the maximum amount of concurrent requests (including requests which are waiting
+     * to be retried). Events are delivered in order when limited to a single request.
+     *
+     * @return an amount of requests.
+     */
+    public int getConcurrency() {
+      return this.concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+      this.concurrency = concurrency;
+    }
+
+    /**
+     * Retrieves the maximum amount of events which are queued while all requests are in flight.
+     * Further events are dropped.
+     *
+     * @return an amount of events.
+     */
+    public int getQueueCapacity() {
+      return this.queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Retrieves the amount of time (in milliseconds) after which a request is considered
+     * failed.
+     *
+     * @return a timeout.
+     */
+    public long getTimeout() {
+      return this.timeout;
+    }
+
+    public void setTimeout(long timeout) {
+      this.timeout = timeout;
+    }
+
+    /**
+     * Retrieves the maximum amount of attempts which are made to deliver a batch.
+     *
+     * @return an amount of attempts.
+     */
+    public int getMaximumAttempts() {
+      return this.maximumAttempts;
+    }
+
+    public void setMaximumAttempts(int maximumAttempts) {
+      this.maximumAttempts = maximumAttempts;
+    }
+
+    /**
+     * Retrieves the amount of time (in milliseconds) to wait before the first retry. The delay
+     * doubles with every further attempt.
+     *
+     * @return a delay.
+     */
+    public long getRetryDelay() {
+      return this.retryDelay;
+    }
+
+    public void setRetryDelay(long retryDelay) {
+      this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Retrieves the maximum amount of time (in milliseconds) to wait between two attempts.
+     *
+     * @return a delay.
+     */
+    public long getMaximumRetryDelay() {
+      return this.maximumRetryDelay;
+    }
+
+    public void setMaximumRetryDelay(long maximumRetryDelay) {
+      this.maximumRetryDelay = maximumRetryDelay;
+    }
+  }
+}
@@ -140,6 +140,15 @@ public interface Configuration {
   @NonNull
   String getName();
 
+  /**
+   * Retrieves the nickname which is used by standby instances while another instance is
+   * delivering messages (when clustering in failover mode).
+   *
+   * @return a nickname.
+   */
+  @NonNull
+  String getStandbyName();
+
   /**
    * Retrieves the amount of time (in milliseconds) which is required to pass before another
    * reconnect attempt is made.
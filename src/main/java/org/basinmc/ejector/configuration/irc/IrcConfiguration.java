@@ -50,6 +50,7 @@ public class IrcConfiguration implements Configuration {
   private String nickServNick = "NickServ";
   private String nickServPassword;
   private String name = "Ejector";
+  private String standbyName;
   private int reconnectDelay = 5000;
   private String realNameTemplate = "Ejector v%s (+%s)";
   private int socketTimeout = 120000;
@@ -212,6 +213,23 @@ public class IrcConfiguration implements Configuration {
     this.name = name;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getStandbyName() {
+    if (this.standbyName != null) {
+      return this.standbyName;
+    }
+
+    return this.name + "_";
+  }
+
+  public void setStandbyName(String standbyName) {
+    this.standbyName = standbyName;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -50,6 +50,7 @@ public class IrcServer implements Configuration {
   private String nickServNick;
   private String nickServPassword;
   private String name;
+  private String standbyName;
   private int reconnectDelay = -1;
   private String realNameTemplate;
   private int socketTimeout = -1;
@@ -286,6 +287,28 @@ public class IrcServer implements Configuration {
     this.name = name;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public String getStandbyName() {
+    if (this.standbyName != null) {
+      return this.standbyName;
+    }
+
+    // servers which override the nickname derive their standby nickname from it
+    if (this.name != null) {
+      return this.name + "_";
+    }
+
+    return this.parent.getStandbyName();
+  }
+
+  public void setStandbyName(String standbyName) {
+    this.standbyName = standbyName;
+  }
+
   /**
    * {@inheritDoc}
    */
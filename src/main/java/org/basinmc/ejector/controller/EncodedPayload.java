@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.utility.InternPool;
+
+/**
+ * Represents a webhook payload which has been read from the request body and reduced to the
+ * information which is relevant to the application.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ * @see EncodedPayloadConverter
+ */
+public final class EncodedPayload {
+
+  private final String content;
+  private final Projection projection;
+  private final int size;
+
+  public EncodedPayload(@NonNull String content, @NonNull Projection projection, int size) {
+    this.content = content;
+    this.projection = projection;
+    this.size = size;
+  }
+
+  /**
+   * Retrieves the reduced JSON representation of this payload.
+   *
+   * @return an encoded payload.
+   */
+  @NonNull
+  public String getContent() {
+    return this.content;
+  }
+
+  /**
+   * Retrieves the projection which has been extracted while reading this payload.
+   *
+   * @return a projection.
+   */
+  @NonNull
+  public Projection getProjection() {
+    return this.projection;
+  }
+
+  /**
+   * Resolves the canonical instances of all repeating identifiers within the projection of this
+   * payload.
+   *
+   * @param pool an intern pool.
+   * @return a payload.
+   * @see Projection#intern(InternPool)
+   */
+  @NonNull
+  public EncodedPayload intern(@NonNull InternPool pool) {
+    return new EncodedPayload(this.content, this.projection.intern(pool), this.size);
+  }
+
+  /**
+   * Retrieves the size of the original request body.
+   *
+   * @return a size (in bytes).
+   */
+  public int getSize() {
+    return this.size;
+  }
+}
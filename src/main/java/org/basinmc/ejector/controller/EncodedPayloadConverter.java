@@ -0,0 +1,298 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.ejector.projection.ProjectionSchema;
+import org.basinmc.ejector.projection.ProjectionSchema.Node;
+import org.basinmc.ejector.utility.InternPool;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Reads webhook payloads directly from the request body.</p>
+ *
+ * <p>The body is processed as a stream of tokens and never buffered in its entirety. While
+ * copying, the fields selected by the {@link ProjectionSchema} of the payload type are extracted
+ * into a {@link Projection} and the payload is reduced to the information which is actually
+ * presented to users: Commit file lists are counted and removed. As a result, the memory required
+ * per request is bounded by the amount of commits rather than the size of their changes.</p>
+ *
+ * <p>Request bodies which exceed the maximum payload size are rejected while they are read.
+ * Strings which are selected by the schema are retained in full. All other strings are shortened
+ * to the maximum string length which defaults to the limit GitHub imposes on issue and comment
+ * bodies. As such, legitimate texts are retained in full for replays (texts which exceed the
+ * limits of a target are shortened by the respective adapter when rendering) while the size of
+ * the reduced payload remains bounded.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class EncodedPayloadConverter extends AbstractHttpMessageConverter<EncodedPayload> {
+
+  /**
+   * Defines the maximum nesting depth of objects and arrays.
+   */
+  public static final int MAXIMUM_DEPTH = 64;
+
+  private final JsonFactory factory = new JsonFactory()
+      // the body remains open until its signature has been verified
+      .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+  private final InternPool internPool;
+  private final long maximumPayloadSize;
+  private final int maximumStringLength;
+
+  /**
+   * @param internPool a pool of repeating identifiers.
+   * @param maximumPayloadSize the maximum size of a request body (in bytes).
+   * @param maximumStringLength the maximum length of strings which are not selected by the
+   *     schema (in characters).
+   */
+  @Autowired
+  public EncodedPayloadConverter(@NonNull InternPool internPool,
+      @Value("${ejector.github.maximum-payload-size:26214400}") long maximumPayloadSize,
+      @Value("${ejector.github.maximum-string-length:65536}") int maximumStringLength) {
+    super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    this.internPool = internPool;
+    this.maximumPayloadSize = maximumPayloadSize;
+    this.maximumStringLength = Math.max(1, maximumStringLength);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean supports(@NonNull Class<?> clazz) {
+    return EncodedPayload.class.isAssignableFrom(clazz);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  protected EncodedPayload readInternal(@NonNull Class<? extends EncodedPayload> clazz,
+      @NonNull HttpInputMessage inputMessage) throws IOException {
+    // signed payloads are only verified once they have been read and are thus interned by the
+    // authentication advice once their signature has been verified
+    return this.decode(new LimitedInputStream(inputMessage.getBody(), this.maximumPayloadSize),
+        inputMessage.getHeaders().getFirst("X-GitHub-Event"),
+        !(inputMessage instanceof GitHubAuthenticationAdvice.SignedInputMessage));
+  }
+
+  /**
+   * Decodes a payload from an arbitrary stream (whose signature has already been verified).
+   *
+   * @param body a payload stream (which is not closed by this method).
+   * @param typeName the name of the payload type as given by GitHub (if any).
+   * @return a reduced payload.
+   * @throws HttpMessageNotReadableException when the payload is malformed.
+   * @throws IOException when reading fails.
+   */
+  @NonNull
+  public EncodedPayload decode(@NonNull InputStream body, @Nullable String typeName)
+      throws IOException {
+    return this.decode(body, typeName, true);
+  }
+
+  /**
+   * <p>Decodes a payload from an arbitrary stream.</p>
+   *
+   * <p>Payloads whose signature has yet to be verified are not interned as forged payloads would
+   * otherwise be able to displace legitimate identifiers from the pool.</p>
+   *
+   * @param body a payload stream (which is not closed by this method).
+   * @param typeName the name of the payload type as given by GitHub (if any).
+   * @param intern true if repeating identifiers are to be interned, false otherwise.
+   * @return a reduced payload.
+   * @throws HttpMessageNotReadableException when the payload is malformed.
+   * @throws IOException when reading fails.
+   */
+  @NonNull
+  private EncodedPayload decode(@NonNull InputStream body, @Nullable String typeName,
+      boolean intern) throws IOException {
+    PayloadType type = null;
+
+    if (typeName != null) {
+      try {
+        type = PayloadType.valueOf(typeName.toUpperCase());
+      } catch (IllegalArgumentException ignore) {
+        // unsupported types are rejected by the controller
+      }
+    }
+
+    Projection.Builder projection = Projection.builder(type);
+    StringWriter writer = new StringWriter();
+
+    try (JsonParser parser = this.factory.createParser(body);
+        JsonGenerator generator = this.factory.createGenerator(writer)) {
+      if (parser.nextToken() == null) {
+        throw new HttpMessageNotReadableException("Malformed payload: Empty document");
+      }
+
+      this.copy(parser, generator, ProjectionSchema.of(type).getRoot(), projection, intern, 0);
+
+      // the location is only updated as tokens are consumed and thus reflects the amount of
+      // bytes which make up the document (it is no longer accurate once the end of the input has
+      // been reached)
+      int size = (int) parser.getCurrentLocation().getByteOffset();
+
+      if (parser.nextToken() != null) {
+        throw new HttpMessageNotReadableException("Malformed payload: Trailing content");
+      }
+
+      generator.flush();
+      return new EncodedPayload(writer.toString(), projection.build(), size);
+    } catch (JsonProcessingException ex) {
+      throw new HttpMessageNotReadableException("Malformed payload: " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Copies a reduced representation of the current value from a parser to a generator while
+   * populating the projection with all values which are selected by the schema.
+   *
+   * @param parser a source parser (positioned at the first token of the value).
+   * @param generator a target generator.
+   * @param node the schema node for the current location (if any).
+   * @param projection a projection builder.
+   * @param intern true if repeating identifiers are to be interned, false otherwise.
+   * @param depth the current nesting depth.
+   * @throws IOException when reading or writing fails.
+   */
+  private void copy(@NonNull JsonParser parser, @NonNull JsonGenerator generator,
+      @Nullable Node node, @NonNull Projection.Builder projection, boolean intern, int depth)
+      throws IOException {
+    Field field = node == null ? null : node.getField();
+
+    switch (parser.getCurrentToken()) {
+      case START_OBJECT:
+        if (depth == MAXIMUM_DEPTH) {
+          throw new HttpMessageNotReadableException("Malformed payload: Nesting too deep");
+        }
+
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          generator.writeFieldName(name);
+
+          parser.nextToken();
+          this.copy(parser, generator, node == null ? null : node.getChild(name), projection,
+              intern, depth + 1);
+        }
+        generator.writeEndObject();
+        break;
+      case START_ARRAY:
+        if (depth == MAXIMUM_DEPTH) {
+          throw new HttpMessageNotReadableException("Malformed payload: Nesting too deep");
+        }
+
+        int length = 0;
+        generator.writeStartArray();
+
+        if (node != null && node.isDiscarded()) {
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            ++length;
+          }
+        } else {
+          Node element = node == null ? null : node.getElement();
+
+          while (parser.nextToken() != JsonToken.END_ARRAY) {
+            this.copy(parser, generator, element, projection, intern, depth + 1);
+            ++length;
+          }
+        }
+
+        generator.writeEndArray();
+
+        if (field != null) {
+          projection.withCount(field, length);
+        }
+        break;
+      case VALUE_STRING:
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int textLength = parser.getTextLength();
+
+        if (field != null) {
+          // repeating identifiers are resolved directly from the parser buffer
+          projection.withValue(field, intern && field.isInterned()
+              ? this.internPool.intern(text, offset, textLength)
+              : new String(text, offset, textLength));
+        }
+
+        if (field == null && textLength > this.maximumStringLength) {
+          // surrogate pairs are never split in order to keep the reduced payload well formed
+          textLength = this.maximumStringLength;
+          if (Character.isHighSurrogate(text[offset + textLength - 1])) {
+            --textLength;
+          }
+        }
+
+        generator.writeString(text, offset, textLength);
+        break;
+      case VALUE_NUMBER_INT:
+        if (field != null) {
+          projection.withCount(field, parser.getIntValue());
+        }
+
+        generator.copyCurrentEvent(parser);
+        break;
+      default:
+        generator.copyCurrentEvent(parser);
+        break;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean canWrite(@NonNull Class<?> clazz, MediaType mediaType) {
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void writeInternal(@NonNull EncodedPayload payload,
+      @NonNull HttpOutputMessage outputMessage) {
+    throw new HttpMessageNotWritableException("Payloads cannot be written");
+  }
+}
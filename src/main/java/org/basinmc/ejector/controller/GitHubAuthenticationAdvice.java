@@ -17,18 +17,21 @@
 package org.basinmc.ejector.controller;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import org.apache.commons.codec.DecoderException;
-import org.apache.commons.codec.binary.Hex;
+import java.util.concurrent.TimeUnit;
+import org.basinmc.ejector.tracing.DeliveryTrace;
+import org.basinmc.ejector.tracing.DeliveryTrace.Stage;
+import org.basinmc.ejector.tracing.jfr.SignatureVerificationEvent;
+import org.basinmc.ejector.utility.InternPool;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageConverter;
@@ -37,19 +40,34 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
 
 /**
- * Provides a controller advice which automatically verifies the payload signature when a secret has
- * been given to the context.
+ * <p>Provides a controller advice which automatically verifies the payload signature when a secret
+ * has been given to the context.</p>
+ *
+ * <p>The signature is computed incrementally while the request body is consumed and verified
+ * before the decoded body is passed to the controller. As such, the body never needs to be
+ * retained in its entirety. Repeating identifiers within the body are only interned once the
+ * signature has been verified while bodies which exceed the maximum payload size are rejected
+ * before they are consumed in their entirety.</p>
  *
  * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
  */
 @ConditionalOnProperty("ejector.github.secret")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @ControllerAdvice(assignableTypes = GitHubController.class)
 public class GitHubAuthenticationAdvice extends RequestBodyAdviceAdapter {
 
   private final String secret;
+  private final MeterRegistry registry;
+  private final InternPool internPool;
+  private final long maximumPayloadSize;
 
-  public GitHubAuthenticationAdvice(@NonNull @Value("${ejector.github.secret}") String secret) {
+  public GitHubAuthenticationAdvice(@NonNull @Value("${ejector.github.secret}") String secret,
+      @NonNull MeterRegistry registry, @NonNull InternPool internPool,
+      @Value("${ejector.github.maximum-payload-size:26214400}") long maximumPayloadSize) {
     this.secret = secret;
+    this.registry = registry;
+    this.internPool = internPool;
+    this.maximumPayloadSize = maximumPayloadSize;
   }
 
   /**
@@ -57,58 +75,75 @@ public class GitHubAuthenticationAdvice extends RequestBodyAdviceAdapter {
    */
   @NonNull
   @Override
-  public Object afterBodyRead(@NonNull Object body, @NonNull HttpInputMessage inputMessage,
+  public HttpInputMessage beforeBodyRead(@NonNull HttpInputMessage inputMessage,
       @NonNull MethodParameter parameter, @NonNull Type targetType,
       @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
-    // before we're verifying anything, we'll evaluate whether a signature was placed at all
-    // and if not we'll simply deny access in its entirety
-    String signature = inputMessage.getHeaders().getFirst("X-Hub-Signature");
+    // the body is passed through the Mac as it is consumed by the message converter and thus
+    // never needs to be retained in its entirety
+    WebhookSignature signature = WebhookSignature
+        .parse(inputMessage.getHeaders().getFirst("X-Hub-Signature"), this.secret);
 
-    if (signature == null) {
-      throw new AuthenticationException("Lacking WebHook signature");
-    }
+    SignatureVerificationEvent verificationEvent = new SignatureVerificationEvent();
+    verificationEvent.begin();
 
-    // next up, we'll figure out which message digest algorithm is being used to sign the request
-    // (typically GitHub will use sha1, however, we're future proofing a little bit here)
-    int separatorIndex = signature.indexOf('=');
+    return new SignedInputMessage(inputMessage, signature, verificationEvent,
+        this.maximumPayloadSize);
+  }
 
-    if (separatorIndex == -1) {
-      throw new AuthenticationException("Malformed WebHook signature: No algorithm prefix");
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public Object afterBodyRead(@NonNull Object body, @NonNull HttpInputMessage inputMessage,
+      @NonNull MethodParameter parameter, @NonNull Type targetType,
+      @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+    if (!(inputMessage instanceof SignedInputMessage)) {
+      throw new AuthenticationException("Lacking WebHook signature");
     }
 
-    String algorithm = signature.substring(0, separatorIndex).toLowerCase();
-    signature = signature.substring(separatorIndex + 1);
+    SignedInputMessage message = (SignedInputMessage) inputMessage;
+    SignedInputStream inputStream = message.inputStream;
+    long start = System.nanoTime();
+    boolean verified = false;
 
-    switch (algorithm) {
-      case "sha1":
-        algorithm = "HmacSHA1";
-        break;
-      case "sha256":
-        algorithm = "HmacSHA256";
-        break;
-      default:
-        throw new AuthenticationException(
-            "Malformed WebHook signature: Unsupported signature algorithm \"" + algorithm + "\"");
-    }
-
-    // since we have now acquired the signature value and algorithm, we can now construct a new
-    // Mac instance, initialize it with the secret key and verify the signature
     try {
-      Mac mac = Mac.getInstance(algorithm);
-      mac.init(new SecretKeySpec(this.secret.getBytes(StandardCharsets.UTF_8), algorithm));
+      // converters may stop reading once they have encountered the end of the document and thus
+      // any trailing data needs to be hashed as well
+      inputStream.drain();
 
-      byte[] expectedSignature = mac.doFinal(((String) body).getBytes(StandardCharsets.UTF_8));
-      byte[] actualSignature = Hex.decodeHex(signature);
-
-      if (!Arrays.equals(expectedSignature, actualSignature)) {
+      if (!message.signature.verify()) {
         throw new AuthenticationException("Malformed WebHook signature: Mismatch");
       }
-    } catch (NoSuchAlgorithmException ex) {
-      throw new AuthenticationException("Authentication is unavailable: " + ex.getMessage(), ex);
-    } catch (InvalidKeyException ex) {
-      throw new AuthenticationException("Illegal secret: " + ex.getMessage(), ex);
-    } catch (DecoderException ex) {
+
+      verified = true;
+
+      DeliveryTrace trace = DeliveryTrace.current();
+      if (trace != null) {
+        trace.stamp(Stage.VERIFY);
+      }
+    } catch (IOException ex) {
       throw new AuthenticationException("Failed to read request body: " + ex.getMessage(), ex);
+    } finally {
+      String algorithm = message.signature.getAlgorithm();
+
+      this.registry.timer("ejector.webhook.verification",
+          "algorithm", algorithm,
+          "outcome", verified ? "success" : "failure")
+          .record(inputStream.digestTime + System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+      SignatureVerificationEvent verificationEvent = message.verificationEvent;
+      verificationEvent.end();
+      if (verificationEvent.shouldCommit()) {
+        verificationEvent.setAlgorithm(algorithm);
+        verificationEvent.setPayloadSize((int) inputStream.size);
+        verificationEvent.setVerified(verified);
+        verificationEvent.commit();
+      }
+    }
+
+    if (body instanceof EncodedPayload) {
+      return ((EncodedPayload) body).intern(this.internPool);
     }
 
     return body;
@@ -145,4 +180,146 @@ public class GitHubAuthenticationAdvice extends RequestBodyAdviceAdapter {
       super(cause);
     }
   }
+
+  /**
+   * Wraps a request body in order to compute its signature while it is being consumed.
+   */
+  static final class SignedInputMessage implements HttpInputMessage {
+
+    private final HttpInputMessage delegate;
+    private final WebhookSignature signature;
+    private final SignatureVerificationEvent verificationEvent;
+    private final long maximumPayloadSize;
+    private SignedInputStream inputStream;
+
+    private SignedInputMessage(@NonNull HttpInputMessage delegate,
+        @NonNull WebhookSignature signature,
+        @NonNull SignatureVerificationEvent verificationEvent, long maximumPayloadSize) {
+      this.delegate = delegate;
+      this.signature = signature;
+      this.verificationEvent = verificationEvent;
+      this.maximumPayloadSize = maximumPayloadSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public InputStream getBody() throws IOException {
+      if (this.inputStream == null) {
+        // trailing data is drained once the document has been read and thus needs to be limited
+        // as well
+        this.inputStream = new SignedInputStream(
+            new LimitedInputStream(this.delegate.getBody(), this.maximumPayloadSize),
+            this.signature);
+      }
+
+      return this.inputStream;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public HttpHeaders getHeaders() {
+      return this.delegate.getHeaders();
+    }
+  }
+
+  /**
+   * Passes all bytes which are read from the underlying stream through a Mac.
+   */
+  private static final class SignedInputStream extends FilterInputStream {
+
+    private final WebhookSignature signature;
+    private long digestTime;
+    private long size;
+
+    private SignedInputStream(@NonNull InputStream in, @NonNull WebhookSignature signature) {
+      super(in);
+      this.signature = signature;
+    }
+
+    /**
+     * Consumes the remainder of the stream.
+     *
+     * @throws IOException when reading fails.
+     */
+    private void drain() throws IOException {
+      byte[] buffer = new byte[512];
+
+      while (this.read(buffer, 0, buffer.length) != -1) {
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+      int value = super.read();
+
+      if (value != -1) {
+        long start = System.nanoTime();
+        this.signature.update((byte) value);
+        this.digestTime += System.nanoTime() - start;
+        ++this.size;
+      }
+
+      return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read(@NonNull byte[] b, int off, int len) throws IOException {
+      int length = super.read(b, off, len);
+
+      if (length > 0) {
+        long start = System.nanoTime();
+        this.signature.update(b, off, length);
+        this.digestTime += System.nanoTime() - start;
+        this.size += length;
+      }
+
+      return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip(long n) throws IOException {
+      if (n <= 0) {
+        return 0;
+      }
+
+      // skipped bytes are covered by the signature as well and thus need to be read
+      byte[] buffer = new byte[(int) Math.min(n, 512)];
+      long skipped = 0;
+
+      while (skipped < n) {
+        int length = this.read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+
+        if (length == -1) {
+          break;
+        }
+
+        skipped += length;
+      }
+
+      return skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
 }
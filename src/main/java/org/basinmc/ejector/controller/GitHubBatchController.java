@@ -0,0 +1,427 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterReplicator;
+import org.basinmc.ejector.communication.CommunicationManager;
+import org.basinmc.ejector.controller.GitHubAuthenticationAdvice.AuthenticationException;
+import org.basinmc.ejector.history.DeliveryHistory;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * <p>Provides an endpoint which accepts multiple GitHub events at once (e.g. from a relay which
+ * has buffered events while the application was unavailable).</p>
+ *
+ * <p>Batches are submitted as newline delimited JSON documents which each carry the delivery
+ * identifier, event type and signature of a single event along with its original body:</p>
+ *
+ * <pre>
+ * {"delivery": "&lt;uuid&gt;", "event": "push", "signature": "sha1=...", "payload": "{...}"}
+ * </pre>
+ *
+ * <p>Events are verified and decoded in parallel on a fork-join pool (where every worker re-uses
+ * its Mac instances rather than initializing them for each event) and are subsequently handed to
+ * the adapters in parallel per repository while events of the same repository retain their order
+ * within the batch. Events which fail to verify or decode are rejected individually and reported
+ * within the response. Events which are repeated within a batch (e.g. because a relay retried a
+ * delivery) are only dispatched once.</p>
+ *
+ * <p>Batches are read incrementally and rejected as soon as a single line or the batch as a whole
+ * exceeds its permitted size (rather than after the entire body has been buffered).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@RequestMapping(path = "/hook/github/batch", method = RequestMethod.POST)
+public class GitHubBatchController implements DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(GitHubBatchController.class);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final EncodedPayloadConverter converter;
+  private final CommunicationManager communicationManager;
+  private final ClusterReplicator replicator;
+  private final DeliveryHistory history;
+  private final MeterRegistry registry;
+  private final String secret;
+  private final int maximumSize;
+  private final int maximumLineSize;
+  private final long maximumPayloadSize;
+  private final ForkJoinPool pool;
+  private final ThreadLocal<Map<String, Mac>> macs = ThreadLocal.withInitial(HashMap::new);
+  private final Timer timer;
+
+  /**
+   * @param converter a payload converter.
+   * @param communicationManager a communication manager.
+   * @param replicator a cluster replicator (if clustering is enabled).
+   * @param history a delivery history (if enabled).
+   * @param registry a meter registry.
+   * @param secret a shared secret (or an empty string to skip verification).
+   * @param maximumSize the maximum amount of events per batch.
+   * @param maximumLineSize the maximum size of a single encoded event (in bytes).
+   * @param maximumPayloadSize the maximum size of an entire batch (in bytes).
+   * @param parallelism the amount of worker threads (or zero to use one per processor).
+   */
+  @Autowired
+  public GitHubBatchController(@NonNull EncodedPayloadConverter converter,
+      @NonNull CommunicationManager communicationManager,
+      @Nullable @Autowired(required = false) ClusterReplicator replicator,
+      @Nullable @Autowired(required = false) DeliveryHistory history,
+      @NonNull MeterRegistry registry,
+      @NonNull @Value("${ejector.github.secret:}") String secret,
+      @Value("${ejector.github.batch.maximum-size:1000}") int maximumSize,
+      @Value("${ejector.github.batch.maximum-line-size:26214400}") int maximumLineSize,
+      @Value("${ejector.github.batch.maximum-payload-size:104857600}") long maximumPayloadSize,
+      @Value("${ejector.github.batch.parallelism:0}") int parallelism) {
+    this.converter = converter;
+    this.communicationManager = communicationManager;
+    this.replicator = replicator;
+    this.history = history;
+    this.registry = registry;
+    this.secret = secret.isEmpty() ? null : secret;
+    this.maximumSize = maximumSize;
+    this.maximumLineSize = maximumLineSize;
+    this.maximumPayloadSize = maximumPayloadSize;
+    this.pool = new ForkJoinPool(parallelism <= 0
+        ? Runtime.getRuntime().availableProcessors() : parallelism);
+
+    this.timer = Timer.builder("ejector.webhook.batch")
+        .description("Time spent verifying, decoding and dispatching batches")
+        .register(registry);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.pool.shutdownNow();
+  }
+
+  /**
+   * Handles a batch of GitHub events.
+   *
+   * @param body a newline delimited batch.
+   * @return a summary of the accepted and rejected events.
+   * @throws IOException when reading the batch fails.
+   */
+  @NonNull
+  @RequestMapping
+  public Map<String, Object> handle(@NonNull InputStream body) throws IOException {
+    long start = System.nanoTime();
+    List<String> lines = this.read(body);
+
+    List<Callable<Entry>> decoders = new ArrayList<>(lines.size());
+    for (int i = 0; i < lines.size(); ++i) {
+      int index = i;
+      decoders.add(() -> this.decode(index, lines.get(index)));
+    }
+
+    List<Entry> entries = new ArrayList<>(lines.size());
+    Set<UUID> deliveries = new HashSet<>();
+
+    for (Future<Entry> future : this.pool.invokeAll(decoders)) {
+      Entry entry = this.await(future);
+
+      // only the first occurrence of a delivery is dispatched as relays may submit the same
+      // delivery multiple times when retrying
+      if (entry.payload != null && !deliveries.add(entry.id)) {
+        entry.payload = null;
+        entry.outcome = "duplicate";
+        entry.error = "Duplicate delivery";
+      }
+
+      entries.add(entry);
+    }
+
+    // events are grouped by repository (in order of their first occurrence) so that events of
+    // distinct repositories may be dispatched in parallel without reordering events of the same
+    // repository
+    Map<String, List<Entry>> repositories = new LinkedHashMap<>();
+    entries.stream()
+        .filter((e) -> e.payload != null)
+        .forEach((e) -> repositories.computeIfAbsent(
+            String.valueOf(e.encodedPayload.getProjection().getRepository()),
+            (k) -> new ArrayList<>()).add(e));
+
+    List<Callable<Void>> dispatchers = new ArrayList<>(repositories.size());
+    repositories.values().forEach((l) -> dispatchers.add(() -> {
+      l.forEach(this::dispatch);
+      return null;
+    }));
+
+    for (Future<Void> future : this.pool.invokeAll(dispatchers)) {
+      this.await(future);
+    }
+
+    List<Map<String, Object>> results = new ArrayList<>(entries.size());
+    int accepted = 0;
+
+    for (Entry entry : entries) {
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("line", entry.index + 1);
+      result.put("delivery", entry.deliveryId);
+      result.put("outcome", entry.outcome);
+
+      if (entry.error != null) {
+        result.put("error", entry.error);
+      }
+
+      if ("success".equals(entry.outcome)) {
+        ++accepted;
+      }
+
+      results.add(result);
+      this.registry.counter("ejector.webhook.batch.events", "outcome", entry.outcome)
+          .increment();
+    }
+
+    this.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    logger.info("Accepted %d of %d batched events", accepted, entries.size());
+
+    Map<String, Object> response = new LinkedHashMap<>();
+    response.put("accepted", accepted);
+    response.put("rejected", entries.size() - accepted);
+    response.put("results", results);
+    return response;
+  }
+
+  /**
+   * Reads the non-empty lines of a batch while enforcing the configured size limits.
+   *
+   * @param body a newline delimited batch.
+   * @return a list of encoded events.
+   * @throws IOException when reading the batch fails.
+   * @throws ResponseStatusException when the batch exceeds one of its limits.
+   */
+  @NonNull
+  private List<String> read(@NonNull InputStream body) throws IOException {
+    List<String> lines = new ArrayList<>();
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    long size = 0;
+
+    try (InputStream in = new BufferedInputStream(body)) {
+      int b;
+
+      do {
+        b = in.read();
+
+        if (b != -1 && ++size > this.maximumPayloadSize) {
+          throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+              "Batch exceeds " + this.maximumPayloadSize + " bytes");
+        }
+
+        if (b != -1 && b != '\n') {
+          if (line.size() == this.maximumLineSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Event on line " + (lines.size() + 1) + " exceeds " + this.maximumLineSize
+                    + " bytes");
+          }
+
+          line.write(b);
+          continue;
+        }
+
+        String value = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        line.reset();
+
+        if (value.trim().isEmpty()) {
+          continue;
+        }
+
+        if (lines.size() == this.maximumSize) {
+          throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+              "Batch exceeds " + this.maximumSize + " events");
+        }
+
+        lines.add(value);
+      } while (b != -1);
+    }
+
+    return lines;
+  }
+
+  /**
+   * Verifies and decodes a single event.
+   *
+   * @param index the index of the event within the batch.
+   * @param line an encoded event.
+   * @return a batch entry.
+   */
+  @NonNull
+  private Entry decode(int index, @NonNull String line) {
+    Entry entry = new Entry(index);
+
+    try {
+      JsonNode node = this.mapper.readTree(line);
+      JsonNode content = node.path("payload");
+
+      entry.deliveryId = node.path("delivery").textValue();
+      String type = node.path("event").textValue();
+
+      if (entry.deliveryId == null || type == null || !content.isTextual()) {
+        throw new IllegalArgumentException("Malformed event: Missing delivery, event or payload");
+      }
+
+      UUID deliveryId = UUID.fromString(entry.deliveryId);
+      entry.id = deliveryId;
+      byte[] body = content.textValue().getBytes(StandardCharsets.UTF_8);
+
+      if (this.secret != null) {
+        WebhookSignature signature = WebhookSignature.parse(node.path("signature").textValue(),
+            (algorithm) -> this.macs.get()
+                .computeIfAbsent(algorithm, (a) -> WebhookSignature.createMac(a, this.secret)));
+        signature.update(body, 0, body.length);
+
+        if (!signature.verify()) {
+          throw new AuthenticationException("Malformed WebHook signature: Mismatch");
+        }
+      }
+
+      PayloadType payloadType;
+      try {
+        payloadType = PayloadType.valueOf(type.toUpperCase());
+      } catch (IllegalArgumentException ex) {
+        entry.outcome = "unsupported";
+        entry.error = "Unsupported payload of type \"" + type + "\"";
+        return entry;
+      }
+
+      entry.encodedPayload = this.converter.decode(new ByteArrayInputStream(body), type);
+      Event event = payloadType.read(entry.encodedPayload.getContent());
+
+      entry.payload = new Payload<>(deliveryId, payloadType, event);
+      entry.outcome = "success";
+    } catch (AuthenticationException ex) {
+      entry.outcome = "rejected";
+      entry.error = ex.getMessage();
+    } catch (IOException | RuntimeException ex) {
+      entry.outcome = "error";
+      entry.error = ex.getMessage();
+    }
+
+    return entry;
+  }
+
+  /**
+   * Hands a decoded event to the adapters (or the cluster).
+   *
+   * @param entry a batch entry.
+   */
+  private void dispatch(@NonNull Entry entry) {
+    Payload<?> payload = entry.payload;
+    EncodedPayload encodedPayload = entry.encodedPayload;
+
+    try {
+      if (this.history != null) {
+        this.history.record(entry.id, payload.getType(),
+            encodedPayload.getContent(), encodedPayload.getProjection());
+      }
+
+      if (this.replicator != null) {
+        this.replicator.dispatch(entry.id, payload, encodedPayload.getContent(),
+            encodedPayload.getProjection());
+      } else {
+        this.communicationManager.handlePayload(payload, encodedPayload.getProjection());
+      }
+    } catch (RuntimeException ex) {
+      logger.error("Failed to dispatch batched delivery " + entry.deliveryId + ": " + ex
+          .getMessage(), ex);
+      entry.outcome = "error";
+      entry.error = ex.getMessage();
+    }
+  }
+
+  /**
+   * Retrieves the result of a task which has been completed by the pool.
+   *
+   * @param future a completed future.
+   * @param <T> a result type.
+   * @return a result.
+   */
+  private <T> T await(@NonNull Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while handling batch", ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Failed to handle batch: " + ex.getCause().getMessage(),
+          ex.getCause());
+    }
+  }
+
+  /**
+   * Represents a single event within a batch.
+   */
+  private static final class Entry {
+
+    private final int index;
+    private String deliveryId;
+    private UUID id;
+    private EncodedPayload encodedPayload;
+    private Payload<?> payload;
+    private String outcome = "error";
+    private String error;
+
+    private Entry(int index) {
+      this.index = index;
+    }
+  }
+}
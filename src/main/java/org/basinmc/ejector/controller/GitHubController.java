@@ -17,14 +17,29 @@
 package org.basinmc.ejector.controller;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterReplicator;
 import org.basinmc.ejector.communication.CommunicationManager;
+import org.basinmc.ejector.history.DeliveryHistory;
+import org.basinmc.ejector.tracing.DeliveryTrace;
+import org.basinmc.ejector.tracing.DeliveryTrace.Stage;
+import org.basinmc.ejector.tracing.jfr.PayloadParseEvent;
+import org.basinmc.ejector.tracing.jfr.WebhookReceiptEvent;
 import org.basinmc.stormdrain.Payload;
 import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -38,6 +53,7 @@ import org.springframework.web.bind.annotation.RestController;
  * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @RequestMapping(path = "/hook/github", method = RequestMethod.POST, headers = {
     "X-Github-Delivery",
     "X-GitHub-Event"
@@ -47,10 +63,27 @@ public class GitHubController {
   private static final Logger logger = LogManager.getFormatterLogger(GitHubController.class);
 
   private final CommunicationManager communicationManager;
+  private final ClusterReplicator replicator;
+  private final DeliveryHistory history;
+  private final MeterRegistry registry;
+  private final Map<PayloadType, Timer> parseTimers = new EnumMap<>(PayloadType.class);
 
   @Autowired
-  public GitHubController(@NonNull CommunicationManager communicationManager) {
+  public GitHubController(@NonNull CommunicationManager communicationManager,
+      @Nullable @Autowired(required = false) ClusterReplicator replicator,
+      @Nullable @Autowired(required = false) DeliveryHistory history,
+      @NonNull MeterRegistry registry) {
     this.communicationManager = communicationManager;
+    this.replicator = replicator;
+    this.history = history;
+    this.registry = registry;
+
+    for (PayloadType type : PayloadType.values()) {
+      this.parseTimers.put(type, Timer.builder("ejector.webhook.parse")
+          .description("Time spent decoding GitHub payloads")
+          .tag("type", type.name().toLowerCase())
+          .register(registry));
+    }
   }
 
   /**
@@ -58,25 +91,79 @@ public class GitHubController {
    *
    * @param deliveryId a delivery identifier.
    * @param type an event type.
-   * @param encodedPayload a payload.
+   * @param encodedPayload a reduced payload.
    * @throws IOException when decoding the payload fails.
    */
   @RequestMapping
   public void handle(
       @NonNull @RequestHeader("X-Github-Delivery") UUID deliveryId,
       @NonNull @RequestHeader("X-GitHub-Event") String type,
-      @NonNull @RequestBody String encodedPayload) throws IOException {
-    PayloadType payloadType;
+      @NonNull @RequestBody EncodedPayload encodedPayload) throws IOException {
+    long start = System.nanoTime();
+    PayloadType payloadType = null;
+    String outcome = "error";
+
+    WebhookReceiptEvent receiptEvent = new WebhookReceiptEvent();
+    receiptEvent.begin();
 
     try {
-      payloadType = PayloadType.valueOf(type.toUpperCase());
-    } catch (IllegalArgumentException ex) {
-      logger.warn("Received unsupported payload of type \"" + type + "\"");
-      return;
-    }
+      try {
+        payloadType = PayloadType.valueOf(type.toUpperCase());
+      } catch (IllegalArgumentException ex) {
+        logger.warn("Received unsupported payload of type \"" + type + "\"");
+        outcome = "unsupported";
+        return;
+      }
+
+      PayloadParseEvent parseEvent = new PayloadParseEvent();
+      parseEvent.begin();
+
+      long parseStart = System.nanoTime();
+      Event event = payloadType.read(encodedPayload.getContent());
+      this.parseTimers.get(payloadType)
+          .record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
 
-    Payload<?> payload = new Payload<>(deliveryId, payloadType,
-        payloadType.read(encodedPayload));
-    this.communicationManager.handlePayload(payload);
+      parseEvent.end();
+      if (parseEvent.shouldCommit()) {
+        parseEvent.setPayloadType(payloadType.name());
+        parseEvent.setRepository(encodedPayload.getProjection().getRepository());
+        parseEvent.setPayloadSize(encodedPayload.getContent().length());
+        parseEvent.commit();
+      }
+
+      DeliveryTrace trace = DeliveryTrace.current();
+      if (trace != null) {
+        trace.stamp(Stage.PARSE);
+      }
+
+      if (this.history != null) {
+        this.history.record(deliveryId, payloadType, encodedPayload.getContent(),
+            encodedPayload.getProjection());
+      }
+
+      Payload<?> payload = new Payload<>(deliveryId, payloadType, event);
+      if (this.replicator != null) {
+        this.replicator.dispatch(deliveryId, payload, encodedPayload.getContent(),
+            encodedPayload.getProjection());
+      } else {
+        this.communicationManager.handlePayload(payload, encodedPayload.getProjection());
+      }
+      outcome = "success";
+    } finally {
+      // unsupported types are not tagged individually as their values are supplied by the caller
+      this.registry.timer("ejector.webhook.requests",
+          "type", payloadType == null ? "unsupported" : payloadType.name().toLowerCase(),
+          "outcome", outcome)
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+      receiptEvent.end();
+      if (receiptEvent.shouldCommit()) {
+        receiptEvent.setDeliveryId(deliveryId.toString());
+        receiptEvent.setPayloadType(payloadType == null ? type : payloadType.name());
+        receiptEvent.setRepository(encodedPayload.getProjection().getRepository());
+        receiptEvent.setPayloadSize(encodedPayload.getSize());
+        receiptEvent.commit();
+      }
+    }
   }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Counts the bytes which are read from a request body and rejects bodies which exceed the
+ * configured maximum size before they are consumed in their entirety.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+  private final long maximumSize;
+  private long size;
+
+  LimitedInputStream(@NonNull InputStream in, long maximumSize) {
+    super(in);
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Accounts for a number of bytes which have been read from the underlying stream.
+   *
+   * @param length an amount of bytes.
+   * @throws ResponseStatusException when the body exceeds the maximum size.
+   */
+  private void count(long length) {
+    this.size += length;
+
+    if (this.size > this.maximumSize) {
+      throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+          "Payload exceeds " + this.maximumSize + " bytes");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read() throws IOException {
+    int value = super.read();
+
+    if (value != -1) {
+      this.count(1);
+    }
+
+    return value;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int read(@NonNull byte[] b, int off, int len) throws IOException {
+    int length = super.read(b, off, len);
+
+    if (length > 0) {
+      this.count(length);
+    }
+
+    return length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+
+    if (skipped > 0) {
+      this.count(skipped);
+    }
+
+    return skipped;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean markSupported() {
+    // rewinding would cause bytes to be counted more than once
+    return false;
+  }
+}
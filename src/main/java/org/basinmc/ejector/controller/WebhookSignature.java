@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Function;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Hex;
+import org.basinmc.ejector.controller.GitHubAuthenticationAdvice.AuthenticationException;
+
+/**
+ * <p>Represents the expected signature of a webhook payload along with the Mac which computes the
+ * actual signature while the payload is consumed.</p>
+ *
+ * <p>Instances of this type are not thread safe and may only be used for a single payload.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class WebhookSignature {
+
+  private final Mac mac;
+  private final byte[] expected;
+
+  private WebhookSignature(@NonNull Mac mac, @NonNull byte[] expected) {
+    this.mac = mac;
+    this.expected = expected;
+  }
+
+  /**
+   * Parses the value of a signature header (e.g. {@code sha1=<hex>}).
+   *
+   * @param header a header value (if any).
+   * @param secret a shared secret.
+   * @return a signature.
+   * @throws AuthenticationException when the header is missing, malformed or uses an unsupported
+   *     algorithm.
+   */
+  @NonNull
+  public static WebhookSignature parse(@Nullable String header, @NonNull String secret) {
+    return parse(header, (algorithm) -> createMac(algorithm, secret));
+  }
+
+  /**
+   * <p>Parses the value of a signature header (e.g. {@code sha1=<hex>}) using a Mac which has
+   * been initialized by the caller.</p>
+   *
+   * <p>This permits callers which verify large amounts of signatures to re-use their Mac
+   * instances as a Mac is reset once the signature has been verified.</p>
+   *
+   * @param header a header value (if any).
+   * @param macProvider a function which provides an initialized Mac for a given algorithm name.
+   * @return a signature.
+   * @throws AuthenticationException when the header is missing, malformed or uses an unsupported
+   *     algorithm.
+   */
+  @NonNull
+  public static WebhookSignature parse(@Nullable String header,
+      @NonNull Function<String, Mac> macProvider) {
+    // before we're verifying anything, we'll evaluate whether a signature was placed at all
+    // and if not we'll simply deny access in its entirety
+    if (header == null) {
+      throw new AuthenticationException("Lacking WebHook signature");
+    }
+
+    // next up, we'll figure out which message digest algorithm is being used to sign the request
+    // (typically GitHub will use sha1, however, we're future proofing a little bit here)
+    int separatorIndex = header.indexOf('=');
+
+    if (separatorIndex == -1) {
+      throw new AuthenticationException("Malformed WebHook signature: No algorithm prefix");
+    }
+
+    String algorithm = header.substring(0, separatorIndex).toLowerCase();
+    String signature = header.substring(separatorIndex + 1);
+
+    switch (algorithm) {
+      case "sha1":
+        algorithm = "HmacSHA1";
+        break;
+      case "sha256":
+        algorithm = "HmacSHA256";
+        break;
+      default:
+        throw new AuthenticationException(
+            "Malformed WebHook signature: Unsupported signature algorithm \"" + algorithm + "\"");
+    }
+
+    // since we have now acquired the signature value and algorithm, we can now retrieve a Mac
+    // instance which has been initialized with the secret key - the body is then passed through
+    // the Mac as it is consumed
+    try {
+      return new WebhookSignature(macProvider.apply(algorithm), Hex.decodeHex(signature));
+    } catch (DecoderException ex) {
+      throw new AuthenticationException("Malformed WebHook signature: " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Constructs a new Mac for the specified algorithm and initializes it with a shared secret.
+   *
+   * @param algorithm a Mac algorithm name (such as {@code HmacSHA1}).
+   * @param secret a shared secret.
+   * @return an initialized Mac.
+   * @throws AuthenticationException when the algorithm is unavailable or the secret is
+   *     illegal.
+   */
+  @NonNull
+  public static Mac createMac(@NonNull String algorithm, @NonNull String secret) {
+    try {
+      Mac mac = Mac.getInstance(algorithm);
+      mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+      return mac;
+    } catch (NoSuchAlgorithmException ex) {
+      throw new AuthenticationException("Authentication is unavailable: " + ex.getMessage(), ex);
+    } catch (InvalidKeyException ex) {
+      throw new AuthenticationException("Illegal secret: " + ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * Retrieves the name of the Mac algorithm (e.g. {@code HmacSHA1}).
+   *
+   * @return an algorithm name.
+   */
+  @NonNull
+  public String getAlgorithm() {
+    return this.mac.getAlgorithm();
+  }
+
+  /**
+   * Passes a single byte of the payload through the Mac.
+   *
+   * @param value a byte.
+   */
+  public void update(byte value) {
+    this.mac.update(value);
+  }
+
+  /**
+   * Passes a section of the payload through the Mac.
+   *
+   * @param buffer a buffer.
+   * @param offset an offset within the buffer.
+   * @param length the amount of bytes to consume.
+   */
+  public void update(@NonNull byte[] buffer, int offset, int length) {
+    this.mac.update(buffer, offset, length);
+  }
+
+  /**
+   * Passes the remaining bytes of a buffer through the Mac.
+   *
+   * @param buffer a buffer.
+   */
+  public void update(@NonNull ByteBuffer buffer) {
+    this.mac.update(buffer);
+  }
+
+  /**
+   * Evaluates whether the signature of all consumed bytes matches the expected signature.
+   *
+   * @return true if matching, false otherwise.
+   */
+  public boolean verify() {
+    return MessageDigest.isEqual(this.mac.doFinal(), this.expected);
+  }
+}
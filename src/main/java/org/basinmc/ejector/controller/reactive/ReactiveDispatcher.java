@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller.reactive;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterCoordinator;
+import org.basinmc.ejector.communication.CommunicationAdapter;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.statistics.EventStatistics;
+import org.basinmc.stormdrain.Payload;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+/**
+ * <p>Hands payloads to all communication adapters through a separate lane per adapter.</p>
+ *
+ * <p>Each lane consists of a bounded queue which is drained by a dedicated single threaded
+ * scheduler. Lanes request a fixed amount of payloads at a time and thus a slow adapter never
+ * delays any other adapter. A payload is only accepted when all lanes have room for it - when
+ * any lane is saturated, the payload is rejected in its entirety and the caller is expected to
+ * retain it for a later replay.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveDispatcher implements DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(ReactiveDispatcher.class);
+
+  private final List<Lane> lanes = new ArrayList<>();
+  private final EventStatistics statistics;
+  private final ClusterCoordinator cluster;
+  private final Counter rejections;
+
+  @Autowired
+  public ReactiveDispatcher(@NonNull Collection<? extends CommunicationAdapter> adapters,
+      @Nullable @Autowired(required = false) EventStatistics statistics,
+      @Nullable @Autowired(required = false) ClusterCoordinator cluster,
+      @NonNull MeterRegistry registry,
+      @Value("${ejector.reactive.lane-capacity:1024}") int capacity,
+      @Value("${ejector.reactive.prefetch:32}") int prefetch) {
+    this.statistics = statistics;
+    this.cluster = cluster;
+    this.rejections = Counter.builder("ejector.reactive.rejections")
+        .description("Amount of payloads which were rejected due to saturated lanes")
+        .register(registry);
+
+    adapters.forEach((a) -> this.lanes.add(new Lane(a, cluster, capacity, prefetch, registry)));
+  }
+
+  /**
+   * Evaluates whether all lanes are currently capable of accepting another payload.
+   *
+   * @return true if capable, false otherwise.
+   */
+  public boolean hasCapacity() {
+    return this.lanes.stream().allMatch(Lane::hasCapacity);
+  }
+
+  /**
+   * Hands a payload to all adapters.
+   *
+   * @param deliveryId a delivery identifier.
+   * @param payload a payload.
+   * @param projection a projection of the payload.
+   * @return true if the payload has been accepted, false if any lane is saturated.
+   */
+  public boolean dispatch(@NonNull UUID deliveryId, @NonNull Payload<?> payload,
+      @NonNull Projection projection) {
+    int reserved = 0;
+
+    while (reserved < this.lanes.size() && this.lanes.get(reserved).reserve()) {
+      ++reserved;
+    }
+
+    if (reserved != this.lanes.size()) {
+      for (int i = 0; i < reserved; ++i) {
+        this.lanes.get(i).release();
+      }
+
+      this.rejections.increment();
+      return false;
+    }
+
+    if (this.statistics != null) {
+      this.statistics.record(payload);
+    }
+
+    Delivery delivery = new Delivery(deliveryId, payload, projection);
+    this.lanes.forEach((l) -> l.sink.next(delivery));
+    return true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.lanes.forEach(Lane::dispose);
+  }
+
+  /**
+   * Represents a payload which has been accepted for delivery.
+   */
+  private static final class Delivery {
+
+    private final UUID deliveryId;
+    private final Payload<?> payload;
+    private final Projection projection;
+
+    private Delivery(@NonNull UUID deliveryId, @NonNull Payload<?> payload,
+        @NonNull Projection projection) {
+      this.deliveryId = deliveryId;
+      this.payload = payload;
+      this.projection = projection;
+    }
+  }
+
+  /**
+   * Represents the bounded queue of a single adapter.
+   */
+  private static final class Lane {
+
+    private final CommunicationAdapter adapter;
+    private final ClusterCoordinator cluster;
+    private final int capacity;
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Scheduler scheduler;
+    private final FluxSink<Delivery> sink;
+    private final Timer timer;
+
+    private Lane(@NonNull CommunicationAdapter adapter, @Nullable ClusterCoordinator cluster,
+        int capacity, int prefetch, @NonNull MeterRegistry registry) {
+      String name = adapter.getClass().getSimpleName();
+
+      this.adapter = adapter;
+      this.cluster = cluster;
+      this.capacity = capacity;
+      this.scheduler = Schedulers.newSingle("adapter-" + name);
+      this.timer = Timer.builder("ejector.dispatch")
+          .description("Time spent handing payloads to an adapter (including rendering)")
+          .tag("adapter", name)
+          .register(registry);
+
+      Gauge.builder("ejector.reactive.lane.depth", this.depth, AtomicInteger::get)
+          .description("Amount of payloads which are awaiting delivery to an adapter")
+          .tag("adapter", name)
+          .register(registry);
+
+      // the queue is never exceeded as every payload reserves its slot before it is emitted
+      UnicastProcessor<Delivery> processor = UnicastProcessor
+          .create(Queues.<Delivery>get(capacity).get());
+      this.sink = processor.sink();
+      processor
+          .publishOn(this.scheduler, prefetch)
+          .subscribe(this::deliver);
+    }
+
+    private boolean hasCapacity() {
+      return this.depth.get() < this.capacity;
+    }
+
+    private boolean reserve() {
+      int current;
+
+      do {
+        current = this.depth.get();
+
+        if (current >= this.capacity) {
+          return false;
+        }
+      } while (!this.depth.compareAndSet(current, current + 1));
+
+      return true;
+    }
+
+    private void release() {
+      this.depth.decrementAndGet();
+    }
+
+    private void deliver(@NonNull Delivery delivery) {
+      long start = System.nanoTime();
+
+      try {
+        if (this.cluster == null) {
+          this.adapter.handlePayload(delivery.payload, delivery.projection);
+        } else {
+          this.cluster.deliver(delivery.deliveryId,
+              () -> this.adapter.handlePayload(delivery.payload, delivery.projection));
+        }
+      } catch (RuntimeException ex) {
+        // a failing adapter must never terminate its lane
+        logger.error("Adapter " + this.adapter.getClass().getSimpleName()
+            + " failed to handle payload of type " + delivery.payload.getType() + ": " + ex
+            .getMessage(), ex);
+      } finally {
+        this.timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        this.release();
+      }
+    }
+
+    private void dispose() {
+      this.sink.complete();
+      this.scheduler.dispose();
+    }
+  }
+}
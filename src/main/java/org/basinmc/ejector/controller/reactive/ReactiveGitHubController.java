@@ -0,0 +1,338 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller.reactive;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.cluster.ClusterReplicator;
+import org.basinmc.ejector.controller.EncodedPayload;
+import org.basinmc.ejector.controller.EncodedPayloadConverter;
+import org.basinmc.ejector.controller.GitHubAuthenticationAdvice.AuthenticationException;
+import org.basinmc.ejector.controller.WebhookSignature;
+import org.basinmc.ejector.history.DeliveryHistory;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <p>Provides a reactive variant of the GitHub webhook endpoint which is used when the
+ * application is started as a reactive web application (e.g. using the {@code reactive}
+ * profile).</p>
+ *
+ * <p>The request body is received as a sequence of buffers which are passed through the
+ * signature Mac as they arrive. Once the body has been received in its entirety, the buffers are
+ * joined (without copying where supported by the server) and decoded on the parallel scheduler
+ * so that the event loop remains available for accepting further requests. Decoded payloads are
+ * handed to the {@link ReactiveDispatcher} which rejects them when any adapter is saturated.</p>
+ *
+ * <p>GitHub does not redeliver rejected payloads on its own. As a result, rejected payloads are
+ * marked as undelivered within the delivery history (when enabled) so that they may be replayed
+ * once the adapters have caught up. When the history is disabled, payloads are rejected before
+ * their body is received and are lost unless they are redelivered manually.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequestMapping(path = "/hook/github", method = RequestMethod.POST, headers = {
+    "X-Github-Delivery",
+    "X-GitHub-Event"
+})
+public class ReactiveGitHubController {
+
+  private static final Logger logger = LogManager
+      .getFormatterLogger(ReactiveGitHubController.class);
+
+  private final EncodedPayloadConverter converter;
+  private final ReactiveDispatcher dispatcher;
+  private final ClusterReplicator replicator;
+  private final DeliveryHistory history;
+  private final MeterRegistry registry;
+  private final String secret;
+  private final int maximumPayloadSize;
+  private final Map<PayloadType, Timer> parseTimers = new EnumMap<>(PayloadType.class);
+
+  @Autowired
+  public ReactiveGitHubController(@NonNull EncodedPayloadConverter converter,
+      @NonNull ReactiveDispatcher dispatcher,
+      @Nullable @Autowired(required = false) ClusterReplicator replicator,
+      @Nullable @Autowired(required = false) DeliveryHistory history,
+      @NonNull MeterRegistry registry,
+      @NonNull @Value("${ejector.github.secret:}") String secret,
+      @Value("${ejector.reactive.maximum-payload-size:26214400}") int maximumPayloadSize) {
+    this.converter = converter;
+    this.dispatcher = dispatcher;
+    this.replicator = replicator;
+    this.history = history;
+    this.registry = registry;
+    this.secret = secret.isEmpty() ? null : secret;
+    this.maximumPayloadSize = maximumPayloadSize;
+
+    for (PayloadType type : PayloadType.values()) {
+      this.parseTimers.put(type, Timer.builder("ejector.webhook.parse")
+          .description("Time spent decoding GitHub payloads")
+          .tag("type", type.name().toLowerCase())
+          .register(registry));
+    }
+  }
+
+  /**
+   * Handles a single GitHub event.
+   *
+   * @param deliveryId a delivery identifier.
+   * @param type an event type.
+   * @param signatureHeader a payload signature (if any).
+   * @param request a request.
+   * @return a response.
+   */
+  @RequestMapping
+  public Mono<ResponseEntity<Void>> handle(
+      @NonNull @RequestHeader("X-Github-Delivery") UUID deliveryId,
+      @NonNull @RequestHeader("X-GitHub-Event") String type,
+      @Nullable @RequestHeader(value = "X-Hub-Signature", required = false) String signatureHeader,
+      @NonNull ServerHttpRequest request) {
+    long start = System.nanoTime();
+    PayloadType payloadType;
+
+    try {
+      payloadType = PayloadType.valueOf(type.toUpperCase());
+    } catch (IllegalArgumentException ex) {
+      logger.warn("Received unsupported payload of type \"" + type + "\"");
+      this.record(null, "unsupported", start);
+      return Mono.just(ResponseEntity.ok().<Void>build());
+    }
+
+    // without a history, saturated adapters are reported before the body is received as it
+    // would be rejected (and could not be retained) after decoding anyways
+    if (this.history == null && !this.dispatcher.hasCapacity()) {
+      logger.warn("Rejected payload %s as adapters are saturated", deliveryId);
+      this.record(payloadType, "rejected", start);
+      return Mono.just(rejected());
+    }
+
+    WebhookSignature signature;
+
+    try {
+      signature = this.secret == null ? null
+          : WebhookSignature.parse(signatureHeader, this.secret);
+    } catch (AuthenticationException ex) {
+      logger.warn("Rejected payload %s: %s", deliveryId, ex.getMessage());
+      this.record(payloadType, "forbidden", start);
+      return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).<Void>build());
+    }
+
+    return DataBufferUtils.join(this.receive(request.getBody(), signature))
+        .publishOn(Schedulers.parallel())
+        .map((body) -> this.decode(body, payloadType, signature))
+        .map((encodedPayload) -> {
+          long parseStart = System.nanoTime();
+          Event event;
+
+          try {
+            event = payloadType.read(encodedPayload.getContent());
+          } catch (IOException ex) {
+            throw new HttpMessageNotReadableException("Malformed payload: " + ex.getMessage(), ex);
+          }
+
+          this.parseTimers.get(payloadType)
+              .record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
+
+          // manual redeliveries through GitHub use the same delivery identifier and are thus
+          // only retained once
+          if (this.history != null) {
+            this.history.record(deliveryId, payloadType, encodedPayload.getContent(),
+                encodedPayload.getProjection());
+          }
+
+          // in failover mode, payloads are delivered by the primary in order of the shared log
+          if (this.replicator != null && this.replicator.isSequential()
+              && this.replicator.publish(deliveryId, payloadType, encodedPayload.getContent(),
+              encodedPayload.getProjection())) {
+            this.record(payloadType, "success", start);
+            return ResponseEntity.accepted().<Void>build();
+          }
+
+          Payload<?> payload = new Payload<>(deliveryId, payloadType, event);
+          if (!this.dispatcher.dispatch(deliveryId, payload, encodedPayload.getProjection())) {
+            logger.warn("Rejected payload %s as adapters are saturated", deliveryId);
+
+            if (this.history != null) {
+              this.history.markUndelivered(deliveryId);
+            }
+
+            this.record(payloadType, "rejected", start);
+            return rejected();
+          }
+
+          // payloads which have previously been rejected may have been redelivered manually
+          if (this.history != null) {
+            this.history.markDelivered(deliveryId);
+          }
+
+          if (this.replicator != null && !this.replicator.isSequential()) {
+            this.replicator.publish(deliveryId, payloadType, encodedPayload.getContent(),
+                encodedPayload.getProjection());
+          }
+
+          this.record(payloadType, "success", start);
+          return ResponseEntity.accepted().<Void>build();
+        })
+        .onErrorResume((ex) -> {
+          HttpStatus status = HttpStatus.BAD_REQUEST;
+          String outcome = "error";
+
+          if (ex instanceof AuthenticationException) {
+            status = HttpStatus.FORBIDDEN;
+            outcome = "forbidden";
+          } else if (ex instanceof PayloadTooLargeException) {
+            status = HttpStatus.PAYLOAD_TOO_LARGE;
+          } else if (!(ex instanceof HttpMessageNotReadableException)
+              && !(ex instanceof IOException)) {
+            return Mono.error(ex);
+          }
+
+          logger.warn("Rejected payload %s: %s", deliveryId, ex.getMessage());
+          this.record(payloadType, outcome, start);
+          return Mono.just(ResponseEntity.status(status).<Void>build());
+        });
+  }
+
+  /**
+   * Passes all buffers of a request body through the signature Mac (if any) as they are
+   * received while enforcing the maximum payload size.
+   *
+   * @param body a request body.
+   * @param signature an expected signature (if any).
+   * @return a request body.
+   */
+  @NonNull
+  private Flux<DataBuffer> receive(@NonNull Flux<DataBuffer> body,
+      @Nullable WebhookSignature signature) {
+    AtomicInteger size = new AtomicInteger();
+
+    return body.doOnNext((buffer) -> {
+      if (size.addAndGet(buffer.readableByteCount()) > this.maximumPayloadSize) {
+        DataBufferUtils.release(buffer);
+        throw new PayloadTooLargeException(
+            "Payload exceeds " + this.maximumPayloadSize + " bytes");
+      }
+
+      if (signature != null) {
+        // the returned view shares its content with the buffer and is never retained
+        signature.update(buffer.asByteBuffer());
+      }
+    });
+  }
+
+  /**
+   * Verifies the signature of a request body and decodes it.
+   *
+   * @param body a complete request body.
+   * @param payloadType a payload type.
+   * @param signature an expected signature (if any).
+   * @return a reduced payload.
+   */
+  @NonNull
+  private EncodedPayload decode(@NonNull DataBuffer body, @NonNull PayloadType payloadType,
+      @Nullable WebhookSignature signature) {
+    try (InputStream inputStream = body.asInputStream()) {
+      if (signature != null) {
+        long start = System.nanoTime();
+        boolean verified = signature.verify();
+
+        this.registry.timer("ejector.webhook.verification",
+            "algorithm", signature.getAlgorithm(),
+            "outcome", verified ? "success" : "failure")
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!verified) {
+          throw new AuthenticationException("Malformed WebHook signature: Mismatch");
+        }
+      }
+
+      return this.converter.decode(inputStream, payloadType.name());
+    } catch (IOException ex) {
+      throw new HttpMessageNotReadableException("Failed to read payload: " + ex.getMessage(), ex);
+    } finally {
+      DataBufferUtils.release(body);
+    }
+  }
+
+  /**
+   * Records the handling of a request.
+   *
+   * @param payloadType a payload type (or null if unsupported).
+   * @param outcome an outcome.
+   * @param start the time at which handling began (as returned by {@link System#nanoTime()}).
+   */
+  private void record(@Nullable PayloadType payloadType, @NonNull String outcome, long start) {
+    // unsupported types are not tagged individually as their values are supplied by the caller
+    this.registry.timer("ejector.webhook.requests",
+        "type", payloadType == null ? "unsupported" : payloadType.name().toLowerCase(),
+        "outcome", outcome)
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Creates a response which reports a payload as rejected (GitHub will display the delivery as
+   * failed but does not retry it).
+   *
+   * @return a response.
+   */
+  @NonNull
+  private static ResponseEntity<Void> rejected() {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+  }
+
+  /**
+   * Notifies the caller about a payload which exceeds the maximum permitted size.
+   */
+  private static final class PayloadTooLargeException extends RuntimeException {
+
+    private PayloadTooLargeException(String message) {
+      super(message);
+    }
+  }
+}
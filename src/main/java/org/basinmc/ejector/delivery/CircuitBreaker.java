@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>Guards the deliveries to a single target (such as a channel).</p>
+ *
+ * <p>The breaker opens once the configured amount of consecutive deliveries has failed and
+ * rejects all deliveries until its open period elapses. Afterwards, a single delivery is
+ * permitted as a probe: When it succeeds, the breaker closes again. Otherwise the breaker
+ * re-opens for twice the previous period (up to the configured maximum).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class CircuitBreaker {
+
+  private static final Logger logger = LogManager.getFormatterLogger(CircuitBreaker.class);
+
+  private final String name;
+  private final int failureThreshold;
+  private final long openDuration;
+  private final long maximumOpenDuration;
+
+  private State state = State.CLOSED;
+  private int failures;
+  private long delay;
+  private long retryAt;
+
+  CircuitBreaker(@NonNull String name, int failureThreshold, long openDuration,
+      long maximumOpenDuration) {
+    this.name = name;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.maximumOpenDuration = Math.max(openDuration, maximumOpenDuration);
+  }
+
+  @NonNull
+  public String getName() {
+    return this.name;
+  }
+
+  @NonNull
+  public synchronized State getState() {
+    return this.state;
+  }
+
+  /**
+   * Evaluates whether a delivery may be attempted. Callers which are permitted to deliver must
+   * report the outcome through {@link #onSuccess()} or {@link #onFailure()}.
+   *
+   * @return true if permitted, false if the delivery shall be skipped.
+   */
+  public synchronized boolean tryAcquire() {
+    switch (this.state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (System.currentTimeMillis() < this.retryAt) {
+          return false;
+        }
+
+        this.state = State.HALF_OPEN;
+        return true;
+      default:
+        // a probe is already in flight
+        return false;
+    }
+  }
+
+  /**
+   * Records a successful delivery.
+   */
+  public synchronized void onSuccess() {
+    if (this.state != State.CLOSED) {
+      logger.info("Circuit for %s has closed", this.name);
+    }
+
+    this.state = State.CLOSED;
+    this.failures = 0;
+    this.delay = 0;
+  }
+
+  /**
+   * Records a failed delivery.
+   */
+  public synchronized void onFailure() {
+    ++this.failures;
+
+    if (this.failureThreshold <= 0) {
+      return;
+    }
+
+    if (this.state == State.HALF_OPEN) {
+      this.delay = Math.min(this.maximumOpenDuration, this.delay * 2);
+      this.open();
+
+      logger.debug("Probe for %s has failed - Retrying in %d ms", this.name, this.delay);
+      return;
+    }
+
+    if (this.state == State.CLOSED && this.failures >= this.failureThreshold) {
+      this.delay = this.openDuration;
+      this.open();
+
+      logger.warn("Circuit for %s has opened after %d consecutive failures - Retrying in %d ms",
+          this.name, this.failures, this.delay);
+    }
+  }
+
+  private void open() {
+    this.state = State.OPEN;
+    this.retryAt = System.currentTimeMillis() + this.delay;
+  }
+
+  /**
+   * Provides a list of valid breaker states.
+   */
+  public enum State {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+  }
+}
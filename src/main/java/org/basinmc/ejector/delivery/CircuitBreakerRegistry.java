@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Manages the circuit breakers of all delivery targets.</p>
+ *
+ * <p>Breakers are created when a target is first used and retained for the lifetime of the
+ * application. Their state is exposed as {@code ejector.breaker.state} (0 = closed, 1 = half
+ * open, 2 = open).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class CircuitBreakerRegistry {
+
+  private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+  private final MeterRegistry registry;
+  private final int failureThreshold;
+  private final long openDuration;
+  private final long maximumOpenDuration;
+
+  /**
+   * @param failureThreshold the amount of consecutive failures after which a breaker opens (or
+   *     zero to disable breakers).
+   * @param openDuration the initial amount of milliseconds a breaker stays open.
+   * @param maximumOpenDuration the maximum amount of milliseconds a breaker stays open.
+   * @param registry a meter registry.
+   */
+  @Autowired
+  public CircuitBreakerRegistry(
+      @Value("${ejector.delivery.breaker.failure-threshold:5}") int failureThreshold,
+      @Value("${ejector.delivery.breaker.open-duration:1000}") long openDuration,
+      @Value("${ejector.delivery.breaker.maximum-open-duration:300000}") long maximumOpenDuration,
+      @NonNull MeterRegistry registry) {
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.maximumOpenDuration = maximumOpenDuration;
+    this.registry = registry;
+  }
+
+  /**
+   * Retrieves the breaker for the specified target (creating it if necessary).
+   *
+   * @param adapter an adapter name.
+   * @param target a target identifier.
+   * @return a breaker.
+   */
+  @NonNull
+  public CircuitBreaker get(@NonNull String adapter, @NonNull String target) {
+    return this.breakers.computeIfAbsent(adapter + "/" + target, (k) -> {
+      CircuitBreaker breaker = new CircuitBreaker(k, this.failureThreshold, this.openDuration,
+          this.maximumOpenDuration);
+
+      Gauge.builder("ejector.breaker.state", breaker, (b) -> b.getState().ordinal())
+          .description("Indicates whether deliveries to a target are currently skipped")
+          .tag("adapter", adapter)
+          .tag("channel", target)
+          .register(this.registry);
+
+      return breaker;
+    });
+  }
+}
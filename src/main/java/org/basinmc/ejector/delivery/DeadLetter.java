@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Instant;
+
+/**
+ * Represents a rendered message which could not be delivered to its target.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class DeadLetter {
+
+  private final long id;
+  private final String adapter;
+  private final String target;
+  private final String content;
+  private final String reason;
+  private final Instant failedAt;
+
+  DeadLetter(long id, @NonNull String adapter, @NonNull String target, @NonNull String content,
+      @NonNull String reason, @NonNull Instant failedAt) {
+    this.id = id;
+    this.adapter = adapter;
+    this.target = target;
+    this.content = content;
+    this.reason = reason;
+    this.failedAt = failedAt;
+  }
+
+  public long getId() {
+    return this.id;
+  }
+
+  @NonNull
+  public String getAdapter() {
+    return this.adapter;
+  }
+
+  /**
+   * Retrieves the identifier of the target (as chosen by its adapter) to which the message was
+   * addressed.
+   *
+   * @return a target identifier.
+   */
+  @NonNull
+  public String getTarget() {
+    return this.target;
+  }
+
+  /**
+   * Retrieves the rendered message (in an adapter specific representation).
+   *
+   * @return a message.
+   */
+  @NonNull
+  public String getContent() {
+    return this.content;
+  }
+
+  @NonNull
+  public String getReason() {
+    return this.reason;
+  }
+
+  @NonNull
+  public String getFailedAt() {
+    return this.failedAt.toString();
+  }
+
+  @NonNull
+  Instant getFailedAtInstant() {
+    return this.failedAt;
+  }
+}
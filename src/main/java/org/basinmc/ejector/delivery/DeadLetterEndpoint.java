@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Exposes the dead letter queue through the actuator (e.g. {@code /actuator/deadletters}).</p>
+ *
+ * <p>Letters are replayed by posting to the endpoint (optionally restricted to a single adapter
+ * such as {@code /actuator/deadletters/irc}). Replays are performed in the background in order of
+ * their original failure while letters which fail again are returned to the queue.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@Endpoint(id = "deadletters")
+public class DeadLetterEndpoint implements DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(DeadLetterEndpoint.class);
+
+  private final DeadLetterQueue queue;
+  private final Map<String, DeadLetterHandler> handlers = new HashMap<>();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor((r) -> {
+    Thread thread = new Thread(r);
+    thread.setName("dead-letter-replay");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Autowired
+  public DeadLetterEndpoint(@NonNull DeadLetterQueue queue,
+      @Nullable @Autowired(required = false) Collection<DeadLetterHandler> handlers) {
+    this.queue = queue;
+
+    if (handlers != null) {
+      handlers.forEach((h) -> this.handlers.put(h.getDeadLetterAdapter(), h));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Retrieves all letters which are awaiting replay.
+   *
+   * @return a list of letters.
+   */
+  @NonNull
+  @ReadOperation
+  public List<DeadLetter> letters() {
+    return this.queue.getLetters();
+  }
+
+  /**
+   * Replays all letters.
+   *
+   * @return the amount of letters which have been scheduled for replay.
+   */
+  @NonNull
+  @WriteOperation
+  public Map<String, Integer> replay() {
+    return this.replay(null);
+  }
+
+  /**
+   * Replays the letters of a single adapter.
+   *
+   * @param adapter an adapter name.
+   * @return the amount of letters which have been scheduled for replay.
+   */
+  @NonNull
+  @WriteOperation
+  public Map<String, Integer> replayAdapter(@NonNull @Selector String adapter) {
+    return this.replay(adapter);
+  }
+
+  @NonNull
+  private Map<String, Integer> replay(@Nullable String adapter) {
+    // letters of adapters which are currently disabled are retained until they are enabled again
+    List<DeadLetter> letters = this.queue.take((l) -> this.handlers.containsKey(l.getAdapter())
+        && (adapter == null || adapter.equals(l.getAdapter())));
+
+    this.executor.execute(() -> letters.forEach((l) -> {
+      try {
+        if (!this.handlers.get(l.getAdapter()).redeliver(l)) {
+          logger.warn("Discarding dead letter %d as target %s/%s no longer exists", l.getId(),
+              l.getAdapter(), l.getTarget());
+        }
+      } catch (RuntimeException ex) {
+        logger.error("Failed to replay dead letter " + l.getId() + ": " + ex.getMessage(), ex);
+      }
+    }));
+
+    return Collections.singletonMap("scheduled", letters.size());
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Provides a method of re-delivering the dead letters of an adapter.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public interface DeadLetterHandler {
+
+  /**
+   * Retrieves the name under which this adapter records its dead letters.
+   *
+   * @return an adapter name.
+   */
+  @NonNull
+  String getDeadLetterAdapter();
+
+  /**
+   * Attempts to deliver a dead letter once more. Letters which fail again are passed back to the
+   * dead letter queue.
+   *
+   * @param letter a dead letter.
+   * @return true if the delivery has been attempted, false if its target no longer exists.
+   */
+  boolean redeliver(@NonNull DeadLetter letter);
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Retains messages which could not be delivered so that they may be replayed once their
+ * target becomes available again.</p>
+ *
+ * <p>The queue is bounded and evicts its oldest letters when full. When a file has been
+ * configured, letters are loaded from it upon startup and written back periodically (as well as
+ * upon shutdown) as JSON lines.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class DeadLetterQueue implements DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(DeadLetterQueue.class);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final MeterRegistry registry;
+  private final int capacity;
+  private final Path file;
+  private final ScheduledExecutorService executor;
+
+  private final Deque<DeadLetter> letters = new ArrayDeque<>();
+  private long sequence;
+  private boolean modified;
+
+  /**
+   * @param capacity the maximum amount of retained letters.
+   * @param file the file in which letters are persisted (or an empty string to retain them in
+   *     memory only).
+   * @param flushInterval the amount of milliseconds between writes to the file.
+   * @param registry a meter registry.
+   */
+  @Autowired
+  public DeadLetterQueue(
+      @Value("${ejector.delivery.dead-letters.capacity:1000}") int capacity,
+      @NonNull @Value("${ejector.delivery.dead-letters.file:}") String file,
+      @Value("${ejector.delivery.dead-letters.flush-interval:5000}") long flushInterval,
+      @NonNull MeterRegistry registry) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Dead letter capacity must be positive");
+    }
+
+    this.capacity = capacity;
+    this.registry = registry;
+    this.file = file.isEmpty() ? null : Paths.get(file).toAbsolutePath().normalize();
+
+    Gauge.builder("ejector.dead-letters", this, DeadLetterQueue::size)
+        .description("Amount of messages which are awaiting replay")
+        .register(registry);
+
+    if (this.file == null) {
+      this.executor = null;
+      return;
+    }
+
+    this.load();
+
+    this.executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+      Thread thread = new Thread(r);
+      thread.setName("dead-letter-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    if (this.executor != null) {
+      this.executor.shutdownNow();
+      this.flush();
+    }
+  }
+
+  /**
+   * Records a message which could not be delivered.
+   *
+   * @param adapter the name of the responsible adapter.
+   * @param target a target identifier.
+   * @param content a rendered message.
+   * @param reason a human readable failure reason.
+   */
+  public void add(@NonNull String adapter, @NonNull String target, @NonNull String content,
+      @NonNull String reason) {
+    this.append(adapter, target, content, reason, Instant.now());
+  }
+
+  /**
+   * Appends a letter to the queue (evicting the oldest letter when the queue is full).
+   */
+  private void append(@NonNull String adapter, @NonNull String target, @NonNull String content,
+      @NonNull String reason, @NonNull Instant failedAt) {
+    synchronized (this.letters) {
+      if (this.letters.size() == this.capacity) {
+        this.letters.removeFirst();
+        this.registry.counter("ejector.dead-letters.evictions").increment();
+      }
+
+      this.letters.addLast(new DeadLetter(this.sequence++, adapter, target, content, reason,
+          failedAt));
+      this.modified = true;
+    }
+  }
+
+  /**
+   * Retrieves the amount of retained letters.
+   *
+   * @return a letter count.
+   */
+  public int size() {
+    synchronized (this.letters) {
+      return this.letters.size();
+    }
+  }
+
+  /**
+   * Retrieves a snapshot of all retained letters (in order of their failure).
+   *
+   * @return a list of letters.
+   */
+  @NonNull
+  public List<DeadLetter> getLetters() {
+    synchronized (this.letters) {
+      return new ArrayList<>(this.letters);
+    }
+  }
+
+  /**
+   * Removes all letters which match the specified predicate from the queue.
+   *
+   * @param predicate a predicate.
+   * @return a list of removed letters (in order of their failure).
+   */
+  @NonNull
+  public List<DeadLetter> take(@NonNull Predicate<DeadLetter> predicate) {
+    List<DeadLetter> result = new ArrayList<>();
+
+    synchronized (this.letters) {
+      Iterator<DeadLetter> it = this.letters.iterator();
+
+      while (it.hasNext()) {
+        DeadLetter letter = it.next();
+
+        if (predicate.test(letter)) {
+          it.remove();
+          result.add(letter);
+        }
+      }
+
+      if (!result.isEmpty()) {
+        this.modified = true;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Loads all persisted letters.
+   */
+  private void load() {
+    try (BufferedReader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        JsonNode node = this.mapper.readTree(line);
+        this.append(node.path("adapter").asText(), node.path("target").asText(),
+            node.path("content").asText(), node.path("reason").asText(),
+            Instant.ofEpochMilli(node.path("failed-at").asLong()));
+      }
+    } catch (NoSuchFileException ignore) {
+    } catch (IOException | RuntimeException ex) {
+      logger.error("Failed to load dead letters from " + this.file + ": " + ex.getMessage(), ex);
+    }
+
+    synchronized (this.letters) {
+      this.modified = false;
+    }
+  }
+
+  /**
+   * Writes all letters to the configured file (if they have been modified since they have last
+   * been written).
+   */
+  private void flush() {
+    List<DeadLetter> snapshot;
+
+    synchronized (this.letters) {
+      if (!this.modified) {
+        return;
+      }
+
+      snapshot = new ArrayList<>(this.letters);
+      this.modified = false;
+    }
+
+    Path temporary = this.file.resolveSibling("." + this.file.getFileName() + ".tmp");
+
+    try {
+      Files.createDirectories(this.file.getParent());
+
+      try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        for (DeadLetter letter : snapshot) {
+          ObjectNode node = this.mapper.createObjectNode()
+              .put("adapter", letter.getAdapter())
+              .put("target", letter.getTarget())
+              .put("content", letter.getContent())
+              .put("reason", letter.getReason())
+              .put("failed-at", letter.getFailedAtInstant().toEpochMilli());
+
+          writer.write(this.mapper.writeValueAsString(node));
+          writer.newLine();
+        }
+      }
+
+      Files.move(temporary, this.file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      logger.error("Failed to write dead letters to " + this.file + ": " + ex.getMessage(), ex);
+
+      synchronized (this.letters) {
+        this.modified = true;
+      }
+    }
+  }
+}
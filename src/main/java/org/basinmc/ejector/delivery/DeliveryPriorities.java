@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.EnumMap;
+import java.util.Map;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Assigns outbound deliveries to their priority lanes.</p>
+ *
+ * <p>Adapters queue their messages per target (within the limits of the target's rate limit) in
+ * a {@link WeightedFairQueue}. Payload types which have not been assigned a priority explicitly
+ * are delivered with normal priority (as are messages which do not originate from a
+ * payload).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class DeliveryPriorities {
+
+  private final Map<PayloadType, DeliveryPriority> priorities = new EnumMap<>(PayloadType.class);
+  private final int[] weights;
+  private final int capacity;
+
+  /**
+   * @param high a list of payload types which are delivered with high priority.
+   * @param low a list of payload types which are delivered with low priority.
+   * @param highWeight the share of deliveries which is reserved for high priority lanes.
+   * @param normalWeight the share of deliveries which is reserved for normal priority lanes.
+   * @param lowWeight the share of deliveries which is reserved for low priority lanes.
+   * @param capacity the maximum amount of queued messages per target.
+   */
+  @Autowired
+  public DeliveryPriorities(
+      @NonNull @Value("${ejector.delivery.priority.high:org_block,member,release}") String[] high,
+      @NonNull @Value("${ejector.delivery.priority.low:push,issue_comment,commit_comment,"
+          + "pull_request_review_comment,gollum,watch}") String[] low,
+      @Value("${ejector.delivery.weight.high:8}") int highWeight,
+      @Value("${ejector.delivery.weight.normal:4}") int normalWeight,
+      @Value("${ejector.delivery.weight.low:1}") int lowWeight,
+      @Value("${ejector.delivery.queue-capacity:256}") int capacity) {
+    for (String type : high) {
+      this.priorities.put(PayloadType.valueOf(type.trim().toUpperCase()), DeliveryPriority.HIGH);
+    }
+    for (String type : low) {
+      this.priorities.put(PayloadType.valueOf(type.trim().toUpperCase()), DeliveryPriority.LOW);
+    }
+
+    this.weights = new int[]{Math.max(1, highWeight), Math.max(1, normalWeight),
+        Math.max(1, lowWeight)};
+    this.capacity = capacity;
+  }
+
+  /**
+   * Retrieves the priority with which payloads of the specified type are delivered.
+   *
+   * @param type a payload type.
+   * @return a priority.
+   */
+  @NonNull
+  public DeliveryPriority getPriority(@NonNull PayloadType type) {
+    return this.priorities.getOrDefault(type, DeliveryPriority.NORMAL);
+  }
+
+  /**
+   * Constructs a new queue for the outbound messages of a single target.
+   *
+   * @param <T> a message type.
+   * @return a queue.
+   */
+  @NonNull
+  public <T> WeightedFairQueue<T> newQueue() {
+    return new WeightedFairQueue<>(this.capacity, this.weights);
+  }
+}
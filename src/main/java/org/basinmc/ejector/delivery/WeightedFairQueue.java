@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * <p>Provides a bounded queue which holds one lane per delivery priority.</p>
+ *
+ * <p>Lanes are served through smooth weighted round robin: Every lane receives a share of the
+ * retrieved elements which is proportional to its weight (while lanes without elements are
+ * skipped) and thus higher priorities overtake lower priorities without starving them. When the
+ * queue is full, the oldest element of the lowest non-empty lane (which does not exceed the
+ * priority of the offered element) is shed.</p>
+ *
+ * @param <T> an element type.
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class WeightedFairQueue<T> {
+
+  private static final DeliveryPriority[] PRIORITIES = DeliveryPriority.values();
+
+  private final int capacity;
+  private final int[] weights;
+  private final int[] credits = new int[PRIORITIES.length];
+  private final List<Deque<T>> lanes = new ArrayList<>(PRIORITIES.length);
+  private int size;
+
+  /**
+   * @param capacity the maximum amount of elements (across all lanes).
+   * @param weights the weights of all lanes (in order of their priority).
+   */
+  WeightedFairQueue(int capacity, @NonNull int[] weights) {
+    this.capacity = Math.max(1, capacity);
+    this.weights = weights;
+
+    for (int i = 0; i < PRIORITIES.length; ++i) {
+      this.lanes.add(new ArrayDeque<>());
+    }
+  }
+
+  /**
+   * Appends an element to the lane of the specified priority.
+   *
+   * @param element an element.
+   * @param priority a priority.
+   * @return an element which has been shed in order to stay within the queue capacity or null if
+   *     the queue had remaining capacity.
+   */
+  @Nullable
+  public synchronized T offer(@NonNull T element, @NonNull DeliveryPriority priority) {
+    this.lanes.get(priority.ordinal()).addLast(element);
+    this.notify();
+
+    if (this.size < this.capacity) {
+      ++this.size;
+      return null;
+    }
+
+    // the lane of the offered element is not empty and thus an element is always shed
+    for (int i = PRIORITIES.length - 1; ; --i) {
+      Deque<T> lane = this.lanes.get(i);
+
+      if (!lane.isEmpty()) {
+        return lane.pollFirst();
+      }
+    }
+  }
+
+  /**
+   * Retrieves and removes the next element.
+   *
+   * @return an element or null if the queue is empty.
+   */
+  @Nullable
+  public synchronized T poll() {
+    int total = 0;
+    int selected = -1;
+
+    for (int i = 0; i < PRIORITIES.length; ++i) {
+      if (this.lanes.get(i).isEmpty()) {
+        this.credits[i] = 0;
+        continue;
+      }
+
+      this.credits[i] += this.weights[i];
+      total += this.weights[i];
+
+      if (selected == -1 || this.credits[i] > this.credits[selected]) {
+        selected = i;
+      }
+    }
+
+    if (selected == -1) {
+      return null;
+    }
+
+    this.credits[selected] -= total;
+    --this.size;
+    return this.lanes.get(selected).pollFirst();
+  }
+
+  /**
+   * Retrieves and removes the next element (waiting for an element to become available if
+   * necessary).
+   *
+   * @return an element.
+   * @throws InterruptedException when the thread is interrupted while waiting.
+   */
+  @NonNull
+  public synchronized T take() throws InterruptedException {
+    while (this.size == 0) {
+      this.wait();
+    }
+
+    return this.poll();
+  }
+
+  /**
+   * Removes all elements from the queue.
+   *
+   * @return a list of removed elements (in order of their priority).
+   */
+  @NonNull
+  public synchronized List<T> clear() {
+    List<T> elements = new ArrayList<>(this.size);
+
+    for (int i = 0; i < PRIORITIES.length; ++i) {
+      elements.addAll(this.lanes.get(i));
+      this.lanes.get(i).clear();
+      this.credits[i] = 0;
+    }
+
+    this.size = 0;
+    return elements;
+  }
+
+  public synchronized int size() {
+    return this.size;
+  }
+}
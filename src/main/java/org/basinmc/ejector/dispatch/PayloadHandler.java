@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.dispatch;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.basinmc.stormdrain.PayloadType;
+
+/**
+ * <p>Marks a method as the handler for a specific payload type.</p>
+ *
+ * <p>A dispatcher named {@code <Type>Dispatcher} is generated for each type which declares
+ * handlers. It exposes a {@code supports(PayloadType)} method as well as a {@code dispatch} method
+ * which accepts the declaring instance, the payload type, all parameters which are shared between
+ * the handlers (in declaration order), the event and its projection.</p>
+ *
+ * <p>Handlers must not be private or static, accept exactly one event parameter and may
+ * optionally accept the payload projection. All remaining parameters as well as the return type
+ * must be equal between the handlers of a type.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface PayloadHandler {
+
+  /**
+   * Selects the payload type which is handled by the annotated method.
+   *
+   * @return a payload type.
+   */
+  PayloadType value();
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.dispatch.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * <p>Generates a switch based dispatcher for each type which declares payload handlers.</p>
+ *
+ * <p>Handlers which do not match the shape of the remaining handlers within their type, handlers
+ * whose event parameter does not accept the event of their payload type, as well as duplicate
+ * handlers, are reported as errors. Payload types which are not handled by a type are reported as
+ * warnings.</p>
+ *
+ * <p>As the event class of a payload type is not visible to the processor, it is derived from
+ * the name of its constant (e.g. {@code PULL_REQUEST} is expected to deliver a
+ * {@code PullRequestEvent}).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@SupportedAnnotationTypes(PayloadDispatcherProcessor.HANDLER_TYPE)
+public class PayloadDispatcherProcessor extends AbstractProcessor {
+
+  static final String HANDLER_TYPE = "org.basinmc.ejector.dispatch.PayloadHandler";
+  private static final String EVENT_TYPE = "org.basinmc.stormdrain.event.Event";
+  private static final String PAYLOAD_TYPE = "org.basinmc.stormdrain.PayloadType";
+  private static final String PROJECTION_TYPE = "org.basinmc.ejector.projection.Projection";
+
+  /**
+   * Defines the event classes of payload types which do not follow the naming convention.
+   */
+  private static final Map<String, String> EVENT_NAMES = Map.of(
+      "ORG_BLOCK", "OrganizationBlockEvent"
+  );
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    Map<TypeElement, List<ExecutableElement>> handlerMap = new LinkedHashMap<>();
+
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        handlerMap.computeIfAbsent((TypeElement) element.getEnclosingElement(),
+            (k) -> new ArrayList<>())
+            .add((ExecutableElement) element);
+      }
+    }
+
+    handlerMap.forEach(this::generate);
+    return true;
+  }
+
+  /**
+   * Validates the handlers of a given type and generates its dispatcher.
+   *
+   * @param type a declaring type.
+   * @param handlers a list of handler methods.
+   */
+  private void generate(TypeElement type, List<ExecutableElement> handlers) {
+    Elements elements = this.processingEnv.getElementUtils();
+    Types types = this.processingEnv.getTypeUtils();
+
+    TypeElement payloadTypeElement = elements.getTypeElement(PAYLOAD_TYPE);
+    TypeMirror eventType = elements.getTypeElement(EVENT_TYPE).asType();
+    TypeMirror projectionType = elements.getTypeElement(PROJECTION_TYPE).asType();
+
+    if (type.getNestingKind() != NestingKind.TOP_LEVEL) {
+      this.error(type, "Payload handlers may only be declared within top level types");
+      return;
+    }
+
+    boolean valid = true;
+    ExecutableElement template = null;
+    List<TypeMirror> sharedTypes = null;
+    Map<String, ExecutableElement> handlerMap = new TreeMap<>();
+
+    for (ExecutableElement handler : handlers) {
+      if (handler.getModifiers().contains(Modifier.PRIVATE)
+          || handler.getModifiers().contains(Modifier.STATIC)) {
+        this.error(handler, "Payload handlers must not be private or static");
+        valid = false;
+        continue;
+      }
+
+      int eventCount = 0;
+      int projectionCount = 0;
+      TypeMirror handlerEventType = null;
+      List<TypeMirror> shared = new ArrayList<>();
+
+      for (VariableElement parameter : handler.getParameters()) {
+        TypeMirror parameterType = parameter.asType();
+
+        if (types.isSameType(parameterType, projectionType)) {
+          ++projectionCount;
+        } else if (types.isAssignable(parameterType, eventType)) {
+          ++eventCount;
+          handlerEventType = parameterType;
+        } else {
+          shared.add(parameterType);
+        }
+      }
+
+      if (eventCount != 1 || projectionCount > 1) {
+        this.error(handler,
+            "Payload handlers must accept exactly one event and at most one projection");
+        valid = false;
+        continue;
+      }
+
+      if (handler.getReturnType().getKind().isPrimitive()) {
+        this.error(handler, "Payload handlers must return void or an object");
+        valid = false;
+        continue;
+      }
+
+      if (template == null) {
+        template = handler;
+        sharedTypes = shared;
+      } else if (!types.isSameType(template.getReturnType(), handler.getReturnType())
+          || !isSameTypes(types, sharedTypes, shared)) {
+        this.error(handler, "Payload handler signature differs from %s",
+            template.getSimpleName());
+        valid = false;
+        continue;
+      }
+
+      String payloadType = getPayloadType(handler);
+      TypeElement payloadEventType = elements.getTypeElement(getEventType(payloadType));
+
+      if (payloadEventType == null) {
+        this.processingEnv.getMessager().printMessage(Kind.WARNING,
+            String.format("Cannot determine the event type of payload type %s", payloadType),
+            handler);
+      } else if (!types.isAssignable(types.erasure(payloadEventType.asType()),
+          types.erasure(handlerEventType))) {
+        this.error(handler, "Payload type %s delivers %s which is not accepted by %s",
+            payloadType, payloadEventType.getSimpleName(), handlerEventType);
+        valid = false;
+        continue;
+      }
+
+      ExecutableElement previous = handlerMap.putIfAbsent(payloadType, handler);
+
+      if (previous != null) {
+        this.error(handler, "Duplicate handler for payload type %s", payloadType);
+        valid = false;
+      }
+    }
+
+    if (!valid || template == null) {
+      return;
+    }
+
+    // payload types which are not handled are permitted (e.g. when a service has no sensible
+    // representation for an event) but are surfaced in order to make gaps visible
+    for (Element constant : payloadTypeElement.getEnclosedElements()) {
+      if (constant.getKind() == ElementKind.ENUM_CONSTANT
+          && !handlerMap.containsKey(constant.getSimpleName().toString())) {
+        this.processingEnv.getMessager().printMessage(Kind.WARNING,
+            String.format("Payload type %s is not handled by %s", constant.getSimpleName(),
+                type.getSimpleName()), type);
+      }
+    }
+
+    try {
+      this.write(type, template, handlerMap, projectionType);
+    } catch (IOException ex) {
+      this.error(type, "Failed to write dispatcher: %s", ex.getMessage());
+    }
+  }
+
+  /**
+   * Writes the dispatcher source for a given type.
+   *
+   * @param type a declaring type.
+   * @param template a handler which defines the dispatcher signature.
+   * @param handlerMap a map of payload type names and their respective handlers.
+   * @param projectionType the projection type.
+   * @throws IOException when writing the source file fails.
+   */
+  private void write(TypeElement type, ExecutableElement template,
+      Map<String, ExecutableElement> handlerMap, TypeMirror projectionType) throws IOException {
+    Types types = this.processingEnv.getTypeUtils();
+    TypeMirror eventType = this.processingEnv.getElementUtils().getTypeElement(EVENT_TYPE)
+        .asType();
+
+    String packageName = this.processingEnv.getElementUtils().getPackageOf(type)
+        .getQualifiedName().toString();
+    String dispatcherName = type.getSimpleName() + "Dispatcher";
+    boolean returnsVoid = template.getReturnType().getKind() == TypeKind.VOID;
+
+    // shared parameters retain the names of the first handler
+    List<String> sharedParameters = new ArrayList<>();
+    StringBuilder signature = new StringBuilder();
+
+    for (VariableElement parameter : template.getParameters()) {
+      TypeMirror parameterType = parameter.asType();
+
+      if (!types.isSameType(parameterType, projectionType)
+          && !types.isAssignable(parameterType, eventType)) {
+        sharedParameters.add(parameter.getSimpleName().toString());
+        signature.append(", ").append(parameterType).append(' ').append(parameter.getSimpleName());
+      }
+    }
+
+    try (PrintWriter writer = new PrintWriter(this.processingEnv.getFiler()
+        .createSourceFile(packageName + "." + dispatcherName, type).openWriter())) {
+      writer.printf("package %s;%n%n", packageName);
+      writer.println("/**");
+      writer.printf(" * Dispatches payloads to the handlers declared by {@link %s}.%n",
+          type.getSimpleName());
+      writer.println(" */");
+      writer.printf("@javax.annotation.processing.Generated(\"%s\")%n", getClass().getName());
+      writer.printf("final class %s {%n%n", dispatcherName);
+      writer.printf("  private %s() {%n  }%n%n", dispatcherName);
+
+      writer.println("  /**");
+      writer.println("   * Evaluates whether a handler exists for the specified payload type.");
+      writer.println("   */");
+      writer.printf("  static boolean supports(%s type) {%n", PAYLOAD_TYPE);
+      writer.println("    switch (type) {");
+      handlerMap.keySet().forEach((t) -> writer.printf("      case %s:%n", t));
+      writer.println("        return true;");
+      writer.println("      default:");
+      writer.println("        return false;");
+      writer.println("    }");
+      writer.println("  }");
+      writer.println();
+
+      writer.println("  /**");
+      writer.printf("   * Invokes the handler for the specified payload type (returns %s if no%n",
+          returnsVoid ? "false" : "null");
+      writer.println("   * handler exists).");
+      writer.println("   */");
+      writer.printf("  static %s dispatch(%s instance, %s type%s, %s event, %s projection) {%n",
+          returnsVoid ? "boolean" : template.getReturnType(), type.getQualifiedName(),
+          PAYLOAD_TYPE, signature, EVENT_TYPE, projectionType);
+      writer.println("    switch (type) {");
+
+      handlerMap.forEach((payloadType, handler) -> {
+        List<String> arguments = new ArrayList<>();
+        int sharedIndex = 0;
+
+        for (VariableElement parameter : handler.getParameters()) {
+          TypeMirror parameterType = parameter.asType();
+
+          if (types.isSameType(parameterType, projectionType)) {
+            arguments.add("projection");
+          } else if (types.isAssignable(parameterType, eventType)) {
+            arguments.add("(" + types.erasure(parameterType) + ") event");
+          } else {
+            arguments.add(sharedParameters.get(sharedIndex++));
+          }
+        }
+
+        String invocation = String.format("instance.%s(%s)", handler.getSimpleName(),
+            String.join(", ", arguments));
+
+        writer.printf("      case %s:%n", payloadType);
+        if (returnsVoid) {
+          writer.printf("        %s;%n", invocation);
+          writer.println("        return true;");
+        } else {
+          writer.printf("        return %s;%n", invocation);
+        }
+      });
+
+      writer.println("      default:");
+      writer.printf("        return %s;%n", returnsVoid ? "false" : "null");
+      writer.println("    }");
+      writer.println("  }");
+      writer.println("}");
+    }
+  }
+
+  /**
+   * Retrieves the name of the payload type which is handled by a given method.
+   *
+   * @param handler a handler method.
+   * @return a payload type name.
+   */
+  private static String getPayloadType(ExecutableElement handler) {
+    for (AnnotationMirror annotation : handler.getAnnotationMirrors()) {
+      if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName()
+          .contentEquals(HANDLER_TYPE)) {
+        continue;
+      }
+
+      for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation
+          .getElementValues().entrySet()) {
+        if (entry.getKey().getSimpleName().contentEquals("value")) {
+          return ((VariableElement) entry.getValue().getValue()).getSimpleName().toString();
+        }
+      }
+    }
+
+    throw new IllegalStateException("Handler " + handler + " is missing its payload type");
+  }
+
+  /**
+   * Retrieves the qualified name of the event class which is delivered for a given payload type.
+   *
+   * @param payloadType a payload type name.
+   * @return a qualified class name.
+   */
+  private static String getEventType(String payloadType) {
+    String name = EVENT_NAMES.get(payloadType);
+
+    if (name == null) {
+      StringBuilder builder = new StringBuilder();
+
+      for (String word : payloadType.split("_")) {
+        builder.append(word.charAt(0))
+            .append(word.substring(1).toLowerCase(Locale.ROOT));
+      }
+
+      name = builder.append("Event").toString();
+    }
+
+    return EVENT_TYPE.substring(0, EVENT_TYPE.lastIndexOf('.') + 1) + name;
+  }
+
+  /**
+   * Evaluates whether two lists of types are equal.
+   *
+   * @param types the type utilities.
+   * @param a a list of types.
+   * @param b a list of types.
+   * @return true if equal, false otherwise.
+   */
+  private static boolean isSameTypes(Types types, List<TypeMirror> a, List<TypeMirror> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+
+    for (int i = 0; i < a.size(); ++i) {
+      if (!types.isSameType(a.get(i), b.get(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Reports an error for a given element.
+   *
+   * @param element an element.
+   * @param format a message format.
+   * @param arguments a set of format arguments.
+   */
+  private void error(Element element, String format, Object... arguments) {
+    this.processingEnv.getMessager()
+        .printMessage(Kind.ERROR, String.format(format, arguments), element);
+  }
+}
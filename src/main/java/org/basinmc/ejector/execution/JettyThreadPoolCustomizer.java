@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.execution;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replaces the platform thread pool of the embedded Jetty server with a virtual thread backed
+ * pool when virtual threads have been enabled.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class JettyThreadPoolCustomizer implements
+    WebServerFactoryCustomizer<JettyServletWebServerFactory> {
+
+  private static final Logger logger = LogManager
+      .getFormatterLogger(JettyThreadPoolCustomizer.class);
+
+  private final VirtualThreads virtualThreads;
+  private final int maximumThreads;
+
+  @Autowired
+  public JettyThreadPoolCustomizer(@NonNull VirtualThreads virtualThreads,
+      @Value("${ejector.threads.jetty-maximum:4096}") int maximumThreads) {
+    this.virtualThreads = virtualThreads;
+    this.maximumThreads = maximumThreads;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void customize(@NonNull JettyServletWebServerFactory factory) {
+    if (!this.virtualThreads.isEnabled()) {
+      return;
+    }
+
+    logger.info("Using virtual threads for request handling (up to %d concurrent workers)",
+        this.maximumThreads);
+    factory.setThreadPool(new VirtualThreadPool(this.virtualThreads, this.maximumThreads));
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.execution;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * <p>Provides a Jetty thread pool which backs its workers with virtual threads.</p>
+ *
+ * <p>The pool retains the queueing and lifecycle semantics of its parent while its workers no
+ * longer occupy a platform thread while blocked (e.g. while a request waits for an adapter to
+ * complete its delivery). As a result, the maximum amount of workers may be raised considerably
+ * without increasing the amount of platform threads.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+class VirtualThreadPool extends QueuedThreadPool {
+
+  private final VirtualThreads virtualThreads;
+
+  VirtualThreadPool(@NonNull VirtualThreads virtualThreads, int maximumThreads) {
+    super(maximumThreads);
+    this.virtualThreads = virtualThreads;
+
+    // virtual threads are always daemon threads and reject any attempt to change this property
+    this.setDaemon(true);
+    this.setName("jetty-virtual");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected Thread newThread(@NonNull Runnable runnable) {
+    return this.virtualThreads.newThread(runnable);
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.execution;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides access to virtual threads when they have been enabled and are supported by the
+ * runtime.</p>
+ *
+ * <p>As the application targets Java 11, the virtual thread API is accessed reflectively. When
+ * the runtime does not provide virtual threads, a warning is logged and all components fall back
+ * to their platform thread pools.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class VirtualThreads {
+
+  private static final Logger logger = LogManager.getFormatterLogger(VirtualThreads.class);
+
+  private static final Method ofVirtualMethod;
+  private static final Method nameMethod;
+  private static final Method factoryMethod;
+  private static final Method unstartedMethod;
+  private static final Method newThreadPerTaskExecutorMethod;
+
+  private final boolean enabled;
+
+  static {
+    Method ofVirtual = null;
+    Method name = null;
+    Method factory = null;
+    Method unstarted = null;
+    Method newThreadPerTaskExecutor = null;
+
+    try {
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      name = builderType.getMethod("name", String.class, long.class);
+      factory = builderType.getMethod("factory");
+      unstarted = builderType.getMethod("unstarted", Runnable.class);
+      newThreadPerTaskExecutor = Executors.class
+          .getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+      // preview releases expose the API but reject its use unless preview features are enabled
+      ofVirtual.invoke(null);
+    } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+        | InvocationTargetException ex) {
+      ofVirtual = null;
+    }
+
+    ofVirtualMethod = ofVirtual;
+    nameMethod = name;
+    factoryMethod = factory;
+    unstartedMethod = unstarted;
+    newThreadPerTaskExecutorMethod = newThreadPerTaskExecutor;
+  }
+
+  @Autowired
+  public VirtualThreads(@Value("${ejector.threads.virtual:false}") boolean requested) {
+    this.enabled = requested && isSupported();
+
+    if (requested && !this.enabled) {
+      logger.warn("Virtual threads are not supported by this runtime - Using platform threads");
+    }
+  }
+
+  /**
+   * Evaluates whether the runtime supports virtual threads.
+   *
+   * @return true if supported, false otherwise.
+   */
+  public static boolean isSupported() {
+    return ofVirtualMethod != null && newThreadPerTaskExecutorMethod != null;
+  }
+
+  /**
+   * Evaluates whether virtual threads have been enabled (and are supported).
+   *
+   * @return true if enabled, false otherwise.
+   */
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Creates a new executor which starts a new virtual thread for each task.
+   *
+   * @param prefix a thread name prefix.
+   * @return an executor.
+   * @throws IllegalStateException when virtual threads are not enabled.
+   */
+  @NonNull
+  public ExecutorService newExecutor(@NonNull String prefix) {
+    ThreadFactory factory = (ThreadFactory) this.invoke(factoryMethod, this.builder(prefix));
+    return (ExecutorService) this.invoke(newThreadPerTaskExecutorMethod, null, factory);
+  }
+
+  /**
+   * Creates a new unstarted (and unnamed) virtual thread.
+   *
+   * @param task a task.
+   * @return a thread.
+   * @throws IllegalStateException when virtual threads are not enabled.
+   */
+  @NonNull
+  public Thread newThread(@NonNull Runnable task) {
+    return (Thread) this.invoke(unstartedMethod, this.invoke(ofVirtualMethod, null), task);
+  }
+
+  /**
+   * Creates a new virtual thread builder which names its threads sequentially.
+   *
+   * @param prefix a thread name prefix.
+   * @return a builder.
+   */
+  @NonNull
+  private Object builder(@NonNull String prefix) {
+    return this.invoke(nameMethod, this.invoke(ofVirtualMethod, null), prefix, 0L);
+  }
+
+  /**
+   * Invokes a reflectively resolved method.
+   *
+   * @param method a method.
+   * @param target a target instance (or null for static methods).
+   * @param arguments a set of arguments.
+   * @return a return value.
+   */
+  private Object invoke(@NonNull Method method, @Nullable Object target, Object... arguments) {
+    if (!this.enabled) {
+      throw new IllegalStateException("Virtual threads are not enabled");
+    }
+
+    try {
+      return method.invoke(target, arguments);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException("Failed to access " + method.getName() + ": " + ex
+          .getMessage(), ex);
+    } catch (InvocationTargetException ex) {
+      throw new IllegalStateException("Failed to invoke " + method.getName() + ": " + ex
+          .getCause().getMessage(), ex.getCause());
+    }
+  }
+}
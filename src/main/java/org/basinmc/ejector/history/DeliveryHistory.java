@@ -0,0 +1,470 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Retains the reduced payloads of recently received deliveries so that they may be replayed
+ * at a later time.</p>
+ *
+ * <p>Every delivery is retained once (deliveries which are redelivered by GitHub do not replace
+ * the original record) until it exceeds the retention period or is evicted in favor of newer
+ * deliveries. Deliveries which have been rejected are marked as undelivered until they are
+ * replayed.</p>
+ *
+ * <p>When a file has been configured, records are appended to it periodically as JSON lines.
+ * Records whose state changes are appended again (in which case their last line takes
+ * precedence). As evicted records remain within the file until then, the file is compacted (e.g.
+ * rewritten from the retained records) once the majority of its lines has become stale.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.history", name = "enabled")
+public class DeliveryHistory implements DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(DeliveryHistory.class);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final int capacity;
+  private final long retention;
+  private final Path file;
+  private final ScheduledExecutorService executor;
+  private final Counter compactions;
+
+  private final Map<UUID, HistoryRecord> records = new LinkedHashMap<>();
+  private final List<HistoryRecord> pending = new ArrayList<>();
+  private int persisted;
+  private boolean dirty;
+
+  /**
+   * @param capacity the maximum amount of retained deliveries.
+   * @param retention the amount of milliseconds for which deliveries are retained.
+   * @param file the file in which deliveries are persisted (or an empty string to retain them in
+   *     memory only).
+   * @param flushInterval the amount of milliseconds between writes to the file.
+   * @param registry a meter registry.
+   */
+  @Autowired
+  public DeliveryHistory(
+      @Value("${ejector.history.capacity:10000}") int capacity,
+      @Value("${ejector.history.retention:604800000}") long retention,
+      @NonNull @Value("${ejector.history.file:}") String file,
+      @Value("${ejector.history.flush-interval:5000}") long flushInterval,
+      @NonNull MeterRegistry registry) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("History capacity must be positive");
+    }
+
+    this.capacity = capacity;
+    this.retention = retention;
+    this.file = file.isEmpty() ? null : Paths.get(file).toAbsolutePath().normalize();
+    this.compactions = Counter.builder("ejector.history.compactions")
+        .description("Amount of times the history file has been rewritten")
+        .register(registry);
+
+    Gauge.builder("ejector.history.records", this, DeliveryHistory::size)
+        .description("Amount of deliveries which are available for replay")
+        .register(registry);
+
+    if (this.file == null) {
+      this.executor = null;
+      return;
+    }
+
+    this.load();
+
+    this.executor = Executors.newSingleThreadScheduledExecutor((r) -> {
+      Thread thread = new Thread(r);
+      thread.setName("history-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.executor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    if (this.executor != null) {
+      this.executor.shutdownNow();
+      this.flush();
+    }
+  }
+
+  /**
+   * Records a delivery which has been received.
+   *
+   * @param deliveryId a delivery identifier.
+   * @param type a payload type.
+   * @param content the reduced payload content.
+   * @param projection a projection of the payload.
+   */
+  public void record(@NonNull UUID deliveryId, @NonNull PayloadType type,
+      @NonNull String content, @NonNull Projection projection) {
+    HistoryRecord record = new HistoryRecord(deliveryId, type, content, projection,
+        Instant.now());
+
+    synchronized (this.records) {
+      if (this.insert(record) && this.file != null) {
+        this.pending.add(record);
+      }
+    }
+  }
+
+  /**
+   * Marks a recorded delivery as rejected so that it may be selected for replay.
+   *
+   * @param deliveryId a delivery identifier.
+   */
+  public void markUndelivered(@NonNull UUID deliveryId) {
+    this.mark(deliveryId, true);
+  }
+
+  /**
+   * Marks a recorded delivery as delivered (e.g. once it has been replayed).
+   *
+   * @param deliveryId a delivery identifier.
+   */
+  public void markDelivered(@NonNull UUID deliveryId) {
+    this.mark(deliveryId, false);
+  }
+
+  /**
+   * Updates the delivery state of a record (if retained).
+   *
+   * @param deliveryId a delivery identifier.
+   * @param undelivered true if undelivered, false otherwise.
+   */
+  private void mark(@NonNull UUID deliveryId, boolean undelivered) {
+    synchronized (this.records) {
+      HistoryRecord record = this.records.get(deliveryId);
+
+      if (record == null || record.isUndelivered() == undelivered) {
+        return;
+      }
+
+      record.setUndelivered(undelivered);
+
+      if (this.file != null) {
+        this.pending.add(record);
+      }
+    }
+  }
+
+  /**
+   * Inserts a record (evicting the oldest record when the history is full).
+   *
+   * @param record a record.
+   * @return true if inserted, false if the delivery has already been recorded.
+   */
+  private boolean insert(@NonNull HistoryRecord record) {
+    if (this.records.putIfAbsent(record.getDeliveryId(), record) != null) {
+      return false;
+    }
+
+    if (this.records.size() > this.capacity) {
+      Iterator<HistoryRecord> it = this.records.values().iterator();
+      it.next();
+      it.remove();
+    }
+
+    return true;
+  }
+
+  /**
+   * Removes all records which have exceeded the retention period.
+   */
+  private void expire() {
+    Instant threshold = Instant.now().minusMillis(this.retention);
+    Iterator<HistoryRecord> it = this.records.values().iterator();
+
+    // records are kept in order of their receipt
+    while (it.hasNext() && it.next().getReceivedAtInstant().isBefore(threshold)) {
+      it.remove();
+    }
+  }
+
+  /**
+   * Retrieves the amount of retained deliveries.
+   *
+   * @return a delivery count.
+   */
+  public int size() {
+    synchronized (this.records) {
+      return this.records.size();
+    }
+  }
+
+  /**
+   * Retrieves all retained deliveries which match the specified predicate.
+   *
+   * @param predicate a predicate.
+   * @return a list of deliveries (in order of their receipt).
+   */
+  @NonNull
+  public List<HistoryRecord> select(@NonNull Predicate<HistoryRecord> predicate) {
+    synchronized (this.records) {
+      this.expire();
+
+      return this.records.values().stream()
+          .filter(predicate)
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Loads all persisted records.
+   */
+  private void load() {
+    try (BufferedReader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+
+      while ((line = reader.readLine()) != null) {
+        ++lineNumber;
+
+        if (line.isEmpty()) {
+          continue;
+        }
+
+        HistoryRecord record = this.decode(line);
+
+        if (record == null) {
+          // the last line may be incomplete when the application has been terminated while
+          // writing
+          logger.warn("Skipping malformed history record on line %d", lineNumber);
+          continue;
+        }
+
+        // records are repeated when their state changes
+        if (!this.insert(record)) {
+          this.records.get(record.getDeliveryId()).setUndelivered(record.isUndelivered());
+        }
+      }
+
+      this.persisted = lineNumber;
+    } catch (NoSuchFileException ignore) {
+    } catch (IOException | RuntimeException ex) {
+      logger.error("Failed to load history from " + this.file + ": " + ex.getMessage(), ex);
+    }
+
+    this.expire();
+
+    // the file is compacted right away as its contents may have been written by an instance
+    // with a differing capacity or retention
+    this.dirty = true;
+  }
+
+  /**
+   * Writes all pending records to the configured file and compacts it when necessary.
+   */
+  private void flush() {
+    List<HistoryRecord> snapshot;
+    boolean compact;
+
+    synchronized (this.records) {
+      this.expire();
+
+      compact = this.dirty || this.persisted + this.pending.size() > this.records.size() * 2;
+
+      if (compact) {
+        snapshot = new ArrayList<>(this.records.values());
+        this.persisted = snapshot.size();
+      } else if (!this.pending.isEmpty()) {
+        snapshot = new ArrayList<>(this.pending);
+        this.persisted += snapshot.size();
+      } else {
+        return;
+      }
+
+      this.pending.clear();
+      this.dirty = false;
+    }
+
+    try {
+      Files.createDirectories(this.file.getParent());
+
+      if (compact) {
+        this.rewrite(snapshot);
+        this.compactions.increment();
+      } else {
+        try (BufferedWriter writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+          this.write(writer, snapshot);
+        }
+      }
+    } catch (IOException ex) {
+      logger.error("Failed to write history to " + this.file + ": " + ex.getMessage(), ex);
+
+      // the file may now be missing records or contain a partially written line and is thus
+      // rewritten in its entirety during the next flush
+      synchronized (this.records) {
+        this.dirty = true;
+      }
+    }
+  }
+
+  /**
+   * Replaces the contents of the configured file with the specified records.
+   *
+   * @param records a list of records.
+   * @throws IOException when writing fails.
+   */
+  private void rewrite(@NonNull List<HistoryRecord> records) throws IOException {
+    Path temporary = this.file.resolveSibling("." + this.file.getFileName() + ".tmp");
+
+    try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+      this.write(writer, records);
+    }
+
+    Files.move(temporary, this.file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Writes a list of records as JSON lines.
+   *
+   * @param writer a writer.
+   * @param records a list of records.
+   * @throws IOException when writing fails.
+   */
+  private void write(@NonNull BufferedWriter writer, @NonNull List<HistoryRecord> records)
+      throws IOException {
+    for (HistoryRecord record : records) {
+      ObjectNode node = this.mapper.createObjectNode()
+          .put("delivery", record.getId())
+          .put("type", record.getPayloadType().name())
+          .put("received-at", record.getReceivedAtInstant().toEpochMilli())
+          .put("content", record.getContent());
+
+      if (record.isUndelivered()) {
+        node.put("undelivered", true);
+      }
+
+      Projection projection = record.getProjection();
+      ObjectNode values = node.putObject("values");
+      ObjectNode counts = node.putObject("counts");
+      for (Field field : Field.values()) {
+        String value = projection.get(field);
+        if (value != null) {
+          values.put(field.name(), value);
+        }
+
+        int count = projection.getCount(field);
+        if (count != 0) {
+          counts.put(field.name(), count);
+        }
+      }
+
+      writer.write(this.mapper.writeValueAsString(node));
+      writer.newLine();
+    }
+  }
+
+  /**
+   * Decodes a single persisted record.
+   *
+   * @param line a JSON line.
+   * @return a record or null if the line is malformed.
+   */
+  @Nullable
+  private HistoryRecord decode(@NonNull String line) {
+    JsonNode node;
+    PayloadType type;
+    UUID deliveryId;
+
+    try {
+      node = this.mapper.readTree(line);
+      type = PayloadType.valueOf(node.path("type").asText());
+      deliveryId = UUID.fromString(node.path("delivery").asText());
+    } catch (IOException | IllegalArgumentException ex) {
+      return null;
+    }
+
+    Projection.Builder projection = Projection.builder(type);
+    node.path("values").fields().forEachRemaining((e) -> {
+      Field field = parseField(e.getKey());
+      if (field != null) {
+        projection.withValue(field, e.getValue().asText());
+      }
+    });
+    node.path("counts").fields().forEachRemaining((e) -> {
+      Field field = parseField(e.getKey());
+      if (field != null) {
+        projection.withCount(field, e.getValue().asInt());
+      }
+    });
+
+    HistoryRecord record = new HistoryRecord(deliveryId, type, node.path("content").asText(),
+        projection.build(), Instant.ofEpochMilli(node.path("received-at").asLong()));
+    record.setUndelivered(node.path("undelivered").asBoolean());
+    return record;
+  }
+
+  @Nullable
+  private static Field parseField(@NonNull String name) {
+    try {
+      return Field.valueOf(name);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.history;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.communication.CommunicationManager;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.event.Event;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Replays recorded deliveries through the {@link CommunicationManager}.</p>
+ *
+ * <p>Replays are performed in the background (in order of their original receipt) at a limited
+ * rate so that backfills do not crowd out live traffic. In addition, adapters queue replayed
+ * messages with low priority. Undelivered deliveries are considered delivered once they have
+ * been replayed.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.history", name = "enabled")
+public class DeliveryReplayer implements DisposableBean {
+
+  private static final Logger logger = LogManager.getFormatterLogger(DeliveryReplayer.class);
+
+  private final CommunicationManager communicationManager;
+  private final DeliveryHistory history;
+  private final long interval;
+  private final Counter replayed;
+  private final Counter failed;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor((r) -> {
+    Thread thread = new Thread(r);
+    thread.setName("history-replay");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private long next;
+
+  /**
+   * @param communicationManager a communication manager.
+   * @param history a delivery history.
+   * @param rate the maximum amount of deliveries which are replayed per second (or zero to
+   *     replay deliveries without delay).
+   * @param registry a meter registry.
+   */
+  @Autowired
+  public DeliveryReplayer(@NonNull CommunicationManager communicationManager,
+      @NonNull DeliveryHistory history,
+      @Value("${ejector.history.replay.rate:5}") double rate,
+      @NonNull MeterRegistry registry) {
+    this.communicationManager = communicationManager;
+    this.history = history;
+    this.interval = rate <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+    this.next = System.nanoTime();
+
+    this.replayed = registry.counter("ejector.history.replays", "outcome", "success");
+    this.failed = registry.counter("ejector.history.replays", "outcome", "error");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Schedules the replay of a list of deliveries.
+   *
+   * @param records a list of deliveries.
+   * @param adapters a filter which selects adapters by their name.
+   * @param targets a filter which selects targets by their identifier.
+   */
+  public void replay(@NonNull List<HistoryRecord> records, @NonNull Predicate<String> adapters,
+      @NonNull Predicate<String> targets) {
+    this.executor.execute(() -> {
+      for (HistoryRecord record : records) {
+        try {
+          this.await();
+        } catch (InterruptedException ex) {
+          return;
+        }
+
+        try {
+          Event event = record.getPayloadType().read(record.getContent());
+          Payload<?> payload = new Payload<>(record.getDeliveryId(), record.getPayloadType(),
+              event);
+
+          this.communicationManager
+              .replayPayload(payload, record.getProjection(), adapters, targets);
+          this.history.markDelivered(record.getDeliveryId());
+          this.replayed.increment();
+        } catch (IOException | RuntimeException ex) {
+          logger.error("Failed to replay delivery " + record.getId() + ": " + ex.getMessage(), ex);
+          this.failed.increment();
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits until the next delivery may be replayed.
+   *
+   * @throws InterruptedException when the replayer is stopped while waiting.
+   */
+  private void await() throws InterruptedException {
+    if (this.interval == 0) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    long delay = this.next - now;
+
+    if (delay > 0) {
+      TimeUnit.NANOSECONDS.sleep(delay);
+      now = this.next;
+    }
+
+    // permits are not accumulated while idle so that replays never exceed the configured rate
+    this.next = now + this.interval;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.history;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.controller.GitHubAuthenticationAdvice.AuthenticationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * <p>Provides an administrative API for inspecting and replaying recorded deliveries.</p>
+ *
+ * <p>All requests are authenticated through a bearer token ({@code Authorization: Bearer
+ * <token>}) which is compared in constant time. The API is only available when a token has been
+ * configured.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@RestController
+@ConditionalOnProperty(prefix = "ejector.history", name = {"enabled", "token"})
+@RequestMapping(path = "/admin/history")
+public class HistoryController {
+
+  private static final Logger logger = LogManager.getFormatterLogger(HistoryController.class);
+
+  private final DeliveryHistory history;
+  private final DeliveryReplayer replayer;
+  private final byte[] expectedAuthorization;
+
+  @Autowired
+  public HistoryController(@NonNull DeliveryHistory history, @NonNull DeliveryReplayer replayer,
+      @NonNull @Value("${ejector.history.token}") String token) {
+    if (token.isEmpty()) {
+      throw new IllegalArgumentException("History token must not be empty");
+    }
+
+    this.history = history;
+    this.replayer = replayer;
+    this.expectedAuthorization = ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Lists all recorded deliveries which have been received within the specified time range.
+   *
+   * @param authorization the authorization header (if any).
+   * @param since an inclusive ISO-8601 timestamp (if any).
+   * @param until an exclusive ISO-8601 timestamp (if any).
+   * @param undelivered true if only rejected deliveries shall be listed.
+   * @return a list of deliveries (in order of their receipt).
+   */
+  @NonNull
+  @RequestMapping(method = RequestMethod.GET)
+  public List<HistoryRecord> list(
+      @Nullable @RequestHeader(value = "Authorization", required = false) String authorization,
+      @Nullable @RequestParam(required = false) String since,
+      @Nullable @RequestParam(required = false) String until,
+      @RequestParam(required = false, defaultValue = "false") boolean undelivered) {
+    this.authenticate(authorization);
+
+    return this.history.select(within(parseInstant(since), parseInstant(until))
+        .and((r) -> !undelivered || r.isUndelivered()));
+  }
+
+  /**
+   * Schedules the replay of a set of recorded deliveries.
+   *
+   * @param authorization the authorization header (if any).
+   * @param request a replay request.
+   * @return the amount of deliveries which have been scheduled for replay.
+   */
+  @NonNull
+  @RequestMapping(path = "/replay", method = RequestMethod.POST)
+  public Map<String, Integer> replay(
+      @Nullable @RequestHeader(value = "Authorization", required = false) String authorization,
+      @NonNull @RequestBody ReplayRequest request) {
+    this.authenticate(authorization);
+
+    Instant since = parseInstant(request.getSince());
+    Instant until = parseInstant(request.getUntil());
+    List<UUID> deliveries = request.getDeliveries();
+
+    // an empty request would otherwise replay the entire history
+    if (deliveries == null && since == null && until == null && !request.isUndelivered()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Either deliveries, a time range or undelivered must be specified");
+    }
+
+    Predicate<HistoryRecord> predicate = within(since, until);
+    if (request.isUndelivered()) {
+      predicate = predicate.and(HistoryRecord::isUndelivered);
+    }
+    if (deliveries != null) {
+      Set<UUID> selected = new HashSet<>(deliveries);
+      predicate = predicate.and((r) -> selected.contains(r.getDeliveryId()));
+    }
+
+    List<HistoryRecord> records = this.history.select(predicate);
+    this.replayer.replay(records, matching(request.getAdapters()),
+        matching(request.getChannels()));
+
+    logger.info("Scheduled replay of %d deliveries", records.size());
+    return Collections.singletonMap("scheduled", records.size());
+  }
+
+  /**
+   * Verifies the authorization header of a request.
+   *
+   * @param authorization a header value (if any).
+   * @throws AuthenticationException when the header is missing or does not match the configured
+   *     token.
+   */
+  private void authenticate(@Nullable String authorization) {
+    if (authorization == null) {
+      throw new AuthenticationException("Lacking authorization");
+    }
+
+    if (!MessageDigest.isEqual(this.expectedAuthorization,
+        authorization.getBytes(StandardCharsets.UTF_8))) {
+      throw new AuthenticationException("Invalid authorization");
+    }
+  }
+
+  @NonNull
+  private static Predicate<HistoryRecord> within(@Nullable Instant since,
+      @Nullable Instant until) {
+    return (r) -> (since == null || !r.getReceivedAtInstant().isBefore(since))
+        && (until == null || r.getReceivedAtInstant().isBefore(until));
+  }
+
+  @NonNull
+  private static Predicate<String> matching(@Nullable Collection<String> values) {
+    if (values == null) {
+      return (v) -> true;
+    }
+
+    Set<String> selected = new HashSet<>(values);
+    return selected::contains;
+  }
+
+  @Nullable
+  private static Instant parseInstant(@Nullable String value) {
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+
+    try {
+      return Instant.parse(value);
+    } catch (DateTimeParseException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Malformed timestamp: " + value, ex);
+    }
+  }
+}
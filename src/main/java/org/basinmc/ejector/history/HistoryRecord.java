@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.history;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.time.Instant;
+import java.util.UUID;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.stormdrain.PayloadType;
+
+/**
+ * Represents a payload which has been received in the past and may thus be replayed.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class HistoryRecord {
+
+  private final UUID deliveryId;
+  private final PayloadType type;
+  private final String content;
+  private final Projection projection;
+  private final Instant receivedAt;
+  private volatile boolean undelivered;
+
+  HistoryRecord(@NonNull UUID deliveryId, @NonNull PayloadType type, @NonNull String content,
+      @NonNull Projection projection, @NonNull Instant receivedAt) {
+    this.deliveryId = deliveryId;
+    this.type = type;
+    this.content = content;
+    this.projection = projection;
+    this.receivedAt = receivedAt;
+  }
+
+  @NonNull
+  public String getId() {
+    return this.deliveryId.toString();
+  }
+
+  @NonNull
+  public String getType() {
+    return this.type.name().toLowerCase();
+  }
+
+  @Nullable
+  public String getRepository() {
+    return this.projection.getRepository();
+  }
+
+  @NonNull
+  public String getReceivedAt() {
+    return this.receivedAt.toString();
+  }
+
+  /**
+   * Evaluates whether this delivery has been rejected (e.g. as the adapters were saturated at the
+   * time) and has yet to be replayed.
+   *
+   * @return true if undelivered, false otherwise.
+   */
+  public boolean isUndelivered() {
+    return this.undelivered;
+  }
+
+  void setUndelivered(boolean undelivered) {
+    this.undelivered = undelivered;
+  }
+
+  @NonNull
+  UUID getDeliveryId() {
+    return this.deliveryId;
+  }
+
+  @NonNull
+  PayloadType getPayloadType() {
+    return this.type;
+  }
+
+  /**
+   * Retrieves the reduced JSON representation of the payload.
+   *
+   * @return an encoded payload.
+   */
+  @NonNull
+  String getContent() {
+    return this.content;
+  }
+
+  @NonNull
+  Projection getProjection() {
+    return this.projection;
+  }
+
+  @NonNull
+  Instant getReceivedAtInstant() {
+    return this.receivedAt;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.history;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * <p>Describes which deliveries are to be replayed and where they are to be sent.</p>
+ *
+ * <p>Deliveries are selected by their identifiers, by the time range within which they have been
+ * received or by whether they have been rejected (or any combination thereof). Omitted adapter
+ * and channel lists select all adapters and channels respectively.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class ReplayRequest {
+
+  private List<UUID> deliveries;
+  private String since;
+  private String until;
+  private List<String> adapters;
+  private List<String> channels;
+  private boolean undelivered;
+
+  @Nullable
+  public List<UUID> getDeliveries() {
+    return this.deliveries;
+  }
+
+  public void setDeliveries(@Nullable List<UUID> deliveries) {
+    this.deliveries = deliveries;
+  }
+
+  /**
+   * Retrieves the (inclusive) ISO-8601 timestamp from which deliveries are replayed.
+   *
+   * @return a timestamp or null.
+   */
+  @Nullable
+  public String getSince() {
+    return this.since;
+  }
+
+  public void setSince(@Nullable String since) {
+    this.since = since;
+  }
+
+  /**
+   * Retrieves the (exclusive) ISO-8601 timestamp until which deliveries are replayed.
+   *
+   * @return a timestamp or null.
+   */
+  @Nullable
+  public String getUntil() {
+    return this.until;
+  }
+
+  public void setUntil(@Nullable String until) {
+    this.until = until;
+  }
+
+  @Nullable
+  public List<String> getAdapters() {
+    return this.adapters;
+  }
+
+  public void setAdapters(@Nullable List<String> adapters) {
+    this.adapters = adapters;
+  }
+
+  /**
+   * Retrieves the identifiers of the channels to which deliveries are replayed (such as {@code
+   * <channel id>} for Discord, {@code <host>:<port>/<channel>} for IRC or the endpoint key for
+   * webhooks).
+   *
+   * @return a list of channel identifiers or null.
+   */
+  @Nullable
+  public List<String> getChannels() {
+    return this.channels;
+  }
+
+  public void setChannels(@Nullable List<String> channels) {
+    this.channels = channels;
+  }
+
+  /**
+   * Evaluates whether only deliveries which have been rejected (and have yet to be replayed) are
+   * selected.
+   *
+   * @return true if restricted to undelivered deliveries, false otherwise.
+   */
+  public boolean isUndelivered() {
+    return this.undelivered;
+  }
+
+  public void setUndelivered(boolean undelivered) {
+    this.undelivered = undelivered;
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.projection;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.Arrays;
+import org.basinmc.ejector.utility.InternPool;
+import org.basinmc.stormdrain.PayloadType;
+
+/**
+ * <p>Represents a compact projection of a GitHub event which contains the fields that are
+ * commonly presented to users.</p>
+ *
+ * <p>Projections are extracted while the payload is streamed from the request body (see
+ * {@link ProjectionSchema}). As a result, aggregates such as the amount of changed files within
+ * a push are computed once while the underlying lists are never materialized.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class Projection {
+
+  private final PayloadType type;
+  private final String[] values;
+  private final int[] counts;
+
+  private Projection(@Nullable PayloadType type, @NonNull String[] values, @NonNull int[] counts) {
+    this.type = type;
+    this.values = values;
+    this.counts = counts;
+  }
+
+  /**
+   * Creates a new factory for projections of the specified type.
+   *
+   * @param type a payload type (or null if unknown).
+   * @return a builder.
+   */
+  @NonNull
+  public static Builder builder(@Nullable PayloadType type) {
+    return new Builder(type);
+  }
+
+  /**
+   * Retrieves the type of payload from which this projection has been extracted.
+   *
+   * @return a payload type or null if the type is not known.
+   */
+  @Nullable
+  public PayloadType getType() {
+    return this.type;
+  }
+
+  /**
+   * Retrieves the value of a textual field.
+   *
+   * @param field a field.
+   * @return a value or null if the payload did not contain the field.
+   */
+  @Nullable
+  public String get(@NonNull Field field) {
+    return this.values[field.ordinal()];
+  }
+
+  /**
+   * Retrieves the value of a numeric field.
+   *
+   * @param field a field.
+   * @return a value or zero if the payload did not contain the field.
+   */
+  public int getCount(@NonNull Field field) {
+    return this.counts[field.ordinal()];
+  }
+
+  /**
+   * Retrieves the full name of the repository on which the event occurred.
+   *
+   * @return a repository name or null.
+   */
+  @Nullable
+  public String getRepository() {
+    return this.get(Field.REPOSITORY);
+  }
+
+  /**
+   * Retrieves the login of the user who triggered the event.
+   *
+   * @return a login or null.
+   */
+  @Nullable
+  public String getSender() {
+    return this.get(Field.SENDER);
+  }
+
+  /**
+   * Retrieves the number of the issue, pull request or milestone which the event refers to.
+   *
+   * @return a number or zero.
+   */
+  public int getNumber() {
+    return this.getCount(Field.NUMBER);
+  }
+
+  /**
+   * Retrieves the title of the object which the event refers to.
+   *
+   * @return a title or null.
+   */
+  @Nullable
+  public String getTitle() {
+    return this.get(Field.TITLE);
+  }
+
+  /**
+   * Retrieves the URL at which the object which the event refers to may be viewed.
+   *
+   * @return a URL or null.
+   */
+  @Nullable
+  public String getUrl() {
+    return this.get(Field.URL);
+  }
+
+  /**
+   * Resolves the canonical instances of all values which typically repeat across events.
+   *
+   * @param pool an intern pool.
+   * @return a projection.
+   * @see Field#isInterned()
+   */
+  @NonNull
+  public Projection intern(@NonNull InternPool pool) {
+    String[] values = this.values.clone();
+
+    for (Field field : Field.values()) {
+      if (field.isInterned()) {
+        values[field.ordinal()] = pool.intern(values[field.ordinal()]);
+      }
+    }
+
+    return new Projection(this.type, values, this.counts);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return "Projection{"
+        + "type=" + this.type
+        + ", values=" + Arrays.toString(this.values)
+        + ", counts=" + Arrays.toString(this.counts)
+        + '}';
+  }
+
+  /**
+   * Provides a list of fields which are extracted from payloads.
+   */
+  public enum Field {
+    ACTION(true),
+    REPOSITORY(true),
+    SENDER(true),
+    SENDER_AVATAR(true),
+    SENDER_URL(true),
+    REFERENCE(true),
+    NUMBER(false),
+    TITLE(false),
+    URL(false),
+    COMMITS(false),
+    ADDED_FILES(false),
+    MODIFIED_FILES(false),
+    REMOVED_FILES(false);
+
+    private final boolean interned;
+
+    Field(boolean interned) {
+      this.interned = interned;
+    }
+
+    /**
+     * Evaluates whether the values of this field typically repeat across events and are thus
+     * shared through the application's intern pool.
+     *
+     * @return true if interned, false otherwise.
+     */
+    public boolean isInterned() {
+      return this.interned;
+    }
+  }
+
+  /**
+   * Provides a factory for projection instances.
+   */
+  public static final class Builder {
+
+    private final PayloadType type;
+    private final String[] values = new String[Field.values().length];
+    private final int[] counts = new int[Field.values().length];
+
+    private Builder(@Nullable PayloadType type) {
+      this.type = type;
+    }
+
+    /**
+     * Constructs a new projection using the current state of this builder.
+     *
+     * @return a projection.
+     */
+    @NonNull
+    public Projection build() {
+      return new Projection(this.type, this.values.clone(), this.counts.clone());
+    }
+
+    /**
+     * Selects the value of a textual field (the first value for a field takes precedence).
+     *
+     * @param field a field.
+     * @param value a value.
+     * @return a reference to this builder.
+     */
+    @NonNull
+    public Builder withValue(@NonNull Field field, @NonNull String value) {
+      if (this.values[field.ordinal()] == null) {
+        this.values[field.ordinal()] = value;
+      }
+
+      return this;
+    }
+
+    /**
+     * Adds to the value of a numeric field.
+     *
+     * @param field a field.
+     * @param count a value.
+     * @return a reference to this builder.
+     */
+    @NonNull
+    public Builder withCount(@NonNull Field field, int count) {
+      this.counts[field.ordinal()] += count;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.projection;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import org.basinmc.ejector.projection.Projection.Field;
+import org.basinmc.stormdrain.PayloadType;
+
+/**
+ * <p>Describes the locations of projected fields within the payloads of a given type.</p>
+ *
+ * <p>Schemas are generated from a declarative list of paths (where {@code []} selects the
+ * elements of an array) and compiled into a tree which mirrors the structure of the payload. This
+ * permits readers to resolve the fields of interest while streaming without ever constructing a
+ * path. Arrays may additionally be marked as discarded in which case only their length is
+ * retained.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class ProjectionSchema {
+
+  private static final String ELEMENT = "[]";
+
+  private static final ProjectionSchema common = create(null);
+  private static final Map<PayloadType, ProjectionSchema> schemas = new EnumMap<>(
+      PayloadType.class);
+
+  private final Node root = new Node();
+
+  static {
+    for (PayloadType type : PayloadType.values()) {
+      schemas.put(type, create(type));
+    }
+  }
+
+  private ProjectionSchema() {
+  }
+
+  /**
+   * Retrieves the schema for a given payload type.
+   *
+   * @param type a payload type (or null in order to retrieve the fields shared by all types).
+   * @return a schema.
+   */
+  @NonNull
+  public static ProjectionSchema of(@Nullable PayloadType type) {
+    if (type == null) {
+      return common;
+    }
+
+    return schemas.get(type);
+  }
+
+  /**
+   * Generates the schema for a given payload type.
+   *
+   * @param type a payload type.
+   * @return a schema.
+   */
+  @NonNull
+  private static ProjectionSchema create(@Nullable PayloadType type) {
+    ProjectionSchema schema = new ProjectionSchema()
+        .select("action", Field.ACTION)
+        .select("repository.full_name", Field.REPOSITORY)
+        .select("sender.login", Field.SENDER)
+        .select("sender.avatar_url", Field.SENDER_AVATAR)
+        .select("sender.html_url", Field.SENDER_URL)
+        .select("ref", Field.REFERENCE);
+
+    if (type == null) {
+      return schema;
+    }
+
+    switch (type) {
+      case COMMIT_COMMENT:
+        return schema
+            .select("comment.commit_id", Field.TITLE)
+            .select("comment.html_url", Field.URL);
+      case DEPLOYMENT:
+        return schema
+            .select("deployment.environment", Field.TITLE);
+      case DEPLOYMENT_STATUS:
+        return schema
+            .select("deployment.environment", Field.TITLE)
+            .select("deployment_status.target_url", Field.URL);
+      case FORK:
+        return schema
+            .select("forkee.full_name", Field.TITLE)
+            .select("forkee.html_url", Field.URL);
+      case ISSUE_COMMENT:
+        return schema
+            .select("issue.number", Field.NUMBER)
+            .select("issue.title", Field.TITLE)
+            .select("comment.html_url", Field.URL);
+      case ISSUES:
+        return schema.subject("issue");
+      case LABEL:
+        return schema
+            .select("label.name", Field.TITLE);
+      case MEMBER:
+        return schema
+            .select("member.login", Field.TITLE)
+            .select("member.html_url", Field.URL);
+      case MEMBERSHIP:
+      case TEAM:
+      case TEAM_ADD:
+        return schema
+            .select("team.name", Field.TITLE);
+      case MILESTONE:
+        return schema.subject("milestone");
+      case ORG_BLOCK:
+        return schema
+            .select("blocked_user.login", Field.TITLE)
+            .select("blocked_user.html_url", Field.URL);
+      case PAGE_BUILD:
+        return schema
+            .select("build.status", Field.TITLE);
+      case PUBLIC:
+      case REPOSITORY:
+        return schema
+            .select("repository.html_url", Field.URL);
+      case PULL_REQUEST:
+        return schema.subject("pull_request");
+      case PULL_REQUEST_REVIEW:
+        return schema
+            .select("pull_request.number", Field.NUMBER)
+            .select("pull_request.title", Field.TITLE)
+            .select("review.html_url", Field.URL);
+      case PULL_REQUEST_REVIEW_COMMENT:
+        return schema
+            .select("pull_request.number", Field.NUMBER)
+            .select("pull_request.title", Field.TITLE)
+            .select("comment.html_url", Field.URL);
+      case PUSH:
+        // file lists are only ever counted and thus never reach the event model
+        return schema
+            .select("compare", Field.URL)
+            .select("commits", Field.COMMITS)
+            .discard("commits.[].added", Field.ADDED_FILES)
+            .discard("commits.[].modified", Field.MODIFIED_FILES)
+            .discard("commits.[].removed", Field.REMOVED_FILES)
+            .discard("head_commit.added", null)
+            .discard("head_commit.modified", null)
+            .discard("head_commit.removed", null);
+      case RELEASE:
+        return schema
+            .select("release.tag_name", Field.TITLE)
+            .select("release.html_url", Field.URL);
+      default:
+        return schema;
+    }
+  }
+
+  /**
+   * Retrieves the node which represents the root object of a payload.
+   *
+   * @return a node.
+   */
+  @NonNull
+  public Node getRoot() {
+    return this.root;
+  }
+
+  /**
+   * Selects the number, title and URL of an issue-like object.
+   *
+   * @param name an object name.
+   * @return a reference to this schema.
+   */
+  @NonNull
+  private ProjectionSchema subject(@NonNull String name) {
+    return this
+        .select(name + ".number", Field.NUMBER)
+        .select(name + ".title", Field.TITLE)
+        .select(name + ".html_url", Field.URL);
+  }
+
+  /**
+   * Selects the value at the specified path (or the length of the array at said path).
+   *
+   * @param path a dot separated path.
+   * @param field a target field.
+   * @return a reference to this schema.
+   */
+  @NonNull
+  private ProjectionSchema select(@NonNull String path, @NonNull Field field) {
+    this.resolve(path).field = field;
+    return this;
+  }
+
+  /**
+   * Selects the length of the array at the specified path and removes its contents.
+   *
+   * @param path a dot separated path.
+   * @param field a target field (or null if the length is not of interest).
+   * @return a reference to this schema.
+   */
+  @NonNull
+  private ProjectionSchema discard(@NonNull String path, @Nullable Field field) {
+    Node node = this.resolve(path);
+    node.field = field;
+    node.discarded = true;
+    return this;
+  }
+
+  /**
+   * Resolves (and creates if necessary) the node at the specified path.
+   *
+   * @param path a dot separated path.
+   * @return a node.
+   */
+  @NonNull
+  private Node resolve(@NonNull String path) {
+    Node node = this.root;
+
+    for (String element : path.split("\\.")) {
+      node = node.children.computeIfAbsent(element, (k) -> new Node());
+    }
+
+    return node;
+  }
+
+  /**
+   * Represents a single location within a payload.
+   */
+  public static final class Node {
+
+    private final Map<String, Node> children = new HashMap<>(4);
+    private Field field;
+    private boolean discarded;
+
+    private Node() {
+    }
+
+    /**
+     * Retrieves the node which represents a property of this object.
+     *
+     * @param name a property name.
+     * @return a node or null if the property is not of interest.
+     */
+    @Nullable
+    public Node getChild(@NonNull String name) {
+      return this.children.get(name);
+    }
+
+    /**
+     * Retrieves the node which represents the elements of this array.
+     *
+     * @return a node or null if the elements are not of interest.
+     */
+    @Nullable
+    public Node getElement() {
+      return this.children.get(ELEMENT);
+    }
+
+    /**
+     * Retrieves the field which is populated with the value (or array length) at this location.
+     *
+     * @return a field or null if the value itself is not of interest.
+     */
+    @Nullable
+    public Field getField() {
+      return this.field;
+    }
+
+    /**
+     * Evaluates whether the contents of the array at this location are to be removed.
+     *
+     * @return true if discarded, false otherwise.
+     */
+    public boolean isDiscarded() {
+      return this.discarded;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.startup;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the startup timeline through the actuator (e.g. {@code /actuator/startup}).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@Endpoint(id = "startup")
+public class StartupEndpoint {
+
+  private final StartupTimeline timeline;
+
+  @Autowired
+  public StartupEndpoint(@NonNull StartupTimeline timeline) {
+    this.timeline = timeline;
+  }
+
+  /**
+   * Retrieves all phases which have been completed thus far.
+   *
+   * @return a map of phase names and their respective completion times (in milliseconds since
+   *     the launch of the JVM).
+   */
+  @NonNull
+  @ReadOperation
+  public Map<String, Long> phases() {
+    return this.timeline.getPhases();
+  }
+}
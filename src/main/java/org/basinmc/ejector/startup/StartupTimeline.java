@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.startup;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * <p>Records the point in time (relative to the launch of the JVM) at which each startup phase of
+ * the application has been completed.</p>
+ *
+ * <p>The timeline is registered through {@code META-INF/spring.factories} in order to observe the
+ * phases which precede the creation of the application context and is exposed as a bean once the
+ * context has been prepared. The timeline is logged once the application is ready.</p>
+ *
+ * <p>When {@code ejector.startup.training} is set, the application exits as soon as it is ready
+ * (e.g. in order to record the classes which are loaded during startup).</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class StartupTimeline implements ApplicationListener<ApplicationEvent> {
+
+  public static final String BEAN_NAME = "startupTimeline";
+  private static final Logger logger = LogManager.getFormatterLogger(StartupTimeline.class);
+
+  private final long launchTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+  private final Map<String, Long> phases = new LinkedHashMap<>();
+
+  /**
+   * Records the completion of a startup phase.
+   *
+   * @param phase a phase name.
+   */
+  public void stamp(@NonNull String phase) {
+    long elapsed = System.currentTimeMillis() - this.launchTime;
+
+    synchronized (this.phases) {
+      this.phases.putIfAbsent(phase, elapsed);
+    }
+  }
+
+  /**
+   * Retrieves all phases which have been completed thus far along with the amount of milliseconds
+   * which have passed since the launch of the JVM.
+   *
+   * @return a map of phase names and their respective completion times.
+   */
+  @NonNull
+  public Map<String, Long> getPhases() {
+    synchronized (this.phases) {
+      return Collections.unmodifiableMap(new LinkedHashMap<>(this.phases));
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void onApplicationEvent(@NonNull ApplicationEvent event) {
+    if (event instanceof ApplicationStartingEvent) {
+      this.stamp("starting");
+    } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+      this.stamp("environment");
+    } else if (event instanceof ApplicationPreparedEvent) {
+      this.stamp("context-prepared");
+
+      ConfigurableListableBeanFactory beanFactory = ((ApplicationPreparedEvent) event)
+          .getApplicationContext().getBeanFactory();
+      if (!beanFactory.containsSingleton(BEAN_NAME)) {
+        beanFactory.registerSingleton(BEAN_NAME, this);
+      }
+    } else if (event instanceof WebServerInitializedEvent) {
+      this.stamp("web-server");
+    } else if (event instanceof ApplicationStartedEvent) {
+      this.stamp("context-refreshed");
+    } else if (event instanceof ApplicationReadyEvent) {
+      this.stamp("ready");
+
+      logger.info("Startup timeline (ms since launch): %s", this.getPhases().entrySet().stream()
+          .map((e) -> e.getKey() + "=" + e.getValue())
+          .collect(Collectors.joining(", ")));
+
+      ApplicationReadyEvent readyEvent = (ApplicationReadyEvent) event;
+      if (readyEvent.getApplicationContext().getEnvironment()
+          .getProperty("ejector.startup.training", Boolean.class, false)) {
+        logger.info("Training run complete - Exiting");
+        System.exit(SpringApplication.exit(readyEvent.getApplicationContext()));
+      }
+    }
+  }
+}
@@ -0,0 +1,593 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.statistics;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.basinmc.ejector.utility.Events;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides an incrementally maintained in-memory index of event counters.</p>
+ *
+ * <p>Counters are kept per repository, user, combination of repository and user and payload type
+ * within a ring of fixed size time buckets. All storage is allocated upfront (based on the
+ * configured retention window and the maximum amount of tracked repositories, users and
+ * combinations) and thus memory usage remains constant regardless of the amount of received
+ * events. Buckets which leave the retention window are recycled.</p>
+ *
+ * <p>Once the configured limits have been reached, the identifiers of repositories, users and
+ * combinations without any events within the retention window are recycled. Repositories and
+ * users which exceed the limits nevertheless are still reflected within the global counters but
+ * cannot be queried individually.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.statistics", name = "enabled", matchIfMissing = true)
+public class EventStatistics {
+
+  private static final Logger logger = LogManager.getFormatterLogger(EventStatistics.class);
+
+  private static final PayloadType[] types = PayloadType.values();
+
+  /**
+   * Identifies the counter slot in which merged pull requests are tracked (all remaining slots
+   * are indexed by payload type ordinal).
+   */
+  private static final int MERGED_SLOT = types.length;
+  private static final int SLOT_COUNT = types.length + 1;
+
+  /**
+   * Identifies the pseudo repository in which global counters are tracked.
+   */
+  private static final int GLOBAL = 0;
+
+  private final long bucketDuration;
+  private final int bucketCount;
+  private final int maximumRepositories;
+  private final int maximumUsers;
+  private final int maximumContributors;
+
+  private final long[] bucketIds;
+  private final int[][] repositoryCounters;
+  private final int[][] userCounters;
+  private final int[][] contributorCounters;
+
+  private final Map<String, Integer> repositoryIds = new HashMap<>();
+  private final Map<String, Integer> userIds = new HashMap<>();
+  private final Map<Long, Integer> contributorIds = new HashMap<>();
+  private final String[] repositoryNames;
+  private final String[] userNames;
+  private final long[] contributorKeys;
+
+  /**
+   * Stores the buckets within which the last unsuccessful attempt to recycle a repository, user
+   * or contributor identifier occurred (counters only ever increase within a bucket and thus no
+   * identifier will become available until the next bucket starts).
+   */
+  private long exhaustedRepositoryBucket = -1;
+  private long exhaustedUserBucket = -1;
+  private long exhaustedContributorBucket = -1;
+
+  @Autowired
+  public EventStatistics(
+      @Value("${ejector.statistics.bucket-size:60}") int bucketSize,
+      @Value("${ejector.statistics.retention:168}") int retention,
+      @Value("${ejector.statistics.maximum-repositories:256}") int maximumRepositories,
+      @Value("${ejector.statistics.maximum-users:1024}") int maximumUsers,
+      @Value("${ejector.statistics.maximum-contributors:4096}") int maximumContributors) {
+    if (bucketSize <= 0 || retention <= 0) {
+      throw new IllegalArgumentException("Bucket size and retention must be positive");
+    }
+
+    this.bucketDuration = Duration.ofMinutes(bucketSize).toMillis();
+    this.bucketCount = (int) Math.max(1,
+        (Duration.ofHours(retention).toMillis() + this.bucketDuration - 1) / this.bucketDuration);
+    this.maximumRepositories = maximumRepositories + 1; // reserve slot for global counters
+    this.maximumUsers = maximumUsers;
+    this.maximumContributors = maximumContributors;
+
+    this.bucketIds = new long[this.bucketCount];
+    Arrays.fill(this.bucketIds, -1);
+
+    this.repositoryCounters = new int[this.bucketCount][this.maximumRepositories * SLOT_COUNT];
+    this.userCounters = new int[this.bucketCount][this.maximumUsers];
+    this.contributorCounters = new int[this.bucketCount][this.maximumContributors];
+    this.repositoryNames = new String[this.maximumRepositories];
+    this.userNames = new String[this.maximumUsers];
+    this.contributorKeys = new long[this.maximumContributors];
+
+    logger.info("Allocated %d statistics buckets of %d minute(s) each", this.bucketCount,
+        bucketSize);
+  }
+
+  /**
+   * Retrieves the total retention window.
+   *
+   * @return a retention window.
+   */
+  @NonNull
+  public Duration getRetention() {
+    return Duration.ofMillis(this.bucketDuration * this.bucketCount);
+  }
+
+  /**
+   * Records an arbitrary payload.
+   *
+   * @param payload a payload.
+   */
+  public void record(@NonNull Payload<?> payload) {
+    this.record(payload, System.currentTimeMillis());
+  }
+
+  /**
+   * Records an arbitrary payload at the specified point in time.
+   *
+   * @param payload a payload.
+   * @param timestamp a timestamp (in milliseconds since the epoch).
+   */
+  synchronized void record(@NonNull Payload<?> payload, long timestamp) {
+    Event event = payload.getEvent();
+    int slot = payload.getType().ordinal();
+    boolean merged = Events.isPullRequestMerge(event);
+
+    long current = this.currentBucket(timestamp);
+    int bucket = this.selectBucket(timestamp);
+    int[] repositories = this.repositoryCounters[bucket];
+    repositories[GLOBAL * SLOT_COUNT + slot]++;
+
+    if (merged) {
+      repositories[GLOBAL * SLOT_COUNT + MERGED_SLOT]++;
+    }
+
+    int repository = -1;
+    String repositoryName = Events.getRepositoryName(event);
+    if (repositoryName != null) {
+      repository = this.resolveRepository(repositoryName, current);
+
+      if (repository > 0) {
+        repositories[repository * SLOT_COUNT + slot]++;
+
+        if (merged) {
+          repositories[repository * SLOT_COUNT + MERGED_SLOT]++;
+        }
+      }
+    }
+
+    String login = Events.getSenderLogin(event);
+    if (login != null) {
+      int user = this.resolveUser(login, current);
+
+      if (user >= 0) {
+        this.userCounters[bucket][user]++;
+
+        if (repository > 0) {
+          int contributor = this.resolveContributor(repository, user, current);
+
+          if (contributor >= 0) {
+            this.contributorCounters[bucket][contributor]++;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Resolves (or allocates) the identifier of a given repository.
+   *
+   * @param name a repository name.
+   * @param current the current bucket identifier.
+   * @return an identifier or a negative value if the repository limit has been exceeded.
+   */
+  private int resolveRepository(@NonNull String name, long current) {
+    Integer id = this.repositoryIds.get(name);
+
+    if (id != null) {
+      return id;
+    }
+
+    // identifier zero is reserved for the global counters
+    int next = this.repositoryIds.size() + 1;
+    if (next >= this.maximumRepositories) {
+      if (this.exhaustedRepositoryBucket == current) {
+        return -1;
+      }
+
+      next = this.recycle(this.repositoryCounters, 1, this.maximumRepositories, SLOT_COUNT,
+          current);
+      if (next < 0) {
+        this.exhaustedRepositoryBucket = current;
+        return -1;
+      }
+
+      this.repositoryIds.remove(this.repositoryNames[next]);
+    }
+
+    this.repositoryIds.put(name, next);
+    this.repositoryNames[next] = name;
+    return next;
+  }
+
+  /**
+   * Resolves (or allocates) the identifier of a given user.
+   *
+   * @param login a user login.
+   * @param current the current bucket identifier.
+   * @return an identifier or a negative value if the user limit has been exceeded.
+   */
+  private int resolveUser(@NonNull String login, long current) {
+    Integer id = this.userIds.get(login);
+
+    if (id != null) {
+      return id;
+    }
+
+    int next = this.userIds.size();
+    if (next >= this.maximumUsers) {
+      if (this.exhaustedUserBucket == current) {
+        return -1;
+      }
+
+      next = this.recycle(this.userCounters, 0, this.maximumUsers, 1, current);
+      if (next < 0) {
+        this.exhaustedUserBucket = current;
+        return -1;
+      }
+
+      this.userIds.remove(this.userNames[next]);
+    }
+
+    this.userIds.put(login, next);
+    this.userNames[next] = login;
+    return next;
+  }
+
+  /**
+   * Resolves (or allocates) the identifier of a given combination of repository and user.
+   *
+   * <p>Combinations are keyed by the repository and user identifiers. When either identifier is
+   * recycled, its combinations are left in place as they have been idle for the entire retention
+   * window as well and thus do not contribute any counts to their new owner.</p>
+   *
+   * @param repository a repository identifier.
+   * @param user a user identifier.
+   * @param current the current bucket identifier.
+   * @return an identifier or a negative value if the contributor limit has been exceeded.
+   */
+  private int resolveContributor(int repository, int user, long current) {
+    long key = ((long) repository << 32) | user;
+    Integer id = this.contributorIds.get(key);
+
+    if (id != null) {
+      return id;
+    }
+
+    int next = this.contributorIds.size();
+    if (next >= this.maximumContributors) {
+      if (this.exhaustedContributorBucket == current) {
+        return -1;
+      }
+
+      next = this.recycle(this.contributorCounters, 0, this.maximumContributors, 1, current);
+      if (next < 0) {
+        this.exhaustedContributorBucket = current;
+        return -1;
+      }
+
+      this.contributorIds.remove(this.contributorKeys[next]);
+    }
+
+    this.contributorIds.put(key, next);
+    this.contributorKeys[next] = key;
+    return next;
+  }
+
+  /**
+   * Locates an identifier whose counters are zero within all buckets of the retention window and
+   * resets its counters within the remaining (expired) buckets.
+   *
+   * @param counters a set of counters per bucket.
+   * @param first the first identifier which may be recycled.
+   * @param limit the amount of identifiers.
+   * @param width the amount of counters per identifier.
+   * @param current the current bucket identifier.
+   * @return an identifier or a negative value if all identifiers are in use.
+   */
+  private int recycle(@NonNull int[][] counters, int first, int limit, int width, long current) {
+    for (int id = first; id < limit; ++id) {
+      int offset = id * width;
+
+      if (this.isIdle(counters, offset, width, current)) {
+        for (int[] bucket : counters) {
+          Arrays.fill(bucket, offset, offset + width, 0);
+        }
+
+        return id;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Evaluates whether a set of counters is zero within all buckets of the retention window.
+   *
+   * @param counters a set of counters per bucket.
+   * @param offset the offset of the first counter.
+   * @param width the amount of counters.
+   * @param current the current bucket identifier.
+   * @return true if idle, false otherwise.
+   */
+  private boolean isIdle(@NonNull int[][] counters, int offset, int width, long current) {
+    for (int i = 0; i < this.bucketCount; ++i) {
+      // expired buckets are reset once they are selected again and do not count towards queries
+      if (this.bucketIds[i] <= current - this.bucketCount) {
+        continue;
+      }
+
+      for (int j = offset; j < offset + width; ++j) {
+        if (counters[i][j] != 0) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Retrieves the bucket identifier for a given timestamp.
+   *
+   * @param timestamp a timestamp.
+   * @return a bucket identifier.
+   */
+  private long currentBucket(long timestamp) {
+    return timestamp / this.bucketDuration;
+  }
+
+  /**
+   * Selects (and recycles if necessary) the bucket which is responsible for the specified
+   * timestamp.
+   *
+   * @param timestamp a timestamp.
+   * @return a bucket index.
+   */
+  private int selectBucket(long timestamp) {
+    long bucket = this.currentBucket(timestamp);
+    int index = (int) (bucket % this.bucketCount);
+
+    if (this.bucketIds[index] != bucket) {
+      this.bucketIds[index] = bucket;
+      Arrays.fill(this.repositoryCounters[index], 0);
+      Arrays.fill(this.userCounters[index], 0);
+      Arrays.fill(this.contributorCounters[index], 0);
+    }
+
+    return index;
+  }
+
+  /**
+   * Sums a given counter slot over all buckets within the specified window.
+   *
+   * @param offset a counter offset.
+   * @param window a time window.
+   * @param now the current timestamp.
+   * @return a total.
+   */
+  private long sum(int offset, @NonNull Duration window, long now) {
+    long current = this.currentBucket(now);
+    long first = this.firstBucket(window, now);
+    long total = 0;
+
+    for (int i = 0; i < this.bucketCount; ++i) {
+      long bucket = this.bucketIds[i];
+
+      if (bucket >= first && bucket <= current) {
+        total += this.repositoryCounters[i][offset];
+      }
+    }
+
+    return total;
+  }
+
+  /**
+   * Calculates the oldest bucket which is part of the specified window.
+   *
+   * @param window a time window.
+   * @param now the current timestamp.
+   * @return a bucket identifier.
+   */
+  private long firstBucket(@NonNull Duration window, long now) {
+    long buckets = Math.max(1, Math.min(this.bucketCount,
+        (window.toMillis() + this.bucketDuration - 1) / this.bucketDuration));
+    return this.currentBucket(now) - buckets + 1;
+  }
+
+  /**
+   * Resolves the counter offset of a given repository.
+   *
+   * @param repository a repository name or null to select the global counters.
+   * @return an offset or a negative value if the repository is not being tracked.
+   */
+  private int repositoryOffset(@Nullable String repository) {
+    if (repository == null) {
+      return GLOBAL;
+    }
+
+    Integer id = this.repositoryIds.get(repository);
+    return id == null ? -1 : id * SLOT_COUNT;
+  }
+
+  /**
+   * Evaluates whether the specified repository is being tracked.
+   *
+   * @param repository a repository name.
+   * @return true if tracked, false otherwise.
+   */
+  public synchronized boolean isTracked(@NonNull String repository) {
+    return this.repositoryIds.containsKey(repository);
+  }
+
+  /**
+   * Counts the events of a given type which have been received within the specified window.
+   *
+   * @param repository a repository name or null to count events across all repositories.
+   * @param type a payload type.
+   * @param window a time window (capped to the retention window).
+   * @return an event count.
+   */
+  public synchronized long count(@Nullable String repository, @NonNull PayloadType type,
+      @NonNull Duration window) {
+    int offset = this.repositoryOffset(repository);
+    return offset < 0 ? 0 : this.sum(offset + type.ordinal(), window, System.currentTimeMillis());
+  }
+
+  /**
+   * Counts all events per type which have been received within the specified window.
+   *
+   * @param repository a repository name or null to count events across all repositories.
+   * @param window a time window (capped to the retention window).
+   * @return a map of non-zero event counts.
+   */
+  @NonNull
+  public synchronized Map<PayloadType, Long> count(@Nullable String repository,
+      @NonNull Duration window) {
+    Map<PayloadType, Long> counts = new EnumMap<>(PayloadType.class);
+    int offset = this.repositoryOffset(repository);
+
+    if (offset < 0) {
+      return counts;
+    }
+
+    long now = System.currentTimeMillis();
+    for (PayloadType type : types) {
+      long count = this.sum(offset + type.ordinal(), window, now);
+
+      if (count != 0) {
+        counts.put(type, count);
+      }
+    }
+
+    return counts;
+  }
+
+  /**
+   * Counts the pull requests which have been merged within the specified window.
+   *
+   * @param repository a repository name or null to count merges across all repositories.
+   * @param window a time window (capped to the retention window).
+   * @return a merge count.
+   */
+  public synchronized long countMerges(@Nullable String repository, @NonNull Duration window) {
+    int offset = this.repositoryOffset(repository);
+    return offset < 0 ? 0 : this.sum(offset + MERGED_SLOT, window, System.currentTimeMillis());
+  }
+
+  /**
+   * Retrieves the most active users within the specified window.
+   *
+   * @param repository a repository name or null to consider events across all repositories.
+   * @param window a time window (capped to the retention window).
+   * @param limit the maximum amount of users to return.
+   * @return a list of user logins and their respective event counts in descending order.
+   */
+  @NonNull
+  public synchronized List<Entry<String, Long>> getMostActiveUsers(@Nullable String repository,
+      @NonNull Duration window, int limit) {
+    long now = System.currentTimeMillis();
+    long current = this.currentBucket(now);
+    long first = this.firstBucket(window, now);
+
+    Integer repositoryId = null;
+    if (repository != null) {
+      repositoryId = this.repositoryIds.get(repository);
+
+      if (repositoryId == null) {
+        return List.of();
+      }
+    }
+
+    long[] totals = new long[this.userIds.size()];
+    for (int i = 0; i < this.bucketCount; ++i) {
+      long bucket = this.bucketIds[i];
+
+      if (bucket < first || bucket > current) {
+        continue;
+      }
+
+      if (repositoryId == null) {
+        int[] counters = this.userCounters[i];
+        for (int user = 0; user < totals.length; ++user) {
+          totals[user] += counters[user];
+        }
+
+        continue;
+      }
+
+      int[] counters = this.contributorCounters[i];
+      for (int contributor = 0; contributor < this.contributorIds.size(); ++contributor) {
+        long key = this.contributorKeys[contributor];
+
+        if ((int) (key >>> 32) == repositoryId) {
+          totals[(int) key] += counters[contributor];
+        }
+      }
+    }
+
+    // since limits are typically tiny, we'll perform a partial selection instead of sorting the
+    // entire array of totals
+    List<Entry<String, Long>> result = new ArrayList<>(limit);
+    boolean[] selected = new boolean[totals.length];
+
+    for (int n = 0; n < limit; ++n) {
+      int best = -1;
+
+      for (int user = 0; user < totals.length; ++user) {
+        if (!selected[user] && totals[user] != 0 && (best == -1 || totals[user] > totals[best])) {
+          best = user;
+        }
+      }
+
+      if (best == -1) {
+        break;
+      }
+
+      selected[best] = true;
+      result.add(new SimpleImmutableEntry<>(this.userNames[best], totals[best]));
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.statistics;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.basinmc.ejector.command.Command;
+import org.basinmc.ejector.command.error.CommandException;
+import org.basinmc.ejector.command.error.CommandParameterException;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.communication.Message.Color;
+import org.basinmc.ejector.communication.Message.Style;
+import org.basinmc.stormdrain.PayloadType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides a command which summarizes the events received within a given time window.</p>
+ *
+ * <p>Usage: {@code stats [repository] [days]}</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnBean(EventStatistics.class)
+public class StatisticsCommand implements Command {
+
+  private static final int DEFAULT_WINDOW = 7;
+  private static final int MOST_ACTIVE_USER_LIMIT = 3;
+
+  private final EventStatistics statistics;
+
+  @Autowired
+  public StatisticsCommand(@NonNull EventStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execute(@NonNull Context context, @NonNull String commandName,
+      @NonNull List<String> arguments) throws CommandException {
+    if (arguments.size() > 2) {
+      throw new CommandParameterException("Usage: " + commandName + " [repository] [days]");
+    }
+
+    String repository = null;
+    int days = DEFAULT_WINDOW;
+
+    for (String argument : arguments) {
+      if (argument.chars().allMatch(Character::isDigit)) {
+        try {
+          days = Integer.parseInt(argument);
+        } catch (NumberFormatException ex) {
+          throw new CommandParameterException("Illegal time window: " + argument, ex);
+        }
+      } else {
+        repository = argument;
+      }
+    }
+
+    if (days <= 0) {
+      throw new CommandParameterException("Time window must be at least one day");
+    }
+
+    Duration window = Duration.ofDays(days);
+    if (window.compareTo(this.statistics.getRetention()) > 0) {
+      window = this.statistics.getRetention();
+    }
+
+    if (repository != null && !this.statistics.isTracked(repository)) {
+      context.sendMessage(Message.builder()
+          .withText(context.getUserReference())
+          .withText(" No events have been recorded for ")
+          .withColor(Color.GREEN)
+          .withText(repository)
+          .build());
+      return;
+    }
+
+    Map<PayloadType, Long> counts = this.statistics.count(repository, window);
+    long merges = this.statistics.countMerges(repository, window);
+
+    Message.Builder builder = Message.builder()
+        .withText(context.getUserReference())
+        .withColor(Color.GREEN)
+        .withText("[" + (repository == null ? "all repositories" : repository) + "]")
+        .withColor(Color.NONE)
+        .withText("last " + window.toDays() + " day(s):");
+
+    StringBuilder summary = new StringBuilder();
+    counts.forEach((type, count) -> {
+      if (summary.length() != 0) {
+        summary.append(", ");
+      }
+
+      summary.append(count).append(' ').append(type.name().toLowerCase());
+
+      if (type == PayloadType.PULL_REQUEST && merges != 0) {
+        summary.append(" (").append(merges).append(" merged)");
+      }
+    });
+    builder = builder.withText(summary.length() == 0 ? " no events" : " " + summary);
+
+    List<Entry<String, Long>> users = this.statistics
+        .getMostActiveUsers(repository, window, MOST_ACTIVE_USER_LIMIT);
+
+    if (!users.isEmpty()) {
+      builder = builder
+          .withStyle(Style.BOLD)
+          .withText("| most active:");
+
+      for (int i = 0; i < users.size(); ++i) {
+        Entry<String, Long> user = users.get(i);
+
+        builder = builder
+            .withColor(Color.BLUE)
+            .withText(user.getKey())
+            .withColor(Color.NONE)
+            .withText("(" + user.getValue() + ")" + (i + 1 < users.size() ? "," : ""));
+      }
+    }
+
+    context.sendMessage(builder.build());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @NonNull
+  @Override
+  public Set<String> getNames() {
+    return Set.of("stats", "statistics");
+  }
+}
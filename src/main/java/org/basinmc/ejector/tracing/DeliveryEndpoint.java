@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the timelines of recent deliveries through the actuator (e.g. {@code
+ * /actuator/deliveries/<delivery id>}).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@Endpoint(id = "deliveries")
+@ConditionalOnProperty(prefix = "ejector.tracing", name = "enabled", matchIfMissing = true)
+public class DeliveryEndpoint {
+
+  private static final int RECENT_LIMIT = 25;
+
+  private final DeliveryTracer tracer;
+
+  @Autowired
+  public DeliveryEndpoint(@NonNull DeliveryTracer tracer) {
+    this.tracer = tracer;
+  }
+
+  /**
+   * Retrieves the timelines of the most recent deliveries.
+   *
+   * @return a list of timelines.
+   */
+  @NonNull
+  @ReadOperation
+  public List<DeliveryTimeline> recent() {
+    return this.tracer.getRecent(RECENT_LIMIT);
+  }
+
+  /**
+   * Retrieves the timeline of a single delivery.
+   *
+   * @param deliveryId a delivery identifier.
+   * @return a timeline or null if no such delivery has been recorded recently.
+   */
+  @Nullable
+  @ReadOperation
+  public DeliveryTimeline delivery(@NonNull @Selector String deliveryId) {
+    try {
+      return this.tracer.find(UUID.fromString(deliveryId));
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+  }
+}
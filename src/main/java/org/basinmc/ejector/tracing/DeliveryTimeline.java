@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * <p>Represents an immutable snapshot of the timeline of a single delivery.</p>
+ *
+ * <p>All stage times are given as offsets (in milliseconds) relative to the receipt of the
+ * delivery. Stages which have not been reached (yet) are omitted.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class DeliveryTimeline {
+
+  private final UUID deliveryId;
+  private final Instant receivedAt;
+  private final Map<String, Double> stages;
+  private final List<Target> targets;
+
+  DeliveryTimeline(@NonNull UUID deliveryId, @NonNull Instant receivedAt,
+      @NonNull Map<String, Double> stages, @NonNull List<Target> targets) {
+    this.deliveryId = deliveryId;
+    this.receivedAt = receivedAt;
+    this.stages = stages;
+    this.targets = targets;
+  }
+
+  @NonNull
+  public UUID getDeliveryId() {
+    return this.deliveryId;
+  }
+
+  @NonNull
+  public String getReceivedAt() {
+    return this.receivedAt.toString();
+  }
+
+  @NonNull
+  public Map<String, Double> getStages() {
+    return this.stages;
+  }
+
+  @NonNull
+  public List<Target> getTargets() {
+    return this.targets;
+  }
+
+  /**
+   * Represents the timeline of a single channel to which a delivery has been routed.
+   */
+  public static final class Target {
+
+    private final String adapter;
+    private final String channel;
+    private final Map<String, Double> stages;
+    private final String outcome;
+
+    Target(@NonNull String adapter, @NonNull String channel, @NonNull Map<String, Double> stages,
+        @NonNull String outcome) {
+      this.adapter = adapter;
+      this.channel = channel;
+      this.stages = stages;
+      this.outcome = outcome;
+    }
+
+    @NonNull
+    public String getAdapter() {
+      return this.adapter;
+    }
+
+    @NonNull
+    public String getChannel() {
+      return this.channel;
+    }
+
+    @NonNull
+    public Map<String, Double> getStages() {
+      return this.stages;
+    }
+
+    @NonNull
+    public String getOutcome() {
+      return this.outcome;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * <p>Represents a handle to the trace of a single GitHub delivery.</p>
+ *
+ * <p>The trace of the delivery which is currently being processed is bound to the request thread
+ * and may be retrieved via {@link #current()}. Components which complete work asynchronously
+ * (such as outbound message acknowledgements) are expected to capture the handle before leaving
+ * the request thread. Stamps which arrive after the underlying ring buffer slot has been recycled
+ * are silently discarded.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class DeliveryTrace {
+
+  private static final ThreadLocal<DeliveryTrace> current = new ThreadLocal<>();
+
+  private final DeliveryTracer tracer;
+  private final int slot;
+  private final long sequence;
+
+  DeliveryTrace(@NonNull DeliveryTracer tracer, int slot, long sequence) {
+    this.tracer = tracer;
+    this.slot = slot;
+    this.sequence = sequence;
+  }
+
+  /**
+   * Retrieves the trace which is bound to the current thread.
+   *
+   * @return a trace or null if tracing is disabled or no delivery is being processed.
+   */
+  @Nullable
+  public static DeliveryTrace current() {
+    return current.get();
+  }
+
+  /**
+   * Binds a trace to the current thread.
+   *
+   * @param trace a trace or null to unbind the current trace.
+   */
+  static void setCurrent(@Nullable DeliveryTrace trace) {
+    if (trace == null) {
+      current.remove();
+    } else {
+      current.set(trace);
+    }
+  }
+
+  /**
+   * Records the completion of a delivery wide stage.
+   *
+   * @param stage a stage.
+   */
+  public void stamp(@NonNull Stage stage) {
+    this.tracer.stamp(this.slot, this.sequence, stage, System.nanoTime());
+  }
+
+  /**
+   * Registers a target channel to which the delivery has been routed.
+   *
+   * @param adapter an adapter name.
+   * @param channel a channel name.
+   * @param routedAt the time (as returned by {@link System#nanoTime()}) at which routing
+   * completed.
+   * @param renderedAt the time (as returned by {@link System#nanoTime()}) at which rendering
+   * completed.
+   * @return a target index or a negative value if the target limit has been exceeded.
+   */
+  public int addTarget(@NonNull String adapter, @NonNull String channel, long routedAt,
+      long renderedAt) {
+    return this.tracer.addTarget(this.slot, this.sequence, adapter, channel, routedAt, renderedAt);
+  }
+
+  /**
+   * Records that a message has been handed to the transport of its target.
+   *
+   * @param target a target index.
+   */
+  public void enqueued(int target) {
+    this.tracer.stampTarget(this.slot, this.sequence, target, Stage.ENQUEUE, System.nanoTime());
+  }
+
+  /**
+   * Records that a message has been acknowledged (or rejected) by its target.
+   *
+   * @param target a target index.
+   * @param success true if the message was delivered, false otherwise.
+   */
+  public void acknowledged(int target, boolean success) {
+    this.tracer.acknowledge(this.slot, this.sequence, target, success, System.nanoTime());
+  }
+
+  /**
+   * Provides a list of traced pipeline stages in their order of execution.
+   */
+  public enum Stage {
+    RECEIVE,
+    VERIFY,
+    PARSE,
+    ROUTE,
+    RENDER,
+    ENQUEUE,
+    ACKNOWLEDGE
+  }
+}
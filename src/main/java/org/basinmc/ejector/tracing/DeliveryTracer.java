@@ -0,0 +1,366 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.basinmc.ejector.tracing.DeliveryTrace.Stage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Records the timelines of recently processed GitHub deliveries.</p>
+ *
+ * <p>Timelines are stored within a preallocated ring buffer which retains the most recent
+ * deliveries (the buffer does not allocate while recording with the exception of the trace handle
+ * itself). In addition, the end-to-end latency of each delivery (from its receipt until its
+ * acknowledgement) is published as a percentile histogram per adapter and channel.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnProperty(prefix = "ejector.tracing", name = "enabled", matchIfMissing = true)
+public class DeliveryTracer {
+
+  /**
+   * Defines the maximum amount of targets which are recorded per delivery.
+   */
+  static final int MAXIMUM_TARGETS = 16;
+
+  /**
+   * Defines the index of the first stage which is recorded per target (all prior stages are
+   * recorded once per delivery).
+   */
+  private static final int FIRST_TARGET_STAGE = Stage.ROUTE.ordinal();
+  private static final int TARGET_STAGE_COUNT = Stage.values().length - FIRST_TARGET_STAGE;
+
+  private static final byte OUTCOME_PENDING = 0;
+  private static final byte OUTCOME_SUCCESS = 1;
+  private static final byte OUTCOME_FAILURE = 2;
+
+  private final Slot[] slots;
+  private final AtomicLong sequence = new AtomicLong();
+  private final MeterRegistry registry;
+  private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+
+  @Autowired
+  public DeliveryTracer(@Value("${ejector.tracing.capacity:1024}") int capacity,
+      @NonNull MeterRegistry registry) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Tracing capacity must be positive");
+    }
+
+    this.registry = registry;
+    this.slots = new Slot[capacity];
+
+    for (int i = 0; i < capacity; ++i) {
+      this.slots[i] = new Slot();
+    }
+  }
+
+  /**
+   * Begins tracing a new delivery (replacing the oldest trace within the buffer).
+   *
+   * @param deliveryId a delivery identifier.
+   * @return a trace handle.
+   */
+  @NonNull
+  public DeliveryTrace begin(@NonNull UUID deliveryId) {
+    long receivedAt = System.nanoTime();
+    long sequence = this.sequence.getAndIncrement();
+    int index = (int) (sequence % this.slots.length);
+    Slot slot = this.slots[index];
+
+    synchronized (slot) {
+      slot.sequence = sequence;
+      slot.mostSignificantBits = deliveryId.getMostSignificantBits();
+      slot.leastSignificantBits = deliveryId.getLeastSignificantBits();
+      slot.wallClock = System.currentTimeMillis();
+      slot.targetCount = 0;
+
+      Arrays.fill(slot.stages, 0);
+      slot.stages[Stage.RECEIVE.ordinal()] = receivedAt;
+    }
+
+    return new DeliveryTrace(this, index, sequence);
+  }
+
+  /**
+   * Records the completion of a delivery wide stage.
+   */
+  void stamp(int index, long sequence, @NonNull Stage stage, long time) {
+    if (stage.ordinal() >= FIRST_TARGET_STAGE) {
+      throw new IllegalArgumentException("Stage " + stage + " is recorded per target");
+    }
+
+    Slot slot = this.slots[index];
+
+    synchronized (slot) {
+      if (slot.sequence == sequence && slot.stages[stage.ordinal()] == 0) {
+        slot.stages[stage.ordinal()] = time;
+      }
+    }
+  }
+
+  /**
+   * Registers a new target within a delivery.
+   */
+  int addTarget(int index, long sequence, @NonNull String adapter, @NonNull String channel,
+      long routedAt, long renderedAt) {
+    Slot slot = this.slots[index];
+
+    synchronized (slot) {
+      if (slot.sequence != sequence || slot.targetCount == MAXIMUM_TARGETS) {
+        return -1;
+      }
+
+      int target = slot.targetCount++;
+      int offset = target * TARGET_STAGE_COUNT;
+
+      slot.adapters[target] = adapter;
+      slot.channels[target] = channel;
+      slot.outcomes[target] = OUTCOME_PENDING;
+      Arrays.fill(slot.targetStages, offset, offset + TARGET_STAGE_COUNT, 0);
+      slot.targetStages[offset + Stage.ROUTE.ordinal() - FIRST_TARGET_STAGE] = routedAt;
+      slot.targetStages[offset + Stage.RENDER.ordinal() - FIRST_TARGET_STAGE] = renderedAt;
+
+      return target;
+    }
+  }
+
+  /**
+   * Records the completion of a per-target stage.
+   */
+  void stampTarget(int index, long sequence, int target, @NonNull Stage stage, long time) {
+    if (target < 0) {
+      return;
+    }
+
+    Slot slot = this.slots[index];
+
+    synchronized (slot) {
+      if (slot.sequence == sequence && target < slot.targetCount) {
+        slot.targetStages[target * TARGET_STAGE_COUNT + stage.ordinal() - FIRST_TARGET_STAGE] =
+            time;
+      }
+    }
+  }
+
+  /**
+   * Records the acknowledgement of a target and publishes its end-to-end latency.
+   */
+  void acknowledge(int index, long sequence, int target, boolean success, long time) {
+    if (target < 0) {
+      return;
+    }
+
+    Slot slot = this.slots[index];
+    String adapter;
+    String channel;
+    long latency;
+
+    synchronized (slot) {
+      if (slot.sequence != sequence || target >= slot.targetCount) {
+        return;
+      }
+
+      slot.targetStages[target * TARGET_STAGE_COUNT + Stage.ACKNOWLEDGE.ordinal()
+          - FIRST_TARGET_STAGE] = time;
+      slot.outcomes[target] = success ? OUTCOME_SUCCESS : OUTCOME_FAILURE;
+
+      adapter = slot.adapters[target];
+      channel = slot.channels[target];
+      latency = time - slot.stages[Stage.RECEIVE.ordinal()];
+    }
+
+    if (success) {
+      this.getLatencyTimer(adapter, channel).record(latency, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Retrieves the end-to-end latency timer for a given target.
+   *
+   * @param adapter an adapter name.
+   * @param channel a channel name.
+   * @return a timer.
+   */
+  @NonNull
+  private Timer getLatencyTimer(@NonNull String adapter, @NonNull String channel) {
+    return this.latencyTimers.computeIfAbsent(adapter + '/' + channel,
+        (k) -> Timer.builder("ejector.delivery.latency")
+            .description("Time between the receipt of a delivery and its acknowledgement")
+            .tag("adapter", adapter)
+            .tag("channel", channel)
+            .publishPercentileHistogram()
+            .register(this.registry));
+  }
+
+  /**
+   * Retrieves the timeline of the most recent delivery with the specified identifier.
+   *
+   * @param deliveryId a delivery identifier.
+   * @return a timeline or null if the delivery is unknown or has been evicted from the buffer.
+   */
+  @Nullable
+  public DeliveryTimeline find(@NonNull UUID deliveryId) {
+    long mostSignificantBits = deliveryId.getMostSignificantBits();
+    long leastSignificantBits = deliveryId.getLeastSignificantBits();
+    DeliveryTimeline result = null;
+    long resultSequence = -1;
+
+    for (Slot slot : this.slots) {
+      synchronized (slot) {
+        if (slot.sequence > resultSequence
+            && slot.mostSignificantBits == mostSignificantBits
+            && slot.leastSignificantBits == leastSignificantBits) {
+          result = slot.snapshot();
+          resultSequence = slot.sequence;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Retrieves the timelines of the most recent deliveries (newest first).
+   *
+   * @param limit the maximum amount of timelines.
+   * @return a list of timelines.
+   */
+  @NonNull
+  public List<DeliveryTimeline> getRecent(int limit) {
+    long latest = this.sequence.get() - 1;
+    List<DeliveryTimeline> timelines = new ArrayList<>();
+
+    for (long sequence = latest; sequence >= 0 && sequence > latest - this.slots.length
+        && timelines.size() < limit; --sequence) {
+      Slot slot = this.slots[(int) (sequence % this.slots.length)];
+
+      synchronized (slot) {
+        if (slot.sequence == sequence) {
+          timelines.add(slot.snapshot());
+        }
+      }
+    }
+
+    return timelines;
+  }
+
+  /**
+   * Converts a pair of monotonic timestamps into a relative offset in milliseconds.
+   */
+  @Nullable
+  private static Double offset(long origin, long time) {
+    if (time == 0) {
+      return null;
+    }
+
+    return (time - origin) / 1_000_000.0;
+  }
+
+  /**
+   * Represents a single (reusable) entry within the ring buffer.
+   */
+  private static final class Slot {
+
+    private long sequence = -1;
+    private long mostSignificantBits;
+    private long leastSignificantBits;
+    private long wallClock;
+    private final long[] stages = new long[FIRST_TARGET_STAGE];
+
+    private int targetCount;
+    private final String[] adapters = new String[MAXIMUM_TARGETS];
+    private final String[] channels = new String[MAXIMUM_TARGETS];
+    private final long[] targetStages = new long[MAXIMUM_TARGETS * TARGET_STAGE_COUNT];
+    private final byte[] outcomes = new byte[MAXIMUM_TARGETS];
+
+    /**
+     * Creates an immutable copy of the timeline within this slot (callers are expected to hold
+     * the slot lock).
+     *
+     * @return a timeline.
+     */
+    @NonNull
+    private DeliveryTimeline snapshot() {
+      Stage[] values = Stage.values();
+      long origin = this.stages[Stage.RECEIVE.ordinal()];
+
+      Map<String, Double> stages = new LinkedHashMap<>();
+      for (int i = 0; i < FIRST_TARGET_STAGE; ++i) {
+        Double offset = offset(origin, this.stages[i]);
+
+        if (offset != null) {
+          stages.put(values[i].name().toLowerCase(), offset);
+        }
+      }
+
+      List<DeliveryTimeline.Target> targets = new ArrayList<>(this.targetCount);
+      for (int target = 0; target < this.targetCount; ++target) {
+        Map<String, Double> targetStages = new LinkedHashMap<>();
+
+        for (int i = 0; i < TARGET_STAGE_COUNT; ++i) {
+          Double offset = offset(origin, this.targetStages[target * TARGET_STAGE_COUNT + i]);
+
+          if (offset != null) {
+            targetStages.put(values[FIRST_TARGET_STAGE + i].name().toLowerCase(), offset);
+          }
+        }
+
+        String outcome;
+        switch (this.outcomes[target]) {
+          case OUTCOME_SUCCESS:
+            outcome = "success";
+            break;
+          case OUTCOME_FAILURE:
+            outcome = "failure";
+            break;
+          default:
+            outcome = "pending";
+            break;
+        }
+
+        targets.add(new DeliveryTimeline.Target(this.adapters[target], this.channels[target],
+            Collections.unmodifiableMap(targetStages), outcome));
+      }
+
+      return new DeliveryTimeline(
+          new UUID(this.mostSignificantBits, this.leastSignificantBits),
+          Instant.ofEpochMilli(this.wallClock),
+          Collections.unmodifiableMap(stages),
+          Collections.unmodifiableList(targets)
+      );
+    }
+  }
+}
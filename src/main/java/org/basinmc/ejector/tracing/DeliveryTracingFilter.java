@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.util.UUID;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Begins a new trace for every request which carries a GitHub delivery identifier and binds it
+ * to the request thread for the duration of the request.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(prefix = "ejector.tracing", name = "enabled", matchIfMissing = true)
+public class DeliveryTracingFilter extends OncePerRequestFilter {
+
+  private final DeliveryTracer tracer;
+
+  @Autowired
+  public DeliveryTracingFilter(@NonNull DeliveryTracer tracer) {
+    this.tracer = tracer;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void doFilterInternal(@NonNull HttpServletRequest request,
+      @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+      throws ServletException, IOException {
+    String header = request.getHeader("X-Github-Delivery");
+    UUID deliveryId = null;
+
+    if (header != null) {
+      try {
+        deliveryId = UUID.fromString(header);
+      } catch (IllegalArgumentException ignore) {
+      }
+    }
+
+    if (deliveryId == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    DeliveryTrace.setCurrent(this.tracer.begin(deliveryId));
+
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      DeliveryTrace.setCurrent(null);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing.jfr;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Represents the hand-off of a message to the transport of a communication adapter (for
+ * asynchronous transports, this event does not include the time spent waiting for an
+ * acknowledgement unless the acknowledgement is part of the exchange, such as the response to an
+ * HTTP request).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Name("org.basinmc.ejector.OutboundSend")
+@Label("Outbound Send")
+@Category({"Ejector", "Communication"})
+@Description("Hand-off of a message to an adapter transport")
+@StackTrace(false)
+public class OutboundSendEvent extends jdk.jfr.Event {
+
+  @Label("Adapter")
+  private String adapter;
+
+  @Label("Channel")
+  private String channel;
+
+  @Label("Message Size")
+  @Description("Length of the message (in characters)")
+  private int messageSize;
+
+  @Label("Success")
+  private boolean success;
+
+  @Label("Status")
+  @Description("Status reported by the transport (such as an HTTP status code) or -1")
+  private int status = -1;
+
+  public void setAdapter(@NonNull String adapter) {
+    this.adapter = adapter;
+  }
+
+  public void setChannel(@NonNull String channel) {
+    this.channel = channel;
+  }
+
+  public void setMessageSize(int messageSize) {
+    this.messageSize = messageSize;
+  }
+
+  public void setSuccess(boolean success) {
+    this.success = success;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+}
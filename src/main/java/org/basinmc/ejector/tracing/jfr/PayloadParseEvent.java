@@ -0,0 +1,60 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing.jfr;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Represents the decoding of a single GitHub payload into its event representation.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Name("org.basinmc.ejector.PayloadParse")
+@Label("Payload Parse")
+@Category({"Ejector", "Webhook"})
+@Description("Decoding of a GitHub payload")
+@StackTrace(false)
+public class PayloadParseEvent extends jdk.jfr.Event {
+
+  @Label("Payload Type")
+  private String payloadType;
+
+  @Label("Repository")
+  private String repository;
+
+  @Label("Payload Size")
+  @Description("Length of the encoded payload (in characters)")
+  private int payloadSize;
+
+  public void setPayloadType(@NonNull String payloadType) {
+    this.payloadType = payloadType;
+  }
+
+  public void setRepository(@Nullable String repository) {
+    this.repository = repository;
+  }
+
+  public void setPayloadSize(int payloadSize) {
+    this.payloadSize = payloadSize;
+  }
+}
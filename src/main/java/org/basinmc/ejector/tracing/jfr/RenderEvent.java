@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing.jfr;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Represents the rendering of an event into the message format of a communication adapter.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Name("org.basinmc.ejector.Render")
+@Label("Message Render")
+@Category({"Ejector", "Communication"})
+@Description("Rendering of an event into an adapter specific message")
+@StackTrace(false)
+public class RenderEvent extends jdk.jfr.Event {
+
+  @Label("Adapter")
+  private String adapter;
+
+  @Label("Payload Type")
+  private String payloadType;
+
+  @Label("Repository")
+  private String repository;
+
+  @Label("Channel Count")
+  @Description("Amount of channels the message is sent to")
+  private int channelCount;
+
+  public void setAdapter(@NonNull String adapter) {
+    this.adapter = adapter;
+  }
+
+  public void setPayloadType(@NonNull String payloadType) {
+    this.payloadType = payloadType;
+  }
+
+  public void setRepository(@Nullable String repository) {
+    this.repository = repository;
+  }
+
+  public void setChannelCount(int channelCount) {
+    this.channelCount = channelCount;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing.jfr;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Represents the verification of the signature of a single GitHub delivery (including the
+ * consumption of the request body as the signature is computed incrementally).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Name("org.basinmc.ejector.SignatureVerification")
+@Label("Signature Verification")
+@Category({"Ejector", "Webhook"})
+@Description("Verification of the HMAC signature of a GitHub delivery")
+@StackTrace(false)
+public class SignatureVerificationEvent extends jdk.jfr.Event {
+
+  @Label("Algorithm")
+  private String algorithm;
+
+  @Label("Payload Size")
+  @Description("Size of the request body")
+  @DataAmount
+  private int payloadSize;
+
+  @Label("Verified")
+  private boolean verified;
+
+  public void setAlgorithm(@NonNull String algorithm) {
+    this.algorithm = algorithm;
+  }
+
+  public void setPayloadSize(int payloadSize) {
+    this.payloadSize = payloadSize;
+  }
+
+  public void setVerified(boolean verified) {
+    this.verified = verified;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.tracing.jfr;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Represents the processing of a single GitHub delivery (from the invocation of the controller
+ * until all adapters have been notified).
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Name("org.basinmc.ejector.WebhookReceipt")
+@Label("Webhook Receipt")
+@Category({"Ejector", "Webhook"})
+@Description("Processing of a single GitHub delivery")
+@StackTrace(false)
+public class WebhookReceiptEvent extends jdk.jfr.Event {
+
+  @Label("Delivery Identifier")
+  private String deliveryId;
+
+  @Label("Payload Type")
+  private String payloadType;
+
+  @Label("Repository")
+  private String repository;
+
+  @Label("Payload Size")
+  @Description("Size of the request body")
+  @DataAmount
+  private int payloadSize;
+
+  public void setDeliveryId(@NonNull String deliveryId) {
+    this.deliveryId = deliveryId;
+  }
+
+  public void setPayloadType(@NonNull String payloadType) {
+    this.payloadType = payloadType;
+  }
+
+  public void setRepository(@Nullable String repository) {
+    this.repository = repository;
+  }
+
+  public void setPayloadSize(int payloadSize) {
+    this.payloadSize = payloadSize;
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.utility;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.basinmc.stormdrain.event.AbstractUserTriggeredEvent;
+import org.basinmc.stormdrain.event.CommitCommentEvent;
+import org.basinmc.stormdrain.event.CreateEvent;
+import org.basinmc.stormdrain.event.DeleteEvent;
+import org.basinmc.stormdrain.event.DeploymentEvent;
+import org.basinmc.stormdrain.event.DeploymentStatusEvent;
+import org.basinmc.stormdrain.event.Event;
+import org.basinmc.stormdrain.event.ForkEvent;
+import org.basinmc.stormdrain.event.GollumEvent;
+import org.basinmc.stormdrain.event.IssueCommentEvent;
+import org.basinmc.stormdrain.event.IssuesEvent;
+import org.basinmc.stormdrain.event.LabelEvent;
+import org.basinmc.stormdrain.event.MemberEvent;
+import org.basinmc.stormdrain.event.MembershipEvent;
+import org.basinmc.stormdrain.event.MilestoneEvent;
+import org.basinmc.stormdrain.event.OrganizationBlockEvent;
+import org.basinmc.stormdrain.event.OrganizationEvent;
+import org.basinmc.stormdrain.event.PageBuildEvent;
+import org.basinmc.stormdrain.event.PublicEvent;
+import org.basinmc.stormdrain.event.PullRequestEvent;
+import org.basinmc.stormdrain.event.PullRequestReviewCommentEvent;
+import org.basinmc.stormdrain.event.PullRequestReviewEvent;
+import org.basinmc.stormdrain.event.PushEvent;
+import org.basinmc.stormdrain.event.ReleaseEvent;
+import org.basinmc.stormdrain.event.RepositoryEvent;
+import org.basinmc.stormdrain.event.TeamAddEvent;
+import org.basinmc.stormdrain.event.TeamEvent;
+import org.basinmc.stormdrain.event.WatchEvent;
+import org.basinmc.stormdrain.resource.Repository;
+
+/**
+ * Provides utility methods which extract commonly used attributes from arbitrary events.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public final class Events {
+
+  private Events() {
+  }
+
+  /**
+   * Retrieves the full name of the repository on which the specified event occurred.
+   *
+   * @param event an event.
+   * @return a repository name or null if the event is not bound to a repository (such as
+   * organization events).
+   */
+  @Nullable
+  public static String getRepositoryName(@NonNull Event event) {
+    Repository repository = getRepository(event);
+    return repository == null ? null : repository.getFullName();
+  }
+
+  /**
+   * Retrieves the repository on which the specified event occurred.
+   *
+   * @param event an event.
+   * @return a repository or null if the event is not bound to a repository (such as organization
+   * events).
+   */
+  @Nullable
+  public static Repository getRepository(@NonNull Event event) {
+    if (event instanceof PushEvent) {
+      return ((PushEvent) event).getRepository();
+    }
+    if (event instanceof PullRequestEvent) {
+      return ((PullRequestEvent) event).getRepository();
+    }
+    if (event instanceof IssueCommentEvent) {
+      return ((IssueCommentEvent) event).getRepository();
+    }
+    if (event instanceof IssuesEvent) {
+      return ((IssuesEvent) event).getRepository();
+    }
+    if (event instanceof PullRequestReviewEvent) {
+      return ((PullRequestReviewEvent) event).getRepository();
+    }
+    if (event instanceof PullRequestReviewCommentEvent) {
+      return ((PullRequestReviewCommentEvent) event).getRepository();
+    }
+    if (event instanceof CommitCommentEvent) {
+      return ((CommitCommentEvent) event).getRepository();
+    }
+    if (event instanceof CreateEvent) {
+      return ((CreateEvent) event).getRepository();
+    }
+    if (event instanceof DeleteEvent) {
+      return ((DeleteEvent) event).getRepository();
+    }
+    if (event instanceof DeploymentEvent) {
+      return ((DeploymentEvent) event).getRepository();
+    }
+    if (event instanceof DeploymentStatusEvent) {
+      return ((DeploymentStatusEvent) event).getRepository();
+    }
+    if (event instanceof ForkEvent) {
+      return ((ForkEvent) event).getRepository();
+    }
+    if (event instanceof GollumEvent) {
+      return ((GollumEvent) event).getRepository();
+    }
+    if (event instanceof LabelEvent) {
+      return ((LabelEvent) event).getRepository();
+    }
+    if (event instanceof MemberEvent) {
+      return ((MemberEvent) event).getRepository();
+    }
+    if (event instanceof MilestoneEvent) {
+      return ((MilestoneEvent) event).getRepository();
+    }
+    if (event instanceof PageBuildEvent) {
+      return ((PageBuildEvent) event).getRepository();
+    }
+    if (event instanceof PublicEvent) {
+      return ((PublicEvent) event).getRepository();
+    }
+    if (event instanceof ReleaseEvent) {
+      return ((ReleaseEvent) event).getRepository();
+    }
+    if (event instanceof RepositoryEvent) {
+      return ((RepositoryEvent) event).getRepository();
+    }
+    if (event instanceof TeamAddEvent) {
+      return ((TeamAddEvent) event).getRepository();
+    }
+    if (event instanceof TeamEvent) {
+      return ((TeamEvent) event).getRepository().orElse(null);
+    }
+    if (event instanceof WatchEvent) {
+      return ((WatchEvent) event).getRepository();
+    }
+
+    return null;
+  }
+
+  /**
+   * Retrieves the login of the user which triggered the specified event.
+   *
+   * @param event an event.
+   * @return a login or null if the event has not been triggered by a user.
+   */
+  @Nullable
+  public static String getSenderLogin(@NonNull Event event) {
+    if (event instanceof AbstractUserTriggeredEvent) {
+      return ((AbstractUserTriggeredEvent) event).getSender().getLogin();
+    }
+
+    return null;
+  }
+
+  /**
+   * Retrieves the fully qualified git reference (such as {@code refs/heads/master}) which the
+   * specified event refers to.
+   *
+   * @param event an event.
+   * @return a reference or null if the event does not refer to a git reference.
+   */
+  @Nullable
+  public static String getReference(@NonNull Event event) {
+    if (event instanceof PushEvent) {
+      return ((PushEvent) event).getReference();
+    }
+    if (event instanceof CreateEvent) {
+      CreateEvent createEvent = (CreateEvent) event;
+      return qualifyReference(createEvent.getReferenceType().name(), createEvent.getReference());
+    }
+    if (event instanceof DeleteEvent) {
+      DeleteEvent deleteEvent = (DeleteEvent) event;
+      return qualifyReference(deleteEvent.getReferenceType().name(), deleteEvent.getReference());
+    }
+
+    return null;
+  }
+
+  /**
+   * Converts a short reference name (as passed along with create and delete events) into its
+   * fully qualified representation.
+   *
+   * @param type a reference type name.
+   * @param reference a short reference name.
+   * @return a reference or null if the reference does not refer to a branch or tag.
+   */
+  @Nullable
+  private static String qualifyReference(@NonNull String type, @Nullable String reference) {
+    if (reference == null) {
+      return null;
+    }
+
+    switch (type) {
+      case "BRANCH":
+        return "refs/heads/" + reference;
+      case "TAG":
+        return "refs/tags/" + reference;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Retrieves the (lower case) name of the action which is described by the specified event.
+   *
+   * @param event an event.
+   * @return an action name or null if the event does not carry an action.
+   */
+  @Nullable
+  public static String getAction(@NonNull Event event) {
+    Enum<?> action = null;
+
+    if (event instanceof PullRequestEvent) {
+      action = ((PullRequestEvent) event).getAction();
+    } else if (event instanceof IssueCommentEvent) {
+      action = ((IssueCommentEvent) event).getAction();
+    } else if (event instanceof IssuesEvent) {
+      action = ((IssuesEvent) event).getAction();
+    } else if (event instanceof PullRequestReviewEvent) {
+      action = ((PullRequestReviewEvent) event).getAction();
+    } else if (event instanceof PullRequestReviewCommentEvent) {
+      action = ((PullRequestReviewCommentEvent) event).getAction();
+    } else if (event instanceof CommitCommentEvent) {
+      action = ((CommitCommentEvent) event).getAction();
+    } else if (event instanceof LabelEvent) {
+      action = ((LabelEvent) event).getAction();
+    } else if (event instanceof MemberEvent) {
+      action = ((MemberEvent) event).getAction();
+    } else if (event instanceof MembershipEvent) {
+      action = ((MembershipEvent) event).getAction();
+    } else if (event instanceof MilestoneEvent) {
+      action = ((MilestoneEvent) event).getAction();
+    } else if (event instanceof OrganizationEvent) {
+      action = ((OrganizationEvent) event).getAction();
+    } else if (event instanceof OrganizationBlockEvent) {
+      action = ((OrganizationBlockEvent) event).getAction();
+    } else if (event instanceof RepositoryEvent) {
+      action = ((RepositoryEvent) event).getAction();
+    } else if (event instanceof TeamEvent) {
+      action = ((TeamEvent) event).getAction();
+    }
+
+    return action == null ? null : action.name().toLowerCase();
+  }
+
+  /**
+   * Evaluates whether the specified event represents the merge of a pull request.
+   *
+   * @param event an event.
+   * @return true if merged, false otherwise.
+   */
+  public static boolean isPullRequestMerge(@NonNull Event event) {
+    if (!(event instanceof PullRequestEvent)) {
+      return false;
+    }
+
+    PullRequestEvent pullRequestEvent = (PullRequestEvent) event;
+    return pullRequestEvent.getAction() == PullRequestEvent.Action.CLOSED
+        && pullRequestEvent.getPullRequest().getMergedAt().isPresent();
+  }
+}
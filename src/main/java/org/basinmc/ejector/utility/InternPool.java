@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.utility;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Provides a bounded pool of canonical string instances for identifiers which occur
+ * repeatedly across events (such as repository names, logins and avatar URLs).</p>
+ *
+ * <p>The pool is split into a fixed amount of independently locked segments each of which evicts
+ * its least recently used entry once full. Values may be looked up directly from a character
+ * buffer in which case no string is allocated unless the value is not yet known.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+@Component
+public class InternPool implements MeterBinder {
+
+  private static final int SEGMENT_COUNT = 16;
+
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Autowired
+  public InternPool(@Value("${ejector.intern.capacity:8192}") int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+
+    int segmentCapacity = Math.max(1, (capacity + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+    for (int i = 0; i < SEGMENT_COUNT; ++i) {
+      this.segments[i] = new Segment(segmentCapacity);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void bindTo(@NonNull MeterRegistry registry) {
+    FunctionCounter.builder("ejector.intern.requests", this.hits, LongAdder::sum)
+        .description("Amount of lookups within the string pool")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("ejector.intern.requests", this.misses, LongAdder::sum)
+        .description("Amount of lookups within the string pool")
+        .tag("result", "miss")
+        .register(registry);
+    FunctionCounter.builder("ejector.intern.evictions", this.evictions, LongAdder::sum)
+        .description("Amount of strings which have been evicted from the pool")
+        .register(registry);
+    Gauge.builder("ejector.intern.size", this, InternPool::size)
+        .description("Amount of strings which are currently retained by the pool")
+        .register(registry);
+  }
+
+  /**
+   * Retrieves the canonical instance of a given string.
+   *
+   * @param value a string.
+   * @return a canonical string or null if null has been passed.
+   */
+  @Nullable
+  public String intern(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+
+    return this.segmentFor(value.hashCode()).intern(value, value);
+  }
+
+  /**
+   * Retrieves the canonical instance of the string within a given region of a character buffer.
+   *
+   * @param buffer a character buffer.
+   * @param offset an offset within the buffer.
+   * @param length the amount of characters.
+   * @return a canonical string.
+   */
+  @NonNull
+  public String intern(@NonNull char[] buffer, int offset, int length) {
+    CharRange range = new CharRange(buffer, offset, length);
+    return this.segmentFor(range.hashCode()).intern(range, null);
+  }
+
+  /**
+   * Retrieves the total amount of strings within the pool.
+   *
+   * @return a string count.
+   */
+  public int size() {
+    int size = 0;
+
+    for (Segment segment : this.segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+
+    return size;
+  }
+
+  /**
+   * Selects the segment which is responsible for a given hash.
+   *
+   * @param hash a string hash.
+   * @return a segment.
+   */
+  @NonNull
+  private Segment segmentFor(int hash) {
+    return this.segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+  }
+
+  /**
+   * Represents an independently locked partition of the pool.
+   */
+  private final class Segment extends LinkedHashMap<Object, String> {
+
+    private final int capacity;
+
+    private Segment(int capacity) {
+      super(capacity * 4 / 3 + 1, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    /**
+     * Retrieves or registers the canonical instance of a value.
+     *
+     * @param key a lookup key (a string or a character range).
+     * @param value the value to register or null if it is to be created from the key.
+     * @return a canonical string.
+     */
+    @NonNull
+    private synchronized String intern(@NonNull Object key, @Nullable String value) {
+      String existing = this.get(key);
+
+      if (existing != null) {
+        InternPool.this.hits.increment();
+        return existing;
+      }
+
+      InternPool.this.misses.increment();
+
+      if (value == null) {
+        value = key.toString();
+      }
+
+      this.put(value, value);
+      return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, String> eldest) {
+      if (this.size() > this.capacity) {
+        InternPool.this.evictions.increment();
+        return true;
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * <p>Provides a view on a region of a character buffer which may be used to look up strings
+   * with equal contents.</p>
+   *
+   * <p>The hash code of a range is equal to the hash code of the respective string and ranges
+   * consider themselves equal to strings of the same contents. As the pool exclusively stores
+   * strings as keys, this permits lookups without first copying the characters.</p>
+   */
+  private static final class CharRange {
+
+    private final char[] buffer;
+    private final int offset;
+    private final int length;
+    private final int hash;
+
+    private CharRange(@NonNull char[] buffer, int offset, int length) {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+
+      int hash = 0;
+      for (int i = 0; i < length; ++i) {
+        hash = 31 * hash + buffer[offset + i];
+      }
+      this.hash = hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof String)) {
+        return false;
+      }
+
+      String value = (String) o;
+      if (value.length() != this.length) {
+        return false;
+      }
+
+      for (int i = 0; i < this.length; ++i) {
+        if (value.charAt(i) != this.buffer[this.offset + i]) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+      return new String(this.buffer, this.offset, this.length);
+    }
+  }
+}
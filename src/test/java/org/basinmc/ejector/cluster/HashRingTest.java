@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link HashRing}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class HashRingTest {
+
+  private static final int REPLICAS = 128;
+  private static final int KEYS = 3000;
+
+  /**
+   * Evaluates whether empty rings do not assign any owners.
+   */
+  @Test
+  public void testEmpty() {
+    HashRing ring = HashRing.of(Collections.emptyList(), REPLICAS);
+
+    assertTrue(ring.getMembers().isEmpty());
+    assertNull(ring.getOwner("discord/1234"));
+  }
+
+  /**
+   * Evaluates whether a single member owns all keys.
+   */
+  @Test
+  public void testSingleMember() {
+    HashRing ring = HashRing.of(Collections.singletonList("a"), REPLICAS);
+
+    for (int i = 0; i < KEYS; ++i) {
+      assertEquals("a", ring.getOwner("key-" + i));
+    }
+  }
+
+  /**
+   * Evaluates whether all instances compute identical owners regardless of the order in which
+   * they learned about the members.
+   */
+  @Test
+  public void testDeterministic() {
+    HashRing a = HashRing.of(Arrays.asList("a", "b", "c"), REPLICAS);
+    HashRing b = HashRing.of(Arrays.asList("c", "a", "b"), REPLICAS);
+
+    assertEquals(a.getMembers(), b.getMembers());
+    for (int i = 0; i < KEYS; ++i) {
+      assertEquals(a.getOwner("key-" + i), b.getOwner("key-" + i));
+    }
+  }
+
+  /**
+   * Evaluates whether keys are spread across all members.
+   */
+  @Test
+  public void testDistribution() {
+    HashRing ring = HashRing.of(Arrays.asList("a", "b", "c"), REPLICAS);
+    Map<String, Integer> counts = new HashMap<>();
+
+    for (int i = 0; i < KEYS; ++i) {
+      counts.merge(ring.getOwner("key-" + i), 1, Integer::sum);
+    }
+
+    assertEquals(3, counts.size());
+    counts.values().forEach((c) -> assertTrue("Unbalanced ring: " + counts, c > KEYS / 5));
+  }
+
+  /**
+   * Evaluates whether only the keys which are taken over by a new member change their owner.
+   */
+  @Test
+  public void testMembershipChange() {
+    HashRing previous = HashRing.of(Arrays.asList("a", "b", "c"), REPLICAS);
+    HashRing current = HashRing.of(Arrays.asList("a", "b", "c", "d"), REPLICAS);
+    int moved = 0;
+
+    for (int i = 0; i < KEYS; ++i) {
+      String key = "key-" + i;
+      String owner = current.getOwner(key);
+
+      if (!owner.equals(previous.getOwner(key))) {
+        assertEquals("d", owner);
+        ++moved;
+      }
+    }
+
+    assertTrue("Too many keys moved: " + moved, moved < KEYS / 2);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import org.basinmc.ejector.command.Command.Context;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.communication.Message.Color;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link BatchingContext}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class BatchingContextTest {
+
+  private final List<Message> sent = new ArrayList<>();
+  private final BatchingContext batch = new BatchingContext(new Context() {
+    @NonNull
+    @Override
+    public String getUserName() {
+      return "user";
+    }
+
+    @NonNull
+    @Override
+    public String getUserReference() {
+      return "user:";
+    }
+
+    @Override
+    public void sendMessage(@NonNull Message message) {
+      BatchingContextTest.this.sent.add(message);
+    }
+  });
+
+  /**
+   * Evaluates whether all collected messages are passed on as a single message in which each of
+   * them starts on a line of its own.
+   */
+  @Test
+  public void testFlushMergesMessages() {
+    this.batch.sendMessage(Message.builder()
+        .withText("user:")
+        .withColor(Color.GREEN)
+        .withText("[all repositories]")
+        .build());
+    this.batch.sendMessage(Message.builder().withText("3 push").build());
+    assertTrue(this.sent.isEmpty());
+
+    this.batch.flush();
+    assertEquals(1, this.sent.size());
+
+    Message message = this.sent.get(0);
+    assertEquals("user: [all repositories]\n3 push", message.toString(Message::getText));
+    assertFalse(message.isLineBreak());
+    assertEquals(Color.GREEN, message.getNext().get().getColor());
+    assertTrue(message.getNext().get().getNext().get().isLineBreak());
+  }
+
+  /**
+   * Evaluates whether empty batches and messages sent after the flush are discarded.
+   */
+  @Test
+  public void testFlushDiscardsLateMessages() {
+    this.batch.flush();
+    this.batch.sendMessage(Message.builder().withText("late").build());
+    this.batch.flush();
+
+    assertTrue(this.sent.isEmpty());
+  }
+}
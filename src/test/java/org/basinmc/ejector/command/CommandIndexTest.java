@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link CommandIndex}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class CommandIndexTest {
+
+  private static final List<String> HELP = Arrays.asList("help", "h");
+  private static final List<String> START = Collections.singletonList("start");
+  private static final List<String> STATUS = Arrays.asList("status", "stats");
+
+  private final CommandIndex<List<String>> index = CommandIndex
+      .of(Arrays.asList(HELP, START, STATUS), (c) -> c);
+
+  /**
+   * Evaluates whether aliases are resolved regardless of their case.
+   */
+  @Test
+  public void testExactMatch() {
+    assertSame(HELP, this.index.get("help"));
+    assertSame(HELP, this.index.get("HeLp"));
+    assertSame(STATUS, this.index.get("stats"));
+    assertEquals(5, this.index.size());
+  }
+
+  /**
+   * Evaluates whether exact matches take precedence over prefix matches.
+   */
+  @Test
+  public void testExactMatchPrecedence() {
+    assertSame(HELP, this.index.get("h"));
+  }
+
+  /**
+   * Evaluates whether unambiguous prefixes are resolved to their command.
+   */
+  @Test
+  public void testPrefixMatch() {
+    assertSame(HELP, this.index.get("he"));
+    assertSame(START, this.index.get("star"));
+
+    // both aliases which start with the prefix refer to the same command
+    assertSame(STATUS, this.index.get("stat"));
+  }
+
+  /**
+   * Evaluates whether ambiguous and unknown inputs are rejected.
+   */
+  @Test
+  public void testAmbiguousPrefix() {
+    assertNull(this.index.get("sta"));
+    assertNull(this.index.get("unknown"));
+    assertNull(this.index.get(""));
+  }
+
+  /**
+   * Evaluates whether the candidates of an ambiguous prefix are suggested.
+   */
+  @Test
+  public void testSuggestPrefix() {
+    assertEquals(Arrays.asList("start", "stats", "status"), this.index.suggest("STA"));
+  }
+
+  /**
+   * Evaluates whether misspelled aliases are suggested by their edit distance.
+   */
+  @Test
+  public void testSuggestDistance() {
+    assertEquals(Collections.singletonList("help"), this.index.suggest("halp"));
+    assertTrue(this.index.suggest("deploy").isEmpty());
+  }
+
+  /**
+   * Evaluates whether the first command which claims an alias retains it.
+   */
+  @Test
+  public void testDuplicateAlias() {
+    List<String> other = Collections.singletonList("help");
+    CommandIndex<Collection<String>> index = CommandIndex
+        .of(Arrays.asList(HELP, other), (c) -> c);
+
+    assertSame(HELP, index.get("help"));
+    assertEquals(2, index.size());
+  }
+
+  /**
+   * Evaluates whether empty indices never resolve any aliases.
+   */
+  @Test
+  public void testEmpty() {
+    CommandIndex<Object> index = CommandIndex.empty();
+
+    assertNull(index.get("help"));
+    assertTrue(index.suggest("help").isEmpty());
+    assertEquals(0, index.size());
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.routing;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link Glob}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class GlobTest {
+
+  /**
+   * Evaluates whether patterns without wildcards are compared literally.
+   */
+  @Test
+  public void testLiteral() {
+    assertTrue(Glob.compile("refs/heads/master", true).matches("refs/heads/master"));
+    assertFalse(Glob.compile("refs/heads/master", true).matches("refs/heads/Master"));
+    assertTrue(Glob.compile("BasinMC/Ejector", false).matches("basinmc/ejector"));
+    assertFalse(Glob.compile("BasinMC/Ejector", false).matches("basinmc/ejector2"));
+  }
+
+  /**
+   * Evaluates whether single wildcards do not match across path separators.
+   */
+  @Test
+  public void testWildcard() {
+    Glob glob = Glob.compile("refs/heads/*", true);
+
+    assertTrue(glob.matches("refs/heads/master"));
+    assertTrue(glob.matches("refs/heads/"));
+    assertFalse(glob.matches("refs/heads/feature/routing"));
+    assertFalse(glob.matches("refs/tags/1.0.0"));
+  }
+
+  /**
+   * Evaluates whether double wildcards match across path separators.
+   */
+  @Test
+  public void testDoubleWildcard() {
+    Glob glob = Glob.compile("refs/**", true);
+
+    assertTrue(glob.matches("refs/heads/master"));
+    assertTrue(glob.matches("refs/heads/feature/routing"));
+    assertFalse(glob.matches("heads/master"));
+  }
+
+  /**
+   * Evaluates whether question marks match exactly one character other than a path separator.
+   */
+  @Test
+  public void testSingleCharacter() {
+    Glob glob = Glob.compile("refs/tags/v?", true);
+
+    assertTrue(glob.matches("refs/tags/v1"));
+    assertFalse(glob.matches("refs/tags/v"));
+    assertFalse(glob.matches("refs/tags/v10"));
+    assertFalse(Glob.compile("a?b", true).matches("a/b"));
+  }
+
+  /**
+   * Evaluates whether regular expression characters within patterns are matched literally.
+   */
+  @Test
+  public void testQuoting() {
+    Glob glob = Glob.compile("refs/tags/1.0.*", true);
+
+    assertTrue(glob.matches("refs/tags/1.0.2"));
+    assertFalse(glob.matches("refs/tags/1x0x2"));
+    assertTrue(Glob.compile("a+b(*)", true).matches("a+b(c)"));
+  }
+
+  /**
+   * Evaluates whether the case sensitivity of patterns is respected.
+   */
+  @Test
+  public void testCaseSensitivity() {
+    assertTrue(Glob.compile("BasinMC/*", false).matches("basinmc/ejector"));
+    assertFalse(Glob.compile("BasinMC/*", true).matches("basinmc/ejector"));
+    assertTrue(Glob.compile("BasinMC/*", true).matches("BasinMC/ejector"));
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.routing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Consumer;
+import org.basinmc.ejector.configuration.AbstractChannelEntry;
+import org.basinmc.stormdrain.PayloadType;
+import org.basinmc.stormdrain.event.Event;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link RoutingTable}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class RoutingTableTest {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Loads the fixture for the specified payload type and applies a set of modifications to it
+   * before decoding.
+   *
+   * @param type a payload type.
+   * @param customizer a function which modifies the raw payload.
+   * @return a decoded event.
+   * @throws IOException when the fixture cannot be read.
+   */
+  @NonNull
+  private static Event load(@NonNull PayloadType type, @NonNull Consumer<ObjectNode> customizer)
+      throws IOException {
+    String path = "/fixtures/" + type.name().toLowerCase() + ".json";
+
+    try (InputStream inputStream = RoutingTableTest.class.getResourceAsStream(path)) {
+      ObjectNode node = (ObjectNode) mapper.readTree(inputStream);
+      customizer.accept(node);
+      return type.read(mapper.writeValueAsString(node));
+    }
+  }
+
+  @NonNull
+  private static Event load(@NonNull PayloadType type) throws IOException {
+    return load(type, (n) -> {
+    });
+  }
+
+  /**
+   * Evaluates whether channels without filters receive all events.
+   */
+  @Test
+  public void testUnfiltered() throws IOException {
+    Channel channel = new Channel("all");
+    RoutingTable<Channel> table = RoutingTable.of(Collections.singletonList(channel));
+
+    assertEquals(Collections.singletonList(channel),
+        table.route(PayloadType.PUSH, load(PayloadType.PUSH)));
+    assertEquals(Collections.singletonList(channel),
+        table.route(PayloadType.ISSUES, load(PayloadType.ISSUES)));
+  }
+
+  /**
+   * Evaluates whether channels only receive the events they subscribed to.
+   */
+  @Test
+  public void testEventSubscription() throws IOException {
+    Channel channel = new Channel("issues");
+    channel.getEvents().add(PayloadType.ISSUES);
+    RoutingTable<Channel> table = RoutingTable.of(Collections.singletonList(channel));
+
+    assertTrue(table.route(PayloadType.PUSH, load(PayloadType.PUSH)).isEmpty());
+    assertEquals(Collections.singletonList(channel),
+        table.route(PayloadType.ISSUES, load(PayloadType.ISSUES)));
+  }
+
+  /**
+   * Evaluates whether repositories are matched case insensitively.
+   */
+  @Test
+  public void testRepository() throws IOException {
+    Channel matching = new Channel("matching");
+    matching.getFilter().getRepositories().add("BaxterTheHacker/*");
+    Channel other = new Channel("other");
+    other.getFilter().getRepositories().add("basinmc/*");
+    RoutingTable<Channel> table = RoutingTable.of(Arrays.asList(matching, other));
+
+    assertEquals(Collections.singletonList(matching),
+        table.route(PayloadType.PUSH, load(PayloadType.PUSH)));
+  }
+
+  /**
+   * Evaluates whether references are matched case sensitively even when multiple channels
+   * reference the same branch with differing case.
+   */
+  @Test
+  public void testReferenceCase() throws IOException {
+    Channel upper = new Channel("upper");
+    upper.getFilter().getReferences().add("refs/heads/Changes");
+    Channel lower = new Channel("lower");
+    lower.getFilter().getReferences().add("refs/heads/changes");
+    RoutingTable<Channel> table = RoutingTable.of(Arrays.asList(upper, lower));
+
+    assertEquals(Collections.singletonList(lower),
+        table.route(PayloadType.PUSH, load(PayloadType.PUSH)));
+    assertEquals(Collections.singletonList(upper), table.route(PayloadType.PUSH,
+        load(PayloadType.PUSH, (n) -> n.put("ref", "refs/heads/Changes"))));
+  }
+
+  /**
+   * Evaluates whether references are matched using glob patterns.
+   */
+  @Test
+  public void testReferencePattern() throws IOException {
+    Channel branches = new Channel("branches");
+    branches.getFilter().getReferences().add("refs/heads/*");
+    Channel features = new Channel("features");
+    features.getFilter().getReferences().add("refs/heads/feature/**");
+    RoutingTable<Channel> table = RoutingTable.of(Arrays.asList(branches, features));
+
+    assertEquals(Collections.singletonList(branches),
+        table.route(PayloadType.PUSH, load(PayloadType.PUSH)));
+    assertEquals(Collections.singletonList(features), table.route(PayloadType.PUSH,
+        load(PayloadType.PUSH, (n) -> n.put("ref", "refs/heads/feature/routing/table"))));
+  }
+
+  /**
+   * Evaluates whether the references of created tags and branches are qualified before they are
+   * matched.
+   */
+  @Test
+  public void testCreatedReference() throws IOException {
+    Channel tags = new Channel("tags");
+    tags.getFilter().getReferences().add("refs/tags/*");
+    Channel branches = new Channel("branches");
+    branches.getFilter().getReferences().add("refs/heads/*");
+    RoutingTable<Channel> table = RoutingTable.of(Arrays.asList(tags, branches));
+
+    assertEquals(Collections.singletonList(tags),
+        table.route(PayloadType.CREATE, load(PayloadType.CREATE)));
+    assertEquals(Collections.singletonList(branches), table.route(PayloadType.CREATE,
+        load(PayloadType.CREATE, (n) -> n.put("ref_type", "branch"))));
+  }
+
+  /**
+   * Evaluates whether actions are matched case insensitively.
+   */
+  @Test
+  public void testAction() throws IOException {
+    Channel opened = new Channel("opened");
+    opened.getFilter().getActions().add("OPENED");
+    Channel closed = new Channel("closed");
+    closed.getFilter().getActions().add("closed");
+    RoutingTable<Channel> table = RoutingTable.of(Arrays.asList(opened, closed));
+
+    assertEquals(Collections.singletonList(opened),
+        table.route(PayloadType.ISSUES, load(PayloadType.ISSUES)));
+    assertEquals(Collections.singletonList(closed), table.route(PayloadType.ISSUES,
+        load(PayloadType.ISSUES, (n) -> n.put("action", "closed"))));
+  }
+
+  /**
+   * Evaluates whether included and excluded senders are respected.
+   */
+  @Test
+  public void testSender() throws IOException {
+    Channel included = new Channel("included");
+    included.getFilter().getSenders().add("BaxterTheHacker");
+    Channel excluded = new Channel("excluded");
+    excluded.getFilter().getExcludedSenders().add("baxterthehacker");
+    RoutingTable<Channel> table = RoutingTable.of(Arrays.asList(included, excluded));
+
+    assertEquals(Collections.singletonList(included),
+        table.route(PayloadType.PUSH, load(PayloadType.PUSH)));
+    assertEquals(Collections.singletonList(excluded), table.route(PayloadType.PUSH,
+        load(PayloadType.PUSH, (n) -> ((ObjectNode) n.get("sender")).put("login", "octocat"))));
+  }
+
+  /**
+   * Evaluates whether all filters of a channel need to match while any value within a filter
+   * may match.
+   */
+  @Test
+  public void testConjunction() throws IOException {
+    Channel channel = new Channel("combined");
+    channel.getFilter().getRepositories().add("basinmc/*");
+    channel.getFilter().getRepositories().add("baxterthehacker/*");
+    channel.getFilter().getActions().add("closed");
+    channel.getFilter().getActions().add("reopened");
+    RoutingTable<Channel> table = RoutingTable.of(Collections.singletonList(channel));
+
+    assertTrue(table.route(PayloadType.ISSUES, load(PayloadType.ISSUES)).isEmpty());
+    assertEquals(Collections.singletonList(channel), table.route(PayloadType.ISSUES,
+        load(PayloadType.ISSUES, (n) -> n.put("action", "reopened"))));
+  }
+
+  /**
+   * Provides a channel entry which is identified by its name.
+   */
+  private static final class Channel extends AbstractChannelEntry {
+
+    private final String name;
+
+    private Channel(@NonNull String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+  }
+}
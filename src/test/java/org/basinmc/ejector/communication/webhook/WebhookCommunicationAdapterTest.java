@@ -0,0 +1,435 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.communication.webhook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+import org.basinmc.ejector.communication.Message;
+import org.basinmc.ejector.configuration.WebhookConfiguration;
+import org.basinmc.ejector.configuration.WebhookConfiguration.Endpoint;
+import org.basinmc.ejector.execution.VirtualThreads;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>Provides test cases for {@link WebhookCommunicationAdapter}.</p>
+ *
+ * <p>Events are posted to an in-process HTTP server which records every request and answers
+ * them through an exchangeable {@link Responder}.</p>
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class WebhookCommunicationAdapterTest {
+
+  /**
+   * Defines the amount of time (in milliseconds) which is granted to asynchronous deliveries.
+   */
+  private static final long TIMEOUT = 10000;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+  private ExecutorService executor;
+  private HttpServer server;
+  private Endpoint endpoint;
+  private WebhookCommunicationAdapter adapter;
+  private volatile Responder responder = (i, e) -> e.sendResponseHeaders(204, -1);
+
+  @Before
+  public void setUp() throws IOException {
+    // requests are handled concurrently so that in-flight requests may be held open
+    this.executor = Executors.newCachedThreadPool();
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.setExecutor(this.executor);
+    this.server.createContext("/events", this::handle);
+    this.server.start();
+
+    this.endpoint = new Endpoint();
+    this.endpoint.setUrl(URI.create(
+        "http://127.0.0.1:" + this.server.getAddress().getPort() + "/events"));
+    this.endpoint.setBatchDelay(50);
+    this.endpoint.setRetryDelay(50);
+    this.endpoint.setMaximumRetryDelay(1000);
+  }
+
+  @After
+  public void tearDown() {
+    if (this.adapter != null) {
+      this.adapter.destroy();
+    }
+
+    this.server.stop(0);
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Records an incoming request and passes it to the current responder.
+   *
+   * @param exchange an exchange.
+   * @throws IOException when reading the request or writing the response fails.
+   */
+  private void handle(@NonNull HttpExchange exchange) throws IOException {
+    try {
+      InputStream inputStream = exchange.getRequestBody();
+      if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+        inputStream = new GZIPInputStream(inputStream);
+      }
+
+      Request request = new Request(exchange.getRequestHeaders(),
+          this.mapper.readTree(inputStream), System.nanoTime());
+      this.requests.add(request);
+
+      this.responder.respond(this.requests.size() - 1, exchange);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Creates an adapter which posts to the test endpoint.
+   */
+  private void start() {
+    WebhookConfiguration configuration = new WebhookConfiguration();
+    configuration.getEndpoints().add(this.endpoint);
+
+    this.adapter = new WebhookCommunicationAdapter(configuration, this.registry,
+        new VirtualThreads(false), null);
+  }
+
+  /**
+   * Queues a message with the specified text.
+   *
+   * @param text a text.
+   */
+  private void send(@NonNull String text) {
+    this.adapter.sendMessage(Message.builder().withText(text).build());
+  }
+
+  /**
+   * Retrieves the amount of events which have been delivered with the specified outcome.
+   *
+   * @param outcome an outcome.
+   * @return an amount of events.
+   */
+  private int getDeliveries(@NonNull String outcome) {
+    return (int) this.registry.counter("ejector.delivery",
+        "adapter", "webhook",
+        "channel", this.endpoint.getUrl().toString(),
+        "outcome", outcome)
+        .count();
+  }
+
+  /**
+   * Waits until the specified condition is met.
+   *
+   * @param condition a condition.
+   * @throws InterruptedException when interrupted while waiting.
+   */
+  private static void await(@NonNull BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+
+    while (!condition.getAsBoolean()) {
+      assertTrue("Timed out while waiting for condition", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Evaluates whether complete batches are posted as a single request.
+   */
+  @Test
+  public void testBatching() throws InterruptedException {
+    this.endpoint.setBatchSize(3);
+    this.endpoint.setBatchDelay(TIMEOUT * 2);
+    this.start();
+
+    this.send("a");
+    this.send("b");
+    this.send("c");
+    await(() -> this.getDeliveries("success") == 3);
+
+    assertEquals(1, this.requests.size());
+
+    JsonNode events = this.requests.get(0).body.get("events");
+    assertEquals(3, events.size());
+    for (int i = 0; i < 3; ++i) {
+      assertEquals("message", events.get(i).get("type").asText());
+      assertEquals(String.valueOf((char) ('a' + i)), events.get(i).get("text").asText());
+    }
+  }
+
+  /**
+   * Evaluates whether incomplete batches are posted once the batch delay elapses.
+   */
+  @Test
+  public void testPartialBatch() throws InterruptedException {
+    this.endpoint.setBatchSize(10);
+    this.start();
+
+    this.send("a");
+    this.send("b");
+    await(() -> this.getDeliveries("success") == 2);
+
+    assertEquals(1, this.requests.size());
+    assertEquals(2, this.requests.get(0).body.get("events").size());
+  }
+
+  /**
+   * Evaluates whether request bodies are compressed when desired.
+   */
+  @Test
+  public void testCompression() throws InterruptedException {
+    this.endpoint.setCompressed(true);
+    this.endpoint.getHeaders().put("X-Token", "secret");
+    this.start();
+
+    this.send("compressed");
+    await(() -> this.getDeliveries("success") == 1);
+
+    Request request = this.requests.get(0);
+    assertEquals("gzip", request.headers.getFirst("Content-Encoding"));
+    assertEquals("application/json", request.headers.getFirst("Content-Type"));
+    assertEquals("secret", request.headers.getFirst("X-Token"));
+    assertEquals("compressed", request.body.get("events").get(0).get("text").asText());
+  }
+
+  /**
+   * Evaluates whether uncompressed bodies are posted without an encoding.
+   */
+  @Test
+  public void testUncompressed() throws InterruptedException {
+    this.start();
+
+    this.send("plain");
+    await(() -> this.getDeliveries("success") == 1);
+
+    Request request = this.requests.get(0);
+    assertNull(request.headers.getFirst("Content-Encoding"));
+    assertEquals("plain", request.body.get("events").get(0).get("text").asText());
+  }
+
+  /**
+   * Evaluates whether the amount of concurrent requests is limited per endpoint.
+   */
+  @Test
+  public void testConcurrency() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maximum = new AtomicInteger();
+
+    this.endpoint.setConcurrency(2);
+    this.responder = (i, e) -> {
+      maximum.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+      inFlight.decrementAndGet();
+      e.sendResponseHeaders(204, -1);
+    };
+    this.start();
+
+    for (int i = 0; i < 5; ++i) {
+      this.send("event " + i);
+    }
+
+    await(() -> this.requests.size() == 2);
+    Thread.sleep(250);
+    assertEquals(2, this.requests.size());
+
+    release.countDown();
+    await(() -> this.getDeliveries("success") == 5);
+
+    assertEquals(5, this.requests.size());
+    assertEquals(2, maximum.get());
+  }
+
+  /**
+   * Evaluates whether failed requests are retried with an increasing delay.
+   */
+  @Test
+  public void testRetry() throws InterruptedException {
+    this.responder = (i, e) -> e.sendResponseHeaders(i < 2 ? 503 : 204, -1);
+    this.start();
+
+    this.send("retried");
+    await(() -> this.getDeliveries("success") == 1);
+
+    assertEquals(3, this.requests.size());
+    assertEquals(0, this.getDeliveries("failure"));
+    for (Request request : this.requests) {
+      assertEquals("retried", request.body.get("events").get(0).get("text").asText());
+    }
+
+    // the delay of each attempt is randomized between half and all of its backoff
+    assertTrue(this.getInterval(0) >= 25);
+    assertTrue(this.getInterval(1) >= 50);
+  }
+
+  /**
+   * Evaluates whether deliveries are abandoned once all attempts have failed.
+   */
+  @Test
+  public void testMaximumAttempts() throws InterruptedException {
+    this.endpoint.setMaximumAttempts(3);
+    this.responder = (i, e) -> e.sendResponseHeaders(500, -1);
+    this.start();
+
+    this.send("failed");
+    await(() -> this.getDeliveries("failure") == 1);
+    Thread.sleep(250);
+
+    assertEquals(3, this.requests.size());
+    assertEquals(0, this.getDeliveries("success"));
+  }
+
+  /**
+   * Evaluates whether client errors are not retried.
+   */
+  @Test
+  public void testClientError() throws InterruptedException {
+    this.responder = (i, e) -> e.sendResponseHeaders(400, -1);
+    this.start();
+
+    this.send("rejected");
+    await(() -> this.getDeliveries("failure") == 1);
+    Thread.sleep(250);
+
+    assertEquals(1, this.requests.size());
+  }
+
+  /**
+   * Evaluates whether delays which are requested by the endpoint take precedence over the
+   * computed backoff.
+   */
+  @Test
+  public void testRetryAfter() throws InterruptedException {
+    this.endpoint.setMaximumRetryDelay(TIMEOUT);
+    this.responder = (i, e) -> {
+      if (i == 0) {
+        e.getResponseHeaders().set("Retry-After", "1");
+        e.sendResponseHeaders(429, -1);
+        return;
+      }
+
+      e.sendResponseHeaders(204, -1);
+    };
+    this.start();
+
+    this.send("throttled");
+    await(() -> this.getDeliveries("success") == 1);
+
+    assertEquals(2, this.requests.size());
+    assertTrue(this.getInterval(0) >= 1000);
+  }
+
+  /**
+   * Evaluates whether delays which are requested by the endpoint are capped at the maximum retry
+   * delay.
+   */
+  @Test
+  public void testRetryAfterLimit() throws InterruptedException {
+    this.endpoint.setMaximumRetryDelay(300);
+    this.responder = (i, e) -> {
+      if (i == 0) {
+        e.getResponseHeaders().set("Retry-After", "3600");
+        e.sendResponseHeaders(503, -1);
+        return;
+      }
+
+      e.sendResponseHeaders(204, -1);
+    };
+    this.start();
+
+    this.send("throttled");
+    await(() -> this.getDeliveries("success") == 1);
+
+    long interval = this.getInterval(0);
+    assertTrue(interval >= 300);
+    assertTrue(interval < TIMEOUT);
+  }
+
+  /**
+   * Retrieves the amount of time which has passed between two consecutive requests.
+   *
+   * @param index the index of the first request.
+   * @return an interval (in milliseconds).
+   */
+  private long getInterval(int index) {
+    return TimeUnit.NANOSECONDS.toMillis(
+        this.requests.get(index + 1).receivedAt - this.requests.get(index).receivedAt);
+  }
+
+  /**
+   * Answers requests which have been received by the test server.
+   */
+  @FunctionalInterface
+  private interface Responder {
+
+    /**
+     * Writes the response to a request.
+     *
+     * @param index the index of the request (in order of receipt).
+     * @param exchange an exchange.
+     * @throws IOException when writing the response fails.
+     * @throws InterruptedException when interrupted while delaying the response.
+     */
+    void respond(int index, @NonNull HttpExchange exchange)
+        throws IOException, InterruptedException;
+  }
+
+  /**
+   * Represents a request which has been received by the test server.
+   */
+  private static final class Request {
+
+    private final Headers headers;
+    private final JsonNode body;
+    private final long receivedAt;
+
+    private Request(@NonNull Headers headers, @NonNull JsonNode body, long receivedAt) {
+      this.headers = headers;
+      this.body = body;
+      this.receivedAt = receivedAt;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import org.basinmc.ejector.utility.InternPool;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Provides test cases for {@link EncodedPayloadConverter}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class EncodedPayloadConverterTest {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  /**
+   * Loads the issues fixture and applies a set of modifications to it.
+   *
+   * @param customizer a function which modifies the raw payload.
+   * @return an encoded request body.
+   * @throws IOException when the fixture cannot be read.
+   */
+  @NonNull
+  private static byte[] load(@NonNull Consumer<ObjectNode> customizer) throws IOException {
+    try (InputStream inputStream = EncodedPayloadConverterTest.class
+        .getResourceAsStream("/fixtures/issues.json")) {
+      ObjectNode node = (ObjectNode) mapper.readTree(inputStream);
+      customizer.accept(node);
+      return mapper.writeValueAsBytes(node);
+    }
+  }
+
+  /**
+   * Reads a request body through the specified converter.
+   *
+   * @param converter a converter.
+   * @param body a request body.
+   * @return a reduced payload.
+   * @throws IOException when reading fails.
+   */
+  @NonNull
+  private static EncodedPayload read(@NonNull EncodedPayloadConverter converter,
+      @NonNull byte[] body) throws IOException {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.set("X-GitHub-Event", "issues");
+
+    return converter.read(EncodedPayload.class, new HttpInputMessage() {
+      @Override
+      public InputStream getBody() {
+        return new ByteArrayInputStream(body);
+      }
+
+      @Override
+      public HttpHeaders getHeaders() {
+        return headers;
+      }
+    });
+  }
+
+  /**
+   * Evaluates whether strings which are not selected by the schema are shortened while selected
+   * strings are retained in full.
+   */
+  @Test
+  public void testStringLength() throws IOException {
+    String text = new String(new char[100]).replace('\0', 'x');
+    byte[] body = load((n) -> {
+      ObjectNode issue = (ObjectNode) n.get("issue");
+      issue.put("title", text);
+      issue.put("body", text);
+    });
+
+    EncodedPayload payload = read(
+        new EncodedPayloadConverter(new InternPool(16), Long.MAX_VALUE, 10), body);
+    JsonNode issue = mapper.readTree(payload.getContent()).get("issue");
+
+    assertEquals(text, issue.get("title").asText());
+    assertEquals("xxxxxxxxxx", issue.get("body").asText());
+    assertEquals(body.length, payload.getSize());
+  }
+
+  /**
+   * Evaluates whether surrogate pairs are never split when shortening strings.
+   */
+  @Test
+  public void testStringLengthSurrogate() throws IOException {
+    byte[] body = load((n) -> ((ObjectNode) n.get("issue")).put("body", "xxxxxxxxx😀"));
+
+    EncodedPayload payload = read(
+        new EncodedPayloadConverter(new InternPool(16), Long.MAX_VALUE, 10), body);
+
+    assertEquals("xxxxxxxxx",
+        mapper.readTree(payload.getContent()).get("issue").get("body").asText());
+  }
+
+  /**
+   * Evaluates whether bodies which exceed the maximum payload size are rejected.
+   */
+  @Test
+  public void testPayloadSize() throws IOException {
+    byte[] body = load((n) -> {
+    });
+
+    read(new EncodedPayloadConverter(new InternPool(16), body.length, 65536), body);
+
+    try {
+      read(new EncodedPayloadConverter(new InternPool(16), body.length - 1, 65536), body);
+      fail("Expected payload to be rejected");
+    } catch (ResponseStatusException ex) {
+      assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, ex.getStatus());
+    }
+  }
+}
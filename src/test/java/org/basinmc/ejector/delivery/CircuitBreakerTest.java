@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.basinmc.ejector.delivery.CircuitBreaker.State;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link CircuitBreaker}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class CircuitBreakerTest {
+
+  private static final long OPEN_DURATION = 200;
+  private static final long MAXIMUM_OPEN_DURATION = 300;
+
+  private final CircuitBreaker breaker = new CircuitBreaker("test", 3, OPEN_DURATION,
+      MAXIMUM_OPEN_DURATION);
+
+  /**
+   * Evaluates whether the circuit remains closed while failures remain below the threshold.
+   */
+  @Test
+  public void testBelowThreshold() {
+    this.breaker.onFailure();
+    this.breaker.onFailure();
+
+    assertEquals(State.CLOSED, this.breaker.getState());
+    assertTrue(this.breaker.tryAcquire());
+  }
+
+  /**
+   * Evaluates whether successful deliveries reset the amount of consecutive failures.
+   */
+  @Test
+  public void testSuccessResetsFailures() {
+    this.breaker.onFailure();
+    this.breaker.onFailure();
+    this.breaker.onSuccess();
+    this.breaker.onFailure();
+    this.breaker.onFailure();
+
+    assertEquals(State.CLOSED, this.breaker.getState());
+  }
+
+  /**
+   * Evaluates whether the circuit opens once the threshold is reached and rejects deliveries
+   * until the open duration elapses.
+   */
+  @Test
+  public void testOpen() throws InterruptedException {
+    this.trip();
+
+    assertEquals(State.OPEN, this.breaker.getState());
+    assertFalse(this.breaker.tryAcquire());
+
+    Thread.sleep(OPEN_DURATION + 50);
+
+    assertTrue(this.breaker.tryAcquire());
+    assertEquals(State.HALF_OPEN, this.breaker.getState());
+
+    // only a single probe is permitted at a time
+    assertFalse(this.breaker.tryAcquire());
+  }
+
+  /**
+   * Evaluates whether successful probes close the circuit.
+   */
+  @Test
+  public void testProbeSuccess() throws InterruptedException {
+    this.trip();
+    Thread.sleep(OPEN_DURATION + 50);
+    assertTrue(this.breaker.tryAcquire());
+
+    this.breaker.onSuccess();
+
+    assertEquals(State.CLOSED, this.breaker.getState());
+    assertTrue(this.breaker.tryAcquire());
+    assertTrue(this.breaker.tryAcquire());
+  }
+
+  /**
+   * Evaluates whether failed probes re-open the circuit with an increased (but bounded)
+   * duration.
+   */
+  @Test
+  public void testProbeFailure() throws InterruptedException {
+    this.trip();
+    Thread.sleep(OPEN_DURATION + 50);
+    assertTrue(this.breaker.tryAcquire());
+
+    this.breaker.onFailure();
+    assertEquals(State.OPEN, this.breaker.getState());
+
+    // the doubled duration is capped at the maximum and thus elapses before twice the initial
+    // duration
+    Thread.sleep(OPEN_DURATION + 50);
+    assertFalse(this.breaker.tryAcquire());
+
+    Thread.sleep(MAXIMUM_OPEN_DURATION - OPEN_DURATION + 50);
+    assertTrue(this.breaker.tryAcquire());
+    assertEquals(State.HALF_OPEN, this.breaker.getState());
+  }
+
+  /**
+   * Evaluates whether circuits never open when no threshold has been configured.
+   */
+  @Test
+  public void testDisabled() {
+    CircuitBreaker breaker = new CircuitBreaker("disabled", 0, OPEN_DURATION,
+        MAXIMUM_OPEN_DURATION);
+
+    for (int i = 0; i < 100; ++i) {
+      breaker.onFailure();
+    }
+
+    assertEquals(State.CLOSED, breaker.getState());
+    assertTrue(breaker.tryAcquire());
+  }
+
+  /**
+   * Reports enough consecutive failures to open the circuit.
+   */
+  private void trip() {
+    for (int i = 0; i < 3; ++i) {
+      assertTrue(this.breaker.tryAcquire());
+      this.breaker.onFailure();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.delivery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link WeightedFairQueue}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class WeightedFairQueueTest {
+
+  private static final int[] WEIGHTS = {4, 2, 1};
+
+  /**
+   * Evaluates whether elements of the same priority are retrieved in order of insertion.
+   */
+  @Test
+  public void testOrder() {
+    WeightedFairQueue<String> queue = new WeightedFairQueue<>(16, WEIGHTS);
+    queue.offer("a", DeliveryPriority.NORMAL);
+    queue.offer("b", DeliveryPriority.NORMAL);
+    queue.offer("c", DeliveryPriority.NORMAL);
+
+    assertEquals(3, queue.size());
+    assertEquals("a", queue.poll());
+    assertEquals("b", queue.poll());
+    assertEquals("c", queue.poll());
+    assertNull(queue.poll());
+    assertEquals(0, queue.size());
+  }
+
+  /**
+   * Evaluates whether backlogged lanes are served in proportion to their weights.
+   */
+  @Test
+  public void testWeights() {
+    WeightedFairQueue<DeliveryPriority> queue = new WeightedFairQueue<>(1024, WEIGHTS);
+
+    for (int i = 0; i < 100; ++i) {
+      for (DeliveryPriority priority : DeliveryPriority.values()) {
+        queue.offer(priority, priority);
+      }
+    }
+
+    Map<DeliveryPriority, Integer> counts = new EnumMap<>(DeliveryPriority.class);
+    for (int i = 0; i < 70; ++i) {
+      counts.merge(queue.poll(), 1, Integer::sum);
+    }
+
+    assertEquals(40, (int) counts.get(DeliveryPriority.HIGH));
+    assertEquals(20, (int) counts.get(DeliveryPriority.NORMAL));
+    assertEquals(10, (int) counts.get(DeliveryPriority.LOW));
+  }
+
+  /**
+   * Evaluates whether idle lanes do not accumulate credit which would let them starve other
+   * lanes later on.
+   */
+  @Test
+  public void testIdleLane() {
+    WeightedFairQueue<String> queue = new WeightedFairQueue<>(1024, WEIGHTS);
+
+    for (int i = 0; i < 10; ++i) {
+      queue.offer("low", DeliveryPriority.LOW);
+      assertEquals("low", queue.poll());
+    }
+
+    queue.offer("high", DeliveryPriority.HIGH);
+    queue.offer("low", DeliveryPriority.LOW);
+
+    assertEquals("high", queue.poll());
+    assertEquals("low", queue.poll());
+  }
+
+  /**
+   * Evaluates whether the oldest element of the lowest priority lane is shed once the queue
+   * exceeds its capacity.
+   */
+  @Test
+  public void testShedding() {
+    WeightedFairQueue<String> queue = new WeightedFairQueue<>(2, WEIGHTS);
+
+    assertNull(queue.offer("a", DeliveryPriority.HIGH));
+    assertNull(queue.offer("b", DeliveryPriority.LOW));
+    assertEquals("b", queue.offer("c", DeliveryPriority.HIGH));
+
+    // offered elements are shed immediately when no lower priority elements remain
+    assertEquals("d", queue.offer("d", DeliveryPriority.LOW));
+    assertEquals("a", queue.offer("e", DeliveryPriority.HIGH));
+
+    assertEquals(2, queue.size());
+    assertEquals(Arrays.asList("c", "e"), queue.clear());
+  }
+
+  /**
+   * Evaluates whether clearing a queue returns all elements in order of their priority.
+   */
+  @Test
+  public void testClear() {
+    WeightedFairQueue<String> queue = new WeightedFairQueue<>(16, WEIGHTS);
+    queue.offer("low", DeliveryPriority.LOW);
+    queue.offer("normal", DeliveryPriority.NORMAL);
+    queue.offer("high", DeliveryPriority.HIGH);
+
+    assertEquals(Arrays.asList("high", "normal", "low"), queue.clear());
+    assertEquals(0, queue.size());
+    assertNull(queue.poll());
+  }
+
+  /**
+   * Evaluates whether consumers are woken up once an element is offered.
+   */
+  @Test(timeout = 5000)
+  public void testTake() throws Exception {
+    WeightedFairQueue<String> queue = new WeightedFairQueue<>(16, WEIGHTS);
+    CompletableFuture<String> result = new CompletableFuture<>();
+
+    Thread consumer = new Thread(() -> {
+      try {
+        result.complete(queue.take());
+      } catch (InterruptedException ex) {
+        result.completeExceptionally(ex);
+      }
+    });
+    consumer.start();
+
+    Thread.sleep(100);
+    queue.offer("a", DeliveryPriority.NORMAL);
+
+    assertEquals("a", result.get(1, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.dispatch.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.tools.Diagnostic;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Provides test cases for {@link PayloadDispatcherProcessor}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class PayloadDispatcherProcessorTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Compiles a handler type and returns the errors reported by the processor.
+   *
+   * @param handlers the source of the handler methods.
+   * @return a list of error messages.
+   */
+  private List<String> compile(String handlers) throws Exception {
+    String source = "package test;\n"
+        + "import org.basinmc.ejector.dispatch.PayloadHandler;\n"
+        + "import org.basinmc.stormdrain.PayloadType;\n"
+        + "import org.basinmc.stormdrain.event.*;\n"
+        + "public class Handlers {\n" + handlers + "}\n";
+    JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///test/Handlers.java"),
+        JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return source;
+      }
+    };
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    CompilationTask task = compiler.getTask(null, null, diagnostics, Arrays
+            .asList("-proc:only", "-classpath", System.getProperty("java.class.path"), "-s",
+                this.folder.getRoot().getAbsolutePath()), null,
+        Collections.singletonList(file));
+    task.setProcessors(Collections.singletonList(new PayloadDispatcherProcessor()));
+    task.call();
+
+    return diagnostics.getDiagnostics().stream()
+        .filter((d) -> d.getKind() == Kind.ERROR)
+        .map((d) -> d.getMessage(null))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Evaluates whether handlers which accept the event of their payload type (or one of its
+   * super types) are accepted.
+   */
+  @Test
+  public void testMatchingEvent() throws Exception {
+    List<String> errors = this.compile(""
+        + "@PayloadHandler(PayloadType.PUSH) void push(PushEvent event) {}\n"
+        + "@PayloadHandler(PayloadType.ORG_BLOCK) void block(OrganizationBlockEvent event) {}\n"
+        + "@PayloadHandler(PayloadType.CREATE) void create(Event event) {}\n");
+
+    assertEquals(Collections.emptyList(), errors);
+  }
+
+  /**
+   * Evaluates whether handlers which accept the event of a different payload type are rejected.
+   */
+  @Test
+  public void testMismatchedEvent() throws Exception {
+    List<String> errors = this.compile(""
+        + "@PayloadHandler(PayloadType.PUSH) void push(CreateEvent event) {}\n");
+
+    assertEquals(1, errors.size());
+    assertTrue(errors.get(0), errors.get(0).contains("PUSH delivers PushEvent"));
+  }
+}
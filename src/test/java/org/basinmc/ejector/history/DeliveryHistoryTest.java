@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.util.List;
+import java.util.UUID;
+import org.basinmc.ejector.projection.Projection;
+import org.basinmc.stormdrain.PayloadType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Provides test cases for {@link DeliveryHistory}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class DeliveryHistoryTest {
+
+  private static final long RETENTION = 604800000;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private DeliveryHistory create(String file) {
+    return new DeliveryHistory(16, RETENTION, file, 60000, new SimpleMeterRegistry());
+  }
+
+  /**
+   * Evaluates whether rejected deliveries are selectable until they are marked as delivered.
+   */
+  @Test
+  public void testUndelivered() {
+    DeliveryHistory history = this.create("");
+    UUID rejected = UUID.randomUUID();
+
+    history.record(UUID.randomUUID(), PayloadType.PUSH, "{}",
+        Projection.builder(PayloadType.PUSH).build());
+    history.record(rejected, PayloadType.PUSH, "{}", Projection.builder(PayloadType.PUSH).build());
+    history.markUndelivered(rejected);
+
+    List<HistoryRecord> records = history.select(HistoryRecord::isUndelivered);
+    assertEquals(1, records.size());
+    assertEquals(rejected, records.get(0).getDeliveryId());
+
+    history.markDelivered(rejected);
+    assertTrue(history.select(HistoryRecord::isUndelivered).isEmpty());
+    assertEquals(2, history.size());
+  }
+
+  /**
+   * Evaluates whether the most recent delivery state of a record is restored from the file.
+   */
+  @Test
+  public void testUndeliveredPersisted() throws Exception {
+    String file = new File(this.folder.getRoot(), "history.jsonl").getAbsolutePath();
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+
+    DeliveryHistory history = this.create(file);
+    history.record(first, PayloadType.PUSH, "{}", Projection.builder(PayloadType.PUSH).build());
+    history.record(second, PayloadType.PUSH, "{}", Projection.builder(PayloadType.PUSH).build());
+    history.destroy();
+
+    history = this.create(file);
+    history.markUndelivered(first);
+    history.markUndelivered(second);
+    history.markDelivered(second);
+    history.destroy();
+
+    history = this.create(file);
+    List<HistoryRecord> records = history.select((r) -> true);
+    history.destroy();
+
+    assertEquals(2, records.size());
+    assertTrue(records.get(0).isUndelivered());
+    assertFalse(records.get(1).isUndelivered());
+  }
+}
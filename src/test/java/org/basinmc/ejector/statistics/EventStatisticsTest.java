@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Johannes Donath <johannesd@torchmind.com>
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basinmc.ejector.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
+import org.basinmc.stormdrain.Payload;
+import org.basinmc.stormdrain.PayloadType;
+import org.junit.Test;
+
+/**
+ * Provides test cases for {@link EventStatistics}.
+ *
+ * @author <a href="mailto:johannesd@torchmind.com">Johannes Donath</a>
+ */
+public class EventStatisticsTest {
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final Duration WINDOW = Duration.ofDays(1);
+
+  /**
+   * Loads the push fixture on behalf of the specified repository and user.
+   *
+   * @param repository a repository name.
+   * @param login a user login.
+   * @return a payload.
+   * @throws IOException when the fixture cannot be read.
+   */
+  @NonNull
+  private static Payload<?> push(@NonNull String repository, @NonNull String login)
+      throws IOException {
+    try (InputStream inputStream = EventStatisticsTest.class
+        .getResourceAsStream("/fixtures/push.json")) {
+      ObjectNode node = (ObjectNode) mapper.readTree(inputStream);
+      ((ObjectNode) node.path("repository")).put("full_name", repository);
+      ((ObjectNode) node.path("sender")).put("login", login);
+
+      return new Payload<>(UUID.randomUUID(), PayloadType.PUSH,
+          PayloadType.PUSH.read(mapper.writeValueAsString(node)));
+    }
+  }
+
+  /**
+   * Evaluates whether the most active users are ranked per repository as well as across all
+   * repositories.
+   */
+  @Test
+  public void testMostActiveUsers() throws IOException {
+    EventStatistics statistics = new EventStatistics(60, 24, 4, 4, 16);
+
+    statistics.record(push("BasinMC/Ejector", "alice"));
+    statistics.record(push("BasinMC/Ejector", "alice"));
+    statistics.record(push("BasinMC/Ejector", "bob"));
+    statistics.record(push("BasinMC/Basin", "bob"));
+    statistics.record(push("BasinMC/Basin", "bob"));
+    statistics.record(push("BasinMC/Basin", "carol"));
+
+    assertEquals(Arrays.asList(entry("bob", 3), entry("alice", 2), entry("carol", 1)),
+        statistics.getMostActiveUsers(null, WINDOW, 3));
+    assertEquals(Arrays.asList(entry("alice", 2), entry("bob", 1)),
+        statistics.getMostActiveUsers("BasinMC/Ejector", WINDOW, 3));
+    assertEquals(Arrays.asList(entry("bob", 2)),
+        statistics.getMostActiveUsers("BasinMC/Basin", WINDOW, 1));
+    assertTrue(statistics.getMostActiveUsers("BasinMC/Unknown", WINDOW, 3).isEmpty());
+  }
+
+  /**
+   * Evaluates whether users remain part of the global ranking when the repository and user
+   * combination limit has been exceeded.
+   */
+  @Test
+  public void testContributorLimit() throws IOException {
+    EventStatistics statistics = new EventStatistics(60, 24, 4, 4, 1);
+
+    statistics.record(push("BasinMC/Ejector", "alice"));
+    statistics.record(push("BasinMC/Ejector", "bob"));
+
+    List<Entry<String, Long>> users = statistics.getMostActiveUsers(null, WINDOW, 3);
+    assertEquals(2, users.size());
+    assertEquals(Arrays.asList(entry("alice", 1)),
+        statistics.getMostActiveUsers("BasinMC/Ejector", WINDOW, 3));
+  }
+
+  @NonNull
+  private static Entry<String, Long> entry(@NonNull String login, long count) {
+    return new SimpleImmutableEntry<>(login, count);
+  }
+}